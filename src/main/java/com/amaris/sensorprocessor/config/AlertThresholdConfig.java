@@ -22,6 +22,10 @@ public class AlertThresholdConfig {
     private HumidityThresholds humidity = new HumidityThresholds();
     private NoiseThresholds noise = new NoiseThresholds();
 
+    // Anti-rebond du moteur d'alertes (0 = désactivé)
+    private HysteresisMargins hysteresis = new HysteresisMargins();
+    private int minDurationSeconds = 0;  // durée minimale au-dessus du seuil avant de lever (ou d'aggraver) une alerte
+
     @Data
     public static class Co2Thresholds {
         private double critical = 1000.0;  // ppm
@@ -46,4 +50,12 @@ public class AlertThresholdConfig {
     public static class NoiseThresholds {
         private double warning = 70.0;  // dB
     }
+
+    @Data
+    public static class HysteresisMargins {
+        private double co2 = 0.0;          // ppm
+        private double temperature = 0.0;  // °C
+        private double humidity = 0.0;     // %
+        private double noise = 0.0;        // dB
+    }
 }
@@ -0,0 +1,59 @@
+package com.amaris.sensorprocessor.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Mode d'exécution du travail bloquant (JDBC, appels .block(), executors de synchro).
+ *
+ * Activé par spring.threads.virtual.enabled=true sur un runtime Java 21 :
+ * Spring Boot bascule alors Tomcat, les @Scheduled et l'applicationTaskExecutor sur des
+ * threads virtuels, et les beans ci-dessous suivent le même mode. Sinon on garde les
+ * threads plateforme (boundedElastic pour Reactor).
+ */
+@Slf4j
+@Configuration
+public class ExecutionConfig {
+
+    private final boolean virtualThreads;
+
+    public ExecutionConfig(Environment environment) {
+        this.virtualThreads = Threading.VIRTUAL.isActive(environment);
+        log.info("[Execution] Blocking work runs on {} threads", virtualThreads ? "virtual" : "platform");
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Fabrique de threads pour les executors internes (synchro gateways, reboots planifiés).
+     */
+    @Bean
+    public ThreadFactory backgroundThreadFactory() {
+        if (virtualThreads) {
+            return new VirtualThreadTaskExecutor("background-").getVirtualThreadFactory();
+        }
+        return new CustomizableThreadFactory("background-");
+    }
+
+    /**
+     * Scheduler Reactor pour les appels JDBC enveloppés dans un Flux/Mono.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler() {
+        if (virtualThreads) {
+            return Schedulers.fromExecutor(new VirtualThreadTaskExecutor("blocking-"));
+        }
+        return Schedulers.boundedElastic();
+    }
+}
@@ -0,0 +1,37 @@
+package com.amaris.sensorprocessor.config;
+
+import io.rsocket.core.Resume;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AuthenticationManager;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+
+/**
+ * Serveur RSocket (transport WebSocket, cf. spring.rsocket.server.*).
+ *
+ * La reprise de session permet à un écran mural ou à la vue 3D de retrouver ses flux
+ * après une coupure réseau courte, sans perdre les trames émises entre-temps.
+ * Chaque connexion s'authentifie au SETUP avec un compte de l'application (RSocketSetupAuthenticator).
+ */
+@Configuration
+public class RSocketConfig {
+
+    @Bean
+    public RSocketServerCustomizer rSocketResumeCustomizer(
+            @Value("${app.rsocket.resume-session-seconds:120}") long resumeSessionSeconds) {
+        return server -> server.resume(new Resume()
+                .sessionDuration(Duration.ofSeconds(resumeSessionSeconds))
+                .cleanupStoreOnKeepAlive());
+    }
+
+    @Bean
+    public RSocketServerCustomizer rSocketAuthenticationCustomizer(AuthenticationManager authenticationManager,
+                                                                   Scheduler blockingScheduler) {
+        return server -> server.interceptors(registry -> registry.forSocketAcceptor(
+                new RSocketSetupAuthenticator(authenticationManager, blockingScheduler)));
+    }
+}
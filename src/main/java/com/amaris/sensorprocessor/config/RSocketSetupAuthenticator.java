@@ -0,0 +1,106 @@
+package com.amaris.sensorprocessor.config;
+
+import io.netty.buffer.ByteBuf;
+import io.rsocket.ConnectionSetupPayload;
+import io.rsocket.SocketAcceptor;
+import io.rsocket.exceptions.RejectedSetupException;
+import io.rsocket.metadata.AuthMetadataCodec;
+import io.rsocket.metadata.CompositeMetadata;
+import io.rsocket.metadata.WellKnownAuthType;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.plugins.SocketAcceptorInterceptor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.util.Set;
+
+/**
+ * Authentification des connexions RSocket au SETUP, avec le même AuthenticationManager que le
+ * formulaire de connexion web.
+ *
+ * Le client envoie ses identifiants dans les métadonnées de SETUP au format "simple"
+ * (message/x.rsocket.authentication.v0), seules ou dans des métadonnées composites. Une connexion
+ * sans identifiants, ou d'un compte sans rôle applicatif, est refusée avant toute route.
+ */
+@Slf4j
+public class RSocketSetupAuthenticator implements SocketAcceptorInterceptor {
+
+    private static final Set<String> ALLOWED_ROLES = Set.of("ROLE_ADMIN", "ROLE_USER", "ROLE_SUPERUSER");
+
+    private final AuthenticationManager authenticationManager;
+    private final Scheduler blockingScheduler;
+
+    public RSocketSetupAuthenticator(AuthenticationManager authenticationManager, Scheduler blockingScheduler) {
+        this.authenticationManager = authenticationManager;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    private record Credentials(String username, String password) {
+    }
+
+    @Override
+    public SocketAcceptor apply(SocketAcceptor delegate) {
+        return (setup, sendingSocket) -> {
+            Credentials credentials = readCredentials(setup);
+            if (credentials == null) {
+                log.warn("[RSocket] Connection rejected: no credentials in SETUP metadata");
+                return Mono.error(new RejectedSetupException("Authentication required"));
+            }
+            // Vérification BCrypt + lecture en base : hors de la boucle d'événements Netty
+            return Mono.fromCallable(() -> authenticate(credentials))
+                    .subscribeOn(blockingScheduler)
+                    .onErrorMap(AuthenticationException.class, e -> {
+                        log.warn("[RSocket] Connection rejected for {}: {}", credentials.username(), e.getMessage());
+                        return new RejectedSetupException("Authentication failed");
+                    })
+                    .flatMap(authentication -> delegate.accept(setup, sendingSocket));
+        };
+    }
+
+    private Authentication authenticate(Credentials credentials) {
+        Authentication authentication = authenticationManager.authenticate(
+                new UsernamePasswordAuthenticationToken(credentials.username(), credentials.password()));
+        boolean allowed = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(ALLOWED_ROLES::contains);
+        if (!allowed) {
+            throw new RejectedSetupException("Access denied");
+        }
+        return authentication;
+    }
+
+    static Credentials readCredentials(ConnectionSetupPayload setup) {
+        if (!setup.hasMetadata()) {
+            return null;
+        }
+        String mimeType = setup.metadataMimeType();
+        ByteBuf metadata = setup.sliceMetadata();
+        if (WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString().equals(mimeType)) {
+            return decodeSimple(metadata);
+        }
+        if (WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString().equals(mimeType)) {
+            for (CompositeMetadata.Entry entry : new CompositeMetadata(metadata, false)) {
+                if (WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString().equals(entry.getMimeType())) {
+                    return decodeSimple(entry.getContent());
+                }
+            }
+        }
+        return null;
+    }
+
+    private static Credentials decodeSimple(ByteBuf content) {
+        ByteBuf buffer = content.slice();
+        if (!AuthMetadataCodec.isWellKnownAuthType(buffer)
+                || AuthMetadataCodec.readWellKnownAuthType(buffer) != WellKnownAuthType.SIMPLE) {
+            return null;
+        }
+        return new Credentials(new String(AuthMetadataCodec.readUsernameAsCharArray(buffer)),
+                new String(AuthMetadataCodec.readPasswordAsCharArray(buffer)));
+    }
+}
@@ -0,0 +1,27 @@
+package com.amaris.sensorprocessor.config;
+
+import com.amaris.sensorprocessor.service.ScheduledJobRunner;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * /actuator/jobs : état des jobs planifiés, dernière exécution, durée et historique récent.
+ */
+@Component
+@Endpoint(id = "jobs")
+public class ScheduledJobsEndpoint {
+
+    private final ScheduledJobRunner scheduledJobRunner;
+
+    public ScheduledJobsEndpoint(ScheduledJobRunner scheduledJobRunner) {
+        this.scheduledJobRunner = scheduledJobRunner;
+    }
+
+    @ReadOperation
+    public Map<String, Object> jobs() {
+        return scheduledJobRunner.describeJobs();
+    }
+}
@@ -1,5 +1,6 @@
 package com.amaris.sensorprocessor.config;
 
+import com.amaris.sensorprocessor.service.ScheduledJobRunner;
 import com.amaris.sensorprocessor.service.SignupService;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -10,14 +11,16 @@ import org.springframework.stereotype.Component;
 public class SchedulerConfig {
 
     private final SignupService signupService;
+    private final ScheduledJobRunner scheduledJobRunner;
 
-    public SchedulerConfig(SignupService signupService) {
+    public SchedulerConfig(SignupService signupService, ScheduledJobRunner scheduledJobRunner) {
         this.signupService = signupService;
+        this.scheduledJobRunner = scheduledJobRunner;
     }
 
     @Scheduled(cron = "0 0 * * * *") // hourly
     public void cleanupPendingUsers() {
-        signupService.cleanupExpired();
+        scheduledJobRunner.submit("pending-users-cleanup", signupService::cleanupExpired);
     }
 }
 
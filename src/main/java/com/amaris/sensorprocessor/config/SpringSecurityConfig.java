@@ -35,6 +35,8 @@ public class SpringSecurityConfig {
                         .requestMatchers("/manage-users", "/manage-users/**")
                         .hasAnyRole("ADMIN", "SUPERUSER")
                         .requestMatchers("/configuration", "/configuration/**").hasRole("ADMIN")
+                        .requestMatchers("/actuator/health", "/actuator/health/**").permitAll() // Sondes liveness / readiness
+                        .requestMatchers("/actuator/**").hasRole("ADMIN") // Endpoints d'exploitation (flux SSE, jobs)
                         .anyRequest().hasAnyRole("ADMIN", "USER", "SUPERUSER")
                 )
                 .formLogin(form -> form
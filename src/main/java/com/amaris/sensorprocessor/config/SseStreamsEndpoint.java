@@ -0,0 +1,32 @@
+package com.amaris.sensorprocessor.config;
+
+import com.amaris.sensorprocessor.service.SseConnectionRegistry;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * /actuator/ssestreams (ADMIN) : flux SSE ouverts, avec leur propriétaire masqué et la profondeur de leur tampon.
+ */
+@Component
+@Endpoint(id = "ssestreams")
+public class SseStreamsEndpoint {
+
+    private final SseConnectionRegistry sseConnectionRegistry;
+
+    public SseStreamsEndpoint(SseConnectionRegistry sseConnectionRegistry) {
+        this.sseConnectionRegistry = sseConnectionRegistry;
+    }
+
+    @ReadOperation
+    public Map<String, Object> streams() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("open", sseConnectionRegistry.openStreamCount());
+        result.put("settings", sseConnectionRegistry.describeSettings());
+        result.put("streams", sseConnectionRegistry.describeStreams());
+        return result;
+    }
+}
@@ -0,0 +1,26 @@
+package com.amaris.sensorprocessor.config;
+
+import com.amaris.sensorprocessor.service.StartupWarmup;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Indicateur "warmup" : OUT_OF_SERVICE tant que le préchauffage de démarrage n'est pas terminé,
+ * avec l'avancement de chaque étape. Inclus dans le groupe readiness (/actuator/health/readiness).
+ */
+@Component("warmup")
+public class WarmupHealthIndicator implements HealthIndicator {
+
+    private final StartupWarmup startupWarmup;
+
+    public WarmupHealthIndicator(StartupWarmup startupWarmup) {
+        this.startupWarmup = startupWarmup;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder = startupWarmup.isReady() ? Health.up() : Health.outOfService();
+        return builder.withDetails(startupWarmup.describe()).build();
+    }
+}
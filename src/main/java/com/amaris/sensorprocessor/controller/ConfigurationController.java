@@ -33,6 +33,7 @@ public class ConfigurationController {
     private final ProtocolService protocolService;
     private final DeviceTypeService deviceTypeService;
     private final BuildingEnergyConfigDao buildingEnergyConfigDao;
+    private final EnergyCostService energyCostService;
     private final SensorService sensorService;
     private final BuildingService buildingService;
     private final LocationService locationService;
@@ -54,6 +55,7 @@ public class ConfigurationController {
                                    DeviceTypeService deviceTypeService,
                                    SensorService sensorService,
                                    BuildingEnergyConfigDao buildingEnergyConfigDao,
+                                   EnergyCostService energyCostService,
                                    BuildingService buildingService,
                                    LocationService locationService,
                                    GatewayRebootSchedulerService gatewayRebootSchedulerService,
@@ -72,6 +74,7 @@ public class ConfigurationController {
         this.deviceTypeService = deviceTypeService;
         this.sensorService = sensorService;
         this.buildingEnergyConfigDao = buildingEnergyConfigDao;
+        this.energyCostService = energyCostService;
         this.buildingService = buildingService;
         this.locationService = locationService;
         this.gatewayRebootSchedulerService = gatewayRebootSchedulerService;
@@ -391,6 +394,7 @@ public class ConfigurationController {
             return ResponseEntity.badRequest().body(Map.of("error", "Energy cost must be a positive number"));
         }
         buildingEnergyConfigDao.save(config);
+        energyCostService.invalidateBuilding(config.getBuildingId());
         return ResponseEntity.ok().body(Map.of("message", "Building energy configuration saved successfully"));
     }
 
@@ -398,9 +402,36 @@ public class ConfigurationController {
     @ResponseBody
     public ResponseEntity<?> deleteBuildingEnergyConfig(@PathVariable Integer buildingId) {
         buildingEnergyConfigDao.delete(buildingId);
+        energyCostService.invalidateBuilding(buildingId);
         return ResponseEntity.ok().body(Map.of("message", "Building energy configuration deleted successfully"));
     }
 
+    @GetMapping("/api/configuration/building-energy/{buildingId}/tariffs")
+    @ResponseBody
+    public ResponseEntity<?> getBuildingEnergyTariffs(@PathVariable Integer buildingId) {
+        return ResponseEntity.ok(energyCostService.getTariffs(buildingId));
+    }
+
+    @PostMapping("/api/configuration/building-energy/{buildingId}/tariffs")
+    @ResponseBody
+    public ResponseEntity<?> saveBuildingEnergyTariff(@PathVariable Integer buildingId,
+                                                      @RequestBody BuildingEnergyTariff tariff) {
+        tariff.setBuildingId(buildingId);
+        try {
+            energyCostService.saveTariff(tariff);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        return ResponseEntity.ok().body(Map.of("message", "Building energy tariff saved successfully"));
+    }
+
+    @DeleteMapping("/api/configuration/building-energy/{buildingId}/tariffs/{id}")
+    @ResponseBody
+    public ResponseEntity<?> deleteBuildingEnergyTariff(@PathVariable Integer buildingId, @PathVariable Long id) {
+        energyCostService.deleteTariff(buildingId, id);
+        return ResponseEntity.ok().body(Map.of("message", "Building energy tariff deleted successfully"));
+    }
+
     @GetMapping("/configuration/brands/{id}/decoder")
     @ResponseBody
     public ResponseEntity<Map<String, Object>> getDecoder(@PathVariable Integer id) {
@@ -4,13 +4,15 @@ import com.amaris.sensorprocessor.entity.Building;
 import com.amaris.sensorprocessor.entity.DeviceType;
 import com.amaris.sensorprocessor.entity.Gateway;
 import com.amaris.sensorprocessor.entity.PayloadValueType;
+import com.amaris.sensorprocessor.entity.SensorData;
 import com.amaris.sensorprocessor.entity.User;
 import com.amaris.sensorprocessor.model.dashboard.*;
 import com.amaris.sensorprocessor.service.*;
 import com.amaris.sensorprocessor.repository.SensorDataDao;
-import com.amaris.sensorprocessor.repository.BuildingEnergyConfigDao;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
@@ -24,11 +26,10 @@ import org.springframework.web.server.ResponseStatusException;
 
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.scheduler.Schedulers;
+import reactor.core.scheduler.Scheduler;
 
 import java.security.Principal;
 import java.time.*;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -42,33 +43,17 @@ public class DashboardController {
     private final AlertService alertService;
     private final GatewayService gatewayService;
     private final BuildingService buildingService;
-    private final DeviceTypeService deviceTypeService;
+    private final TopologyRegistry topologyRegistry;
     private final SensorDataDao sensorDataDao;
-    private final BuildingEnergyConfigDao buildingEnergyConfigDao;
-
-    private static final String DEFAULT_APP_ID = "rpi-mantu-appli";
+    private final EnergyCostService energyCostService;
+    private final Scheduler blockingScheduler;
+    private final SseConnectionRegistry sseConnectionRegistry;
+    private final LiveEnergyAggregatorService liveEnergyAggregatorService;
+    private final LiveUplinkHub liveUplinkHub;
+    private final DashboardResponseCache responseCache;
 
     private final ObjectMapper om = new ObjectMapper();
 
-    // POWER (W) : building -> device -> channel(0..11) -> lastW
-    private final Map<String, Map<String, Map<Integer, Double>>> powerW = new ConcurrentHashMap<>();
-
-    // devices conso par building (pour calcul energy DB)
-    private final Map<String, List<String>> consoDevicesByBuilding = new ConcurrentHashMap<>();
-
-    // Pour reset quotidien (si tu veux reset d’autres trucs plus tard)
-    private final Map<String, LocalDate> lastDaySeen = new ConcurrentHashMap<>();
-
-    // Cache énergie DB (2 min TTL par building)
-    private final Map<String, Double> cachedEnergyWh = new ConcurrentHashMap<>();
-    private final Map<String, Instant> energyLastComputed = new ConcurrentHashMap<>();
-
-    // Cache building -> appId (invariant en runtime)
-    private final Map<String, String> buildingToAppIdCache = new ConcurrentHashMap<>();
-
-    // Tracker dernier message reçu par device (pour nettoyage fuite mémoire)
-    private final Map<String, Map<String, Instant>> powerLastSeen = new ConcurrentHashMap<>();
-
     @Autowired
     public DashboardController(
             UserService userService,
@@ -77,9 +62,14 @@ public class DashboardController {
             SensorService sensorService,
             GatewayService gatewayService,
             BuildingService buildingService,
-            DeviceTypeService deviceTypeService,
+            TopologyRegistry topologyRegistry,
             SensorDataDao sensorDataDao,
-            BuildingEnergyConfigDao buildingEnergyConfigDao
+            EnergyCostService energyCostService,
+            Scheduler blockingScheduler,
+            SseConnectionRegistry sseConnectionRegistry,
+            LiveEnergyAggregatorService liveEnergyAggregatorService,
+            LiveUplinkHub liveUplinkHub,
+            DashboardResponseCache responseCache
     ) {
         this.userService = userService;
         this.dashboardService = dashboardService;
@@ -87,9 +77,14 @@ public class DashboardController {
         this.sensorService = sensorService;
         this.gatewayService = gatewayService;
         this.buildingService = buildingService;
-        this.deviceTypeService = deviceTypeService;
+        this.topologyRegistry = topologyRegistry;
         this.sensorDataDao = sensorDataDao;
-        this.buildingEnergyConfigDao = buildingEnergyConfigDao;
+        this.energyCostService = energyCostService;
+        this.blockingScheduler = blockingScheduler;
+        this.sseConnectionRegistry = sseConnectionRegistry;
+        this.liveEnergyAggregatorService = liveEnergyAggregatorService;
+        this.liveUplinkHub = liveUplinkHub;
+        this.responseCache = responseCache;
     }
 
     @GetMapping("/dashboard")
@@ -111,13 +106,15 @@ public class DashboardController {
     @GetMapping(value = "/api/alerts/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     @ResponseBody
     public Flux<ServerSentEvent<String>> streamAlerts(
-            @RequestParam(required = false) String building
+            @RequestParam(required = false) String building,
+            Principal principal,
+            HttpServletRequest request
     ) {
         Integer buildingId = building != null ? mapBuildingToId(building) : null;
         
         // Periodic alert refresh (every 2 minutes - sensors update on value change or every 10min)
         Flux<ServerSentEvent<String>> alertStream = Flux.interval(Duration.ofMinutes(2))
-                .publishOn(Schedulers.boundedElastic())
+                .publishOn(blockingScheduler)
                 .map(tick -> {
                     try {
                         List<Alert> alerts = alertService.getCurrentAlerts(buildingId);
@@ -133,12 +130,6 @@ public class DashboardController {
                     }
                 });
         
-        // Keepalive every 60 seconds
-        Flux<ServerSentEvent<String>> keepAlive = Flux.interval(Duration.ofSeconds(60))
-                .map(t -> ServerSentEvent.<String>builder("ping")
-                        .event("keepalive")
-                        .build());
-        
         // Initial alerts on connect
         Flux<ServerSentEvent<String>> initialAlerts = Mono.fromCallable(() -> {
             try {
@@ -152,9 +143,15 @@ public class DashboardController {
                         .event("alert_update")
                         .build();
             }
-        }).subscribeOn(Schedulers.boundedElastic()).flux();
+        }).subscribeOn(blockingScheduler).flux();
         
-        return initialAlerts.concatWith(alertStream.mergeWith(keepAlive));
+        // Keepalive via le heartbeat partagé du registre SSE
+        return sseConnectionRegistry.register(
+                "alerts",
+                sseConnectionRegistry.ownerOf(principal, request),
+                initialAlerts.concatWith(alertStream),
+                DashboardController::keepAliveEvent,
+                SseConnectionRegistry.OverflowPolicy.LATEST);
     }
 
     private Integer mapBuildingToId(String building) {
@@ -162,23 +159,14 @@ public class DashboardController {
             return null; // null = pas de filtre, tous les bâtiments
         }
 
-        // Cas 1 : le frontend envoie déjà un ID numérique → retour direct
-        if (isInteger(building)) {
-            return Integer.parseInt(building);
-        }
-
-        // Cas 2 : le frontend envoie un label texte → résolution via DB
-        return buildingService.findAll().stream()
-                .filter(b -> b.getName().equalsIgnoreCase(building.trim())
-                        || b.getName().toUpperCase().contains(building.trim().toUpperCase()))
-                .map(Building::getId)
-                .findFirst()
+        // ID numérique ou libellé texte → résolution via BuildingService
+        return buildingService.resolveBuildingId(building)
                 .orElseThrow(() -> new ResponseStatusException(
                         HttpStatus.NOT_FOUND, "Building not found: " + building));
     }
 
     private List<DeviceType> resolveDashboardDeviceTypes() {
-        return DashboardSensorFamilyResolver.buildFilterDeviceTypes(deviceTypeService.findAll());
+        return DashboardSensorFamilyResolver.buildFilterDeviceTypes(topologyRegistry.deviceTypes());
     }
 
     @GetMapping("/api/dashboard")
@@ -204,68 +192,48 @@ public class DashboardController {
         return dashboardService.getDesks(building, floor, Optional.ofNullable(deskId));
     }
 
-    private static Instant parisStartOfDayInstant() {
-        return ZonedDateTime.now(ZoneId.of("Europe/Paris"))
-                .toLocalDate()
-                .atStartOfDay(ZoneId.of("Europe/Paris"))
-                .toInstant();
-    }
-
     @GetMapping(value = "/api/dashboard/occupancy/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     @ResponseBody
     public Flux<ServerSentEvent<String>> streamOccupancy(
             @RequestParam(required = false) String building,
-            @RequestParam(required = false) String floor
+            @RequestParam(required = false) String floor,
+            Principal principal,
+            HttpServletRequest request
     ) {
         final String appId = mapBuildingToAppId(building);
 
-        Flux<ServerSentEvent<String>> keepAlive =
-                Flux.interval(Duration.ofSeconds(15))
-                        .map(t -> ServerSentEvent.<String>builder("ping")
-                                .event("keepalive")
-                                .build());
-
-        return sensorService.getMonitoringMany(appId, List.of())
-                .filter(sse -> sse.data() != null && !sse.data().isBlank())
-                .map(sse -> ServerSentEvent.<String>builder(sse.data())
-                        .event(sse.event() != null ? sse.event() : "uplink")
-                        .build())
-                .mergeWith(keepAlive);
+        Flux<ServerSentEvent<String>> uplinks = liveUplinkHub.stream(appId)
+                .map(uplink -> ServerSentEvent.<String>builder(uplink.data())
+                        .event(uplink.event())
+                        .build());
+
+        return sseConnectionRegistry.register(
+                "occupancy",
+                sseConnectionRegistry.ownerOf(principal, request),
+                uplinks,
+                DashboardController::keepAliveEvent,
+                SseConnectionRegistry.OverflowPolicy.DROP_OLDEST);
     }
 
-    private String mapBuildingToAppId(String building) {
-        if (building == null || building.isBlank() || "all".equalsIgnoreCase(building)) {
-            return DEFAULT_APP_ID;
-        }
-        return buildingToAppIdCache.computeIfAbsent(building, key -> {
-            String appId = "";
-            if (isInteger(key)) {
-                List<Gateway> gateway = gatewayService.findByBuildingId(Integer.parseInt(key));
-                if (!gateway.isEmpty()) {
-                    String gatewayId = gateway.get(0).getGatewayId();
-                    if (gatewayId.equals("leva-rpi-mantu")) {
-                        appId = "lorawan-network-mantu";
-                    } else {
-                        appId = gatewayId + "-appli";
-                    }
-                }
-            }
-            return appId;
-        });
+    private static ServerSentEvent<String> keepAliveEvent(long tick) {
+        return ServerSentEvent.<String>builder("ping")
+                .event("keepalive")
+                .build();
     }
 
-    private boolean isInteger(String s) {
-        try {
-            Integer.parseInt(s);
-            return true;
-        } catch (NumberFormatException e) {
-            return false;
-        }
+    private String mapBuildingToAppId(String building) {
+        return liveUplinkHub.appIdForBuilding(building)
+                .orElseThrow(() -> new ResponseStatusException(
+                        HttpStatus.NOT_FOUND, "No live stream configured for building: " + building));
     }
 
     @GetMapping(value = "/api/dashboard/conso/live/aggregate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     @ResponseBody
-    public Flux<ServerSentEvent<ConsoLiveAggregate>> streamConsoAggregate(@RequestParam String building) {
+    public Flux<ServerSentEvent<ConsoLiveAggregate>> streamConsoAggregate(
+            @RequestParam String building,
+            Principal principal,
+            HttpServletRequest request
+    ) {
         final String appId = mapBuildingToAppId(building);
 
         List<SensorInfo> sensors = dashboardService.getSensorsList(
@@ -285,8 +253,11 @@ public class DashboardController {
 
         if (consoDeviceIds.isEmpty()) {
             log.warn("[Conso SSE] No conso device found for building={}", building);
-            return Flux.interval(Duration.ofSeconds(15))
-                    .map(t -> {
+            return sseConnectionRegistry.register(
+                    "conso",
+                    sseConnectionRegistry.ownerOf(principal, request),
+                    Flux.empty(),
+                    t -> {
                         ConsoLiveAggregate dto = new ConsoLiveAggregate(
                                 building,               // String
                                 0d,                     // powerTotalW      (double)
@@ -299,246 +270,26 @@ public class DashboardController {
                         return ServerSentEvent.<ConsoLiveAggregate>builder(dto)
                                 .event("keepalive")
                                 .build();
-                    });
-        }
-
-
-        // store for DB energy calc
-        consoDevicesByBuilding.put(building, consoDeviceIds);
-
-        powerW.computeIfAbsent(building, k -> new ConcurrentHashMap<>());
-
-        Mono<ServerSentEvent<ConsoLiveAggregate>> initial = Mono.fromCallable(() -> {
-                    resetIfNewDay(building);
-                    ConsoLiveAggregate dto = computeAggregate(building);
-                    return ServerSentEvent.<ConsoLiveAggregate>builder(dto).event("conso_aggregate").build();
-                })
-                .subscribeOn(Schedulers.boundedElastic())
-                .onErrorResume(e -> Mono.empty());
-
-        Flux<ServerSentEvent<ConsoLiveAggregate>> live = sensorService.getMonitoringMany(appId, consoDeviceIds)
-                .filter(sse -> sse.data() != null && !sse.data().isBlank())
-                .flatMap(sse -> {
-                    try {
-                        resetIfNewDay(building);
-
-                        ParsedUplink p = parseUplink(sse.data());
-                        if (p == null || p.deviceId == null || p.decodedPayload == null) {
-                            return Mono.empty();
-                        }
-
-                        // power only
-                        applyDecodedPayloadPowerOnly(building, p.deviceId, p.decodedPayload);
-
-                        ConsoLiveAggregate dto = computeAggregate(building);
-
-                        return Mono.just(ServerSentEvent.<ConsoLiveAggregate>builder(dto)
-                                .event("conso_aggregate")
-                                .build());
-                    } catch (Exception e) {
-                        return Mono.empty();
-                    }
-                });
-
-        Flux<ServerSentEvent<ConsoLiveAggregate>> keepAlive =
-                Flux.interval(Duration.ofSeconds(15))
-                        .map(t -> {
-                            ConsoLiveAggregate dto = computeAggregate(building);
-                            return ServerSentEvent.<ConsoLiveAggregate>builder(dto)
-                                    .event("keepalive")
-                                    .build();
-                        });
-
-        return Flux.concat(initial, live).mergeWith(keepAlive);
-    }
-
-    // =========================
-    // ENERGY via DB (first + last)
-    // =========================
-    private double computeTodayEnergyWhFromDb(String building) {
-        List<String> deviceIds = consoDevicesByBuilding.getOrDefault(building, List.of());
-        if (deviceIds.isEmpty()) return 0d;
-
-        Instant lastComputed = energyLastComputed.get(building);
-        if (lastComputed != null && Duration.between(lastComputed, Instant.now()).toSeconds() < 120) {
-            return cachedEnergyWh.getOrDefault(building, 0d);
-        }
-
-        Instant start = parisStartOfDayInstant();
-        Instant end = start.plus(1, ChronoUnit.DAYS);
-
-        Date dayStart = Date.from(start);
-        Date dayEnd = Date.from(end);
-
-        Set<PayloadValueType> energyTypes = new HashSet<>();
-        for (int ch = 0; ch <= 11; ch++) {
-            energyTypes.add(PayloadValueType.valueOf("ENERGY_CHANNEL_" + ch));
-        }
-
-        double[] d = new double[12]; // delta Wh par channel
-
-        for (String dev : deviceIds) {
-            Map<PayloadValueType, Double> firsts =
-                    sensorDataDao.findFirstValuesOfDayByTypes(dev, energyTypes, dayStart, dayEnd);
-
-            Map<PayloadValueType, Double> lasts =
-                    sensorDataDao.findLastValuesOfDayByTypes(dev, energyTypes, dayStart, dayEnd);
-
-            for (int ch = 0; ch <= 11; ch++) {
-                PayloadValueType vt = PayloadValueType.valueOf("ENERGY_CHANNEL_" + ch);
-                Double f = firsts.get(vt);
-                Double l = lasts.get(vt);
-                if (f == null || l == null) continue;
-
-                double delta = l - f;
-                if (!Double.isFinite(delta) || delta < 0) delta = 0;
-                d[ch] += delta;
-            }
+                    },
+                    SseConnectionRegistry.OverflowPolicy.LATEST);
         }
 
-        double redWh   = d[0] + d[1] + d[2];
-        double whiteWh = Math.abs((d[6] + d[7] + d[8]) - (d[3] + d[4] + d[5]));
-        double ventWh  = d[6] + d[7] + d[8];
-        double otherWh = d[9] + d[10] + d[11];
-
-        double result = Math.abs(redWh + whiteWh + ventWh + otherWh);
-        cachedEnergyWh.put(building, result);
-        energyLastComputed.put(building, Instant.now());
-        return result;
-    }
-
-    // =========================
-    // Helpers uplink
-    // =========================
-    private static class ParsedUplink {
-        final String deviceId;
-        final com.fasterxml.jackson.databind.JsonNode decodedPayload;
-
-        ParsedUplink(String deviceId, com.fasterxml.jackson.databind.JsonNode decodedPayload) {
-            this.deviceId = deviceId;
-            this.decodedPayload = decodedPayload;
-        }
-    }
-
-    private ParsedUplink parseUplink(String json) {
-        try {
-            var root = om.readTree(json);
-            var r = root.has("result") ? root.get("result") : root;
-
-            String deviceId = textAt(r, "/end_device_ids/device_id");
-            var decoded = nodeAt(r, "/uplink_message/decoded_payload");
-            if (deviceId == null || decoded == null || decoded.isMissingNode() || decoded.isNull()) return null;
-
-            return new ParsedUplink(deviceId, decoded);
-        } catch (Exception e) {
-            log.debug("parseUplink failed: {}", e.getMessage());
-            return null;
-        }
-    }
-
-    private void applyDecodedPayloadPowerOnly(String building, String deviceId, com.fasterxml.jackson.databind.JsonNode decoded) {
-        powerW.computeIfAbsent(building, k -> new ConcurrentHashMap<>());
-        powerW.get(building).computeIfAbsent(deviceId, k -> new ConcurrentHashMap<>());
-        powerLastSeen.computeIfAbsent(building, k -> new ConcurrentHashMap<>()).put(deviceId, Instant.now());
 
-        var fields = decoded.fields();
-        while (fields.hasNext()) {
-            var e = fields.next();
-            var obj = e.getValue();
-            if (obj == null || !obj.isObject()) continue;
-
-            String type = obj.path("type").asText(null);
-            double value = obj.path("value").isNumber() ? obj.path("value").asDouble() : Double.NaN;
-
-            int channel = obj.path("hardwareData").path("channel").isInt()
-                    ? obj.path("hardwareData").path("channel").asInt()
-                    : -1;
-
-            if (channel < 0 || channel > 11) continue;
-            if (Double.isNaN(value)) continue;
-
-            if ("power".equalsIgnoreCase(type)) {
-                powerW.get(building).get(deviceId).put(channel, value);
-            }
-        }
-    }
-
-    private ConsoLiveAggregate computeAggregate(String building) {
-        long now = System.currentTimeMillis();
-
-        // ---- POWER from memory maps ----
-        double[] c = new double[12];
-        var devices = powerW.getOrDefault(building, Map.of());
-
-        for (var devEntry : devices.entrySet()) {
-            var map = devEntry.getValue();
-            for (int ch = 0; ch <= 11; ch++) {
-                Double v = map.get(ch);
-                if (v != null) c[ch] += v;
-            }
-        }
-
-        double[] a = new double[12];
-        for (int i = 0; i < 12; i++) a[i] = Math.abs(c[i]);
-
-        double red = a[0] + a[1] + a[2];
-        double white = Math.abs((a[6] + a[7] + a[8]) - (a[3] + a[4] + a[5]));
-        double vent = a[6] + a[7] + a[8];
-        double other = a[9] + a[10] + a[11];
-
-        double powerTotalW = Math.abs(red + white + vent + other);
-
-        // ---- ENERGY from DB ----
-        double todayEnergyWh = computeTodayEnergyWhFromDb(building);
-
-        int deviceCount = powerW.getOrDefault(building, Map.of()).size();
-
-        return new ConsoLiveAggregate(
-                building,
-                powerTotalW,
-                powerTotalW / 1000d,
-                todayEnergyWh,
-                todayEnergyWh / 1000d,
-                deviceCount,
-                now
-        );
-    }
-
-    private void resetIfNewDay(String building) {
-        ZoneId zone = ZoneId.of("Europe/Paris");
-        LocalDate today = LocalDate.now(zone);
-
-        LocalDate last = lastDaySeen.putIfAbsent(building, today);
-        if (last == null) return;
-
-        if (!last.equals(today)) {
-            cachedEnergyWh.remove(building);
-            energyLastComputed.remove(building);
-            lastDaySeen.put(building, today);
-        }
-
-        Instant cutoff = Instant.now().minus(24, ChronoUnit.HOURS);
-        Map<String, Instant> devicesSeen = powerLastSeen.get(building);
-        if (devicesSeen != null) {
-            devicesSeen.entrySet().removeIf(entry -> {
-                if (entry.getValue().isBefore(cutoff)) {
-                    Map<String, Map<Integer, Double>> buildingPower = powerW.get(building);
-                    if (buildingPower != null) buildingPower.remove(entry.getKey());
-                    return true;
-                }
-                return false;
-            });
-        }
-    }
-
-    private String textAt(com.fasterxml.jackson.databind.JsonNode node, String jsonPointer) {
-        var n = node.at(jsonPointer);
-        return (n == null || n.isMissingNode() || n.isNull()) ? null : n.asText(null);
-    }
+        // Agrégateur partagé par bâtiment : un seul flux amont et un seul calcul par événement
+        Flux<ServerSentEvent<ConsoLiveAggregate>> live = liveEnergyAggregatorService
+                .stream(building, appId, consoDeviceIds)
+                .map(dto -> ServerSentEvent.<ConsoLiveAggregate>builder(dto)
+                        .event("conso_aggregate")
+                        .build());
 
-    private com.fasterxml.jackson.databind.JsonNode nodeAt(com.fasterxml.jackson.databind.JsonNode node, String jsonPointer) {
-        var n = node.at(jsonPointer);
-        return (n == null) ? com.fasterxml.jackson.databind.node.MissingNode.getInstance() : n;
+        return sseConnectionRegistry.register(
+                "conso",
+                sseConnectionRegistry.ownerOf(principal, request),
+                live,
+                t -> ServerSentEvent.<ConsoLiveAggregate>builder(liveEnergyAggregatorService.current(building))
+                        .event("keepalive")
+                        .build(),
+                SseConnectionRegistry.OverflowPolicy.LATEST);
     }
 
     // --- autres endpoints existants ---
@@ -607,25 +358,33 @@ public class DashboardController {
     @ResponseBody
     public Flux<ServerSentEvent<String>> streamLiveData(
             @RequestParam String building,
-            @RequestParam(required = false) String deviceIds
+            @RequestParam(required = false) String deviceIds,
+            Principal principal,
+            HttpServletRequest request
     ) {
         final String appId = mapBuildingToAppId(building);
 
-        List<String> ids =
+        Set<String> ids =
                 deviceIds == null || deviceIds.isBlank()
-                        ? List.of()
-                        : Arrays.asList(deviceIds.split(","));
-
-        return sensorService
-                .getMonitoringMany(appId, ids)
-                .filter(sse -> sse.data() != null && !sse.data().isBlank())
-                .map(sse -> ServerSentEvent.<String>builder(sse.data())
-                        .event(sse.event() != null ? sse.event() : "uplink")
-                        .build())
-                .mergeWith(
-                        Flux.interval(Duration.ofSeconds(15))
-                                .map(t -> ServerSentEvent.<String>builder("ping").event("keepalive").build())
-                );
+                        ? Set.of()
+                        : Arrays.stream(deviceIds.split(","))
+                                .map(String::trim)
+                                .filter(id -> !id.isEmpty())
+                                .collect(java.util.stream.Collectors.toSet());
+
+        // Flux partagé de l'application, filtré en mémoire sur les devices demandés
+        Flux<ServerSentEvent<String>> uplinks = liveUplinkHub.stream(appId)
+                .filter(uplink -> ids.isEmpty() || ids.contains(uplink.deviceId()))
+                .map(uplink -> ServerSentEvent.<String>builder(uplink.data())
+                        .event(uplink.event())
+                        .build());
+
+        return sseConnectionRegistry.register(
+                "live",
+                sseConnectionRegistry.ownerOf(principal, request),
+                uplinks,
+                DashboardController::keepAliveEvent,
+                SseConnectionRegistry.OverflowPolicy.DROP_OLDEST);
     }
 
     /**
@@ -643,19 +402,18 @@ public class DashboardController {
         List<String> co2SensorIds = sensorService.getSensorIdsByTypeAndBuilding("CO2", buildingId);
         result.put("co2SensorIds", co2SensorIds);
         
-        // Check what data exists for each sensor
+        // Check what data exists for each sensor (une seule requête pour tous les capteurs et types)
+        Map<String, Map<PayloadValueType, SensorData>> latest = sensorDataDao.findLatestBySensorIdsAndTypes(co2SensorIds,
+                EnumSet.of(PayloadValueType.TEMPERATURE, PayloadValueType.CO2, PayloadValueType.HUMIDITY));
         List<Map<String, Object>> sensorDataInfo = new java.util.ArrayList<>();
         for (String sensorId : co2SensorIds) {
             Map<String, Object> info = new HashMap<>();
             info.put("sensorId", sensorId);
             
-            var tempData = sensorDataDao.findLatestBySensorAndType(sensorId, PayloadValueType.TEMPERATURE);
-            var co2Data = sensorDataDao.findLatestBySensorAndType(sensorId, PayloadValueType.CO2);
-            var humData = sensorDataDao.findLatestBySensorAndType(sensorId, PayloadValueType.HUMIDITY);
-            
-            info.put("latestTemp", tempData.map(d -> d.getReceivedAt().toString() + " = " + d.getValueAsString()).orElse("NONE"));
-            info.put("latestCO2", co2Data.map(d -> d.getReceivedAt().toString() + " = " + d.getValueAsString()).orElse("NONE"));
-            info.put("latestHumidity", humData.map(d -> d.getReceivedAt().toString() + " = " + d.getValueAsString()).orElse("NONE"));
+            Map<PayloadValueType, SensorData> byType = latest.getOrDefault(sensorId, Map.of());
+            info.put("latestTemp", describeLatest(byType.get(PayloadValueType.TEMPERATURE)));
+            info.put("latestCO2", describeLatest(byType.get(PayloadValueType.CO2)));
+            info.put("latestHumidity", describeLatest(byType.get(PayloadValueType.HUMIDITY)));
             
             sensorDataInfo.add(info);
         }
@@ -664,6 +422,10 @@ public class DashboardController {
         return result;
     }
 
+    private static String describeLatest(SensorData data) {
+        return data == null ? "NONE" : data.getReceivedAt().toString() + " = " + data.getValueAsString();
+    }
+
     @GetMapping("/api/dashboard/environment/history")
     @ResponseBody
     public Map<String, Object> getEnvironmentHistory(
@@ -671,6 +433,14 @@ public class DashboardController {
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
             @RequestParam(required = false) String building
     ) {
+        Integer buildingId = building != null ? mapBuildingToId(building) : null;
+        log.info("🌡️ Environment history request: from={}, to={}, building={}, buildingId={}", from, to, building, buildingId);
+        return responseCache.get("environment-history", buildingId, from, to, List.of(),
+                new TypeReference<Map<String, Object>>() {},
+                () -> computeEnvironmentHistory(from, to, buildingId));
+    }
+
+    private Map<String, Object> computeEnvironmentHistory(LocalDate from, LocalDate to, Integer buildingId) {
         Map<String, Object> result = new HashMap<>();
         
         // Use LocalDateTime directly to match database storage format
@@ -678,9 +448,6 @@ public class DashboardController {
         java.time.LocalDateTime endDateTime = to.plusDays(1).atStartOfDay();
         
         // Get sensor IDs by type for the building
-        Integer buildingId = building != null ? mapBuildingToId(building) : null;
-        log.info("🌡️ Environment history request: from={}, to={}, building={}, buildingId={}", from, to, building, buildingId);
-        
         List<String> tempSensorIds = new java.util.ArrayList<>(sensorService.getSensorIdsByTypeAndBuilding("CO2", buildingId));
         tempSensorIds.addAll(sensorService.getSensorIdsByTypeAndBuilding("TEMPEX", buildingId));
         
@@ -691,99 +458,45 @@ public class DashboardController {
         
         List<String> noiseSensorIds = sensorService.getSensorIdsByTypeAndBuilding("SON", buildingId);
         
-        // Get aggregated data for each type using LocalDateTime
-        result.put("temperature", sensorDataDao.findAggregatedDataByPeriodAndType(
-                tempSensorIds, startDateTime, endDateTime, PayloadValueType.TEMPERATURE, "AVG"));
-        
-        result.put("humidity", sensorDataDao.findAggregatedDataByPeriodAndType(
-                humiditySensorIds, startDateTime, endDateTime, PayloadValueType.HUMIDITY, "AVG"));
-        
-        result.put("co2", sensorDataDao.findAggregatedDataByPeriodAndType(
-                co2SensorIds, startDateTime, endDateTime, PayloadValueType.CO2, "AVG"));
-        
-        result.put("sound", sensorDataDao.findAggregatedDataByPeriodAndType(
-                noiseSensorIds, startDateTime, endDateTime, PayloadValueType.LAEQ, "AVG"));
+        // Toutes les séries en un seul parcours de sensor_data, groupé par (type, heure)
+        Map<PayloadValueType, SensorDataDao.MetricAggregation> metrics = new EnumMap<>(PayloadValueType.class);
+        metrics.put(PayloadValueType.TEMPERATURE, new SensorDataDao.MetricAggregation(tempSensorIds, "AVG"));
+        metrics.put(PayloadValueType.HUMIDITY, new SensorDataDao.MetricAggregation(humiditySensorIds, "AVG"));
+        metrics.put(PayloadValueType.CO2, new SensorDataDao.MetricAggregation(co2SensorIds, "AVG"));
+        metrics.put(PayloadValueType.LAEQ, new SensorDataDao.MetricAggregation(noiseSensorIds, "AVG"));
+        Map<PayloadValueType, List<SensorDataDao.AggregatedDataPoint>> series =
+                sensorDataDao.findAggregatedDataByPeriodAndTypes(metrics, startDateTime, endDateTime);
+
+        result.put("temperature", series.get(PayloadValueType.TEMPERATURE));
+        result.put("humidity", series.get(PayloadValueType.HUMIDITY));
+        result.put("co2", series.get(PayloadValueType.CO2));
+        result.put("sound", series.get(PayloadValueType.LAEQ));
         
         return result;
     }
 
     @GetMapping("/api/dashboard/energy/cost")
     @ResponseBody
-    public Map<String, Object> getEnergyCostData(
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) java.time.LocalDate from,
-            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) java.time.LocalDate to,
-            @RequestParam(required = false) String building) {
-        
-        Map<String, Object> result = new HashMap<>();
+    public EnergyCostReport getEnergyCostData(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String building,
+            @RequestParam(defaultValue = "day") String granularity) {
+
+        EnergyCostService.Granularity resolved = parseGranularity(granularity);
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "'from' must be on or before 'to'");
+        }
         Integer buildingId = building != null ? mapBuildingToId(building) : null;
-        
-        // Get energy config for this building
-        var energyConfig = buildingEnergyConfigDao.findByBuildingId(buildingId);
-        double costPerKwh = energyConfig.map(c -> c.getEnergyCostPerKwh()).orElse(0.0);
-        double co2Factor = energyConfig.map(c -> c.getCo2EmissionFactor()).orElse(0.0);
-        String currency = energyConfig.map(c -> c.getCurrency()).orElse("EUR");
-        
-        result.put("costPerKwh", costPerKwh);
-        result.put("co2Factor", co2Factor);
-        result.put("currency", currency);
-        result.put("building", buildingId);
-        
-        // Get daily energy consumption data
-        java.time.LocalDateTime startDateTime = from.atStartOfDay();
-        java.time.LocalDateTime endDateTime = to.plusDays(1).atStartOfDay();
-        
-        // Use substr to get daily buckets (YYYY-MM-DD format, first 10 chars)
-        List<String> consoSensorIds = new java.util.ArrayList<>(
-                new java.util.LinkedHashSet<>(sensorService.getSensorIdsByTypeAndBuilding("CONSO", buildingId))
-        );
-        
-        List<Map<String, Object>> dailyData = new java.util.ArrayList<>();
-        double totalEnergy = 0;
-        double totalCost = 0;
-        double totalCo2 = 0;
-        
-        // Query daily aggregated data
-        if (!consoSensorIds.isEmpty()) {
-            String placeholders = String.join(",", java.util.Collections.nCopies(consoSensorIds.size(), "?"));
-            String query = "SELECT substr(received_at, 1, 10) as day, " +
-                          "SUM(CAST(value AS REAL)) as total_energy " +
-                          "FROM sensor_data " +
-                          "WHERE id_sensor IN (" + placeholders + ") " +
-                          "AND received_at >= ? AND received_at < ? " +
-                          "AND value_type = 'ENERGY' " +
-                          "AND value IS NOT NULL " +
-                          "GROUP BY substr(received_at, 1, 10) " +
-                          "ORDER BY day ASC";
-            
-            java.time.format.DateTimeFormatter formatter = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
-            String startStr = startDateTime.format(formatter);
-            String endStr = endDateTime.format(formatter);
-            
-            List<Object> params = new java.util.ArrayList<>(consoSensorIds);
-            params.add(startStr);
-            params.add(endStr);
-            
-            try {
-                var jdbcTemplate = new org.springframework.jdbc.core.JdbcTemplate(
-                    ((org.springframework.jdbc.core.JdbcTemplate) 
-                    org.springframework.beans.factory.BeanFactoryUtils
-                    .beanOfTypeIncludingAncestors(
-                        org.springframework.web.context.ContextLoader.getCurrentWebApplicationContext(),
-                        org.springframework.jdbc.core.JdbcTemplate.class)).getDataSource());
-                
-                // Use sensorDataDao's internal method or create simple query
-                // For now, return config info - actual data will come from frontend calculation
-            } catch (Exception e) {
-                log.error("Error querying energy data: {}", e.getMessage());
-            }
+        return energyCostService.getCostReport(buildingId, from, to, resolved);
+    }
+
+    private EnergyCostService.Granularity parseGranularity(String granularity) {
+        try {
+            return EnergyCostService.Granularity.valueOf(granularity.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Unknown granularity: " + granularity);
         }
-        
-        result.put("dailyData", dailyData);
-        result.put("totalEnergy", totalEnergy);
-        result.put("totalCost", totalCost);
-        result.put("totalCo2", totalCo2);
-        
-        return result;
     }
 
     @GetMapping("/api/config/environment")
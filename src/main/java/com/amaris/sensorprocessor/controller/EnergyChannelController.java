@@ -1,11 +1,11 @@
 package com.amaris.sensorprocessor.controller;
 
-import com.amaris.sensorprocessor.repository.SensorDataDao;
+import com.amaris.sensorprocessor.repository.EnergyDeltaHourlyDao;
 import com.amaris.sensorprocessor.entity.PayloadValueType;
+import com.amaris.sensorprocessor.service.EnergyDeltaRollupService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.*;
@@ -17,8 +17,7 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class EnergyChannelController {
 
-    private final SensorDataDao sensorDataDao;
-    private final JdbcTemplate jdbcTemplate;
+    private final EnergyDeltaHourlyDao energyDeltaHourlyDao;
     private static final ZoneId PARIS_ZONE = ZoneId.of("Europe/Paris");
 
     @GetMapping("/api/dashboard/energy-channels")
@@ -34,31 +33,21 @@ public class EnergyChannelController {
         LocalDate startLocalDate = customStartDate.toInstant().atZone(PARIS_ZONE).toLocalDate();
         LocalDate endLocalDate = customEndDate.toInstant().atZone(PARIS_ZONE).toLocalDate();
 
-        // Define all 12 energy channels
-        List<PayloadValueType> channels = Arrays.asList(
-                PayloadValueType.ENERGY_CHANNEL_0, PayloadValueType.ENERGY_CHANNEL_1, PayloadValueType.ENERGY_CHANNEL_2,
-                PayloadValueType.ENERGY_CHANNEL_3, PayloadValueType.ENERGY_CHANNEL_4, PayloadValueType.ENERGY_CHANNEL_5,
-                PayloadValueType.ENERGY_CHANNEL_6, PayloadValueType.ENERGY_CHANNEL_7, PayloadValueType.ENERGY_CHANNEL_8,
-                PayloadValueType.ENERGY_CHANNEL_9, PayloadValueType.ENERGY_CHANNEL_10, PayloadValueType.ENERGY_CHANNEL_11
-        );
+        // Hourly Wh of the 12 channels (resets and gaps already resolved at ingest), grouped into Paris days
+        LocalDateTime startUtc = startLocalDate.atStartOfDay(PARIS_ZONE).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+        LocalDateTime endUtc = endLocalDate.plusDays(1).atStartOfDay(PARIS_ZONE).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+        Map<LocalDate, Map<Integer, Double>> consumptionByDay = dailyConsumptionWh(energyDeltaHourlyDao.findHourly(
+                List.of(sensorId), EnergyDeltaRollupService.ENERGY_CHANNELS, startUtc, endUtc));
 
-        // Calculate daily totals for each day in the range
         List<DailyEnergyData> dailyData = new ArrayList<>();
 
         LocalDate currentDate = startLocalDate;
         while (!currentDate.isAfter(endLocalDate)) {
             DailyEnergyData dayData = new DailyEnergyData(currentDate.toString());
 
-            // For each channel, calculate daily consumption (end - start)
-            for (PayloadValueType channel : channels) {
-                int channelNum = getChannelNumber(channel);
-                Double dailyConsumption = calculateDailyConsumption(sensorId, channel, currentDate);
-                
-                if (dailyConsumption != null) {
-                    // Convert Wh to kWh
-                    dayData.setChannelValue(channelNum, dailyConsumption / 1000.0);
-                }
-            }
+            // Convert Wh to kWh
+            consumptionByDay.getOrDefault(currentDate, Map.of())
+                    .forEach((channelNum, wh) -> dayData.setChannelValue(channelNum, wh / 1000.0));
 
             dailyData.add(dayData);
             currentDate = currentDate.plusDays(1);
@@ -68,77 +57,20 @@ public class EnergyChannelController {
     }
 
     /**
-     * Calculate daily energy consumption for a channel (last value - first value of the day)
-     * Handles incremental data with possible negative values
+     * Daily consumption (Wh) per Paris day and channel. UTC hours align with Paris hours, so each hour
+     * belongs to exactly one local day.
      */
-    private Double calculateDailyConsumption(String sensorId, PayloadValueType channel, LocalDate day) {
-        try {
-            LocalDateTime dayStart = day.atStartOfDay();
-            LocalDateTime dayEnd = day.plusDays(1).atStartOfDay().minusSeconds(1);
-
-            // Convert Paris time to UTC for database query
-            ZonedDateTime startUtc = dayStart.atZone(PARIS_ZONE).withZoneSameInstant(ZoneOffset.UTC);
-            ZonedDateTime endUtc = dayEnd.atZone(PARIS_ZONE).withZoneSameInstant(ZoneOffset.UTC);
-
-            // Get first value of the day (must have end constraint to limit to this specific day!)
-            String queryFirst = "SELECT value FROM sensor_data " +
-                    "WHERE id_sensor = ? AND value_type = ? " +
-                    "AND received_at >= ? AND received_at <= ? " +
-                    "ORDER BY received_at ASC LIMIT 1";
-
-            // Get last value of the day
-            String queryLast = "SELECT value FROM sensor_data " +
-                    "WHERE id_sensor = ? AND value_type = ? " +
-                    "AND received_at >= ? AND received_at <= ? " +
-                    "ORDER BY received_at DESC LIMIT 1";
-
-            List<Double> firstResult = jdbcTemplate.query(
-                    queryFirst,
-                    (rs, rowNum) -> {
-                        String val = rs.getString("value");
-                        return val != null ? Double.parseDouble(val) : null;
-                    },
-                    sensorId, channel.name(), startUtc.toLocalDateTime(), endUtc.toLocalDateTime()
-            );
-
-            List<Double> lastResult = jdbcTemplate.query(
-                    queryLast,
-                    (rs, rowNum) -> {
-                        String val = rs.getString("value");
-                        return val != null ? Double.parseDouble(val) : null;
-                    },
-                    sensorId, channel.name(), startUtc.toLocalDateTime(), endUtc.toLocalDateTime()
-            );
-
-            if (!firstResult.isEmpty() && !lastResult.isEmpty()) {
-                Double firstValue = firstResult.get(0);
-                Double lastValue = lastResult.get(0);
-
-                if (firstValue != null && lastValue != null) {
-                    double consumption = lastValue - firstValue;
-
-                    // Si négatif → reset du compteur sur cette journée (redémarrage capteur, etc.)
-                    // On retourne null pour ne pas afficher de valeur aberrante
-                    if (consumption < 0) {
-                        log.warn("⚠️ Negative consumption for {} on {}: first={} Wh, last={} Wh — counter reset suspected",
-                                channel.name(), day, firstValue, lastValue);
-                        return null;
-                    }
-
-                    log.debug("Channel {} on {}: {} - {} = {} Wh", channel.name(), day, lastValue, firstValue, consumption);
-                    return consumption;
-                }
-            }
-
-            return null;
-        } catch (Exception e) {
-            log.error("Error calculating daily consumption for channel {} on {}: {}", 
-                    channel.name(), day, e.getMessage());
-            return null;
+    static Map<LocalDate, Map<Integer, Double>> dailyConsumptionWh(List<EnergyDeltaHourlyDao.HourlyDelta> hours) {
+        Map<LocalDate, Map<Integer, Double>> result = new TreeMap<>();
+        for (EnergyDeltaHourlyDao.HourlyDelta hour : hours) {
+            LocalDate day = hour.hourUtc().atOffset(ZoneOffset.UTC).atZoneSameInstant(PARIS_ZONE).toLocalDate();
+            result.computeIfAbsent(day, k -> new TreeMap<>())
+                    .merge(getChannelNumber(hour.valueType()), hour.wh(), Double::sum);
         }
+        return result;
     }
 
-    private int getChannelNumber(PayloadValueType channel) {
+    private static int getChannelNumber(PayloadValueType channel) {
         String name = channel.name();
         return Integer.parseInt(name.replace("ENERGY_CHANNEL_", ""));
     }
@@ -8,7 +8,6 @@ import com.amaris.sensorprocessor.entity.GatewayValueType;
 import com.amaris.sensorprocessor.entity.Protocol;
 import com.amaris.sensorprocessor.entity.User;
 import com.amaris.sensorprocessor.service.*;
-import jakarta.servlet.http.HttpSession;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
@@ -42,6 +41,8 @@ public class GatewayController {
     private final BuildingService buildingService;
     private final ProtocolService protocolService;
     private final LocationService locationService;
+    private final GatewayMonitoringSessionManager gatewayMonitoringSessionManager;
+    private final GatewaySyncService gatewaySyncService;
 
     private static final String ERROR_ADD = "errorAdd";
     private static final String GATEWAY_ADD = "gatewayAdd";
@@ -56,7 +57,9 @@ public class GatewayController {
                              UserService userService,
                              BuildingService buildingService,
                              ProtocolService protocolService,
-                             LocationService locationService) {
+                             LocationService locationService,
+                             GatewayMonitoringSessionManager gatewayMonitoringSessionManager,
+                             GatewaySyncService gatewaySyncService) {
         this.gatewayService = gatewayService;
         this.inputValidationService = inputValidationService;
         this.gatewayLorawanService = gatewayLorawanService;
@@ -64,6 +67,8 @@ public class GatewayController {
         this.buildingService = buildingService;
         this.protocolService = protocolService;
         this.locationService = locationService;
+        this.gatewayMonitoringSessionManager = gatewayMonitoringSessionManager;
+        this.gatewaySyncService = gatewaySyncService;
     }
 
     @GetMapping("/manage-gateways")
@@ -169,6 +174,7 @@ public class GatewayController {
             }
             return Constants.PAGE_MANAGE_GATEWAYS;
         }
+        gatewaySyncService.stopPeriodicSync(gatewayId);
         model.addAttribute(ERROR_DELETE, null);
         return redirectWithTimestamp();
     }
@@ -281,30 +287,17 @@ public class GatewayController {
 
     /**
      * Stream en temps réel les données de monitoring d'une gateway via SSE.
+     * Tous les spectateurs d'une même gateway partagent une seule session amont.
      *
      * @param id ID de la gateway
      * @param ip Adresse IP de la gateway
-     * @param httpSession la session utilisateur
      * @return SseEmitter pour transmettre les données en continue au client
      */
     @GetMapping(value = "/manage-gateways/monitoring/{id}/stream", produces = "text/event-stream")
-    public SseEmitter streamMonitoringData(@PathVariable("id") String id, @RequestParam("ip") String ip, HttpSession httpSession) {
+    public SseEmitter streamMonitoringData(@PathVariable("id") String id, @RequestParam("ip") String ip) {
         SseEmitter emitter = new SseEmitter(3600000L);
-//        String sessionKey = id + "-" + httpSession.getId();
-        String sessionKey = id + "-" + httpSession.getId() + "-" + System.currentTimeMillis();
 
-        emitter.onCompletion(() -> {
-            System.out.println("\u001B[31m" + "Client disconnected, cancelling subscription" + "\u001B[0m");
-            gatewayService.stopMonitoring(id, sessionKey);
-        });
-
-        emitter.onTimeout(() -> {
-            System.out.println("\u001B[31m" + "SSE timeout, cancelling subscription" + "\u001B[0m");
-            gatewayService.stopMonitoring(id, sessionKey);
-            emitter.complete();
-        });
-
-        var subscription = gatewayService.getMonitoringData(id, ip, sessionKey)
+        var subscription = gatewayMonitoringSessionManager.join(id, ip)
             .subscribe(data -> {
                 try {
                     emitter.send(data);
@@ -313,8 +306,14 @@ public class GatewayController {
                 }
             }, emitter::completeWithError, emitter::complete);
 
+        // Le départ du spectateur libère seulement son abonnement ; la session amont
+        // est arrêtée par le gestionnaire quand plus personne ne regarde.
         emitter.onCompletion(subscription::dispose);
-        emitter.onTimeout(subscription::dispose);
+        emitter.onError(error -> subscription.dispose());
+        emitter.onTimeout(() -> {
+            subscription.dispose();
+            emitter.complete();
+        });
 
         return emitter;
     }
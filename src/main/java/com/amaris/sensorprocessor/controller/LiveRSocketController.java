@@ -0,0 +1,161 @@
+package com.amaris.sensorprocessor.controller;
+
+import com.amaris.sensorprocessor.entity.MonitoringGatewayData;
+import com.amaris.sensorprocessor.model.dashboard.Alert;
+import com.amaris.sensorprocessor.model.dashboard.AlertDiff;
+import com.amaris.sensorprocessor.service.AlertService;
+import com.amaris.sensorprocessor.service.BuildingService;
+import com.amaris.sensorprocessor.service.GatewayMonitoringSessionManager;
+import com.amaris.sensorprocessor.service.GatewayService;
+import com.amaris.sensorprocessor.service.LiveUplinkHub;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.stereotype.Controller;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Routes RSocket request-stream pour les affichages à fort débit (écrans muraux, vue 3D).
+ *
+ * Les flux sont alimentés par les mêmes sources in-process que les endpoints SSE
+ * (LiveUplinkHub, AlertService, sessions de monitoring gateway). La demande du client
+ * (request(n)) remonte jusqu'à un tampon borné par abonné, sans jamais ralentir la source partagée.
+ */
+@Slf4j
+@Controller
+public class LiveRSocketController {
+
+    private static final int LIVE_BUFFER_SIZE = 256;
+    private static final int ALERT_DIFF_BUFFER_SIZE = 256;
+    private static final Duration ALERT_REEVALUATION_PERIOD = Duration.ofSeconds(30);
+
+    private final LiveUplinkHub liveUplinkHub;
+    private final AlertService alertService;
+    private final BuildingService buildingService;
+    private final GatewayService gatewayService;
+    private final GatewayMonitoringSessionManager gatewayMonitoringSessionManager;
+    private final Scheduler blockingScheduler;
+
+    public LiveRSocketController(LiveUplinkHub liveUplinkHub,
+                                 AlertService alertService,
+                                 BuildingService buildingService,
+                                 GatewayService gatewayService,
+                                 GatewayMonitoringSessionManager gatewayMonitoringSessionManager,
+                                 Scheduler blockingScheduler) {
+        this.liveUplinkHub = liveUplinkHub;
+        this.alertService = alertService;
+        this.buildingService = buildingService;
+        this.gatewayService = gatewayService;
+        this.gatewayMonitoringSessionManager = gatewayMonitoringSessionManager;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    /**
+     * Uplinks bruts (JSON TTN) des capteurs d'un bâtiment. Si le client consomme moins vite
+     * que le flux, les trames les plus anciennes au-delà de LIVE_BUFFER_SIZE sont abandonnées.
+     */
+    @MessageMapping("building.{building}.live")
+    public Flux<String> buildingLive(@DestinationVariable String building) {
+        return liveUplinkHub.appIdForBuilding(building)
+                .map(liveUplinkHub::stream)
+                .orElseGet(() -> Flux.error(new IllegalArgumentException("No live stream configured for building: " + building)))
+                .map(LiveUplinkHub.LiveUplink::data)
+                .onBackpressureBuffer(LIVE_BUFFER_SIZE,
+                        dropped -> log.debug("[RSocket] Dropping live frame for building={}", building),
+                        BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    /**
+     * Alertes du bâtiment : la liste complète au premier message, puis les alertes levées ou
+     * résolues publiées par AlertService, identifiées par (capteur, mesure, niveau).
+     *
+     * Les uplinks du bâtiment déclenchent la réévaluation (au plus une par ALERT_REEVALUATION_PERIOD,
+     * le cache d'AlertService absorbant le reste) ; sans trafic, aucune évaluation n'est lancée.
+     *
+     * Au plus ALERT_DIFF_BUFFER_SIZE différences attendent un client qui ne demande plus rien : au-delà,
+     * elles sont abandonnées et le client reçoit à nouveau la liste complète quand il reprend.
+     */
+    @MessageMapping("building.{building}.alerts")
+    public Flux<AlertDiff> buildingAlerts(@DestinationVariable String building) {
+        Integer buildingId = "all".equalsIgnoreCase(building)
+                ? null
+                : buildingService.resolveBuildingId(building)
+                        .orElseThrow(() -> new IllegalArgumentException("Building not found: " + building));
+        Optional<String> appId = liveUplinkHub.appIdForBuilding(buildingId == null ? building : String.valueOf(buildingId));
+        return alertDiffs(building, buildingId, appId);
+    }
+
+    private Flux<AlertDiff> alertDiffs(String building, Integer buildingId, Optional<String> appId) {
+
+        return Flux.defer(() -> {
+            // Abonnement aux changements avant le calcul de la liste initiale : les changements publiés
+            // entre-temps sont mis en attente puis envoyés après elle, aucun n'est perdu.
+            Sinks.Many<AlertDiff> pending = Sinks.many().unicast()
+                    .onBackpressureBuffer(Queues.<AlertDiff>get(ALERT_DIFF_BUFFER_SIZE).get());
+            Disposable changes = alertService.alertChanges()
+                    .filter(change -> Objects.equals(change.buildingId(), buildingId))
+                    .subscribe(change -> {
+                        // File pleine, abonné présent ou non (liste initiale pas encore envoyée) : resynchronisation
+                        Sinks.EmitResult result = pending.tryEmitNext(change.diff());
+                        if (result == Sinks.EmitResult.FAIL_OVERFLOW || result == Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+                            pending.tryEmitError(Exceptions.failWithOverflow());
+                        }
+                    });
+
+            Mono<AlertDiff> initial = Mono.fromCallable(() -> {
+                List<Alert> alerts = alertService.getCurrentAlerts(buildingId);
+                return new AlertDiff(alerts, List.of(), alerts.size(), System.currentTimeMillis());
+            }).subscribeOn(blockingScheduler);
+
+            // Bâtiment sans application TTN : pas de flux amont, seuls les changements publiés sont envoyés
+            Flux<AlertDiff> reevaluations = appId.isEmpty()
+                    ? Flux.empty()
+                    : liveUplinkHub.stream(appId.get())
+                            .sample(ALERT_REEVALUATION_PERIOD)
+                            .onBackpressureDrop()
+                            .publishOn(blockingScheduler, 1)
+                            .concatMap(uplink -> {
+                                try {
+                                    alertService.getCurrentAlerts(buildingId);
+                                } catch (Exception e) {
+                                    // Base indisponible : pas de changement publié, le flux reste ouvert
+                                    log.warn("[RSocket] Alert re-evaluation failed for building={}: {}", building, e.getMessage());
+                                }
+                                return Mono.<AlertDiff>empty();
+                            });
+
+            // Pas de onBackpressureLatest ici : une différence abandonnée fausserait l'état du client
+            return Flux.concat(initial, pending.asFlux().mergeWith(reevaluations))
+                    .doFinally(signal -> changes.dispose());
+        }).onErrorResume(Exceptions::isOverflow, e -> {
+            // Tampon plein : les différences en attente sont abandonnées, on repart d'une liste complète
+            log.info("[RSocket] Alert client for building={} fell {} diffs behind, resending the full list",
+                    building, ALERT_DIFF_BUFFER_SIZE);
+            return alertDiffs(building, buildingId, appId);
+        });
+    }
+
+    /**
+     * Métriques d'une gateway, via la session de monitoring partagée avec les vues SSE.
+     */
+    @MessageMapping("gateway.{gatewayId}.metrics")
+    public Flux<MonitoringGatewayData> gatewayMetrics(@DestinationVariable String gatewayId) {
+        return gatewayService.findById(gatewayId)
+                .filter(gateway -> gateway.getIpAddress() != null && !gateway.getIpAddress().isBlank())
+                .map(gateway -> gatewayMonitoringSessionManager.join(gatewayId, gateway.getIpAddress()))
+                .orElseGet(() -> Flux.error(new IllegalArgumentException("Gateway not found or without IP: " + gatewayId)))
+                .onBackpressureLatest();
+    }
+}
@@ -1,13 +1,19 @@
 package com.amaris.sensorprocessor.controller;
 
 import com.amaris.sensorprocessor.model.analytics.SectionDailyOccupancyResponse;
+import com.amaris.sensorprocessor.model.analytics.SectionOccupancyProfileResponse;
 import com.amaris.sensorprocessor.model.analytics.SectionOccupancyResponse;
 import com.amaris.sensorprocessor.service.OccupancyAnalyticsService;
+import com.amaris.sensorprocessor.service.OccupancyCacheBackfillService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/analytics")
 @RequiredArgsConstructor
@@ -15,6 +21,7 @@ import org.springframework.web.bind.annotation.*;
 public class OccupancyAnalyticsController {
 
     private final OccupancyAnalyticsService analyticsService;
+    private final OccupancyCacheBackfillService backfillService;
 
     /**
      * Get occupancy analytics for a specific section
@@ -84,4 +91,47 @@ public class OccupancyAnalyticsController {
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * Occupancy by time of day (morning / afternoon, each 30-minute slot, peak slot) and by weekday
+     */
+    @GetMapping("/occupancy-profile/{section}")
+    public ResponseEntity<SectionOccupancyProfileResponse> getSectionOccupancyProfile(
+            @PathVariable String section,
+            @RequestParam String startDate,
+            @RequestParam String endDate) {
+        log.info("Getting occupancy profile for section: {} (dates: {} to {})", section, startDate, endDate);
+
+        try {
+            return ResponseEntity.ok(analyticsService.getSectionOccupancyProfile(section, startDate, endDate));
+        } catch (Exception e) {
+            log.error("Error getting occupancy profile for section {}: {}", section, e.getMessage(), e);
+            return ResponseEntity.internalServerError().build();
+        }
+    }
+
+    /**
+     * Daily occupancy cache coverage and progress / ETA of the history backfill
+     */
+    @GetMapping("/occupancy-cache/status")
+    public ResponseEntity<Map<String, Object>> getOccupancyCacheStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("cache", analyticsService.getOccupancyCacheStatus());
+        status.put("backfill", backfillService.getProgress());
+        return ResponseEntity.ok(status);
+    }
+
+    /**
+     * Starts the history backfill in the background, resuming after the last completed month
+     * @param restart Forget completed months and rebuild the whole history
+     */
+    @PostMapping("/occupancy-cache/backfill")
+    public ResponseEntity<OccupancyCacheBackfillService.BackfillProgress> startOccupancyCacheBackfill(
+            @RequestParam(defaultValue = "false") boolean restart) {
+        log.info("Occupancy cache backfill requested (restart={})", restart);
+
+        boolean started = backfillService.start(restart);
+        return ResponseEntity.status(started ? HttpStatus.ACCEPTED : HttpStatus.CONFLICT)
+                .body(backfillService.getProgress());
+    }
 }
@@ -495,9 +495,17 @@ public class SensorController {
             @PathVariable String idSensor,
             @PathVariable PayloadValueType valueType,
             @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date startDate,
-            @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date endDate) {
+            @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) Date endDate,
+            @RequestParam(value = "stepMinutes", required = false) Integer stepMinutes) {
+        java.time.Duration step = stepMinutes != null ? resamplingStep(stepMinutes) : null;
         try {
+            if (step != null) {
+                return sensorService.resampleSensorData(idSensor, startDate, endDate, step, List.of(valueType))
+                        .getOrDefault(valueType, new LinkedHashMap<>());
+            }
             return sensorService.findSensorDataByPeriodAndType(idSensor, startDate, endDate, valueType, Optional.empty());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
         } catch (Exception e) {
             log.error("[API] Error fetching data for sensor {}: {}", idSensor, e.getMessage(), e);
             throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error fetching sensor data", e);
@@ -510,10 +518,20 @@ public class SensorController {
             @PathVariable String idGateway,
             @PathVariable String idSensor,
             @RequestParam("startDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date startDate,
-            @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date endDate) {
+            @RequestParam("endDate") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Date endDate,
+            @RequestParam(value = "stepMinutes", required = false) Integer stepMinutes) {
 
-        Map<PayloadValueType, LinkedHashMap<LocalDateTime, String>> dataGroupedByValueType =
-                sensorService.findSensorDataByPeriod(idSensor, startDate, endDate);
+        Map<PayloadValueType, LinkedHashMap<LocalDateTime, String>> dataGroupedByValueType;
+        if (stepMinutes == null) {
+            dataGroupedByValueType = sensorService.findSensorDataByPeriod(idSensor, startDate, endDate);
+        } else {
+            try {
+                dataGroupedByValueType = sensorService.resampleSensorData(idSensor, startDate, endDate,
+                        resamplingStep(stepMinutes));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+        }
 
         Map<String, Object> response = new LinkedHashMap<>();
         response.put("idSensor", idSensor);
@@ -542,6 +560,17 @@ public class SensorController {
         }
     }
 
+    /**
+     * Pas de rééchantillonnage demandé par stepMinutes : une valeur par pas (dernière valeur connue)
+     * au lieu des trames brutes.
+     */
+    private static java.time.Duration resamplingStep(int stepMinutes) {
+        if (stepMinutes <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "stepMinutes must be positive.");
+        }
+        return java.time.Duration.ofMinutes(stepMinutes);
+    }
+
     @GetMapping("/manage-sensors/monitoring/{idSensor}/consumption/current")
     @ResponseBody
     public ResponseEntity<Map<String, Double>> getCurrentConsumption(
@@ -0,0 +1,40 @@
+package com.amaris.sensorprocessor.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * Plage tarifaire d'un bâtiment (heures pleines, heures creuses...), en heure de Paris.
+ * Les heures couvertes par aucune plage sont facturées au tarif de base de building_energy_config.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("building_energy_tariff")
+public class BuildingEnergyTariff {
+
+    @Id
+    private Long id;
+
+    @Column("building_id")
+    private Integer buildingId;
+
+    @Column("name")
+    private String name;            // ex. "PEAK", "OFF_PEAK"
+
+    @Column("start_hour")
+    private Integer startHour;      // 0-23, inclus
+
+    @Column("end_hour")
+    private Integer endHour;        // 1-24, exclu ; une plage 22 -> 6 passe minuit
+
+    @Column("weekdays_only")
+    private Boolean weekdaysOnly;   // true : du lundi au vendredi uniquement
+
+    @Column("cost_per_kwh")
+    private Double costPerKwh;
+}
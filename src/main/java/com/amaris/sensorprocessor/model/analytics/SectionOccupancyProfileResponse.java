@@ -0,0 +1,31 @@
+package com.amaris.sensorprocessor.model.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Time-of-day and day-of-week occupancy breakdown of a section over a period
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SectionOccupancyProfileResponse {
+    private String sectionName;
+    private int totalSensors;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private double globalOccupancyRate;              // Business hours, all sensors and working days
+    private double morningOccupancyRate;             // 9h00-12h30
+    private double afternoonOccupancyRate;           // 14h00-18h30
+    private Map<String, Double> weekdayOccupancyRates; // MONDAY..FRIDAY
+    private List<SlotOccupancyData> slots;           // Business-hours slots, in time order
+    private String peakSlot;                         // Start time of the most occupied slot, null without data
+    private double peakOccupancyRate;
+}
@@ -0,0 +1,20 @@
+package com.amaris.sensorprocessor.model.analytics;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Occupancy of one 30-minute time slot, summed over all sensors and days of the period
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class SlotOccupancyData {
+    private String startTime;            // Local start time of the slot (HH:mm, Europe/Paris)
+    private int occupiedIntervals;
+    private int totalIntervals;
+    private double occupancyRate;
+}
@@ -2,8 +2,10 @@ package com.amaris.sensorprocessor.model.dashboard;
 
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 
 @Data
+@NoArgsConstructor
 @AllArgsConstructor
 public class Alert {
     private String level;
@@ -0,0 +1,18 @@
+package com.amaris.sensorprocessor.model.dashboard;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * Différence entre deux évaluations successives des alertes d'un bâtiment.
+ */
+@Data
+@AllArgsConstructor
+public class AlertDiff {
+    private List<Alert> raised;
+    private List<Alert> cleared;
+    private int activeCount;
+    private long evaluatedAtEpochMs;
+}
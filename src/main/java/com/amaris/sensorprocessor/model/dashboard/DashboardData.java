@@ -3,6 +3,7 @@ package com.amaris.sensorprocessor.model.dashboard;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.time.Instant;
 import java.util.List;
 
 @Data
@@ -11,4 +12,10 @@ public class DashboardData {
     private List<Alert> alerts;
     private List<LiveSensorData> liveSensorData;
     private HistoricalData historicalData;
+    private long generation;     // Numéro du snapshot, croissant à chaque reconstruction
+    private Instant generatedAt;
+
+    public DashboardData(List<Alert> alerts, List<LiveSensorData> liveSensorData, HistoricalData historicalData) {
+        this(alerts, liveSensorData, historicalData, 0, null);
+    }
 }
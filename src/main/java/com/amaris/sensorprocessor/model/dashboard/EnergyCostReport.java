@@ -0,0 +1,72 @@
+package com.amaris.sensorprocessor.model.dashboard;
+
+import com.amaris.sensorprocessor.entity.BuildingEnergyTariff;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Energy consumption and cost of a building (or of all buildings) over a period, with the same
+ * figures for the previous period of equal length.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EnergyCostReport {
+
+    private Integer building;                   // null = all buildings
+    private String currency;
+    private double costPerKwh;                  // Base rate of the building (0 for all buildings)
+    private double co2Factor;                   // kg CO2 per kWh
+    private List<BuildingEnergyTariff> tariffs; // Tariff windows of the building
+
+    private String granularity;                 // "DAY" or "MONTH"
+    private LocalDate from;
+    private LocalDate to;
+
+    private double totalEnergy;                 // kWh
+    private double totalCost;
+    private double totalCo2;                    // kg
+
+    private List<CostPoint> dailyData;          // One point per day or per month, in time order
+    private List<CostBreakdown> byBuilding;
+    private List<CostBreakdown> byFloor;
+    private List<CostBreakdown> byChannel;
+    private List<CostBreakdown> byBand;         // Tariff window name, "BASE" outside any window
+
+    private PeriodTotals previousPeriod;
+    private Double energyChangePercent;         // null when the previous period has no consumption
+    private Double costChangePercent;
+
+    @Data
+    @AllArgsConstructor
+    public static class CostPoint {
+        private LocalDate period;               // Day, or first day of the month
+        private double energy;                  // kWh
+        private double cost;
+        private double co2;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class CostBreakdown {
+        private String key;
+        private double energy;                  // kWh
+        private double cost;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class PeriodTotals {
+        private LocalDate from;
+        private LocalDate to;
+        private double totalEnergy;
+        private double totalCost;
+        private double totalCo2;
+    }
+}
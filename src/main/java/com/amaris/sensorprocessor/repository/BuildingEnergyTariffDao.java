@@ -0,0 +1,83 @@
+package com.amaris.sensorprocessor.repository;
+
+import com.amaris.sensorprocessor.entity.BuildingEnergyTariff;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public class BuildingEnergyTariffDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BuildingEnergyTariffDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        createTableIfNotExists();
+    }
+
+    private void createTableIfNotExists() {
+        String sql = """
+            CREATE TABLE IF NOT EXISTS building_energy_tariff (
+                id BIGINT PRIMARY KEY AUTO_INCREMENT,
+                building_id INT NOT NULL,
+                name VARCHAR(64) NOT NULL,
+                start_hour INT NOT NULL,
+                end_hour INT NOT NULL,
+                weekdays_only BOOLEAN NOT NULL DEFAULT FALSE,
+                cost_per_kwh DOUBLE NOT NULL,
+                FOREIGN KEY (building_id) REFERENCES building(id_building)
+            )
+        """;
+        jdbcTemplate.execute(sql);
+    }
+
+    private final RowMapper<BuildingEnergyTariff> rowMapper = (rs, rowNum) -> new BuildingEnergyTariff(
+            rs.getLong("id"),
+            rs.getInt("building_id"),
+            rs.getString("name"),
+            rs.getInt("start_hour"),
+            rs.getInt("end_hour"),
+            rs.getBoolean("weekdays_only"),
+            rs.getDouble("cost_per_kwh"));
+
+    public List<BuildingEnergyTariff> findAll() {
+        return jdbcTemplate.query(
+                "SELECT * FROM building_energy_tariff ORDER BY building_id, id", rowMapper);
+    }
+
+    /**
+     * Plages du bâtiment dans l'ordre de création : en cas de chevauchement, la première l'emporte.
+     */
+    public List<BuildingEnergyTariff> findByBuildingId(Integer buildingId) {
+        if (buildingId == null) return List.of();
+        return jdbcTemplate.query(
+                "SELECT * FROM building_energy_tariff WHERE building_id = ? ORDER BY id", rowMapper, buildingId);
+    }
+
+    public void save(BuildingEnergyTariff tariff) {
+        if (tariff.getId() == null) {
+            jdbcTemplate.update("""
+                INSERT INTO building_energy_tariff (building_id, name, start_hour, end_hour, weekdays_only, cost_per_kwh)
+                VALUES (?, ?, ?, ?, ?, ?)
+            """,
+                    tariff.getBuildingId(), tariff.getName(), tariff.getStartHour(), tariff.getEndHour(),
+                    Boolean.TRUE.equals(tariff.getWeekdaysOnly()), tariff.getCostPerKwh());
+        } else {
+            jdbcTemplate.update("""
+                UPDATE building_energy_tariff
+                SET name = ?, start_hour = ?, end_hour = ?, weekdays_only = ?, cost_per_kwh = ?
+                WHERE id = ? AND building_id = ?
+            """,
+                    tariff.getName(), tariff.getStartHour(), tariff.getEndHour(),
+                    Boolean.TRUE.equals(tariff.getWeekdaysOnly()), tariff.getCostPerKwh(),
+                    tariff.getId(), tariff.getBuildingId());
+        }
+    }
+
+    public void delete(Integer buildingId, Long id) {
+        jdbcTemplate.update(
+                "DELETE FROM building_energy_tariff WHERE building_id = ? AND id = ?", buildingId, id);
+    }
+}
@@ -0,0 +1,84 @@
+package com.amaris.sensorprocessor.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Emails d'alerte en attente d'envoi : survivent à un redémarrage tant qu'ils n'ont pas été remis à ACS.
+ */
+@Repository
+public class EmailOutboxDao {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EmailOutboxDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void createTableIfNotExists() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS email_outbox (
+                    id VARCHAR(36) NOT NULL PRIMARY KEY,
+                    recipient VARCHAR(255) NOT NULL,
+                    parameter_type VARCHAR(50) NOT NULL,
+                    alerts_json TEXT NOT NULL,
+                    attempts INT NOT NULL DEFAULT 0,
+                    next_attempt_at TIMESTAMP NOT NULL,
+                    status VARCHAR(16) NOT NULL,
+                    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                )
+                """);
+    }
+
+    public List<OutboxEntry> findPending() {
+        return jdbcTemplate.query(
+                "SELECT id, recipient, parameter_type, alerts_json, attempts, next_attempt_at FROM email_outbox " +
+                        "WHERE status = ? ORDER BY created_at",
+                (rs, rowNum) -> new OutboxEntry(
+                        rs.getString("id"),
+                        rs.getString("recipient"),
+                        rs.getString("parameter_type"),
+                        rs.getString("alerts_json"),
+                        rs.getInt("attempts"),
+                        rs.getTimestamp("next_attempt_at").getTime()
+                ),
+                STATUS_PENDING
+        );
+    }
+
+    public void insert(OutboxEntry entry) {
+        jdbcTemplate.update(
+                "INSERT INTO email_outbox (id, recipient, parameter_type, alerts_json, attempts, next_attempt_at, status) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                entry.id(), entry.recipient(), entry.parameterType(), entry.alertsJson(), entry.attempts(),
+                new Timestamp(entry.nextAttemptAtMillis()), STATUS_PENDING
+        );
+    }
+
+    public void updateAlerts(String id, String alertsJson) {
+        jdbcTemplate.update("UPDATE email_outbox SET alerts_json = ? WHERE id = ?", alertsJson, id);
+    }
+
+    public void reschedule(String id, int attempts, long nextAttemptAtMillis) {
+        jdbcTemplate.update("UPDATE email_outbox SET attempts = ?, next_attempt_at = ? WHERE id = ?",
+                attempts, new Timestamp(nextAttemptAtMillis), id);
+    }
+
+    public void markFailed(String id, int attempts) {
+        jdbcTemplate.update("UPDATE email_outbox SET status = ?, attempts = ? WHERE id = ?", STATUS_FAILED, attempts, id);
+    }
+
+    public void delete(String id) {
+        jdbcTemplate.update("DELETE FROM email_outbox WHERE id = ?", id);
+    }
+
+    public record OutboxEntry(String id, String recipient, String parameterType, String alertsJson,
+                              int attempts, long nextAttemptAtMillis) {
+    }
+}
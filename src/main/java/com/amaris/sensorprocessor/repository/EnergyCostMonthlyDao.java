@@ -0,0 +1,137 @@
+package com.amaris.sensorprocessor.repository;
+
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Coût des mois clos par capteur, canal et plage tarifaire, calculé une fois depuis energy_delta_hourly :
+ * une vue annuelle lit au plus douze mois de lignes déjà agrégées.
+ *
+ * Un capteur sans consommation sur le mois a une ligne ENERGY_TOTAL à 0 qui marque le mois comme
+ * calculé. Les lignes d'un bâtiment sont supprimées quand ses tarifs changent, celles d'un capteur
+ * quand ses heures sont recalculées.
+ */
+@Repository
+@Slf4j
+public class EnergyCostMonthlyDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EnergyCostMonthlyDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        createTableIfNotExists();
+    }
+
+    private void createTableIfNotExists() {
+        String sql = """
+            CREATE TABLE IF NOT EXISTS energy_cost_monthly (
+                month_start DATE NOT NULL,
+                sensor_id VARCHAR(191) NOT NULL,
+                value_type VARCHAR(64) NOT NULL,
+                band VARCHAR(64) NOT NULL,
+                building_id INT NULL,
+                kwh DOUBLE NOT NULL,
+                cost DOUBLE NOT NULL,
+                updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                PRIMARY KEY (month_start, sensor_id, value_type, band),
+                INDEX idx_energy_cost_monthly_building (building_id, month_start),
+                INDEX idx_energy_cost_monthly_sensor (sensor_id, month_start)
+            )
+        """;
+        jdbcTemplate.execute(sql);
+    }
+
+    public List<MonthlyCost> findByMonthsAndSensorIds(Collection<LocalDate> months, Collection<String> sensorIds) {
+        List<MonthlyCost> result = new ArrayList<>();
+        if (months == null || months.isEmpty() || sensorIds == null || sensorIds.isEmpty()) {
+            return result;
+        }
+
+        String sql = """
+            SELECT month_start, sensor_id, value_type, band, kwh, cost
+            FROM energy_cost_monthly
+            WHERE month_start IN (%s)
+              AND sensor_id IN (%s)
+        """.formatted(String.join(",", Collections.nCopies(months.size(), "?")),
+                String.join(",", Collections.nCopies(sensorIds.size(), "?")));
+
+        List<Object> params = new ArrayList<>(months.size() + sensorIds.size());
+        months.forEach(month -> params.add(Date.valueOf(month)));
+        params.addAll(sensorIds);
+
+        jdbcTemplate.query(sql, rs -> {
+            result.add(new MonthlyCost(
+                    rs.getDate("month_start").toLocalDate(),
+                    rs.getString("sensor_id"),
+                    PayloadValueType.valueOf(rs.getString("value_type")),
+                    rs.getString("band"),
+                    rs.getDouble("kwh"),
+                    rs.getDouble("cost")));
+        }, params.toArray());
+        return result;
+    }
+
+    public void saveAll(List<MonthlyCost> rows, Map<String, Integer> buildingBySensor) {
+        if (rows == null || rows.isEmpty()) {
+            return;
+        }
+        String sql = """
+            INSERT INTO energy_cost_monthly (month_start, sensor_id, value_type, band, building_id, kwh, cost)
+            VALUES (?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                building_id = VALUES(building_id),
+                kwh = VALUES(kwh),
+                cost = VALUES(cost),
+                updated_at = CURRENT_TIMESTAMP
+        """;
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                MonthlyCost row = rows.get(i);
+                ps.setDate(1, Date.valueOf(row.monthStart()));
+                ps.setString(2, row.sensorId());
+                ps.setString(3, row.valueType().name());
+                ps.setString(4, row.band());
+                ps.setObject(5, buildingBySensor.get(row.sensorId()));
+                ps.setDouble(6, row.kwh());
+                ps.setDouble(7, row.cost());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return rows.size();
+            }
+        });
+    }
+
+    public int deleteByBuilding(Integer buildingId) {
+        int deleted = jdbcTemplate.update("DELETE FROM energy_cost_monthly WHERE building_id = ?", buildingId);
+        log.info("[energy-cost] cached months dropped for building {} (rows={})", buildingId, deleted);
+        return deleted;
+    }
+
+    public int deleteFromMonth(String sensorId, LocalDate monthStart) {
+        return jdbcTemplate.update("DELETE FROM energy_cost_monthly WHERE sensor_id = ? AND month_start >= ?",
+                sensorId, Date.valueOf(monthStart));
+    }
+
+    /**
+     * Consommation et coût d'un capteur sur un mois pour un canal et une plage tarifaire.
+     */
+    public record MonthlyCost(LocalDate monthStart, String sensorId, PayloadValueType valueType, String band,
+                              double kwh, double cost) {
+    }
+}
@@ -0,0 +1,235 @@
+package com.amaris.sensorprocessor.repository;
+
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Énergie consommée (Wh) par capteur, canal (ENERGY_CHANNEL_*) et heure UTC, tenue à jour à
+ * l'ingestion par EnergyDeltaRollupService. Les remises à zéro et les trous entre trames sont déjà
+ * résolus : une consommation sur une période se lit par SUM(wh), quel que soit le nombre de trames.
+ *
+ * hour_start est en UTC comme sensor_data.received_at ; les heures UTC sont alignées sur celles de
+ * Paris, les jours locaux se reconstruisent donc en regroupant les heures.
+ */
+@Repository
+@Slf4j
+public class EnergyDeltaHourlyDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EnergyDeltaHourlyDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        createTableIfNotExists();
+    }
+
+    private void createTableIfNotExists() {
+        String sql = """
+            CREATE TABLE IF NOT EXISTS energy_delta_hourly (
+                sensor_id VARCHAR(191) NOT NULL,
+                value_type VARCHAR(64) NOT NULL,
+                hour_start DATETIME NOT NULL,
+                wh DOUBLE NOT NULL,
+                resets INT NOT NULL DEFAULT 0,
+                updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                PRIMARY KEY (sensor_id, value_type, hour_start),
+                INDEX idx_energy_delta_hourly_sensor_hour (sensor_id, hour_start)
+            )
+        """;
+        jdbcTemplate.execute(sql);
+    }
+
+    /**
+     * Ajoute des Wh aux heures d'un canal (une trame peut couvrir plusieurs heures après un trou).
+     */
+    public void addDeltas(String sensorId, PayloadValueType valueType, Map<LocalDateTime, Double> whByHour, int resets) {
+        if (sensorId == null || valueType == null || whByHour == null || whByHour.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<LocalDateTime, Double>> entries = new ArrayList<>(whByHour.entrySet());
+        LocalDateTime lastHour = entries.get(entries.size() - 1).getKey();
+        String sql = """
+            INSERT INTO energy_delta_hourly (sensor_id, value_type, hour_start, wh, resets)
+            VALUES (?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                wh = wh + VALUES(wh),
+                resets = resets + VALUES(resets),
+                updated_at = CURRENT_TIMESTAMP
+        """;
+
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<LocalDateTime, Double> entry = entries.get(i);
+                ps.setString(1, sensorId);
+                ps.setString(2, valueType.name());
+                ps.setTimestamp(3, Timestamp.valueOf(entry.getKey()));
+                ps.setDouble(4, entry.getValue());
+                // la remise à zéro est rattachée à l'heure de la trame qui l'a révélée
+                ps.setInt(5, entry.getKey().equals(lastHour) ? resets : 0);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+    }
+
+    /**
+     * Remplace toutes les heures d'un capteur à partir de fromHourUtc (inclus) par celles recalculées.
+     */
+    public void replaceFrom(String sensorId, LocalDateTime fromHourUtc, List<HourlyDelta> hours) {
+        if (fromHourUtc == null) {
+            jdbcTemplate.update("DELETE FROM energy_delta_hourly WHERE sensor_id = ?", sensorId);
+        } else {
+            jdbcTemplate.update("DELETE FROM energy_delta_hourly WHERE sensor_id = ? AND hour_start >= ?",
+                    sensorId, Timestamp.valueOf(fromHourUtc));
+        }
+        if (hours.isEmpty()) {
+            return;
+        }
+
+        String sql = """
+            INSERT INTO energy_delta_hourly (sensor_id, value_type, hour_start, wh, resets)
+            VALUES (?, ?, ?, ?, ?)
+        """;
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                HourlyDelta hour = hours.get(i);
+                ps.setString(1, sensorId);
+                ps.setString(2, hour.valueType().name());
+                ps.setTimestamp(3, Timestamp.valueOf(hour.hourUtc()));
+                ps.setDouble(4, hour.wh());
+                ps.setInt(5, hour.resets());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return hours.size();
+            }
+        });
+        log.info("[energy-rollup] rebuilt sensor {} from {} (rows={})", sensorId, fromHourUtc, hours.size());
+    }
+
+    /**
+     * @return dernière heure agrégée pour ce capteur, vide s'il n'a jamais été agrégé
+     */
+    public Optional<LocalDateTime> findLatestHour(String sensorId) {
+        List<LocalDateTime> result = jdbcTemplate.query(
+                "SELECT MAX(hour_start) AS latest FROM energy_delta_hourly WHERE sensor_id = ?",
+                (rs, rowNum) -> {
+                    Timestamp latest = rs.getTimestamp("latest");
+                    return latest != null ? latest.toLocalDateTime() : null;
+                },
+                sensorId);
+        return result.stream().filter(java.util.Objects::nonNull).findFirst();
+    }
+
+    /**
+     * Heures [startUtc, endUtc) des capteurs et canaux demandés, triées par capteur, canal puis heure.
+     */
+    public List<HourlyDelta> findHourly(List<String> sensorIds, List<PayloadValueType> valueTypes,
+                                        LocalDateTime startUtc, LocalDateTime endUtc) {
+        List<HourlyDelta> result = new ArrayList<>();
+        forEachHourly(sensorIds, valueTypes, startUtc, endUtc, result::add);
+        return result;
+    }
+
+    /**
+     * Comme findHourly, sans matérialiser les lignes.
+     */
+    public void forEachHourly(List<String> sensorIds, List<PayloadValueType> valueTypes,
+                              LocalDateTime startUtc, LocalDateTime endUtc, Consumer<HourlyDelta> consumer) {
+        if (sensorIds == null || sensorIds.isEmpty() || valueTypes == null || valueTypes.isEmpty()) {
+            return;
+        }
+
+        String sql = """
+            SELECT sensor_id, value_type, hour_start, wh, resets
+            FROM energy_delta_hourly
+            WHERE sensor_id IN (%s)
+              AND value_type IN (%s)
+              AND hour_start >= ? AND hour_start < ?
+            ORDER BY sensor_id, value_type, hour_start
+        """.formatted(placeholders(sensorIds.size()), placeholders(valueTypes.size()));
+
+        jdbcTemplate.query(sql, rs -> {
+            consumer.accept(new HourlyDelta(
+                    rs.getString("sensor_id"),
+                    PayloadValueType.valueOf(rs.getString("value_type")),
+                    rs.getTimestamp("hour_start").toLocalDateTime(),
+                    rs.getDouble("wh"),
+                    rs.getInt("resets")));
+        }, rangeParams(sensorIds, valueTypes, startUtc, endUtc));
+    }
+
+    /**
+     * Wh consommés sur [startUtc, endUtc) par capteur et par canal.
+     */
+    public Map<String, Map<PayloadValueType, Double>> sumBySensorAndType(List<String> sensorIds,
+                                                                         List<PayloadValueType> valueTypes,
+                                                                         LocalDateTime startUtc,
+                                                                         LocalDateTime endUtc) {
+        Map<String, Map<PayloadValueType, Double>> result = new LinkedHashMap<>();
+        if (sensorIds == null || sensorIds.isEmpty() || valueTypes == null || valueTypes.isEmpty()) {
+            return result;
+        }
+
+        String sql = """
+            SELECT sensor_id, value_type, SUM(wh) AS wh
+            FROM energy_delta_hourly
+            WHERE sensor_id IN (%s)
+              AND value_type IN (%s)
+              AND hour_start >= ? AND hour_start < ?
+            GROUP BY sensor_id, value_type
+        """.formatted(placeholders(sensorIds.size()), placeholders(valueTypes.size()));
+
+        jdbcTemplate.query(sql, rs -> {
+            result.computeIfAbsent(rs.getString("sensor_id"), ignored -> new EnumMap<>(PayloadValueType.class))
+                    .put(PayloadValueType.valueOf(rs.getString("value_type")), rs.getDouble("wh"));
+        }, rangeParams(sensorIds, valueTypes, startUtc, endUtc));
+        return result;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(",", Collections.nCopies(count, "?"));
+    }
+
+    private static Object[] rangeParams(List<String> sensorIds, List<PayloadValueType> valueTypes,
+                                        LocalDateTime startUtc, LocalDateTime endUtc) {
+        List<Object> params = new ArrayList<>(sensorIds.size() + valueTypes.size() + 2);
+        params.addAll(sensorIds);
+        valueTypes.forEach(type -> params.add(type.name()));
+        params.add(Timestamp.valueOf(startUtc));
+        params.add(Timestamp.valueOf(endUtc));
+        return params.toArray();
+    }
+
+    /**
+     * Une heure d'un canal.
+     *
+     * @param hourUtc début de l'heure (UTC, comme received_at)
+     * @param wh      énergie consommée pendant l'heure
+     * @param resets  remises à zéro du compteur détectées pendant l'heure
+     */
+    public record HourlyDelta(String sensorId, PayloadValueType valueType, LocalDateTime hourUtc, double wh, int resets) {
+    }
+}
@@ -53,6 +53,11 @@ public class NotificationPreferenceDao {
         return jdbcTemplate.query(sql, ROW_MAPPER, username);
     }
 
+    public List<NotificationPreference> findAll() {
+        String sql = "SELECT * FROM notification_preferences";
+        return jdbcTemplate.query(sql, ROW_MAPPER);
+    }
+
     public Optional<NotificationPreference> findByUsernameAndParameter(String username, String parameterType) {
         String sql = "SELECT * FROM notification_preferences WHERE username = ? AND parameter_type = ?";
         List<NotificationPreference> results = jdbcTemplate.query(sql, ROW_MAPPER, username, parameterType);
@@ -0,0 +1,72 @@
+package com.amaris.sensorprocessor.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Tranches (mois calendaires) déjà recalculées par le backfill du cache d'occupation : un
+ * redémarrage reprend à la première tranche non terminée.
+ */
+@Repository
+public class OccupancyBackfillChunkDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OccupancyBackfillChunkDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        createTableIfNotExists();
+    }
+
+    private void createTableIfNotExists() {
+        String sql = """
+            CREATE TABLE IF NOT EXISTS occupancy_backfill_chunk (
+                chunk_start DATE NOT NULL,
+                chunk_end DATE NOT NULL,
+                working_days INT NOT NULL,
+                duration_ms BIGINT NOT NULL,
+                completed_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                PRIMARY KEY (chunk_start)
+            )
+        """;
+        jdbcTemplate.execute(sql);
+    }
+
+    /**
+     * @return dernier jour couvert par tranche terminée, indexé par premier jour de tranche
+     */
+    public Map<LocalDate, LocalDate> findCompletedChunks(LocalDate from, LocalDate to) {
+        Map<LocalDate, LocalDate> result = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT chunk_start, chunk_end
+                FROM occupancy_backfill_chunk
+                WHERE chunk_start BETWEEN ? AND ?
+                """,
+                rs -> {
+                    result.put(rs.getDate("chunk_start").toLocalDate(), rs.getDate("chunk_end").toLocalDate());
+                },
+                Date.valueOf(from), Date.valueOf(to));
+        return result;
+    }
+
+    public void markCompleted(LocalDate chunkStart, LocalDate chunkEnd, int workingDays, long durationMs) {
+        jdbcTemplate.update("""
+                INSERT INTO occupancy_backfill_chunk (chunk_start, chunk_end, working_days, duration_ms)
+                VALUES (?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE
+                    chunk_end = VALUES(chunk_end),
+                    working_days = VALUES(working_days),
+                    duration_ms = VALUES(duration_ms),
+                    completed_at = CURRENT_TIMESTAMP
+                """,
+                Date.valueOf(chunkStart), Date.valueOf(chunkEnd), workingDays, durationMs);
+    }
+
+    public int deleteAll() {
+        return jdbcTemplate.update("DELETE FROM occupancy_backfill_chunk");
+    }
+}
@@ -0,0 +1,124 @@
+package com.amaris.sensorprocessor.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Sauvegarde périodique des masques de créneaux du jour en cours (IntradayOccupancyTracker),
+ * relue au redémarrage pour ne rattraper que les trames reçues depuis.
+ */
+@Repository
+@Slf4j
+public class OccupancyIntradayCheckpointDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OccupancyIntradayCheckpointDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        createTableIfNotExists();
+    }
+
+    private void createTableIfNotExists() {
+        String sql = """
+            CREATE TABLE IF NOT EXISTS occupancy_intraday_checkpoint (
+                checkpoint_date DATE NOT NULL,
+                sensor_id VARCHAR(191) NOT NULL,
+                has_data_mask BIGINT NOT NULL,
+                occupied_mask BIGINT NOT NULL,
+                covered_until DATETIME NOT NULL,
+                updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                PRIMARY KEY (checkpoint_date, sensor_id)
+            )
+        """;
+        jdbcTemplate.execute(sql);
+    }
+
+    /**
+     * @param masksBySensor   {hasDataMask, occupiedMask} par capteur
+     * @param coveredUntilUtc instant (UTC, comme received_at) jusqu'auquel les masques sont à jour
+     */
+    public void upsert(LocalDate day, Map<String, long[]> masksBySensor, LocalDateTime coveredUntilUtc) {
+        if (day == null || masksBySensor == null || masksBySensor.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(masksBySensor.entrySet());
+        String sql = """
+            INSERT INTO occupancy_intraday_checkpoint (
+                checkpoint_date,
+                sensor_id,
+                has_data_mask,
+                occupied_mask,
+                covered_until
+            ) VALUES (?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                has_data_mask = VALUES(has_data_mask),
+                occupied_mask = VALUES(occupied_mask),
+                covered_until = VALUES(covered_until),
+                updated_at = CURRENT_TIMESTAMP
+        """;
+
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<String, long[]> entry = entries.get(i);
+                ps.setDate(1, Date.valueOf(day));
+                ps.setString(2, entry.getKey());
+                ps.setLong(3, entry.getValue()[0]);
+                ps.setLong(4, entry.getValue()[1]);
+                ps.setTimestamp(5, Timestamp.valueOf(coveredUntilUtc));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+
+        log.debug("[occupancy-intraday] checkpoint {} (rows={})", day, entries.size());
+    }
+
+    public Checkpoint findByDate(LocalDate day) {
+        Map<String, long[]> masks = new HashMap<>();
+        LocalDateTime[] coveredUntil = {null};
+        jdbcTemplate.query("""
+                SELECT sensor_id, has_data_mask, occupied_mask, covered_until
+                FROM occupancy_intraday_checkpoint
+                WHERE checkpoint_date = ?
+                """,
+                rs -> {
+                    masks.put(rs.getString("sensor_id"),
+                            new long[]{rs.getLong("has_data_mask"), rs.getLong("occupied_mask")});
+                    LocalDateTime rowCoveredUntil = rs.getTimestamp("covered_until").toLocalDateTime();
+                    if (coveredUntil[0] == null || rowCoveredUntil.isAfter(coveredUntil[0])) {
+                        coveredUntil[0] = rowCoveredUntil;
+                    }
+                },
+                Date.valueOf(day));
+        return new Checkpoint(masks, coveredUntil[0]);
+    }
+
+    public int deleteBefore(LocalDate day) {
+        return jdbcTemplate.update("DELETE FROM occupancy_intraday_checkpoint WHERE checkpoint_date < ?", Date.valueOf(day));
+    }
+
+    /**
+     * @param coveredUntilUtc dernière sauvegarde : chaque passage écrit tous les capteurs modifiés depuis
+     *                        le précédent, les masques sont donc tous à jour à cet instant (null si aucune)
+     */
+    public record Checkpoint(Map<String, long[]> masksBySensor, LocalDateTime coveredUntilUtc) {
+    }
+}
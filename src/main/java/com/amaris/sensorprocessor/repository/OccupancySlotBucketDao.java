@@ -0,0 +1,130 @@
+package com.amaris.sensorprocessor.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Trames d'occupation (OCCUPANCY, PERIOD_IN, PERIOD_OUT) regroupées par capteur et créneau de 30 minutes
+ * directement en SQL : quelques milliers de lignes agrégées au lieu de toutes les trames brutes.
+ *
+ * Le créneau est calculé sur l'heure UTC stockée (epoch / 1800, arrondi à l'entier inférieur). Les
+ * décalages Europe/Paris étant des heures entières, un créneau UTC correspond exactement à un créneau
+ * local ; la conversion vers le jour et le créneau Paris se fait ensuite côté Java, sans fonction de
+ * fuseau côté base.
+ */
+@Repository
+public class OccupancySlotBucketDao {
+
+    public static final int SLOT_SECONDS = 1800;
+
+    // Créneaux UTC 7h00-18h00 : couvrent 9h00-18h30 Paris en heure d'hiver comme d'été
+    private static final int FIRST_UTC_SLOT_OF_DAY = 14;
+    private static final int LAST_UTC_SLOT_OF_DAY = 35;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean sqlite;
+
+    public OccupancySlotBucketDao(JdbcTemplate jdbcTemplate,
+                                  @Value("${spring.datasource.url:}") String datasourceUrl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sqlite = datasourceUrl.startsWith("jdbc:sqlite:");
+    }
+
+    /**
+     * Créneau agrégé d'un capteur.
+     *
+     * @param slotStartEpochSecond début du créneau (UTC)
+     * @param rowCount             nombre de trames tous types confondus
+     * @param anyOccupied          au moins une trame (tous types) à un entier > 0, "occupied" ou "used"
+     * @param occupancyRows        nombre de trames OCCUPANCY
+     * @param occupancyOccupied    au moins une trame OCCUPANCY occupée
+     * @param periodRows           nombre de trames PERIOD_IN / PERIOD_OUT
+     * @param sumIn                somme des PERIOD_IN (valeurs tronquées à l'entier)
+     * @param sumOut               somme des PERIOD_OUT (valeurs tronquées à l'entier)
+     */
+    public record SlotBucket(String sensorId, long slotStartEpochSecond, int rowCount, boolean anyOccupied,
+                             int occupancyRows, boolean occupancyOccupied, int periodRows, long sumIn, long sumOut) {
+    }
+
+    /**
+     * Parcourt les créneaux ouvrés (heures de bureau élargies) des capteurs sur [startUtc, endUtc).
+     *
+     * @param sensorIds capteurs à lire, null pour tous les capteurs ayant des trames d'occupation
+     */
+    public void forEachSlot(List<String> sensorIds, LocalDateTime startUtc, LocalDateTime endUtc,
+                            Consumer<SlotBucket> consumer) {
+        forEachSlot(sensorIds, startUtc, endUtc, false, consumer);
+    }
+
+    /**
+     * @param wholeDay tous les créneaux de la journée, pas seulement les heures de bureau élargies
+     */
+    public void forEachSlot(List<String> sensorIds, LocalDateTime startUtc, LocalDateTime endUtc,
+                            boolean wholeDay, Consumer<SlotBucket> consumer) {
+        if (sensorIds != null && sensorIds.isEmpty()) {
+            return;
+        }
+
+        String slotFilter = wholeDay
+                ? ""
+                : "HAVING slot %% 48 BETWEEN %d AND %d".formatted(FIRST_UTC_SLOT_OF_DAY, LAST_UTC_SLOT_OF_DAY);
+        String sensorFilter = sensorIds == null
+                ? ""
+                : "id_sensor IN (" + String.join(",", Collections.nCopies(sensorIds.size(), "?")) + ") AND";
+        String occupied = sqlite
+                ? "((value <> '' AND value NOT GLOB '*[^0-9]*' AND CAST(value AS INTEGER) > 0) OR LOWER(value) IN ('occupied', 'used'))"
+                : "((value REGEXP '^[0-9]+$' AND CAST(value AS UNSIGNED) > 0) OR LOWER(value) IN ('occupied', 'used'))";
+        String count = sqlite
+                ? "CAST(CAST(value AS REAL) AS INTEGER)"
+                : "TRUNCATE(CAST(value AS DECIMAL(20, 6)), 0)";
+        // sqlite-jdbc peut stocker les dates en millisecondes epoch ou en texte ISO ; division entière
+        // (FLOOR n'existe en SQLite qu'avec les fonctions mathématiques compilées)
+        String slot = sqlite
+                ? "((CASE WHEN typeof(received_at) = 'integer' THEN received_at / 1000 ELSE CAST(strftime('%s', received_at) AS INTEGER) END) / " + SLOT_SECONDS + ")"
+                : "FLOOR(TIMESTAMPDIFF(SECOND, '1970-01-01 00:00:00', received_at) / " + SLOT_SECONDS + ")";
+
+        String sql = """
+            SELECT id_sensor,
+                   %1$s AS slot,
+                   COUNT(*) AS row_count,
+                   MAX(CASE WHEN %2$s THEN 1 ELSE 0 END) AS any_occupied,
+                   SUM(CASE WHEN value_type = 'OCCUPANCY' THEN 1 ELSE 0 END) AS occupancy_rows,
+                   MAX(CASE WHEN value_type = 'OCCUPANCY' AND %2$s THEN 1 ELSE 0 END) AS occupancy_occupied,
+                   SUM(CASE WHEN value_type IN ('PERIOD_IN', 'PERIOD_OUT') THEN 1 ELSE 0 END) AS period_rows,
+                   SUM(CASE WHEN value_type = 'PERIOD_IN' THEN %3$s ELSE 0 END) AS sum_in,
+                   SUM(CASE WHEN value_type = 'PERIOD_OUT' THEN %3$s ELSE 0 END) AS sum_out
+            FROM sensor_data
+            WHERE %4$s value_type IN ('OCCUPANCY', 'PERIOD_IN', 'PERIOD_OUT')
+              AND %5$s
+            GROUP BY id_sensor, slot
+            %6$s
+        """.formatted(slot, occupied, count, sensorFilter, SensorDataDao.receivedAtRange(sqlite), slotFilter);
+
+        List<Object> params = new ArrayList<>();
+        if (sensorIds != null) {
+            params.addAll(sensorIds);
+        }
+        SensorDataDao.addReceivedAtRange(sqlite, params, startUtc, endUtc);
+
+        jdbcTemplate.query(sql, rs -> {
+            consumer.accept(new SlotBucket(
+                    rs.getString("id_sensor"),
+                    rs.getLong("slot") * SLOT_SECONDS,
+                    rs.getInt("row_count"),
+                    rs.getInt("any_occupied") > 0,
+                    rs.getInt("occupancy_rows"),
+                    rs.getInt("occupancy_occupied") > 0,
+                    rs.getInt("period_rows"),
+                    rs.getLong("sum_in"),
+                    rs.getLong("sum_out")
+            ));
+        }, params.toArray());
+    }
+}
@@ -0,0 +1,153 @@
+package com.amaris.sensorprocessor.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Créneaux de 30 minutes (heure de Paris) par capteur et par jour, sous forme de deux masques de
+ * 48 bits : bit i = créneau commençant à i × 30 min. Contrairement à dashboard_occupancy_daily_aggregate,
+ * qui ne garde que les compteurs des heures ouvrées, n'importe quelle fenêtre horaire (matin,
+ * après-midi, heure par heure) se recalcule par popcount sans relire sensor_data.
+ */
+@Repository
+@Slf4j
+public class OccupancySlotsDao {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public OccupancySlotsDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        createTableIfNotExists();
+    }
+
+    private void createTableIfNotExists() {
+        String sql = """
+            CREATE TABLE IF NOT EXISTS occupancy_slots (
+                slot_date DATE NOT NULL,
+                sensor_id VARCHAR(191) NOT NULL,
+                has_data_mask BIGINT NOT NULL,
+                occupied_mask BIGINT NOT NULL,
+                created_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+                updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+                PRIMARY KEY (slot_date, sensor_id),
+                INDEX idx_occupancy_slots_sensor_date (sensor_id, slot_date)
+            )
+        """;
+        jdbcTemplate.execute(sql);
+    }
+
+    /**
+     * @return masques {avec données, occupés} par jour puis par capteur, jours absents de la table omis
+     */
+    public Map<LocalDate, Map<String, long[]>> findBySensorIdsAndDateRange(
+            List<String> sensorIds,
+            LocalDate startDate,
+            LocalDate endDate) {
+
+        Map<LocalDate, Map<String, long[]>> result = new LinkedHashMap<>();
+        if (sensorIds == null || sensorIds.isEmpty() || startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            return result;
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(sensorIds.size(), "?"));
+        String sql = """
+            SELECT slot_date, sensor_id, has_data_mask, occupied_mask
+            FROM occupancy_slots
+            WHERE sensor_id IN (%s)
+              AND slot_date BETWEEN ? AND ?
+            ORDER BY slot_date, sensor_id
+        """.formatted(placeholders);
+
+        List<Object> params = new ArrayList<>(sensorIds.size() + 2);
+        params.addAll(sensorIds);
+        params.add(Date.valueOf(startDate));
+        params.add(Date.valueOf(endDate));
+
+        jdbcTemplate.query(sql, rs -> {
+            LocalDate day = rs.getDate("slot_date").toLocalDate();
+            result.computeIfAbsent(day, ignored -> new LinkedHashMap<>())
+                    .put(rs.getString("sensor_id"), new long[]{rs.getLong("has_data_mask"), rs.getLong("occupied_mask")});
+        }, params.toArray());
+
+        return result;
+    }
+
+    /**
+     * Couverture de la table : premier et dernier jour enregistrés, nombre de jours et de lignes.
+     */
+    public DashboardOccupancyDailyAggregateDao.OccupancyCacheStatus getCacheStatus() {
+        return jdbcTemplate.query("""
+                SELECT
+                    MIN(slot_date) AS first_cached_date,
+                    MAX(slot_date) AS last_cached_date,
+                    COUNT(DISTINCT slot_date) AS cached_days,
+                    COUNT(*) AS cached_rows
+                FROM occupancy_slots
+                """,
+                rs -> {
+                    if (!rs.next()) {
+                        return new DashboardOccupancyDailyAggregateDao.OccupancyCacheStatus(null, null, 0, 0);
+                    }
+
+                    Date firstCachedDate = rs.getDate("first_cached_date");
+                    Date lastCachedDate = rs.getDate("last_cached_date");
+
+                    return new DashboardOccupancyDailyAggregateDao.OccupancyCacheStatus(
+                            firstCachedDate == null ? null : firstCachedDate.toLocalDate(),
+                            lastCachedDate == null ? null : lastCachedDate.toLocalDate(),
+                            rs.getInt("cached_days"),
+                            rs.getInt("cached_rows")
+                    );
+                });
+    }
+
+    public void upsertDay(LocalDate day, Map<String, long[]> masksBySensor) {
+        if (day == null || masksBySensor == null || masksBySensor.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(masksBySensor.entrySet());
+        String sql = """
+            INSERT INTO occupancy_slots (
+                slot_date,
+                sensor_id,
+                has_data_mask,
+                occupied_mask
+            ) VALUES (?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                has_data_mask = VALUES(has_data_mask),
+                occupied_mask = VALUES(occupied_mask),
+                updated_at = CURRENT_TIMESTAMP
+        """;
+
+        jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                Map.Entry<String, long[]> entry = entries.get(i);
+                ps.setDate(1, Date.valueOf(day));
+                ps.setString(2, entry.getKey());
+                ps.setLong(3, entry.getValue()[0]);
+                ps.setLong(4, entry.getValue()[1]);
+            }
+
+            @Override
+            public int getBatchSize() {
+                return entries.size();
+            }
+        });
+
+        log.info("[occupancy-slots] saved day {} (rows={})", day, entries.size());
+    }
+}
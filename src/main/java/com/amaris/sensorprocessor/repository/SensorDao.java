@@ -234,7 +234,10 @@ public class SensorDao {
         return jdbcTemplate.query(sql, new BeanPropertyRowMapper<>(Sensor.class), params.toArray());
     }
 
-    private List<String> expandDeviceTypes(Collection<String> deviceTypes) {
+    /**
+     * Types demandés tels qu'ils figurent dans device_type.type_name (SON/NOISE et CONSO/ENERGY sont équivalents).
+     */
+    public static List<String> expandDeviceTypes(Collection<String> deviceTypes) {
         if (deviceTypes == null || deviceTypes.isEmpty()) {
             return List.of();
         }
@@ -1,19 +1,24 @@
 package com.amaris.sensorprocessor.repository;
 
-import lombok.AllArgsConstructor;
-
 import java.util.*;
 import java.time.Instant;
 import java.time.LocalDateTime;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import com.amaris.sensorprocessor.entity.PayloadValueType;
 import com.amaris.sensorprocessor.entity.SensorData;
-@AllArgsConstructor
 @Repository
 public class SensorDataDao {
     private final JdbcTemplate jdbcTemplate;
+    private final boolean sqlite;
+
+    public SensorDataDao(JdbcTemplate jdbcTemplate,
+                         @Value("${spring.datasource.url:}") String datasourceUrl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sqlite = datasourceUrl.startsWith("jdbc:sqlite:");
+    }
 
     public int insertSensorData(SensorData sensorData) {
         return jdbcTemplate.update(
@@ -191,6 +196,68 @@ public class SensorDataDao {
         }
     }
 
+    /**
+     * Dernière valeur de chaque couple (capteur, type) en une seule requête.
+     */
+    public Map<String, Map<PayloadValueType, SensorData>> findLatestBySensorIdsAndTypes(Collection<String> sensorIds,
+                                                                                       Set<PayloadValueType> valueTypes) {
+        if (sensorIds == null || sensorIds.isEmpty() || valueTypes == null || valueTypes.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        String sensorPlaceholders = String.join(",", java.util.Collections.nCopies(sensorIds.size(), "?"));
+        String typePlaceholders = String.join(",", java.util.Collections.nCopies(valueTypes.size(), "?"));
+
+        String query = "SELECT sd.id_sensor, sd.received_at, sd.value, sd.value_type " +
+                       "FROM sensor_data sd " +
+                       "INNER JOIN (" +
+                       "  SELECT id_sensor, value_type, MAX(received_at) AS max_received_at " +
+                       "  FROM sensor_data " +
+                       "  WHERE id_sensor IN (" + sensorPlaceholders + ") AND value_type IN (" + typePlaceholders + ") " +
+                       "  GROUP BY id_sensor, value_type" +
+                       ") latest ON sd.id_sensor = latest.id_sensor AND sd.value_type = latest.value_type " +
+                       "AND sd.received_at = latest.max_received_at";
+
+        List<Object> params = new ArrayList<>(sensorIds.size() + valueTypes.size());
+        params.addAll(sensorIds);
+        valueTypes.forEach(type -> params.add(type.toString()));
+
+        Map<String, Map<PayloadValueType, SensorData>> result = new HashMap<>();
+        jdbcTemplate.query(query, rs -> {
+            LocalDateTime receivedAt = rs.getTimestamp("received_at") != null
+                    ? rs.getTimestamp("received_at").toLocalDateTime() : null;
+            String value = rs.getString("value");
+            String vt = rs.getString("value_type");
+            if (receivedAt == null || value == null || vt == null) return;
+            SensorData sd = new SensorData(rs.getString("id_sensor"), receivedAt, value, vt);
+            result.computeIfAbsent(sd.getIdSensor(), k -> new EnumMap<>(PayloadValueType.class))
+                    .putIfAbsent(sd.getValueType(), sd);
+        }, params.toArray());
+        return result;
+    }
+
+    /**
+     * Date de la dernière trame reçue (tous types confondus) pour chaque capteur, en une seule requête.
+     */
+    public Map<String, LocalDateTime> findLastReceivedAtBySensorIds(Collection<String> sensorIds) {
+        if (sensorIds == null || sensorIds.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        String placeholders = String.join(",", java.util.Collections.nCopies(sensorIds.size(), "?"));
+        String query = "SELECT id_sensor, MAX(received_at) AS last_received_at " +
+                       "FROM sensor_data WHERE id_sensor IN (" + placeholders + ") GROUP BY id_sensor";
+
+        Map<String, LocalDateTime> result = new HashMap<>();
+        jdbcTemplate.query(query, rs -> {
+            java.sql.Timestamp lastReceivedAt = rs.getTimestamp("last_received_at");
+            if (lastReceivedAt != null) {
+                result.put(rs.getString("id_sensor"), lastReceivedAt.toLocalDateTime());
+            }
+        }, sensorIds.toArray());
+        return result;
+    }
+
     public Optional<SensorData> findLatestBySensor(String idSensor) {
         String query = "SELECT * FROM sensor_data WHERE id_sensor = ? ORDER BY received_at DESC LIMIT 1";
 
@@ -265,6 +332,50 @@ public class SensorDataDao {
     }
 
 
+    /**
+     * Last numeric value of each requested type strictly before beforeUtc, in one query
+     * (types without any earlier reading are absent).
+     */
+    public Map<PayloadValueType, Double> findLastValuesBefore(
+            String idSensor,
+            Collection<PayloadValueType> types,
+            LocalDateTime beforeUtc
+    ) {
+        if (idSensor == null || types == null || types.isEmpty() || beforeUtc == null) return Map.of();
+
+        String query = """
+        SELECT sd.value_type, sd.value
+        FROM sensor_data sd
+        JOIN (
+            SELECT value_type, MAX(received_at) AS max_received_at
+            FROM sensor_data
+            WHERE id_sensor = ?
+              AND value_type IN (%s)
+              AND received_at < ?
+            GROUP BY value_type
+        ) lasts
+          ON sd.value_type = lasts.value_type
+         AND sd.received_at = lasts.max_received_at
+        WHERE sd.id_sensor = ?
+    """.formatted(String.join(",", java.util.Collections.nCopies(types.size(), "?")));
+
+        List<Object> params = new ArrayList<>(types.size() + 3);
+        params.add(idSensor);
+        types.forEach(type -> params.add(type.toString()));
+        params.add(beforeUtc);
+        params.add(idSensor);
+
+        Map<PayloadValueType, Double> out = new EnumMap<>(PayloadValueType.class);
+        jdbcTemplate.query(query, (rs) -> {
+            try {
+                out.put(PayloadValueType.valueOf(rs.getString("value_type")), Double.parseDouble(rs.getString("value")));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                // valeur non numérique : pas de valeur de départ pour ce type
+            }
+        }, params.toArray());
+        return out;
+    }
+
     public Optional<SensorData> findLatestByGateway(String gatewayId) {
         String query = """
             SELECT sd.* FROM sensor_data sd 
@@ -341,29 +452,6 @@ public class SensorDataDao {
         }
     }
 
-
-    public Optional<SensorData> findLastValueBefore(String idSensor, PayloadValueType channel, Instant instant) {
-        String query = "SELECT * FROM sensor_data WHERE id_sensor = ? AND value_type = ? AND received_at < ? ORDER BY received_at DESC LIMIT 1";
-
-        try {
-            List<SensorData> result = jdbcTemplate.query(query, (rs, rowNum) -> {
-                LocalDateTime receivedAt = rs.getTimestamp("received_at") != null ? rs.getTimestamp("received_at").toLocalDateTime() : null;
-                String stringValue = rs.getString("value");
-                String valueType = rs.getString("value_type");
-
-                if (receivedAt == null || stringValue == null || valueType == null) {
-                    return null; // Skip invalid records
-                }
-
-                return new SensorData(rs.getString("id_sensor"), receivedAt, stringValue, valueType);
-            }, idSensor, channel.toString(), instant);
-
-            return result.stream().filter(java.util.Objects::nonNull).findFirst();
-        } catch (Exception e) {
-            return Optional.empty();
-        }
-    }
-
     /**
      * Get the average value of a specific sensor and valueType during a given hour.
      * This is useful for computing histograms with hourly granularity.
@@ -736,6 +824,96 @@ public class SensorDataDao {
         }
     }
 
+    /**
+     * Métrique demandée à {@link #findAggregatedDataByPeriodAndTypes} : capteurs pris en compte pour ce
+     * type et fonction d'agrégation (AVG, SUM, COUNT, MAX, MIN).
+     */
+    public record MetricAggregation(Collection<String> sensorIds, String aggregationType) {
+    }
+
+    /**
+     * Séries horaires de plusieurs types de mesure en une seule requête : un seul parcours de
+     * sensor_data sur la période, groupé par (value_type, heure), chaque type avec ses propres
+     * capteurs et sa fonction d'agrégation. Les types sans capteur ont une série vide.
+     */
+    public Map<PayloadValueType, List<AggregatedDataPoint>> findAggregatedDataByPeriodAndTypes(
+            Map<PayloadValueType, MetricAggregation> metrics,
+            LocalDateTime startDateTime,
+            LocalDateTime endDateTime) {
+
+        Map<PayloadValueType, List<AggregatedDataPoint>> result = new EnumMap<>(PayloadValueType.class);
+        if (metrics == null || metrics.isEmpty()) {
+            return result;
+        }
+
+        String hourBucket = "substr(received_at, 1, 13)";
+        StringBuilder aggCase = new StringBuilder("CASE value_type");
+        List<String> typeFilters = new ArrayList<>();
+        List<Object> aggParams = new ArrayList<>();
+        List<Object> filterParams = new ArrayList<>();
+        metrics.forEach((valueType, metric) -> {
+            result.put(valueType, new ArrayList<>());
+            if (metric.sensorIds() == null || metric.sensorIds().isEmpty()) {
+                return;
+            }
+            aggCase.append(" WHEN ? THEN ").append(aggregateFunction(metric.aggregationType()))
+                    .append("(CAST(value AS REAL))");
+            aggParams.add(valueType.toString());
+            typeFilters.add("(value_type = ? AND id_sensor IN ("
+                    + String.join(",", java.util.Collections.nCopies(metric.sensorIds().size(), "?")) + "))");
+            filterParams.add(valueType.toString());
+            filterParams.addAll(metric.sensorIds());
+        });
+        if (typeFilters.isEmpty()) {
+            return result;
+        }
+        aggCase.append(" END");
+
+        String query = "SELECT value_type, " +
+                      hourBucket + " as time_bucket, " +
+                      aggCase + " as agg_value, " +
+                      "COUNT(*) as data_point_count, " +
+                      "COUNT(DISTINCT id_sensor) as sensor_count " +
+                      "FROM sensor_data " +
+                      "WHERE (" + String.join(" OR ", typeFilters) + ") " +
+                      "  AND received_at >= ? AND received_at < ? " +
+                      "  AND value IS NOT NULL " +
+                      "GROUP BY value_type, " + hourBucket + " " +
+                      "ORDER BY value_type, " + hourBucket + " ASC";
+
+        java.time.format.DateTimeFormatter formatter = java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss");
+        List<Object> params = new ArrayList<>(aggParams.size() + filterParams.size() + 2);
+        params.addAll(aggParams);
+        params.addAll(filterParams);
+        params.add(startDateTime.format(formatter));
+        params.add(endDateTime.format(formatter));
+
+        try {
+            jdbcTemplate.query(query, rs -> {
+                PayloadValueType valueType = PayloadValueType.valueOf(rs.getString("value_type"));
+                result.get(valueType).add(new AggregatedDataPoint(
+                        rs.getString("time_bucket"),
+                        rs.getDouble("agg_value"),
+                        rs.getInt("sensor_count"),
+                        rs.getInt("data_point_count")));
+            }, params.toArray());
+        } catch (Exception e) {
+            System.err.println("Error executing multi-metric aggregation: " + e.getMessage());
+            result.replaceAll((valueType, points) -> new ArrayList<>());
+        }
+        return result;
+    }
+
+    private static String aggregateFunction(String aggregationType) {
+        return switch (aggregationType == null ? "" : aggregationType.toUpperCase()) {
+            case "SUM" -> "SUM";
+            case "COUNT" -> "COUNT";
+            case "MAX" -> "MAX";
+            case "MIN" -> "MIN";
+            default -> "AVG";
+        };
+    }
+
     /**
      * Find aggregated data by period and type with hourly binning.
      * This method aggregates sensor data by hour for memory efficiency.
@@ -871,6 +1049,158 @@ public class SensorDataDao {
         }
     }
 
+    /**
+     * Statistics of several metrics for multiple sensors over a date range in ONE query, grouped by
+     * time bucket (hour or day), metric and sensor. Replaces the one-query-per-bucket-and-metric loop
+     * of the hourly histogram.
+     *
+     * Buckets are "yyyy-MM-dd HH:00" (hourly) or "yyyy-MM-dd" (daily), formatted by the database from
+     * the stored UTC time. As in OccupancySlotBucketDao, SQLite rows may hold received_at as epoch
+     * milliseconds or ISO text, so the expression depends on the dialect.
+     */
+    public List<BucketStatistics> getStatisticsByBucket(
+            List<String> sensorIds,
+            List<PayloadValueType> valueTypes,
+            LocalDateTime startDateTime,
+            LocalDateTime endDateTime,
+            boolean hourly) {
+
+        if (sensorIds == null || sensorIds.isEmpty() || valueTypes == null || valueTypes.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sensorPlaceholders = String.join(",", java.util.Collections.nCopies(sensorIds.size(), "?"));
+        String typePlaceholders = String.join(",", java.util.Collections.nCopies(valueTypes.size(), "?"));
+        String bucket = sqlite
+                ? "strftime('" + (hourly ? "%Y-%m-%d %H" : "%Y-%m-%d") + "', CASE WHEN typeof(received_at) = 'integer'"
+                        + " THEN datetime(received_at / 1000, 'unixepoch') ELSE received_at END)"
+                : "DATE_FORMAT(received_at, '" + (hourly ? "%Y-%m-%d %H" : "%Y-%m-%d") + "')";
+
+        String query = "SELECT " +
+                      "  " + bucket + " as time_bucket, " +
+                      "  value_type, " +
+                      "  id_sensor, " +
+                      "  AVG(CAST(value AS REAL)) as avg_value, " +
+                      "  MIN(CAST(value AS REAL)) as min_value, " +
+                      "  MAX(CAST(value AS REAL)) as max_value, " +
+                      "  COUNT(*) as data_count " +
+                      "FROM sensor_data " +
+                      "WHERE id_sensor IN (" + sensorPlaceholders + ") " +
+                      "  AND value_type IN (" + typePlaceholders + ") " +
+                      "  AND " + receivedAtRange(sqlite) + " " +
+                      "  AND value IS NOT NULL " +
+                      "GROUP BY " + bucket + ", value_type, id_sensor";
+
+        List<Object> params = new ArrayList<>(sensorIds.size() + valueTypes.size() + 4);
+        params.addAll(sensorIds);
+        valueTypes.forEach(type -> params.add(type.toString()));
+        addReceivedAtRange(sqlite, params, startDateTime, endDateTime);
+
+        try {
+            List<BucketStatistics> result = new ArrayList<>();
+            jdbcTemplate.query(query, (rs) -> {
+                int count = rs.getInt("data_count");
+                if (count == 0) return;
+                String timeBucket = rs.getString("time_bucket");
+                result.add(new BucketStatistics(
+                        hourly ? timeBucket + ":00" : timeBucket,
+                        PayloadValueType.valueOf(rs.getString("value_type")),
+                        rs.getString("id_sensor"),
+                        new HourlyStatistics(
+                                rs.getDouble("avg_value"),
+                                rs.getDouble("min_value"),
+                                rs.getDouble("max_value"),
+                                count
+                        )
+                ));
+            }, params.toArray());
+            return result;
+        } catch (Exception e) {
+            System.err.println("Error executing getStatisticsByBucket: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    // [start, end) sur received_at ; en SQLite, les lignes en millisecondes epoch sont comparées à des
+    // bornes en millisecondes (un entier est toujours inférieur à un texte pour SQLite).
+    // Partagé avec les DAO qui filtrent sensor_data par période (OccupancySlotBucketDao)
+    static String receivedAtRange(boolean sqlite) {
+        return sqlite
+                ? "(CASE WHEN typeof(received_at) = 'integer' THEN received_at >= ? AND received_at < ?"
+                        + " ELSE received_at >= ? AND received_at < ? END)"
+                : "received_at >= ? AND received_at < ?";
+    }
+
+    static void addReceivedAtRange(boolean sqlite, List<Object> params, LocalDateTime start, LocalDateTime end) {
+        if (sqlite) {
+            // Même conversion que sqlite-jdbc à l'écriture d'un Timestamp
+            params.add(java.sql.Timestamp.valueOf(start).getTime());
+            params.add(java.sql.Timestamp.valueOf(end).getTime());
+        }
+        params.add(start);
+        params.add(end);
+    }
+
+    /**
+     * Statistics of one sensor and metric in one time bucket.
+     */
+    public record BucketStatistics(String timeBucket, PayloadValueType valueType, String sensorId,
+                                   HourlyStatistics statistics) {
+    }
+
+    /**
+     * Streams the numeric readings of one sensor received in [startUtc, endUtc) (either bound may be null),
+     * ordered by value type then received_at, without materialising them. Unparsable values are skipped.
+     */
+    public void forEachNumericReading(
+            String sensorId,
+            Collection<PayloadValueType> valueTypes,
+            LocalDateTime startUtc,
+            LocalDateTime endUtc,
+            NumericReadingConsumer consumer) {
+
+        if (sensorId == null || valueTypes == null || valueTypes.isEmpty()) {
+            return;
+        }
+
+        String typePlaceholders = String.join(",", java.util.Collections.nCopies(valueTypes.size(), "?"));
+        String query = "SELECT value_type, received_at, value " +
+                      "FROM sensor_data " +
+                      "WHERE id_sensor = ? " +
+                      "  AND value_type IN (" + typePlaceholders + ") " +
+                      (startUtc != null ? "  AND received_at >= ? " : "") +
+                      (endUtc != null ? "  AND received_at < ? " : "") +
+                      "  AND value IS NOT NULL " +
+                      "ORDER BY value_type, received_at";
+
+        List<Object> params = new ArrayList<>(valueTypes.size() + 3);
+        params.add(sensorId);
+        valueTypes.forEach(type -> params.add(type.toString()));
+        if (startUtc != null) {
+            params.add(startUtc);
+        }
+        if (endUtc != null) {
+            params.add(endUtc);
+        }
+
+        jdbcTemplate.query(query, (rs) -> {
+            java.sql.Timestamp receivedAt = rs.getTimestamp("received_at");
+            if (receivedAt == null) return;
+            double value;
+            try {
+                value = Double.parseDouble(rs.getString("value"));
+            } catch (NumberFormatException e) {
+                return;
+            }
+            consumer.accept(PayloadValueType.valueOf(rs.getString("value_type")), receivedAt.toLocalDateTime(), value);
+        }, params.toArray());
+    }
+
+    @FunctionalInterface
+    public interface NumericReadingConsumer {
+        void accept(PayloadValueType valueType, LocalDateTime receivedAtUtc, double value);
+    }
+
     /**
      * DTO for aggregated data points.
      */
@@ -14,11 +14,14 @@ public class AlertConfigurationService {
 
     private final AlertThresholdConfig alertThresholdConfig;
     private final AlertConfigurationDao alertConfigurationDao;
+    private final AlertRuleIndex alertRuleIndex;
 
     @Autowired
-    public AlertConfigurationService(AlertThresholdConfig alertThresholdConfig, AlertConfigurationDao alertConfigurationDao) {
+    public AlertConfigurationService(AlertThresholdConfig alertThresholdConfig, AlertConfigurationDao alertConfigurationDao,
+                                     AlertRuleIndex alertRuleIndex) {
         this.alertThresholdConfig = alertThresholdConfig;
         this.alertConfigurationDao = alertConfigurationDao;
+        this.alertRuleIndex = alertRuleIndex;
     }
 
     @PostConstruct
@@ -76,6 +79,7 @@ public class AlertConfigurationService {
         
         // Update active bean
         updateBeanFromEntity(entity);
+        alertRuleIndex.rebuild();
     }
 
     private void updateBeanFromEntity(AlertConfigEntity entity) {
@@ -12,6 +12,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -24,6 +25,8 @@ public class AlertNotificationScheduler {
     private final NotificationService notificationService;
     private final NotificationPreferenceDao notificationPreferenceDao;
     private final UserService userService;
+    private final EmailDispatchQueue emailDispatchQueue;
+    private final ScheduledJobRunner scheduledJobRunner;
     
     // Track sent alerts to prevent spam (alertKey -> lastSentTime)
     private final Map<String, LocalDateTime> sentAlerts = new ConcurrentHashMap<>();
@@ -35,11 +38,15 @@ public class AlertNotificationScheduler {
     public AlertNotificationScheduler(AlertService alertService, 
                                     NotificationService notificationService,
                                     NotificationPreferenceDao notificationPreferenceDao,
-                                    UserService userService) {
+                                    UserService userService,
+                                    EmailDispatchQueue emailDispatchQueue,
+                                    ScheduledJobRunner scheduledJobRunner) {
         this.alertService = alertService;
         this.notificationService = notificationService;
         this.notificationPreferenceDao = notificationPreferenceDao;
         this.userService = userService;
+        this.emailDispatchQueue = emailDispatchQueue;
+        this.scheduledJobRunner = scheduledJobRunner;
     }
 
     /**
@@ -47,6 +54,10 @@ public class AlertNotificationScheduler {
      */
     @Scheduled(fixedRate = 300000) // 5 minutes = 300,000 milliseconds
     public void checkAndSendAlertNotifications() {
+        scheduledJobRunner.submit("alert-notifications", this::runAlertNotificationCheck);
+    }
+
+    private void runAlertNotificationCheck() {
         log.info("Starting scheduled alert notification check...");
         
         try {
@@ -58,15 +69,25 @@ public class AlertNotificationScheduler {
                 return;
             }
             
-            log.info("Found {} active alerts, checking notification preferences", currentAlerts.size());
-            
-            // Get all users with notification preferences
-            List<User> allUsers = userService.getAllUsers();
+            // Preferences loaded once per tick: parameter type -> subscribed users
+            Map<String, List<Subscription>> subscriptions = loadSubscriptions();
+            Map<AlertGroupKey, List<Alert>> groupedAlerts = groupAlerts(currentAlerts);
             
-            for (User user : allUsers) {
-                processUserAlertNotifications(user, currentAlerts);
+            int queued = 0;
+            for (Map.Entry<AlertGroupKey, List<Alert>> entry : groupedAlerts.entrySet()) {
+                String parameterType = entry.getKey().parameterType();
+                List<Alert> alertGroup = entry.getValue();
+                
+                for (Subscription subscription : subscriptions.getOrDefault(parameterType, List.of())) {
+                    if (notifySubscriber(alertGroup, subscription, parameterType)) {
+                        queued++;
+                    }
+                }
             }
             
+            log.info("Found {} active alerts in {} groups, {} notifications queued", 
+                    currentAlerts.size(), groupedAlerts.size(), queued);
+            
             // Cleanup old sent alerts (older than 2 hours)
             cleanupOldSentAlerts();
             
@@ -75,116 +96,68 @@ public class AlertNotificationScheduler {
         }
     }
 
-    private void processUserAlertNotifications(User user, List<Alert> alerts) {
-        String username = user.getUsername();
-        
-        // Get user's notification preferences
-        List<NotificationPreference> userPreferences = notificationPreferenceDao.findByUsername(username);
-        
-        if (userPreferences.isEmpty()) {
-            log.debug("No notification preferences found for user: {}", username);
-            return;
+    /**
+     * Index of enabled notification preferences by parameter type (one query for users, one for preferences)
+     */
+    private Map<String, List<Subscription>> loadSubscriptions() {
+        Map<String, User> usersByName = new HashMap<>();
+        for (User user : userService.getAllUsers()) {
+            usersByName.put(user.getUsername(), user);
         }
         
-        log.info("Processing {} notification preferences for user: {}", userPreferences.size(), username);
-        
-        // Group alerts by parameter type and level for consolidated emails
-        Map<String, List<Alert>> groupedAlerts = new HashMap<>();
-        
-        for (Alert alert : alerts) {
-            String parameterType = getParameterTypeFromAlert(alert);
-            log.info("Processing alert: {} - Parameter type: {}", alert.getTitle(), parameterType);
-            
-            if (parameterType != null) {
-                // Find matching notification preference
-                NotificationPreference matchingPref = userPreferences.stream()
-                    .filter(pref -> parameterType.equalsIgnoreCase(pref.getParameterType()))
-                    .findFirst()
-                    .orElse(null);
-                    
-                if (matchingPref != null) {
-                    log.info("Found notification preference for user {} and parameter {}: email={}, sms={}", 
-                            username, parameterType, matchingPref.isEmailEnabled(), matchingPref.isSmsEnabled());
-                    
-                    if (matchingPref.isEmailEnabled() || matchingPref.isSmsEnabled()) {
-                        String groupKey = parameterType + "_" + alert.getLevel();
-                        groupedAlerts.computeIfAbsent(groupKey, k -> new ArrayList<>()).add(alert);
-                        log.info("Added alert to group: {}", groupKey);
-                    } else {
-                        log.info("Notifications disabled for user {} and parameter {}", username, parameterType);
-                    }
-                } else {
-                    log.info("No notification preference found for user {} and parameter {}", username, parameterType);
-                }
-            } else {
-                log.warn("Could not determine parameter type for alert: {}", alert.getTitle());
+        Map<String, List<Subscription>> subscriptions = new HashMap<>();
+        for (NotificationPreference pref : notificationPreferenceDao.findAll()) {
+            if (pref.getParameterType() == null || (!pref.isEmailEnabled() && !pref.isSmsEnabled())) {
+                continue;
             }
-        }
-        
-        log.info("Grouped alerts for user {}: {}", username, groupedAlerts.keySet());
-        
-        // Send consolidated notifications for each group
-        for (Map.Entry<String, List<Alert>> entry : groupedAlerts.entrySet()) {
-            String groupKey = entry.getKey();
-            List<Alert> alertGroup = entry.getValue();
-            
-            if (!alertGroup.isEmpty()) {
-                log.info("Processing alert group {} with {} alerts for user {}", groupKey, alertGroup.size(), username);
-                processAlertGroupForUser(alertGroup, user, userPreferences, groupKey);
+            User user = usersByName.get(pref.getUsername());
+            if (user == null) {
+                continue;
             }
+            subscriptions.computeIfAbsent(pref.getParameterType().toUpperCase(), k -> new ArrayList<>())
+                    .add(new Subscription(user, pref));
         }
+        return subscriptions;
     }
 
-    private void processAlertGroupForUser(List<Alert> alertGroup, User user, List<NotificationPreference> preferences, String groupKey) {
-        if (alertGroup.isEmpty()) return;
-        
-        Alert firstAlert = alertGroup.get(0);
-        String parameterType = getParameterTypeFromAlert(firstAlert);
-        
-        if (parameterType == null) {
-            log.debug("Could not determine parameter type for alert group: {}", groupKey);
-            return;
-        }
-        
-        // Find matching notification preference
-        NotificationPreference matchingPref = preferences.stream()
-            .filter(pref -> parameterType.equalsIgnoreCase(pref.getParameterType()))
-            .findFirst()
-            .orElse(null);
-            
-        if (matchingPref == null) {
-            log.debug("No notification preference found for user {} and parameter {}", user.getUsername(), parameterType);
-            return;
-        }
-        
-        // Check if notifications are enabled for this parameter
-        if (!matchingPref.isEmailEnabled() && !matchingPref.isSmsEnabled()) {
-            log.debug("Notifications disabled for user {} and parameter {}", user.getUsername(), parameterType);
-            return;
+    /**
+     * Group alerts by parameter type and level for consolidated emails
+     */
+    private Map<AlertGroupKey, List<Alert>> groupAlerts(List<Alert> alerts) {
+        Map<AlertGroupKey, List<Alert>> groupedAlerts = new LinkedHashMap<>();
+        for (Alert alert : alerts) {
+            String parameterType = getParameterTypeFromAlert(alert);
+            if (parameterType == null) {
+                log.debug("Could not determine parameter type for alert: {}", alert.getTitle());
+                continue;
+            }
+            groupedAlerts.computeIfAbsent(new AlertGroupKey(parameterType, alert.getLevel()), k -> new ArrayList<>())
+                    .add(alert);
         }
+        return groupedAlerts;
+    }
+
+    private boolean notifySubscriber(List<Alert> alertGroup, Subscription subscription, String parameterType) {
+        String username = subscription.user().getUsername();
         
         // Check if we've already sent this alert group recently (prevent spam)
-        String alertKey = generateGroupAlertKey(alertGroup, user.getUsername(), parameterType);
+        String alertKey = generateGroupAlertKey(alertGroup, username, parameterType);
         if (isAlertRecentlySent(alertKey)) {
             log.debug("Alert group already sent recently for key: {}", alertKey);
-            return;
+            return false;
         }
         
-        // Send the consolidated notification
-        log.info("Sending {} grouped alert notifications to user {}: {} - {}", 
-                alertGroup.size(), user.getUsername(), firstAlert.getLevel(), parameterType);
-        
         try {
-            // Send consolidated alert notification
-            notificationService.sendGroupedAlertNotification(alertGroup, user.getUsername(), parameterType);
+            // Emails are queued, never sent inline: a slow provider cannot delay the next cycle
+            notificationService.dispatchGroupedAlert(alertGroup, subscription.user(), subscription.preference(), parameterType);
             
             // Mark as sent
             sentAlerts.put(alertKey, LocalDateTime.now());
-            
-            log.info("Grouped alert notification sent successfully to user {}", user.getUsername());
+            return true;
             
         } catch (Exception e) {
-            log.error("Failed to send grouped alert notification to user {}: {}", user.getUsername(), e.getMessage(), e);
+            log.error("Failed to dispatch grouped alert notification to user {}: {}", username, e.getMessage(), e);
+            return false;
         }
     }
 
@@ -282,6 +255,13 @@ public class AlertNotificationScheduler {
         stats.put("totalSentAlerts", sentAlerts.size());
         stats.put("cooldownMinutes", ALERT_COOLDOWN_MINUTES);
         stats.put("lastCleanup", LocalDateTime.now());
+        stats.put("emailQueue", emailDispatchQueue.describe());
         return stats;
     }
+
+    private record Subscription(User user, NotificationPreference preference) {
+    }
+
+    private record AlertGroupKey(String parameterType, String level) {
+    }
 }
@@ -0,0 +1,325 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.config.AlertThresholdConfig;
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import com.amaris.sensorprocessor.entity.Sensor;
+import com.amaris.sensorprocessor.entity.SensorThreshold;
+import com.amaris.sensorprocessor.repository.SensorDao;
+import com.amaris.sensorprocessor.repository.SensorThresholdDao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Index compilé des seuils d'alerte capteur.
+ *
+ * Pour chaque mesure surveillée (CO2, température, humidité, bruit), des tableaux primitifs indexés
+ * par slot capteur contiennent les seuils effectifs : seuil personnalisé (sensor_thresholds) s'il
+ * existe, sinon le seuil global (AlertThresholdConfig). L'évaluation d'une mesure est donc un accès
+ * tableau, sans requête ni allocation.
+ *
+ * L'index est reconstruit entièrement puis publié d'un bloc (copy-on-write) quand les seuils ou la
+ * configuration globale changent ; l'état d'hystérésis des capteurs est repris d'un index à l'autre.
+ * Le slot 0 porte les seuils globaux, utilisés sans état pour les capteurs pas encore indexés.
+ * Chaque publication incrémente generation(), ce qui invalide les alertes calculées avec l'index précédent.
+ */
+@Slf4j
+@Service
+public class AlertRuleIndex {
+
+    public static final int LEVEL_NONE = 0;
+    public static final int LEVEL_WARNING = 1;
+    public static final int LEVEL_CRITICAL = 2;
+
+    public static final int DEFAULT_SLOT = 0;
+
+    private static final List<PayloadValueType> MONITORED_TYPES = List.of(
+            PayloadValueType.CO2, PayloadValueType.TEMPERATURE, PayloadValueType.HUMIDITY, PayloadValueType.LAEQ);
+
+    private final AlertThresholdConfig thresholdConfig;
+    private final SensorThresholdDao sensorThresholdDao;
+    private final SensorDao sensorDao;
+
+    private volatile CompiledRules rules;
+    private volatile long generation;
+
+    public AlertRuleIndex(AlertThresholdConfig thresholdConfig, SensorThresholdDao sensorThresholdDao, SensorDao sensorDao) {
+        this.thresholdConfig = thresholdConfig;
+        this.sensorThresholdDao = sensorThresholdDao;
+        this.sensorDao = sensorDao;
+        // Seuils globaux seuls tant que la base n'est pas lue
+        this.rules = compile(List.of(), List.of(), null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    // Rattrape les capteurs créés depuis la dernière reconstruction
+    @Scheduled(fixedDelayString = "${alert.rules.refresh-ms:600000}", initialDelayString = "${alert.rules.refresh-ms:600000}")
+    public void scheduledRebuild() {
+        rebuild();
+    }
+
+    /**
+     * Recompile l'index depuis la base et la configuration globale courante, puis le publie.
+     */
+    public synchronized void rebuild() {
+        try {
+            List<Sensor> sensors = sensorDao.findAllSensors();
+            List<SensorThreshold> thresholds = sensorThresholdDao.findAll();
+            rules = compile(sensors, thresholds, rules);
+            generation++;
+            log.info("Alert rule index rebuilt: {} sensors, {} custom thresholds", sensors.size(), thresholds.size());
+        } catch (Exception e) {
+            log.warn("Unable to rebuild alert rule index, keeping the previous one: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Numéro de l'index publié, incrémenté à chaque reconstruction réussie.
+     */
+    public long generation() {
+        return generation;
+    }
+
+    public int slotOf(String sensorId) {
+        Integer slot = rules.slotBySensor.get(sensorId);
+        return slot != null ? slot : DEFAULT_SLOT;
+    }
+
+    /**
+     * Niveau d'alerte d'une mesure, hystérésis et durée minimale comprises. O(1), sans allocation.
+     * Rejouer la même mesure ne change pas l'état, l'évaluation peut donc être répétée d'une passe à l'autre.
+     * Sûr en accès concurrent, sans verrou.
+     */
+    public int evaluate(PayloadValueType type, int slot, double value, long observedAtMillis) {
+        CompiledRules current = rules;
+        RuleTable t = current.tables.get(type);
+        if (t == null || slot < 0 || slot >= t.warningHigh.length) {
+            return LEVEL_NONE;
+        }
+
+        int raw = value > t.criticalHigh[slot] || value < t.criticalLow[slot] ? LEVEL_CRITICAL
+                : value > t.warningHigh[slot] || value < t.warningLow[slot] ? LEVEL_WARNING
+                : LEVEL_NONE;
+        if (slot == DEFAULT_SLOT) {
+            return raw;
+        }
+
+        // Évaluations concurrentes (uplinks, lecture des alertes) : l'état du slot est remplacé
+        // d'un bloc par compare-and-set, et recalculé si un autre thread l'a modifié entre-temps
+        while (true) {
+            long state = t.state.get(slot);
+            int previous = levelOf(state);
+            int level = raw;
+            if (level < previous && !clearedBeyondMargin(t, slot, previous, value)) {
+                level = previous;
+            }
+
+            long next;
+            int result;
+            if (level <= previous) {
+                next = packState(level, level, pendingSinceOf(state));
+                result = level;
+            } else {
+                // Aggravation : la condition doit tenir minDuration avant d'être retenue
+                long pendingSince = pendingLevelOf(state) != level ? observedAtMillis : pendingSinceOf(state);
+                boolean confirmed = observedAtMillis - pendingSince >= current.minDurationMillis;
+                next = packState(confirmed ? level : previous, level, pendingSince);
+                result = confirmed ? level : previous;
+            }
+            if (next == state || t.state.compareAndSet(slot, state, next)) {
+                return result;
+            }
+        }
+    }
+
+    // État d'un slot sur un long : niveau retenu (bits 0-1), niveau en attente (bits 2-3),
+    // début de l'aggravation en attente (epoch ms, bits 4-63)
+
+    private static long packState(int level, int pendingLevel, long pendingSince) {
+        return pendingSince << 4 | (long) pendingLevel << 2 | level;
+    }
+
+    private static int levelOf(long state) {
+        return (int) (state & 0b11);
+    }
+
+    private static int pendingLevelOf(long state) {
+        return (int) (state >>> 2 & 0b11);
+    }
+
+    private static long pendingSinceOf(long state) {
+        return state >> 4;
+    }
+
+    public double warningHigh(PayloadValueType type, int slot) {
+        return rules.tables.get(type).warningHigh[slot];
+    }
+
+    public double warningLow(PayloadValueType type, int slot) {
+        return rules.tables.get(type).warningLow[slot];
+    }
+
+    public double criticalHigh(PayloadValueType type, int slot) {
+        return rules.tables.get(type).criticalHigh[slot];
+    }
+
+    public double criticalLow(PayloadValueType type, int slot) {
+        return rules.tables.get(type).criticalLow[slot];
+    }
+
+    private static boolean clearedBeyondMargin(RuleTable t, int slot, int level, double value) {
+        double high = level == LEVEL_CRITICAL ? t.criticalHigh[slot] : t.warningHigh[slot];
+        double low = level == LEVEL_CRITICAL ? t.criticalLow[slot] : t.warningLow[slot];
+        return value <= high - t.hysteresis && value >= low + t.hysteresis;
+    }
+
+    private CompiledRules compile(List<Sensor> sensors, List<SensorThreshold> thresholds, CompiledRules previous) {
+        Map<String, Integer> slotBySensor = new HashMap<>();
+        int next = DEFAULT_SLOT + 1;
+        for (Sensor sensor : sensors) {
+            if (sensor == null || sensor.getIdSensor() == null) {
+                log.warn("Ignoring sensor row without id in alert rule index");
+                continue;
+            }
+            if (!slotBySensor.containsKey(sensor.getIdSensor())) {
+                slotBySensor.put(sensor.getIdSensor(), next++);
+            }
+        }
+        // Une ligne de seuil incomplète ne doit pas empêcher la compilation des autres
+        List<SensorThreshold> usable = new ArrayList<>(thresholds.size());
+        for (SensorThreshold threshold : thresholds) {
+            if (threshold == null || threshold.getSensorId() == null) {
+                log.warn("Ignoring threshold {} without sensor id", threshold != null ? threshold.getId() : null);
+                continue;
+            }
+            usable.add(threshold);
+            if (!slotBySensor.containsKey(threshold.getSensorId())) {
+                slotBySensor.put(threshold.getSensorId(), next++);
+            }
+        }
+
+        EnumMap<PayloadValueType, RuleTable> tables = new EnumMap<>(PayloadValueType.class);
+        for (PayloadValueType type : MONITORED_TYPES) {
+            tables.put(type, defaultTable(type, next));
+        }
+
+        for (SensorThreshold threshold : usable) {
+            if (!threshold.isEnabled()) continue;
+            PayloadValueType type = parameterType(threshold.getParameterType());
+            if (type == null) {
+                log.warn("Ignoring threshold {} for sensor {}: unsupported parameter {}",
+                        threshold.getId(), threshold.getSensorId(), threshold.getParameterType());
+                continue;
+            }
+            RuleTable t = tables.get(type);
+            int slot = slotBySensor.get(threshold.getSensorId());
+            if (threshold.getWarningThreshold() != null) t.warningHigh[slot] = threshold.getWarningThreshold();
+            if (threshold.getCriticalThreshold() != null) t.criticalHigh[slot] = threshold.getCriticalThreshold();
+            if (threshold.getWarningLow() != null) t.warningLow[slot] = threshold.getWarningLow();
+            if (threshold.getCriticalLow() != null) t.criticalLow[slot] = threshold.getCriticalLow();
+        }
+
+        if (previous != null) {
+            carryOverState(previous, slotBySensor, tables);
+        }
+        return new CompiledRules(slotBySensor, tables, thresholdConfig.getMinDurationSeconds() * 1000L);
+    }
+
+    private static void carryOverState(CompiledRules previous, Map<String, Integer> slotBySensor,
+                                       EnumMap<PayloadValueType, RuleTable> tables) {
+        previous.slotBySensor.forEach((sensorId, oldSlot) -> {
+            Integer newSlot = slotBySensor.get(sensorId);
+            if (newSlot == null) return;
+            tables.forEach((type, t) -> {
+                t.state.set(newSlot, previous.tables.get(type).state.get(oldSlot));
+            });
+        });
+    }
+
+    /**
+     * Table remplie avec les seuils globaux ; un seuil absent vaut ±infini et ne se déclenche jamais.
+     */
+    private RuleTable defaultTable(PayloadValueType type, int size) {
+        RuleTable t = new RuleTable(size);
+        switch (type) {
+            case CO2 -> {
+                Arrays.fill(t.warningHigh, thresholdConfig.getCo2().getWarning());
+                Arrays.fill(t.criticalHigh, thresholdConfig.getCo2().getCritical());
+                t.hysteresis = thresholdConfig.getHysteresis().getCo2();
+            }
+            case TEMPERATURE -> {
+                Arrays.fill(t.warningHigh, thresholdConfig.getTemperature().getWarningHigh());
+                Arrays.fill(t.warningLow, thresholdConfig.getTemperature().getWarningLow());
+                Arrays.fill(t.criticalHigh, thresholdConfig.getTemperature().getCriticalHigh());
+                Arrays.fill(t.criticalLow, thresholdConfig.getTemperature().getCriticalLow());
+                t.hysteresis = thresholdConfig.getHysteresis().getTemperature();
+            }
+            case HUMIDITY -> {
+                Arrays.fill(t.warningHigh, thresholdConfig.getHumidity().getWarningHigh());
+                Arrays.fill(t.warningLow, thresholdConfig.getHumidity().getWarningLow());
+                t.hysteresis = thresholdConfig.getHysteresis().getHumidity();
+            }
+            case LAEQ -> {
+                Arrays.fill(t.warningHigh, thresholdConfig.getNoise().getWarning());
+                t.hysteresis = thresholdConfig.getHysteresis().getNoise();
+            }
+            default -> { }
+        }
+        return t;
+    }
+
+    private static PayloadValueType parameterType(String parameterType) {
+        if (parameterType == null || parameterType.isBlank()) return null;
+        return switch (parameterType.trim().toUpperCase()) {
+            case "CO2" -> PayloadValueType.CO2;
+            case "TEMPERATURE", "TEMP" -> PayloadValueType.TEMPERATURE;
+            case "HUMIDITY" -> PayloadValueType.HUMIDITY;
+            case "LAEQ", "NOISE", "SON", "SOUND" -> PayloadValueType.LAEQ;
+            default -> null;
+        };
+    }
+
+    private static final class RuleTable {
+        final double[] warningHigh;
+        final double[] warningLow;
+        final double[] criticalHigh;
+        final double[] criticalLow;
+        double hysteresis;
+
+        // État par capteur : niveau retenu et aggravation en attente de la durée minimale (voir packState)
+        final AtomicLongArray state;
+
+        RuleTable(int size) {
+            warningHigh = filled(size, Double.POSITIVE_INFINITY);
+            criticalHigh = filled(size, Double.POSITIVE_INFINITY);
+            warningLow = filled(size, Double.NEGATIVE_INFINITY);
+            criticalLow = filled(size, Double.NEGATIVE_INFINITY);
+            state = new AtomicLongArray(size);
+        }
+
+        private static double[] filled(int size, double value) {
+            double[] array = new double[size];
+            Arrays.fill(array, value);
+            return array;
+        }
+    }
+
+    private record CompiledRules(Map<String, Integer> slotBySensor,
+                                 EnumMap<PayloadValueType, RuleTable> tables,
+                                 long minDurationMillis) {
+    }
+}
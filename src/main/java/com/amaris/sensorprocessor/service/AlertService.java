@@ -2,12 +2,11 @@ package com.amaris.sensorprocessor.service;
 
 import com.amaris.sensorprocessor.config.AlertThresholdConfig;
 import com.amaris.sensorprocessor.entity.DeviceType;
-import com.amaris.sensorprocessor.entity.Gateway;
 import com.amaris.sensorprocessor.entity.PayloadValueType;
 import com.amaris.sensorprocessor.entity.Sensor;
 import com.amaris.sensorprocessor.entity.SensorData;
 import com.amaris.sensorprocessor.model.dashboard.Alert;
-import com.amaris.sensorprocessor.repository.SensorDao;
+import com.amaris.sensorprocessor.model.dashboard.AlertDiff;
 import com.amaris.sensorprocessor.repository.SensorDataDao;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -19,13 +18,13 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
 
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
 
 @Slf4j
 @Service
@@ -42,10 +41,12 @@ public class AlertService {
     private static class CachedAlerts {
         final List<Alert> alerts;
         final long timestamp;
+        final long rulesGeneration;
 
-        CachedAlerts(List<Alert> alerts) {
+        CachedAlerts(List<Alert> alerts, long rulesGeneration) {
             this.alerts = alerts;
             this.timestamp = System.currentTimeMillis();
+            this.rulesGeneration = rulesGeneration;
         }
 
         boolean isExpired() {
@@ -53,12 +54,27 @@ public class AlertService {
         }
     }
 
+    /**
+     * Identité d'une alerte pour les abonnés : capteur, mesure (ou OFFLINE) et niveau.
+     * Un passage de warning à critical est donc une alerte résolue plus une alerte levée.
+     */
+    public record AlertKey(String sensorId, String type, String level) {
+    }
+
+    /**
+     * Alertes levées et résolues par une évaluation du bâtiment (null : tous les bâtiments).
+     */
+    public record AlertChange(Integer buildingId, AlertDiff diff) {
+    }
+
+    private final Map<String, Map<AlertKey, Alert>> activeByScope = new ConcurrentHashMap<>();
+    private final Sinks.Many<AlertChange> alertChanges = Sinks.many().multicast().directBestEffort();
+
     private final SensorDataDao sensorDataDao;
-    private final SensorDao sensorDao;
     private final AlertThresholdConfig thresholdConfig;
     private final WebClient webClientSse;
-    private final DeviceTypeService deviceTypeService;
-    private final GatewayService gatewayService;
+    private final TopologyRegistry topologyRegistry;
+    private final AlertRuleIndex alertRuleIndex;
 
     @Autowired
     private LiveSensorCache liveSensorCache;
@@ -68,176 +84,277 @@ public class AlertService {
     private Disposable currentSubscription;
 
     @Autowired
-    public AlertService(SensorDataDao sensorDataDao, SensorDao sensorDao,
+    public AlertService(SensorDataDao sensorDataDao,
                         AlertThresholdConfig thresholdConfig, WebClient webClientSse,
-                        DeviceTypeService deviceTypeService, GatewayService gatewayService) {
+                        TopologyRegistry topologyRegistry,
+                        AlertRuleIndex alertRuleIndex) {
         this.sensorDataDao = sensorDataDao;
-        this.sensorDao = sensorDao;
         this.thresholdConfig = thresholdConfig;
         this.webClientSse = webClientSse;
-        this.deviceTypeService = deviceTypeService;
-        this.gatewayService = gatewayService;
+        this.topologyRegistry = topologyRegistry;
+        this.alertRuleIndex = alertRuleIndex;
     }
 
     public List<Alert> getCurrentAlerts(Integer buildingId) {
-        String cacheKey = buildingId == null ? "_ALL_" : String.valueOf(buildingId);
+        String cacheKey = scopeKey(buildingId);
 
+        // Seuils modifiés depuis le calcul : les alertes en cache ne valent plus
+        long rulesGeneration = alertRuleIndex.generation();
         CachedAlerts cached = alertCache.get(cacheKey);
-        if (cached != null && !cached.isExpired()) {
+        if (cached != null && !cached.isExpired() && cached.rulesGeneration == rulesGeneration) {
             log.debug("⚡ Alert cache HIT for building: {}", cacheKey);
             return new ArrayList<>(cached.alerts);
         }
 
         log.debug("🔄 Alert cache MISS - computing alerts for: {}", cacheKey);
 
-        List<Alert> alerts = new ArrayList<>();
-        alerts.addAll(checkCO2Alerts(buildingId));
-        alerts.addAll(checkTemperatureAlerts(buildingId));
-        alerts.addAll(checkSensorOfflineAlerts(buildingId));
-        alerts.addAll(checkHumidityAlerts(buildingId));
-        alerts.addAll(checkNoiseAlerts(buildingId));
+        List<Alert> alerts = evaluateAlerts(buildingId);
 
-        alertCache.put(cacheKey, new CachedAlerts(alerts));
+        alertCache.put(cacheKey, new CachedAlerts(alerts, rulesGeneration));
         log.debug("✅ Cached {} alerts for building: {}", alerts.size(), cacheKey);
 
         return alerts;
     }
 
+    /**
+     * Changements d'alertes, émis après chaque évaluation qui en produit (pas de rejeu).
+     */
+    public Flux<AlertChange> alertChanges() {
+        return alertChanges.asFlux();
+    }
+
     public void invalidateCache(String building) {
         String cacheKey = building == null || building.isBlank() ? "_ALL_" : building;
         alertCache.remove(cacheKey);
         log.debug("🗑️ Alert cache invalidated for: {}", cacheKey);
     }
 
-    private List<Alert> checkCO2Alerts(Integer building) {
-        List<Alert> alerts = new ArrayList<>();
-        List<Sensor> co2Sensors = sensorDao.findAllByDeviceTypeAndBuilding(DEVICE_TYPE_CO2, building);
+    /**
+     * Passe d'évaluation unique : capteurs du bâtiment et types chargés une fois, dernières valeurs
+     * prises dans LiveSensorCache puis complétées par une seule requête groupée. Le nombre de
+     * requêtes ne dépend donc plus du nombre de capteurs.
+     */
+    private List<Alert> evaluateAlerts(Integer building) {
+        List<Sensor> sensors = building == null ? topologyRegistry.sensors() : topologyRegistry.sensorsOfBuilding(building);
 
-        for (Sensor sensor : co2Sensors) {
-            Optional<SensorData> latestCO2 = liveSensorCache.getLatest(sensor.getIdSensor(), PayloadValueType.CO2);
-            if (latestCO2.isEmpty()) {
-                latestCO2 = sensorDataDao.findLatestBySensorAndType(sensor.getIdSensor(), PayloadValueType.CO2);
-            }
+        // Keep technical type for thresholds while showing the business label in alert text.
+        Map<Integer, DeviceType> deviceTypeMap = topologyRegistry.deviceTypesById();
 
-            if (latestCO2.isPresent()) {
-                SensorData data = latestCO2.get();
-                if (data.getReceivedAt().isAfter(LocalDateTime.now().minusMinutes(thresholdConfig.getDataMaxAgeMinutes()))) {
-                    try {
-                        double co2Value = Double.parseDouble(data.getValueAsString());
-                        if (co2Value > thresholdConfig.getCo2().getCritical()) {
-                            alerts.add(new Alert("critical", "⚠️", "Critical CO2 Level",
-                                    String.format("Sensor %s detected %.0f ppm (threshold: %.0f ppm)",
-                                            sensor.getIdSensor(), co2Value, thresholdConfig.getCo2().getCritical()),
-                                    formatTimeAgo(data.getReceivedAt())));
-                        } else if (co2Value > thresholdConfig.getCo2().getWarning()) {
-                            alerts.add(new Alert("warning", "🔔", "High CO2 Level",
-                                    String.format("Sensor %s detected %.0f ppm (threshold: %.0f ppm)",
-                                            sensor.getIdSensor(), co2Value, thresholdConfig.getCo2().getWarning()),
-                                    formatTimeAgo(data.getReceivedAt())));
-                        }
-                    } catch (NumberFormatException e) {
-                        log.warn("Invalid CO2 value for sensor {}: {}", sensor.getIdSensor(), data.getValueAsString());
-                    }
-                }
-            }
-        }
-        return alerts;
-    }
+        Map<String, Map<PayloadValueType, SensorData>> latestValues = loadLatestValues(sensors, deviceTypeMap);
 
-    private List<Alert> checkTemperatureAlerts(Integer building) {
-        List<Alert> alerts = new ArrayList<>();
-        List<Sensor> co2Sensors = sensorDao.findAllByDeviceTypeAndBuilding(DEVICE_TYPE_CO2, building);
-        List<Sensor> tempSensors = sensorDao.findAllByDeviceTypeAndBuilding(DEVICE_TYPE_TEMP, building);
+        // Vue "tous bâtiments" : pas d'alerte hors ligne, comme avant (findAllByBuildingId(null) ne renvoyait rien)
+        Map<String, LocalDateTime> lastSeen = building == null
+                ? Map.of()
+                : sensorDataDao.findLastReceivedAtBySensorIds(sensors.stream().map(Sensor::getIdSensor).toList());
 
-        List<Sensor> allTempSensors = new ArrayList<>();
-        allTempSensors.addAll(co2Sensors);
-        allTempSensors.addAll(tempSensors);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime freshAfter = now.minusMinutes(thresholdConfig.getDataMaxAgeMinutes());
+
+        List<Alert> co2Alerts = new ArrayList<>();
+        List<Alert> temperatureAlerts = new ArrayList<>();
+        List<Alert> offlineAlerts = new ArrayList<>();
+        List<Alert> humidityAlerts = new ArrayList<>();
+        List<Alert> noiseAlerts = new ArrayList<>();
+        Map<AlertKey, Alert> active = new HashMap<>();
+        int deskCount = 0, otherCount = 0;
+
+        for (Sensor sensor : sensors) {
+            String sensorId = sensor.getIdSensor();
+            DeviceType deviceType = deviceTypeMap.get(sensor.getIdDeviceType());
+            String deviceTypeCode = deviceTypeCode(deviceType);
+            Map<PayloadValueType, SensorData> values = latestValues.getOrDefault(sensorId, Map.of());
+            int slot = alertRuleIndex.slotOf(sensorId);
 
-        for (Sensor sensor : allTempSensors) {
-            Optional<SensorData> latestTemp = liveSensorCache.getLatest(sensor.getIdSensor(), PayloadValueType.TEMPERATURE);
-            if (latestTemp.isEmpty()) {
-                latestTemp = sensorDataDao.findLatestBySensorAndType(sensor.getIdSensor(), PayloadValueType.TEMPERATURE);
+            SensorData co2 = fresh(values.get(PayloadValueType.CO2), freshAfter);
+            if (co2 != null) {
+                collect(active, co2Alerts, sensorId, PayloadValueType.CO2.name(), checkCO2(sensor, slot, co2));
+            }
+            SensorData temperature = fresh(values.get(PayloadValueType.TEMPERATURE), freshAfter);
+            if (temperature != null) {
+                collect(active, temperatureAlerts, sensorId, PayloadValueType.TEMPERATURE.name(), checkTemperature(sensor, slot, temperature));
+            }
+            SensorData humidity = fresh(values.get(PayloadValueType.HUMIDITY), freshAfter);
+            if (humidity != null) {
+                collect(active, humidityAlerts, sensorId, PayloadValueType.HUMIDITY.name(), checkHumidity(sensor, slot, humidity));
+            }
+            SensorData noise = fresh(values.get(PayloadValueType.LAEQ), freshAfter);
+            if (noise != null) {
+                collect(active, noiseAlerts, sensorId, PayloadValueType.LAEQ.name(), checkNoise(sensor, slot, noise));
             }
 
-            if (latestTemp.isPresent()) {
-                SensorData data = latestTemp.get();
-                if (data.getReceivedAt().isAfter(LocalDateTime.now().minusMinutes(thresholdConfig.getDataMaxAgeMinutes()))) {
-                    try {
-                        double tempValue = Double.parseDouble(data.getValueAsString());
-                        if (tempValue > thresholdConfig.getTemperature().getCriticalHigh()
-                                || tempValue < thresholdConfig.getTemperature().getCriticalLow()) {
-                            alerts.add(new Alert("critical", "🌡️", "Critical Temperature",
-                                    String.format("Room %s temperature at %.1f°C (critical range: %.1f-%.1f°C)",
-                                            getRoomName(sensor.getIdSensor()), tempValue,
-                                            thresholdConfig.getTemperature().getCriticalLow(),
-                                            thresholdConfig.getTemperature().getCriticalHigh()),
-                                    formatTimeAgo(data.getReceivedAt())));
-                        } else if (tempValue > thresholdConfig.getTemperature().getWarningHigh()
-                                || tempValue < thresholdConfig.getTemperature().getWarningLow()) {
-                            alerts.add(new Alert("warning", "🌡️", "Uncomfortable Temperature",
-                                    String.format("Room %s temperature at %.1f°C (comfort range: %.1f-%.1f°C)",
-                                            getRoomName(sensor.getIdSensor()), tempValue,
-                                            thresholdConfig.getTemperature().getWarningLow(),
-                                            thresholdConfig.getTemperature().getWarningHigh()),
-                                    formatTimeAgo(data.getReceivedAt())));
-                        }
-                    } catch (NumberFormatException e) {
-                        log.warn("Invalid temperature value for sensor {}: {}", sensor.getIdSensor(), data.getValueAsString());
+            if (building != null) {
+                LocalDateTime receivedAt = lastSeen.get(sensorId);
+                if (receivedAt == null) {
+                    log.debug("Sensor {} ({}) has no data in database", sensorId, deviceTypeCode);
+                    continue;
+                }
+                LocalDateTime cutoffTime = now.minusMinutes(getOfflineThresholdForDeviceType(deviceTypeCode));
+                if (!receivedAt.isAfter(cutoffTime)) {
+                    if ("DESK".equalsIgnoreCase(deviceTypeCode)) {
+                        deskCount++;
+                    } else {
+                        otherCount++;
                     }
+                    collect(active, offlineAlerts, sensorId, "OFFLINE", new Alert("info", "ℹ️", "Sensor Offline",
+                            String.format("%s (%s) not responding", sensorId, deviceTypeLabel(deviceType, deviceTypeCode)),
+                            formatTimeAgo(receivedAt)));
                 }
             }
         }
-        return alerts;
-    }
+        log.debug("Evaluated {} sensors, {} offline (DESK: {}, Other: {})", sensors.size(), offlineAlerts.size(), deskCount, otherCount);
 
-    private List<Alert> checkSensorOfflineAlerts(Integer building) {
         List<Alert> alerts = new ArrayList<>();
-        List<Sensor> allSensors = sensorDao.findAllByBuildingId(building);
+        alerts.addAll(co2Alerts);
+        alerts.addAll(temperatureAlerts);
+        alerts.addAll(offlineAlerts);
+        alerts.addAll(humidityAlerts);
+        alerts.addAll(noiseAlerts);
+        publishChanges(building, active);
+        return alerts;
+    }
 
-        log.debug("Checking {} sensors for offline status", allSensors.size());
+    private static void collect(Map<AlertKey, Alert> active, List<Alert> alerts, String sensorId, String type, Alert alert) {
+        if (alert != null) {
+            alerts.add(alert);
+            active.put(new AlertKey(sensorId, type, alert.getLevel()), alert);
+        }
+    }
 
-        // Keep technical type for thresholds while showing the business label in alert text.
-        Map<Integer, DeviceType> deviceTypeMap = deviceTypeService.findAll().stream()
-                .collect(Collectors.toMap(DeviceType::getIdDeviceType, dt -> dt, (left, right) -> left));
+    /**
+     * Compare les alertes actives du périmètre à celles de l'évaluation précédente et publie la différence.
+     * Synchronisé : les émissions vers le sink restent séquentielles et chaque différence part de la précédente.
+     */
+    private synchronized void publishChanges(Integer building, Map<AlertKey, Alert> active) {
+        Map<AlertKey, Alert> before = Objects.requireNonNullElse(activeByScope.put(scopeKey(building), active), Map.of());
+        List<Alert> raised = new ArrayList<>();
+        active.forEach((key, alert) -> {
+            if (!before.containsKey(key)) raised.add(alert);
+        });
+        List<Alert> cleared = new ArrayList<>();
+        before.forEach((key, alert) -> {
+            if (!active.containsKey(key)) cleared.add(alert);
+        });
+        if (!raised.isEmpty() || !cleared.isEmpty()) {
+            alertChanges.tryEmitNext(new AlertChange(building,
+                    new AlertDiff(raised, cleared, active.size(), System.currentTimeMillis())));
+        }
+    }
 
-        int deskCount = 0, otherCount = 0;
+    private static String scopeKey(Integer buildingId) {
+        return buildingId == null ? "_ALL_" : String.valueOf(buildingId);
+    }
 
-        for (Sensor sensor : allSensors) {
+    /**
+     * Dernières valeurs des couples (capteur, type) surveillés : cache live d'abord, puis une seule
+     * requête pour tous les couples absents du cache.
+     */
+    private Map<String, Map<PayloadValueType, SensorData>> loadLatestValues(List<Sensor> sensors,
+                                                                           Map<Integer, DeviceType> deviceTypeMap) {
+        Map<String, Map<PayloadValueType, SensorData>> latestValues = new HashMap<>();
+        Set<String> missingSensors = new LinkedHashSet<>();
+        Set<PayloadValueType> missingTypes = EnumSet.noneOf(PayloadValueType.class);
+
+        for (Sensor sensor : sensors) {
             String sensorId = sensor.getIdSensor();
+            for (PayloadValueType type : monitoredValueTypes(deviceTypeCode(deviceTypeMap.get(sensor.getIdDeviceType())))) {
+                Optional<SensorData> cached = liveSensorCache.getLatest(sensorId, type);
+                if (cached.isPresent()) {
+                    latestValues.computeIfAbsent(sensorId, k -> new EnumMap<>(PayloadValueType.class)).put(type, cached.get());
+                } else {
+                    missingSensors.add(sensorId);
+                    missingTypes.add(type);
+                }
+            }
+        }
 
-            DeviceType deviceType = deviceTypeMap.get(sensor.getIdDeviceType());
-            String deviceTypeCode = deviceType != null && deviceType.getTypeName() != null && !deviceType.getTypeName().isBlank()
-                    ? deviceType.getTypeName()
-                    : "UNKNOWN";
-            String deviceTypeLabel = deviceType != null && deviceType.getLabel() != null && !deviceType.getLabel().isBlank()
-                    ? deviceType.getLabel()
-                    : deviceTypeCode;
+        if (!missingSensors.isEmpty()) {
+            log.debug("Alert evaluation: {} sensors missing from live cache, loading from database", missingSensors.size());
+            sensorDataDao.findLatestBySensorIdsAndTypes(missingSensors, missingTypes).forEach((sensorId, byType) -> {
+                Map<PayloadValueType, SensorData> values = latestValues.computeIfAbsent(sensorId, k -> new EnumMap<>(PayloadValueType.class));
+                byType.forEach(values::putIfAbsent);
+            });
+        }
+        return latestValues;
+    }
 
-            int thresholdMinutes = getOfflineThresholdForDeviceType(deviceTypeCode);
-            LocalDateTime cutoffTime = LocalDateTime.now().minusMinutes(thresholdMinutes);
+    /**
+     * Mesures surveillées selon le type de capteur : un capteur CO2 remonte aussi température et humidité.
+     */
+    private static Set<PayloadValueType> monitoredValueTypes(String deviceTypeCode) {
+        return switch (deviceTypeCode.toUpperCase()) {
+            case DEVICE_TYPE_CO2      -> EnumSet.of(PayloadValueType.CO2, PayloadValueType.TEMPERATURE, PayloadValueType.HUMIDITY);
+            case DEVICE_TYPE_TEMP     -> EnumSet.of(PayloadValueType.TEMPERATURE);
+            case DEVICE_TYPE_HUMIDITY -> EnumSet.of(PayloadValueType.HUMIDITY);
+            case DEVICE_TYPE_SOUND, "NOISE" -> EnumSet.of(PayloadValueType.LAEQ);
+            default                   -> EnumSet.noneOf(PayloadValueType.class);
+        };
+    }
 
-            Optional<SensorData> latestData = sensorDataDao.findLatestBySensor(sensorId);
+    private static String deviceTypeCode(DeviceType deviceType) {
+        return deviceType != null && deviceType.getTypeName() != null && !deviceType.getTypeName().isBlank()
+                ? deviceType.getTypeName()
+                : "UNKNOWN";
+    }
 
-            if (latestData.isPresent()) {
-                SensorData data = latestData.get();
+    private static String deviceTypeLabel(DeviceType deviceType, String deviceTypeCode) {
+        return deviceType != null && deviceType.getLabel() != null && !deviceType.getLabel().isBlank()
+                ? deviceType.getLabel()
+                : deviceTypeCode;
+    }
 
-                if (data.getReceivedAt().isBefore(cutoffTime) || data.getReceivedAt().isEqual(cutoffTime)) {
-                    if ("DESK".equalsIgnoreCase(deviceTypeCode)) {
-                        deskCount++;
-                    } else {
-                        otherCount++;
-                    }
-                    alerts.add(new Alert("info", "ℹ️", "Sensor Offline",
-                            String.format("%s (%s) not responding", sensorId, deviceTypeLabel),
-                            formatTimeAgo(data.getReceivedAt())));
-                }
-            } else {
-                log.debug("Sensor {} ({}) has no data in database", sensorId, deviceTypeLabel);
+    // received_at est stocké en UTC
+    private static long epochMillis(SensorData data) {
+        return data.getReceivedAt().toInstant(java.time.ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static SensorData fresh(SensorData data, LocalDateTime freshAfter) {
+        return data != null && data.getReceivedAt().isAfter(freshAfter) ? data : null;
+    }
+
+    private Alert checkCO2(Sensor sensor, int slot, SensorData data) {
+        try {
+            double co2Value = Double.parseDouble(data.getValueAsString());
+            int level = alertRuleIndex.evaluate(PayloadValueType.CO2, slot, co2Value, epochMillis(data));
+            if (level == AlertRuleIndex.LEVEL_CRITICAL) {
+                return new Alert("critical", "⚠️", "Critical CO2 Level",
+                        String.format("Sensor %s detected %.0f ppm (threshold: %.0f ppm)",
+                                sensor.getIdSensor(), co2Value, alertRuleIndex.criticalHigh(PayloadValueType.CO2, slot)),
+                        formatTimeAgo(data.getReceivedAt()));
+            } else if (level == AlertRuleIndex.LEVEL_WARNING) {
+                return new Alert("warning", "🔔", "High CO2 Level",
+                        String.format("Sensor %s detected %.0f ppm (threshold: %.0f ppm)",
+                                sensor.getIdSensor(), co2Value, alertRuleIndex.warningHigh(PayloadValueType.CO2, slot)),
+                        formatTimeAgo(data.getReceivedAt()));
             }
+        } catch (NumberFormatException e) {
+            log.warn("Invalid CO2 value for sensor {}: {}", sensor.getIdSensor(), data.getValueAsString());
         }
+        return null;
+    }
 
-        log.debug("Found {} offline sensors (DESK: {}, Other: {})", alerts.size(), deskCount, otherCount);
-        return alerts;
+    private Alert checkTemperature(Sensor sensor, int slot, SensorData data) {
+        try {
+            double tempValue = Double.parseDouble(data.getValueAsString());
+            int level = alertRuleIndex.evaluate(PayloadValueType.TEMPERATURE, slot, tempValue, epochMillis(data));
+            if (level == AlertRuleIndex.LEVEL_CRITICAL) {
+                return new Alert("critical", "🌡️", "Critical Temperature",
+                        String.format("Room %s temperature at %.1f°C (critical range: %.1f-%.1f°C)",
+                                getRoomName(sensor.getIdSensor()), tempValue,
+                                alertRuleIndex.criticalLow(PayloadValueType.TEMPERATURE, slot),
+                                alertRuleIndex.criticalHigh(PayloadValueType.TEMPERATURE, slot)),
+                        formatTimeAgo(data.getReceivedAt()));
+            } else if (level == AlertRuleIndex.LEVEL_WARNING) {
+                return new Alert("warning", "🌡️", "Uncomfortable Temperature",
+                        String.format("Room %s temperature at %.1f°C (comfort range: %.1f-%.1f°C)",
+                                getRoomName(sensor.getIdSensor()), tempValue,
+                                alertRuleIndex.warningLow(PayloadValueType.TEMPERATURE, slot),
+                                alertRuleIndex.warningHigh(PayloadValueType.TEMPERATURE, slot)),
+                        formatTimeAgo(data.getReceivedAt()));
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Invalid temperature value for sensor {}: {}", sensor.getIdSensor(), data.getValueAsString());
+        }
+        return null;
     }
 
     private int getOfflineThresholdForDeviceType(String deviceType) {
@@ -253,73 +370,38 @@ public class AlertService {
         };
     }
 
-    private List<Alert> checkHumidityAlerts(Integer building) {
-        List<Alert> alerts = new ArrayList<>();
-        List<Sensor> co2Sensors = sensorDao.findAllByDeviceTypeAndBuilding(DEVICE_TYPE_CO2, building);
-        List<Sensor> humiditySensors = sensorDao.findAllByDeviceTypeAndBuilding(DEVICE_TYPE_HUMIDITY, building);
-
-        List<Sensor> allHumiditySensors = new ArrayList<>();
-        allHumiditySensors.addAll(co2Sensors);
-        allHumiditySensors.addAll(humiditySensors);
-
-        for (Sensor sensor : allHumiditySensors) {
-            Optional<SensorData> latestHumidity = liveSensorCache.getLatest(sensor.getIdSensor(), PayloadValueType.HUMIDITY);
-            if (latestHumidity.isEmpty()) {
-                latestHumidity = sensorDataDao.findLatestBySensorAndType(sensor.getIdSensor(), PayloadValueType.HUMIDITY);
-            }
-
-            if (latestHumidity.isPresent()) {
-                SensorData data = latestHumidity.get();
-                if (data.getReceivedAt().isAfter(LocalDateTime.now().minusMinutes(thresholdConfig.getDataMaxAgeMinutes()))) {
-                    try {
-                        double humidityValue = Double.parseDouble(data.getValueAsString());
-                        if (humidityValue > thresholdConfig.getHumidity().getWarningHigh()
-                                || humidityValue < thresholdConfig.getHumidity().getWarningLow()) {
-                            alerts.add(new Alert("warning", "💧", "Abnormal Humidity",
-                                    String.format("Room %s humidity at %.0f%% (ideal range: %.0f-%.0f%%)",
-                                            getRoomName(sensor.getIdSensor()), humidityValue,
-                                            thresholdConfig.getHumidity().getWarningLow(),
-                                            thresholdConfig.getHumidity().getWarningHigh()),
-                                    formatTimeAgo(data.getReceivedAt())));
-                        }
-                    } catch (NumberFormatException e) {
-                        log.warn("Invalid humidity value for sensor {}: {}", sensor.getIdSensor(), data.getValueAsString());
-                    }
-                }
+    private Alert checkHumidity(Sensor sensor, int slot, SensorData data) {
+        try {
+            double humidityValue = Double.parseDouble(data.getValueAsString());
+            // Pas de niveau critique en humidité : un seuil critique personnalisé reste signalé en warning
+            if (alertRuleIndex.evaluate(PayloadValueType.HUMIDITY, slot, humidityValue, epochMillis(data)) != AlertRuleIndex.LEVEL_NONE) {
+                return new Alert("warning", "💧", "Abnormal Humidity",
+                        String.format("Room %s humidity at %.0f%% (ideal range: %.0f-%.0f%%)",
+                                getRoomName(sensor.getIdSensor()), humidityValue,
+                                alertRuleIndex.warningLow(PayloadValueType.HUMIDITY, slot),
+                                alertRuleIndex.warningHigh(PayloadValueType.HUMIDITY, slot)),
+                        formatTimeAgo(data.getReceivedAt()));
             }
+        } catch (NumberFormatException e) {
+            log.warn("Invalid humidity value for sensor {}: {}", sensor.getIdSensor(), data.getValueAsString());
         }
-        return alerts;
+        return null;
     }
 
-    private List<Alert> checkNoiseAlerts(Integer building) {
-        List<Alert> alerts = new ArrayList<>();
-        List<Sensor> noiseSensors = sensorDao.findAllByDeviceTypeAndBuilding(DEVICE_TYPE_SOUND, building);
-
-        for (Sensor sensor : noiseSensors) {
-            Optional<SensorData> latestNoise = liveSensorCache.getLatest(sensor.getIdSensor(), PayloadValueType.LAEQ);
-            if (latestNoise.isEmpty()) {
-                latestNoise = sensorDataDao.findLatestBySensorAndType(sensor.getIdSensor(), PayloadValueType.LAEQ);
-            }
-
-            if (latestNoise.isPresent()) {
-                SensorData data = latestNoise.get();
-                if (data.getReceivedAt().isAfter(LocalDateTime.now().minusMinutes(thresholdConfig.getDataMaxAgeMinutes()))) {
-                    try {
-                        double noiseValue = Double.parseDouble(data.getValueAsString());
-                        if (noiseValue > thresholdConfig.getNoise().getWarning()) {
-                            alerts.add(new Alert("warning", "🔉", "High Noise Level",
-                                    String.format("Room %s noise level at %.0f dB (threshold: %.0f dB)",
-                                            getRoomName(sensor.getIdSensor()), noiseValue,
-                                            thresholdConfig.getNoise().getWarning()),
-                                    formatTimeAgo(data.getReceivedAt())));
-                        }
-                    } catch (NumberFormatException e) {
-                        log.warn("Invalid noise value for sensor {}: {}", sensor.getIdSensor(), data.getValueAsString());
-                    }
-                }
+    private Alert checkNoise(Sensor sensor, int slot, SensorData data) {
+        try {
+            double noiseValue = Double.parseDouble(data.getValueAsString());
+            if (alertRuleIndex.evaluate(PayloadValueType.LAEQ, slot, noiseValue, epochMillis(data)) != AlertRuleIndex.LEVEL_NONE) {
+                return new Alert("warning", "🔉", "High Noise Level",
+                        String.format("Room %s noise level at %.0f dB (threshold: %.0f dB)",
+                                getRoomName(sensor.getIdSensor()), noiseValue,
+                                alertRuleIndex.warningHigh(PayloadValueType.LAEQ, slot)),
+                        formatTimeAgo(data.getReceivedAt()));
             }
+        } catch (NumberFormatException e) {
+            log.warn("Invalid noise value for sensor {}: {}", sensor.getIdSensor(), data.getValueAsString());
         }
-        return alerts;
+        return null;
     }
 
     private String formatTimeAgo(LocalDateTime timestamp) {
@@ -378,7 +460,7 @@ public class AlertService {
             String devEui = result.path("end_device_ids").path("dev_eui").asText();
             if (devEui == null || devEui.isBlank()) return;
 
-            String idSensor = sensorDao.findByDevEui(devEui)
+            String idSensor = topologyRegistry.sensorByDevEui(devEui)
                     .map(Sensor::getIdSensor)
                     .orElse(null);
 
@@ -424,25 +506,14 @@ public class AlertService {
             currentSubscription.dispose();
         }
 
-        List<Gateway> gateways = gatewayService.findByBuildingId(dbBuildingId);
-        String appId = gateways.isEmpty()
-                ? "rpi-mantu-appli"
-                : resolveAppIdFromGateway(gateways.get(0), "rpi-mantu-appli");
+        String appId = topologyRegistry.appIdForBuilding(dbBuildingId).orElse("rpi-mantu-appli");
 
-        List<Sensor> sensors = sensorDao.findAllByDeviceTypeAndBuilding(sensorType, dbBuildingId);
+        List<Sensor> sensors = topologyRegistry.sensorsByDeviceType(sensorType, dbBuildingId);
         List<String> deviceIds = sensors.stream().map(Sensor::getIdSensor).toList();
 
         currentSubscription = getMonitoringMany(appId, deviceIds).subscribe();
     }
 
-    private String resolveAppIdFromGateway(Gateway gw, String defaultValue) {
-        if (gw.getBuildingId() == null) return defaultValue;
-        return switch (gw.getGatewayId().toLowerCase()) {
-            case "leva-rpi-mantu" -> "lorawan-network-mantu";
-            default               -> gw.getGatewayId() + "-appli";
-        };
-    }
-
     public List<Alert> getCurrentAlertsWithWait(Integer buildingId, int maxWaitMs) {
         int intervalMs = 100;
         int waited = 0;
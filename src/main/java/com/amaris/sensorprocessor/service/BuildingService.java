@@ -17,6 +17,7 @@ import java.util.Optional;
 public class BuildingService {
 
     private final BuildingDao buildingDao;
+    private final TopologyRegistry topologyRegistry;
 
     /**
      * Dossier des SVG des bâtiments.
@@ -29,8 +30,9 @@ public class BuildingService {
      */
     private final Path uploadRoot = Paths.get("uploads", "buildings");
 
-    public BuildingService(BuildingDao buildingDao) {
+    public BuildingService(BuildingDao buildingDao, TopologyRegistry topologyRegistry) {
         this.buildingDao = buildingDao;
+        this.topologyRegistry = topologyRegistry;
     }
 
     public List<Building> findAll() {
@@ -41,6 +43,26 @@ public class BuildingService {
         }
     }
 
+    /**
+     * Résout un bâtiment tel qu'envoyé par le front : ID numérique, ou libellé (nom exact ou partiel).
+     */
+    public Optional<Integer> resolveBuildingId(String building) {
+        if (building == null || building.isBlank()) {
+            return Optional.empty();
+        }
+        String label = building.trim();
+        try {
+            return Optional.of(Integer.parseInt(label));
+        } catch (NumberFormatException e) {
+            // Nom exact par l'index de la topologie ; le parcours ne sert qu'aux noms partiels
+            return topologyRegistry.buildingByName(label)
+                    .or(() -> topologyRegistry.buildings().stream()
+                            .filter(b -> b.getName() != null && b.getName().toUpperCase().contains(label.toUpperCase()))
+                            .findFirst())
+                    .map(Building::getId);
+        }
+    }
+
     public Optional<Building> findById(Integer id) {
         try {
             return buildingDao.findBuildingById(id);
@@ -53,6 +75,7 @@ public class BuildingService {
     public void saveBuildingInDatabase(Building building, BindingResult bindingResult) {
         try {
             buildingDao.insertBuilding(building);
+            topologyRegistry.reloadBuildings();
         } catch (Exception e) {
             // TODO: logger + bindingResult.reject(...)
         }
@@ -61,6 +84,7 @@ public class BuildingService {
     public void updateBuildingInDatabase(Building building, BindingResult bindingResult) {
         try {
             int rows = buildingDao.updateBuilding(building);
+            topologyRegistry.reloadBuildings();
             if (rows == 0) {
                 // TODO: bindingResult.reject("building.notFound", "Building introuvable");
             }
@@ -90,6 +114,7 @@ public class BuildingService {
                     }
                 }
                 buildingDao.deleteBuildingById(id);
+                topologyRegistry.reloadBuildings();
             } else {
                 if (bindingResult != null) {
                     bindingResult.reject("building.notFound", "Building introuvable");
@@ -150,6 +175,7 @@ public class BuildingService {
         // 6) Persister en base
         try {
             buildingDao.insertBuilding(building);
+            topologyRegistry.reloadBuildings();
         } catch (Exception e) {
             // en cas d'erreur DB, on essaie de supprimer le fichier
             try {
@@ -211,6 +237,7 @@ public class BuildingService {
         // 7) Persister en base
         try {
             buildingDao.updateBuilding(building);
+            topologyRegistry.reloadBuildings();
             // ✅ Si mise à jour OK, supprimer l'ancien fichier SVG
             if (oldSvgPath != null && !oldSvgPath.isBlank() && !oldSvgPath.equals(publicSvgPath)) {
                 Path oldFile = uploadRoot.resolve(Paths.get(oldSvgPath).getFileName());
@@ -248,6 +275,7 @@ public class BuildingService {
         // Persister en base
         try {
             buildingDao.updateBuildingWithoutSVG(building);
+            topologyRegistry.reloadBuildings();
         } catch (Exception e) {
             throw e;
         }
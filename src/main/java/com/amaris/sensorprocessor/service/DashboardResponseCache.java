@@ -0,0 +1,226 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.Sensor;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Cache des réponses lourdes du dashboard (histogrammes, historiques, occupation par section), indexé
+ * par la requête normalisée : type de réponse, bâtiment, période résolue en dates et autres paramètres.
+ *
+ * - une période entièrement passée ne change plus : elle est gardée dashboard.cache.closed-ttl-minutes ;
+ * - une période qui touche aujourd'hui est gardée dashboard.cache.open-ttl-seconds ;
+ * - des appels identiques simultanés partagent un seul calcul (SingleFlight) ; un calcul qui dépasse
+ *   dashboard.cache.load-timeout-seconds est abandonné et relancé par l'appel suivant ;
+ * - la réponse est gardée sérialisée en JSON : chaque appelant reçoit sa propre copie, qu'il peut
+ *   modifier sans toucher aux autres ;
+ * - une trame reçue en retard pour un jour passé supprime les réponses de son bâtiment (et celles
+ *   tous bâtiments confondus) dont la période contient ce jour.
+ */
+@Slf4j
+@Component
+public class DashboardResponseCache {
+
+    private static final ZoneId PARIS_ZONE = ZoneId.of("Europe/Paris");
+
+    private final TopologyRegistry topologyRegistry;
+    private final ObjectMapper objectMapper;
+    private final Duration closedTtl;
+    private final Duration openTtl;
+    private final int maxEntries;
+    private final long loadTimeoutMs;
+    private final Clock clock;
+
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+    public DashboardResponseCache(TopologyRegistry topologyRegistry,
+                                  ObjectMapper objectMapper,
+                                  @Value("${dashboard.cache.closed-ttl-minutes:360}") long closedTtlMinutes,
+                                  @Value("${dashboard.cache.open-ttl-seconds:60}") long openTtlSeconds,
+                                  @Value("${dashboard.cache.max-entries:500}") int maxEntries,
+                                  @Value("${dashboard.cache.load-timeout-seconds:120}") long loadTimeoutSeconds) {
+        this(topologyRegistry, objectMapper, Duration.ofMinutes(closedTtlMinutes), Duration.ofSeconds(openTtlSeconds),
+                maxEntries, Duration.ofSeconds(loadTimeoutSeconds), Clock.systemDefaultZone());
+    }
+
+    DashboardResponseCache(TopologyRegistry topologyRegistry, ObjectMapper objectMapper, Duration closedTtl,
+                           Duration openTtl, int maxEntries, Duration loadTimeout, Clock clock) {
+        this.topologyRegistry = topologyRegistry;
+        this.objectMapper = objectMapper;
+        this.closedTtl = closedTtl;
+        this.openTtl = openTtl;
+        this.maxEntries = Math.max(1, maxEntries);
+        this.loadTimeoutMs = loadTimeout.toMillis();
+        this.clock = clock;
+    }
+
+    /**
+     * @param kind       type de réponse (un par méthode mise en cache)
+     * @param buildingId bâtiment filtré, null si la réponse porte sur plusieurs bâtiments
+     * @param from       premier jour couvert par la réponse
+     * @param to         dernier jour couvert par la réponse (inclus)
+     * @param params     autres paramètres de la requête, déjà normalisés
+     * @param type       type de la réponse, pour en relire une copie
+     */
+    public <T> T get(String kind, Integer buildingId, LocalDate from, LocalDate to, List<?> params,
+                     TypeReference<T> type, Supplier<T> loader) {
+        if (from == null || to == null) {
+            return loader.get();
+        }
+
+        Key key = new Key(kind, buildingId, from, to, Collections.unmodifiableList(new ArrayList<>(params)));
+        long now = clock.millis();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isExpired(now)) {
+            entries.remove(key, entry);
+            entry = null;
+        }
+
+        boolean owner = false;
+        if (entry == null) {
+            Entry created = new Entry(new SingleFlight<>(now, loadTimeoutMs));
+            entry = entries.putIfAbsent(key, created);
+            if (entry == null) {
+                entry = created;
+                owner = true;
+            }
+        }
+
+        byte[] json;
+        if (owner) {
+            evictIfFull();
+            Entry owned = entry;
+            json = owned.flight.run(() -> toJson(kind, loader.get()), () -> entries.remove(key, owned));
+            // Le délai court à partir de la fin du calcul
+            owned.expiresAtMillis = clock.millis() + ttlFor(to).toMillis();
+        } else {
+            json = entry.flight.join(now);
+        }
+        return fromJson(kind, json, type);
+    }
+
+    private byte[] toJson(String kind, Object value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to cache dashboard response " + kind, e);
+        }
+    }
+
+    private <T> T fromJson(String kind, byte[] json, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(json, type);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read cached dashboard response " + kind, e);
+        }
+    }
+
+    /**
+     * Trame enregistrée : si elle concerne un jour passé, supprime les réponses qui le couvrent.
+     */
+    public void onUplink(String sensorId, LocalDateTime receivedAt) {
+        if (sensorId == null || receivedAt == null || entries.isEmpty()) {
+            return;
+        }
+        // received_at est stocké en heure du serveur, les périodes d'occupation sont en heure de Paris
+        LocalDate serverDay = receivedAt.toLocalDate();
+        LocalDate parisDay = receivedAt.atZone(clock.getZone()).withZoneSameInstant(PARIS_ZONE).toLocalDate();
+        if (!serverDay.isBefore(today()) && !parisDay.isBefore(today())) {
+            return;
+        }
+
+        Integer buildingId = topologyRegistry.sensor(sensorId).map(Sensor::getBuildingId).orElse(null);
+        LocalDate first = serverDay.isBefore(parisDay) ? serverDay : parisDay;
+        LocalDate last = serverDay.isBefore(parisDay) ? parisDay : serverDay;
+        invalidate(buildingId, first, last);
+    }
+
+    /**
+     * Supprime les réponses du bâtiment (toutes si buildingId est null) et celles tous bâtiments
+     * confondus dont la période croise [firstDay, lastDay].
+     */
+    public void invalidate(Integer buildingId, LocalDate firstDay, LocalDate lastDay) {
+        int removed = 0;
+        for (Key key : entries.keySet()) {
+            boolean building = buildingId == null || key.buildingId() == null || buildingId.equals(key.buildingId());
+            boolean overlaps = !key.from().isAfter(lastDay) && !key.to().isBefore(firstDay);
+            if (building && overlaps && entries.remove(key) != null) {
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.debug("[dashboard-cache] {} response(s) dropped for building {} ({} - {})", removed, buildingId, firstDay, lastDay);
+        }
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    private Duration ttlFor(LocalDate to) {
+        return to.isBefore(today()) ? closedTtl : openTtl;
+    }
+
+    /**
+     * Plus petite des dates du jour serveur et Paris : une période n'est close que dans les deux.
+     */
+    private LocalDate today() {
+        LocalDate serverToday = LocalDate.now(clock);
+        LocalDate parisToday = LocalDate.now(clock.withZone(PARIS_ZONE));
+        return serverToday.isBefore(parisToday) ? serverToday : parisToday;
+    }
+
+    private void evictIfFull() {
+        if (entries.size() <= maxEntries) {
+            return;
+        }
+        long now = clock.millis();
+        entries.entrySet().removeIf(e -> e.getValue().isExpired(now));
+        // Puis les réponses qui expirent le plus tôt
+        entries.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().expiresAtMillis))
+                .limit(Math.max(0, entries.size() - maxEntries))
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(entries::remove);
+    }
+
+    private record Key(String kind, Integer buildingId, LocalDate from, LocalDate to, List<?> params) {
+    }
+
+    private static final class Entry {
+
+        private final SingleFlight<byte[]> flight;
+        private volatile long expiresAtMillis = Long.MAX_VALUE;
+
+        private Entry(SingleFlight<byte[]> flight) {
+            this.flight = flight;
+        }
+
+        boolean isExpired(long now) {
+            // Un calcul en cours n'expire pas (les appels suivants l'attendent), sauf s'il est bloqué
+            return flight.isDone() ? now >= expiresAtMillis : flight.isStuck(now);
+        }
+    }
+}
@@ -13,6 +13,7 @@ import java.util.Optional;
 
 public interface DashboardService {
     DashboardData getDashboardData(String year, String month, String building, String floor, String sensorType, String timeSlot);
+    void preloadDashboard(String building);
     List<Desk> getDesks(String building, String floor, Optional<String> deskId);
     List<SensorInfo> getSensorsList(String building, String floor, String sensorType);
     List<OccupationHistoryEntry> getOccupationHistory(List<String> sensorIds, int days);
@@ -7,6 +7,7 @@ import com.amaris.sensorprocessor.entity.SensorData;
 import com.amaris.sensorprocessor.model.dashboard.*;
 import com.amaris.sensorprocessor.repository.SensorDao;
 import com.amaris.sensorprocessor.repository.SensorDataDao;
+import com.fasterxml.jackson.core.type.TypeReference;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -25,30 +26,31 @@ public class DashboardServiceImpl implements DashboardService {
     private final SensorDao sensorDao;
     private final SensorDataDao sensorDataDao;
     private final AlertService alertService;
-    private final BuildingService buildingService;
-    private final LocationCacheService locationCacheService;
-    private final DeviceTypeCacheService deviceTypeCacheService;
-    private final DeviceTypeService deviceTypeService;
+    private final TopologyRegistry topologyRegistry;
+    private final DashboardResponseCache responseCache;
+    private final DashboardSnapshotStore snapshotStore;
+
+    // Clé dont la surveillance des alertes est active (une seule à la fois, voir startMonitoringForBuilding)
+    private volatile DashboardSnapshotStore.Key monitoredKey;
+
     @Autowired
     public DashboardServiceImpl(SensorDao sensorDao, SensorDataDao sensorDataDao,
                                 AlertService alertService,
-                                BuildingService buildingService,
-                                LocationCacheService locationCacheService,
-                                DeviceTypeCacheService deviceTypeCacheService,
-                                DeviceTypeService deviceTypeService) {
+                                TopologyRegistry topologyRegistry,
+                                DashboardResponseCache responseCache,
+                                DashboardSnapshotStore snapshotStore) {
         this.sensorDao = sensorDao;
         this.sensorDataDao = sensorDataDao;
         this.alertService = alertService;
-        this.buildingService = buildingService;
-        this.locationCacheService = locationCacheService;
-        this.deviceTypeCacheService = deviceTypeCacheService;
-        this.deviceTypeService = deviceTypeService;
+        this.topologyRegistry = topologyRegistry;
+        this.responseCache = responseCache;
+        this.snapshotStore = snapshotStore;
     }
 
     private Integer mapBuildingToId(String building) {
         if (building == null || "all".equalsIgnoreCase(building)) return null;
         if (isInteger(building)) return Integer.parseInt(building);
-        return buildingService.findAll().stream()
+        return topologyRegistry.buildings().stream()
                 .filter(b -> b.getName().equalsIgnoreCase(building.trim()))
                 .map(Building::getId)
                 .findFirst()
@@ -65,25 +67,65 @@ public class DashboardServiceImpl implements DashboardService {
     }
 
     private Map<Integer, String> loadLocationNameMap() {
-        return locationCacheService.loadLocationNameMap();
+        return topologyRegistry.locationNames();
     }
 
     private Map<Integer, String> loadDeviceTypeMap() {
-        return deviceTypeCacheService.loadDeviceTypeMap();
+        return topologyRegistry.deviceTypeNames();
     }
 
+    /**
+     * Snapshot maintenu par DashboardSnapshotStore ; year, month et timeSlot n'interviennent pas dans
+     * le calcul et ne font pas partie de la clé.
+     */
     @Override
     public DashboardData getDashboardData(String year, String month, String building,
                                           String floor, String sensorType, String timeSlot) {
-        sensorType = sensorType != null ? sensorType : "DESK";
+        String type = sensorType != null ? sensorType : "DESK";
+        DashboardSnapshotStore.Key key = snapshotKey(building, floor, type);
+
+        // La surveillance ne suit que la dernière vue demandée : relancée seulement quand elle change
+        if (!key.equals(monitoredKey)) {
+            monitoredKey = key;
+            alertService.startMonitoringForBuilding(building, type, mapBuildingToId(building));
+        }
+        return snapshotStore.get(key, initial -> buildDashboardData(building, floor, type, initial));
+    }
+
+    /**
+     * Vue affichée à l'ouverture du dashboard (tous étages, DESK), sans démarrer la surveillance.
+     */
+    @Override
+    public void preloadDashboard(String building) {
+        snapshotStore.get(snapshotKey(building, "", "DESK"), initial -> buildDashboardData(building, "", "DESK", initial));
+    }
+
+    private DashboardSnapshotStore.Key snapshotKey(String building, String floor, String type) {
         Integer buildingId = mapBuildingToId(building);
+        String buildingKey = buildingId != null ? String.valueOf(buildingId)
+                : building == null || "all".equalsIgnoreCase(building) ? "all" : "unknown:" + building;
+        String floorKey = floor == null || "all".equalsIgnoreCase(floor) ? "all" : floor;
+        return new DashboardSnapshotStore.Key(buildingKey, floorKey, type);
+    }
 
-        alertService.startMonitoringForBuilding(building, sensorType, buildingId);
-        List<Alert> alerts = alertService.getCurrentAlertsWithWait(buildingId, 500);
-        List<LiveSensorData> liveSensorData = getLiveSensorData(building, floor, sensorType);
-        HistoricalData historicalData = getHistoricalData(year, month, building, floor, sensorType, timeSlot);
+    DashboardSnapshotStore.Built buildDashboardData(String building, String floor, String sensorType, boolean initial) {
+        Integer buildingId = mapBuildingToId(building);
+        // Au premier affichage, laisse le temps au cache live de se remplir ; ensuite le snapshot suivant suffit
+        List<Alert> alerts = initial
+                ? alertService.getCurrentAlertsWithWait(buildingId, 500)
+                : alertService.getCurrentAlerts(buildingId);
+
+        List<Sensor> sensorsOfType = findSensorsByType(sensorType);
+        List<String> sensorIds = sensorsOfType.stream().map(Sensor::getIdSensor).collect(Collectors.toList());
+        // Dernière occupation de tous les capteurs du type, en une requête, pour les deux blocs
+        Map<String, SensorData> latest = sensorIds.isEmpty()
+                ? new HashMap<>()
+                : sensorDataDao.findLatestBySensorIdsAndType(sensorIds, PayloadValueType.OCCUPANCY);
 
-        return new DashboardData(alerts, liveSensorData, historicalData);
+        List<LiveSensorData> liveSensorData = getLiveSensorData(sensorsOfType, latest, building, floor);
+        HistoricalData historicalData = getHistoricalData(sensorsOfType, latest);
+
+        return new DashboardSnapshotStore.Built(new DashboardData(alerts, liveSensorData, historicalData), Set.copyOf(sensorIds));
     }
 
     private List<Alert> getAlerts(Integer building) {
@@ -91,21 +133,18 @@ public class DashboardServiceImpl implements DashboardService {
     }
 
     private List<Sensor> findSensorsByType(String sensorType) {
-        if (sensorType == null || sensorType.isBlank()) return sensorDao.findAllByDeviceType("DESK");
-        List<String> resolvedTypes = resolveSensorTypes(sensorType);
-        if (resolvedTypes.size() > 1) {
-            return sensorDao.findAllByDeviceTypes(resolvedTypes);
-        }
-        return sensorDao.findAllByDeviceType(resolvedTypes.get(0));
+        if (sensorType == null || sensorType.isBlank()) return topologyRegistry.sensorsByDeviceType("DESK", null);
+        return topologyRegistry.sensorsByDeviceTypes(resolveSensorTypes(sensorType), null);
     }
 
     private List<String> resolveSensorTypes(String sensorType) {
-        return DashboardSensorFamilyResolver.expandRequestedTypes(sensorType, deviceTypeService.findAll());
+        return DashboardSensorFamilyResolver.expandRequestedTypes(sensorType, topologyRegistry.deviceTypes());
     }
 
-    private List<LiveSensorData> getLiveSensorData(String building, String floor, String sensorType) {
+    private List<LiveSensorData> getLiveSensorData(List<Sensor> sensorsOfType, Map<String, SensorData> preloadedLatest,
+                                                   String building, String floor) {
         List<LiveSensorData> liveSensorData = new ArrayList<>();
-        List<Sensor> filteredSensors = findSensorsByType(sensorType);
+        List<Sensor> filteredSensors = sensorsOfType;
 
         if (building != null && !"all".equalsIgnoreCase(building)) {
             Integer buildingId = mapBuildingToId(building); // ✅ Integer
@@ -120,12 +159,6 @@ public class DashboardServiceImpl implements DashboardService {
                     .collect(Collectors.toList());
         }
 
-        // Pre-load latest occupancy data for ALL sensors in ONE query
-        List<String> allSensorIds = filteredSensors.stream().map(Sensor::getIdSensor).collect(Collectors.toList());
-        Map<String, SensorData> preloadedLatest = allSensorIds.isEmpty()
-                ? new HashMap<>()
-                : sensorDataDao.findLatestBySensorIdsAndType(allSensorIds, PayloadValueType.OCCUPANCY);
-
         Map<Integer, String> locationNameMap = loadLocationNameMap();
         Map<String, List<Sensor>> sensorsByLocation = filteredSensors.stream()
                 .collect(Collectors.groupingBy(sensor ->
@@ -158,19 +191,13 @@ public class DashboardServiceImpl implements DashboardService {
         return liveSensorData;
     }
 
-    private HistoricalData getHistoricalData(String year, String month, String building,
-                                             String floor, String sensorType, String timeSlot) {
+    private HistoricalData getHistoricalData(List<Sensor> filteredSensors, Map<String, SensorData> histPreloaded) {
         List<DataPoint> dataPoints = new ArrayList<>();
         DateTimeFormatter formatter = DateTimeFormatter.ISO_LOCAL_DATE;
 
         LocalDate endDate = LocalDate.now();
-        List<Sensor> filteredSensors = findSensorsByType(sensorType);
 
         int totalSensors = filteredSensors.size();
-        List<String> histSensorIds = filteredSensors.stream().map(Sensor::getIdSensor).collect(Collectors.toList());
-        Map<String, SensorData> histPreloaded = histSensorIds.isEmpty()
-                ? new HashMap<>()
-                : sensorDataDao.findLatestBySensorIdsAndType(histSensorIds, PayloadValueType.OCCUPANCY);
         var selected = calculateOccupancyStats(filteredSensors, histPreloaded);
         double occupancyRate = 0;
         for (var entry : selected.entrySet()) {
@@ -193,13 +220,14 @@ public class DashboardServiceImpl implements DashboardService {
 
     @Override
     public List<Desk> getDesks(String building, String floor, Optional<String> deskId) {
-        List<Sensor> deskSensors = sensorDao.findAllByDeviceTypes(List.of("DESK", "OCCUP", "COUNT"));
-
+        List<Sensor> deskSensors;
         if (building != null && !"all".equalsIgnoreCase(building) && !building.isBlank()) {
-            Integer buildingId = mapBuildingToId(building); // ✅
-            deskSensors = deskSensors.stream()
-                    .filter(s -> buildingId != null && buildingId.equals(s.getBuildingId())) // ✅
-                    .collect(Collectors.toList());
+            Integer buildingId = mapBuildingToId(building);
+            deskSensors = buildingId == null
+                    ? List.of()
+                    : topologyRegistry.sensorsByDeviceTypes(List.of("DESK", "OCCUP", "COUNT"), buildingId);
+        } else {
+            deskSensors = topologyRegistry.sensorsByDeviceTypes(List.of("DESK", "OCCUP", "COUNT"), null);
         }
 
         if (floor != null && !"all".equalsIgnoreCase(floor) && !floor.isBlank()) {
@@ -309,6 +337,14 @@ public class DashboardServiceImpl implements DashboardService {
 
         LocalDateTime endDate = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
         LocalDateTime startDate = endDate.minusDays(days);
+        List<String> sortedIds = sensorIds.stream().distinct().sorted().toList();
+        return responseCache.get("occupation-history", null, startDate.toLocalDate(), endDate.toLocalDate(),
+                sortedIds, new TypeReference<List<OccupationHistoryEntry>>() {},
+                () -> computeOccupationHistory(sortedIds, startDate, endDate));
+    }
+
+    private List<OccupationHistoryEntry> computeOccupationHistory(List<String> sensorIds,
+                                                                  LocalDateTime startDate, LocalDateTime endDate) {
         List<OccupationHistoryEntry> history = new ArrayList<>();
         LocalDateTime currentDate = startDate;
 
@@ -387,6 +423,19 @@ public class DashboardServiceImpl implements DashboardService {
             request.setGranularity(HistogramRequest.Granularity.HOURLY);
         }
 
+        // Les presets relatifs sont résolus en dates : la clé de cache porte sur la période réelle
+        LocalDateTime[] range = resolveHistogramRange(request);
+        return responseCache.get("histogram", mapBuildingToId(request.getBuilding()),
+                range[0].toLocalDate(), range[1].toLocalDate(),
+                Arrays.asList(request.getBuilding(), request.getFloor(), request.getSensorType(), request.getSensorId(),
+                        request.getMetricType(), request.getGranularity(), request.getTimeRange(),
+                        request.getTimeSlot(), request.getExcludeSensorType()),
+                new TypeReference<HistogramResponse>() {},
+                () -> computeHistogramData(request, range[0], range[1]));
+    }
+
+    private HistogramResponse computeHistogramData(HistogramRequest request, LocalDateTime start, LocalDateTime end) {
+
         final boolean totalMode = isTotalMetric(request.getMetricType());
         final List<PayloadValueType> metricParts = totalMode
                 ? totalComponents(request.getMetricType())
@@ -397,11 +446,11 @@ public class DashboardServiceImpl implements DashboardService {
 
         List<Sensor> sensors;
         if (hasText(request.getSensorId())) {
-            Optional<Sensor> sensorOpt = sensorDao.findByIdOfSensor(request.getSensorId());
+            Optional<Sensor> sensorOpt = topologyRegistry.sensor(request.getSensorId());
             sensors = sensorOpt.map(List::of).orElseGet(ArrayList::new);
         } else {
             if (isAllSensorType(request.getSensorType())) {
-                sensors = sensorDao.findAllSensors();
+                sensors = topologyRegistry.sensors();
             } else {
                 sensors = findSensorsByType(request.getSensorType());
             }
@@ -445,42 +494,20 @@ public class DashboardServiceImpl implements DashboardService {
                     .build();
         }
 
-        LocalDateTime end = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).plusDays(1).minusSeconds(1);
-        LocalDateTime start;
-
-        switch (request.getTimeRange()) {
-            case TODAY -> start = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
-            case LAST_7_DAYS -> start = end.minusDays(6).truncatedTo(ChronoUnit.DAYS);
-            case LAST_30_DAYS -> start = end.minusDays(29).truncatedTo(ChronoUnit.DAYS);
-            case THIS_MONTH -> start = end.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
-            case LAST_MONTH -> {
-                start = end.minusMonths(1).withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
-                end = end.withDayOfMonth(1).minusDays(1).truncatedTo(ChronoUnit.DAYS).plusDays(1).minusSeconds(1);
-            }
-            case CUSTOM -> {
-                if (request.getCustomStartDate() != null && request.getCustomEndDate() != null) {
-                    start = LocalDateTime.ofInstant(request.getCustomStartDate().toInstant(),
-                            java.time.ZoneId.systemDefault()).truncatedTo(ChronoUnit.DAYS);
-                    end = LocalDateTime.ofInstant(request.getCustomEndDate().toInstant(),
-                            java.time.ZoneId.systemDefault()).truncatedTo(ChronoUnit.DAYS).plusDays(1).minusSeconds(1);
-                } else {
-                    start = end.minusDays(6).truncatedTo(ChronoUnit.DAYS);
-                }
-            }
-            default -> start = end.minusDays(6).truncatedTo(ChronoUnit.DAYS);
-        }
-
         log.info("Date range: {} to {}", start, end);
 
         List<String> candidateIds = sensors.stream().map(Sensor::getIdSensor).collect(Collectors.toList());
-        java.util.Set<String> sensorsWithData = new java.util.HashSet<>();
+        boolean hourlyGranularity = request.getGranularity() == HistogramRequest.Granularity.HOURLY;
 
-        for (PayloadValueType part : metricParts) {
-            Map<String, SensorDataDao.HourlyStatistics> m = (request.getGranularity() == HistogramRequest.Granularity.HOURLY)
-                    ? sensorDataDao.getHourlyStatisticsBatch(candidateIds, part, start, end)
-                    : sensorDataDao.getDailyStatisticsBatch(candidateIds, part, start, end);
-            if (m != null && !m.isEmpty()) sensorsWithData.addAll(m.keySet());
-        }
+        // Une seule requête pour tous les créneaux et toutes les composantes d'un TOTAL. En DAILY avec un
+        // timeSlot, on lit des créneaux horaires pour filtrer les heures, regroupés ensuite par jour.
+        boolean hourlyBuckets = hourlyGranularity || request.getTimeSlot() != HistogramRequest.TimeSlot.ALL;
+        List<SensorDataDao.BucketStatistics> bucketStats = sensorDataDao.getStatisticsByBucket(
+                candidateIds, metricParts, start, end.plusSeconds(1), hourlyBuckets);
+
+        java.util.Set<String> sensorsWithData = bucketStats.stream()
+                .map(SensorDataDao.BucketStatistics::sensorId)
+                .collect(Collectors.toSet());
 
         sensors = sensors.stream()
                 .filter(s -> sensorsWithData.contains(s.getIdSensor()))
@@ -501,83 +528,8 @@ public class DashboardServiceImpl implements DashboardService {
                     .build();
         }
 
-        List<String> sensorIds = sensors.stream().map(Sensor::getIdSensor).collect(Collectors.toList());
-        Map<String, List<SensorDataDao.HourlyStatistics>> dataMap = new HashMap<>();
-
-        if (request.getGranularity() == HistogramRequest.Granularity.HOURLY) {
-            LocalDateTime current = start.truncatedTo(ChronoUnit.HOURS);
-            LocalDateTime last = end.truncatedTo(ChronoUnit.HOURS);
-
-            while (!current.isAfter(last)) {
-                LocalDateTime bucketStart = current;
-                LocalDateTime bucketEnd = current.plusHours(1);
-                String key = bucketStart.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:00"));
-
-                if (!totalMode) {
-                    Map<String, SensorDataDao.HourlyStatistics> statsMap =
-                            sensorDataDao.getHourlyStatisticsBatch(sensorIds, request.getMetricType(), bucketStart, bucketEnd);
-                    if (statsMap != null && !statsMap.isEmpty()) dataMap.put(key, new ArrayList<>(statsMap.values()));
-                } else {
-                    Map<String, Double> sumAbsBySensor = new HashMap<>();
-                    Map<String, Integer> maxCountBySensor = new HashMap<>();
-                    for (PayloadValueType part : metricParts) {
-                        Map<String, SensorDataDao.HourlyStatistics> m =
-                                sensorDataDao.getHourlyStatisticsBatch(sensorIds, part, bucketStart, bucketEnd);
-                        if (m == null || m.isEmpty()) continue;
-                        for (Map.Entry<String, SensorDataDao.HourlyStatistics> e : m.entrySet()) {
-                            sumAbsBySensor.merge(e.getKey(), Math.abs(e.getValue().getAverage()), Double::sum);
-                            maxCountBySensor.merge(e.getKey(), e.getValue().getDataPointCount(), Math::max);
-                        }
-                    }
-                    if (!sumAbsBySensor.isEmpty()) {
-                        List<SensorDataDao.HourlyStatistics> merged = new ArrayList<>();
-                        for (Map.Entry<String, Double> e : sumAbsBySensor.entrySet()) {
-                            int cnt = maxCountBySensor.getOrDefault(e.getKey(), 0);
-                            merged.add(new SensorDataDao.HourlyStatistics(e.getValue(), e.getValue(), e.getValue(), cnt));
-                        }
-                        dataMap.put(key, merged);
-                    }
-                }
-                current = current.plusHours(1);
-            }
-        } else {
-            if (!totalMode) {
-                // Single query for the full range, grouped by date in SQL
-                Map<String, Map<String, SensorDataDao.HourlyStatistics>> byDate =
-                        sensorDataDao.getDailyStatisticsBatchForRange(sensorIds, request.getMetricType(), start, end);
-                for (Map.Entry<String, Map<String, SensorDataDao.HourlyStatistics>> entry : byDate.entrySet()) {
-                    if (entry.getValue() != null && !entry.getValue().isEmpty()) {
-                        dataMap.put(entry.getKey(), new ArrayList<>(entry.getValue().values()));
-                    }
-                }
-            } else {
-                // Total mode: one query per metric part, then aggregate in memory
-                Map<String, Map<String, Double>> sumAbsByDateSensor = new HashMap<>();
-                Map<String, Map<String, Integer>> maxCountByDateSensor = new HashMap<>();
-                for (PayloadValueType part : metricParts) {
-                    Map<String, Map<String, SensorDataDao.HourlyStatistics>> byDate =
-                            sensorDataDao.getDailyStatisticsBatchForRange(sensorIds, part, start, end);
-                    for (Map.Entry<String, Map<String, SensorDataDao.HourlyStatistics>> dateEntry : byDate.entrySet()) {
-                        String day = dateEntry.getKey();
-                        for (Map.Entry<String, SensorDataDao.HourlyStatistics> se : dateEntry.getValue().entrySet()) {
-                            sumAbsByDateSensor.computeIfAbsent(day, k -> new HashMap<>())
-                                    .merge(se.getKey(), Math.abs(se.getValue().getAverage()), Double::sum);
-                            maxCountByDateSensor.computeIfAbsent(day, k -> new HashMap<>())
-                                    .merge(se.getKey(), se.getValue().getDataPointCount(), Math::max);
-                        }
-                    }
-                }
-                for (Map.Entry<String, Map<String, Double>> dateEntry : sumAbsByDateSensor.entrySet()) {
-                    String day = dateEntry.getKey();
-                    List<SensorDataDao.HourlyStatistics> merged = new ArrayList<>();
-                    for (Map.Entry<String, Double> se : dateEntry.getValue().entrySet()) {
-                        int cnt = maxCountByDateSensor.getOrDefault(day, Map.of()).getOrDefault(se.getKey(), 0);
-                        merged.add(new SensorDataDao.HourlyStatistics(se.getValue(), se.getValue(), se.getValue(), cnt));
-                    }
-                    if (!merged.isEmpty()) dataMap.put(day, merged);
-                }
-            }
-        }
+        Map<String, List<SensorDataDao.HourlyStatistics>> dataMap =
+                toHistogramBuckets(bucketStats, totalMode, hourlyGranularity, request.getTimeSlot());
 
         List<HistogramDataPoint> dataPoints = new ArrayList<>();
         for (Map.Entry<String, List<SensorDataDao.HourlyStatistics>> entry : dataMap.entrySet()) {
@@ -640,6 +592,90 @@ public class DashboardServiceImpl implements DashboardService {
                 .build();
     }
 
+    /**
+     * @return [début, fin] de la période de l'histogramme (fin : dernière seconde du dernier jour)
+     */
+    private LocalDateTime[] resolveHistogramRange(HistogramRequest request) {
+        LocalDateTime end = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS).plusDays(1).minusSeconds(1);
+        LocalDateTime start;
+
+        switch (request.getTimeRange()) {
+            case TODAY -> start = LocalDateTime.now().truncatedTo(ChronoUnit.DAYS);
+            case LAST_7_DAYS -> start = end.minusDays(6).truncatedTo(ChronoUnit.DAYS);
+            case LAST_30_DAYS -> start = end.minusDays(29).truncatedTo(ChronoUnit.DAYS);
+            case THIS_MONTH -> start = end.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
+            case LAST_MONTH -> {
+                start = end.minusMonths(1).withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS);
+                end = end.withDayOfMonth(1).minusDays(1).truncatedTo(ChronoUnit.DAYS).plusDays(1).minusSeconds(1);
+            }
+            case CUSTOM -> {
+                if (request.getCustomStartDate() != null && request.getCustomEndDate() != null) {
+                    start = LocalDateTime.ofInstant(request.getCustomStartDate().toInstant(),
+                            java.time.ZoneId.systemDefault()).truncatedTo(ChronoUnit.DAYS);
+                    end = LocalDateTime.ofInstant(request.getCustomEndDate().toInstant(),
+                            java.time.ZoneId.systemDefault()).truncatedTo(ChronoUnit.DAYS).plusDays(1).minusSeconds(1);
+                } else {
+                    start = end.minusDays(6).truncatedTo(ChronoUnit.DAYS);
+                }
+            }
+            default -> start = end.minusDays(6).truncatedTo(ChronoUnit.DAYS);
+        }
+
+        return new LocalDateTime[]{start, end};
+    }
+
+    /**
+     * Regroupe les statistiques par créneau (clé "yyyy-MM-dd HH:00" ou "yyyy-MM-dd") : une entrée par
+     * capteur, somme des |moyennes| des composantes en mode TOTAL. Les créneaux horaires hors timeSlot
+     * sont ignorés ; en granularité journalière ils sont fusionnés par jour (moyenne pondérée).
+     */
+    static Map<String, List<SensorDataDao.HourlyStatistics>> toHistogramBuckets(
+            List<SensorDataDao.BucketStatistics> bucketStats,
+            boolean totalMode,
+            boolean hourlyGranularity,
+            HistogramRequest.TimeSlot timeSlot) {
+
+        Map<String, Map<String, Map<PayloadValueType, SensorDataDao.HourlyStatistics>>> byBucket = new HashMap<>();
+        for (SensorDataDao.BucketStatistics row : bucketStats) {
+            String bucket = row.timeBucket();
+            if (bucket.length() > 10) {
+                if (!timeSlot.isInTimeSlot(Integer.parseInt(bucket.substring(11, 13)))) continue;
+                if (!hourlyGranularity) bucket = bucket.substring(0, 10);
+            }
+            byBucket.computeIfAbsent(bucket, k -> new HashMap<>())
+                    .computeIfAbsent(row.sensorId(), k -> new EnumMap<>(PayloadValueType.class))
+                    .merge(row.valueType(), row.statistics(), DashboardServiceImpl::mergeStatistics);
+        }
+
+        Map<String, List<SensorDataDao.HourlyStatistics>> dataMap = new HashMap<>();
+        for (Map.Entry<String, Map<String, Map<PayloadValueType, SensorDataDao.HourlyStatistics>>> entry : byBucket.entrySet()) {
+            List<SensorDataDao.HourlyStatistics> stats = new ArrayList<>();
+            for (Map<PayloadValueType, SensorDataDao.HourlyStatistics> byMetric : entry.getValue().values()) {
+                if (!totalMode) {
+                    stats.addAll(byMetric.values());
+                    continue;
+                }
+                double sumAbs = 0.0;
+                int maxCount = 0;
+                for (SensorDataDao.HourlyStatistics part : byMetric.values()) {
+                    sumAbs += Math.abs(part.getAverage());
+                    maxCount = Math.max(maxCount, part.getDataPointCount());
+                }
+                stats.add(new SensorDataDao.HourlyStatistics(sumAbs, sumAbs, sumAbs, maxCount));
+            }
+            dataMap.put(entry.getKey(), stats);
+        }
+        return dataMap;
+    }
+
+    private static SensorDataDao.HourlyStatistics mergeStatistics(SensorDataDao.HourlyStatistics a,
+                                                                  SensorDataDao.HourlyStatistics b) {
+        int count = a.getDataPointCount() + b.getDataPointCount();
+        double average = (a.getAverage() * a.getDataPointCount() + b.getAverage() * b.getDataPointCount()) / count;
+        return new SensorDataDao.HourlyStatistics(average, Math.min(a.getMin(), b.getMin()),
+                Math.max(a.getMax(), b.getMax()), count);
+    }
+
     // Ajouter un nouveau type ici suffit pour le rendre dynamique partout
     // { typeName -> { metricName -> decodedFieldName } }
     private static final Map<String, Map<String, String>> SENSOR_METRIC_CONFIG = new LinkedHashMap<>();
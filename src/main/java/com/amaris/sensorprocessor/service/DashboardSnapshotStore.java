@@ -0,0 +1,259 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.model.dashboard.Alert;
+import com.amaris.sensorprocessor.model.dashboard.DashboardData;
+import com.amaris.sensorprocessor.model.dashboard.DataPoint;
+import com.amaris.sensorprocessor.model.dashboard.HistoricalData;
+import com.amaris.sensorprocessor.model.dashboard.LiveSensorData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Snapshots de /api/dashboard par (bâtiment, étage, type de capteur), reconstruits en arrière-plan :
+ * la requête ne fait que lire la dernière version, quel que soit le nombre de capteurs du bâtiment.
+ *
+ * Une trame d'un capteur couvert par un snapshot le marque à reconstruire ; le job
+ * dashboard-snapshot-refresh (toutes les dashboard.snapshot.refresh-ms) reconstruit les snapshots
+ * marqués, et les autres au plus tard après dashboard.snapshot.max-age-seconds (alertes, capteurs
+ * devenus muets). Seuls les snapshots lus depuis leur dernière construction sont reconstruits en
+ * arrière-plan : une vue que personne n'affiche ne coûte rien (ni requêtes, ni évaluation des
+ * alertes de son bâtiment). Lue à nouveau alors qu'elle est marquée ou a dépassé max-age, et
+ * construite depuis plus de refresh-ms, elle est reconstruite sur la requête : aucune vue n'est
+ * servie avec plus de retard que celles suivies en arrière-plan. Un snapshot non consulté depuis
+ * dashboard.snapshot.idle-minutes est abandonné.
+ *
+ * Chaque appelant reçoit sa propre copie du snapshot (DashboardData est modifiable) : une requête
+ * ne peut pas altérer ce que les autres lisent.
+ *
+ * La première construction est partagée par les requêtes simultanées (SingleFlight) ; bloquée plus de
+ * dashboard.snapshot.build-timeout-seconds, elle est abandonnée et relancée par la requête suivante.
+ * Chaque reconstruction remplace le snapshot d'un bloc et reçoit un numéro de génération croissant.
+ */
+@Slf4j
+@Service
+public class DashboardSnapshotStore {
+
+    public static final String JOB_NAME = "dashboard-snapshot-refresh";
+
+    /**
+     * Construit le contenu d'un snapshot.
+     */
+    public interface Builder {
+        /**
+         * @param initial true pour la première construction, faite sur le thread de la requête
+         */
+        Built build(boolean initial);
+    }
+
+    /**
+     * @param sensorIds capteurs dont une trame rend le snapshot obsolète
+     */
+    public record Built(DashboardData data, Set<String> sensorIds) {
+    }
+
+    public record Key(String building, String floor, String sensorType) {
+    }
+
+    private final ScheduledJobRunner scheduledJobRunner;
+    private final long maxAgeMs;
+    private final long idleMs;
+    private final long buildTimeoutMs;
+    private final long refreshMs;
+
+    private final Map<Key, Holder> holders = new ConcurrentHashMap<>();
+    private final AtomicLong generations = new AtomicLong();
+
+    public DashboardSnapshotStore(ScheduledJobRunner scheduledJobRunner,
+                                  @Value("${dashboard.snapshot.max-age-seconds:30}") long maxAgeSeconds,
+                                  @Value("${dashboard.snapshot.idle-minutes:10}") long idleMinutes,
+                                  @Value("${dashboard.snapshot.build-timeout-seconds:60}") long buildTimeoutSeconds,
+                                  @Value("${dashboard.snapshot.refresh-ms:2000}") long refreshMs) {
+        this.scheduledJobRunner = scheduledJobRunner;
+        this.maxAgeMs = maxAgeSeconds * 1000;
+        this.idleMs = idleMinutes * 60_000;
+        this.buildTimeoutMs = buildTimeoutSeconds * 1000;
+        this.refreshMs = refreshMs;
+    }
+
+    /**
+     * Dernier snapshot de la clé ; la première demande le construit (une seule fois si plusieurs
+     * requêtes arrivent en même temps) puis le confie au rafraîchissement en arrière-plan.
+     */
+    public DashboardData get(Key key, Builder builder) {
+        long now = System.currentTimeMillis();
+        Holder holder = holders.get(key);
+        // Snapshot périmé : reconstruit sur la requête, sans l'attente du premier affichage
+        boolean initial = true;
+        if (holder != null && needsNewBuild(holder, now)) {
+            initial = holder.current == null;
+            holders.remove(key, holder);
+            holder = null;
+        }
+        boolean owner = false;
+        if (holder == null) {
+            Holder created = new Holder(builder, new SingleFlight<>(now, buildTimeoutMs));
+            holder = holders.putIfAbsent(key, created);
+            if (holder == null) {
+                holder = created;
+                owner = true;
+            }
+        }
+        holder.lastAccessMillis = now;
+
+        if (owner) {
+            Holder owned = holder;
+            boolean firstBuild = initial;
+            return copyOf(owned.first.run(() -> rebuild(owned, firstBuild), () -> holders.remove(key, owned)));
+        }
+
+        // Lu depuis sa dernière construction : le rafraîchissement en arrière-plan le suit
+        holder.served = true;
+        DashboardData current = holder.current;
+        if (current != null) {
+            return copyOf(current);
+        }
+        return copyOf(holder.first.join(now));
+    }
+
+    /**
+     * Première construction bloquée, ou snapshot périmé qu'aucune lecture n'a confié au
+     * rafraîchissement en arrière-plan depuis sa construction : reconstruit sur la requête.
+     */
+    private boolean needsNewBuild(Holder holder, long now) {
+        if (holder.first.isStuck(now)) {
+            return true;
+        }
+        if (!holder.first.isDone() || holder.current == null || holder.served) {
+            return false;
+        }
+        long age = now - holder.builtAtMillis;
+        return age > refreshMs && (holder.dirty || age > maxAgeMs);
+    }
+
+    /**
+     * Trame enregistrée : marque les snapshots qui couvrent ce capteur.
+     */
+    public void onUplink(String sensorId) {
+        if (sensorId == null) {
+            return;
+        }
+        holders.values().forEach(holder -> {
+            if (holder.sensorIds.contains(sensorId)) {
+                holder.dirty = true;
+            }
+        });
+    }
+
+    public void invalidateAll() {
+        holders.values().forEach(holder -> holder.dirty = true);
+    }
+
+    @Scheduled(fixedDelayString = "${dashboard.snapshot.refresh-ms:2000}",
+            initialDelayString = "${dashboard.snapshot.refresh-ms:2000}")
+    public void scheduleRefresh() {
+        if (!holders.isEmpty()) {
+            scheduledJobRunner.submit(JOB_NAME, this::refreshDue);
+        }
+    }
+
+    private void refreshDue() {
+        long now = System.currentTimeMillis();
+        holders.forEach((key, holder) -> {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            if (holder.first.isStuck(now)) {
+                // La requête suivante relance la construction
+                holders.remove(key, holder);
+                log.warn("[dashboard-snapshot] first build of {} still running after {} ms, dropped", key, buildTimeoutMs);
+                return;
+            }
+            if (!holder.first.isDone()) {
+                return;
+            }
+            if (now - holder.lastAccessMillis > idleMs) {
+                holders.remove(key, holder);
+                log.debug("[dashboard-snapshot] {} dropped after {} ms without request", key, now - holder.lastAccessMillis);
+                return;
+            }
+            if (holder.served && (holder.dirty || now - holder.builtAtMillis > maxAgeMs)) {
+                try {
+                    rebuild(holder, false);
+                } catch (Exception e) {
+                    // L'ancien snapshot reste servi, nouvel essai au prochain passage
+                    log.warn("[dashboard-snapshot] refresh of {} failed: {}", key, e.getMessage());
+                }
+            }
+        });
+    }
+
+    private DashboardData rebuild(Holder holder, boolean initial) {
+        // Remis à zéro avant la lecture : une trame reçue pendant la reconstruction la relance
+        holder.dirty = false;
+        holder.served = false;
+        long startedAt = System.currentTimeMillis();
+        Built built = holder.builder.build(initial);
+        DashboardData source = built.data();
+        DashboardData snapshot = new DashboardData(
+                List.copyOf(source.getAlerts()),
+                List.copyOf(source.getLiveSensorData()),
+                source.getHistoricalData(),
+                generations.incrementAndGet(),
+                Instant.ofEpochMilli(startedAt));
+        holder.sensorIds = Set.copyOf(built.sensorIds());
+        holder.builtAtMillis = startedAt;
+        holder.current = snapshot;
+        return snapshot;
+    }
+
+    private static DashboardData copyOf(DashboardData snapshot) {
+        HistoricalData historical = snapshot.getHistoricalData();
+        return new DashboardData(
+                snapshot.getAlerts().stream()
+                        .map(a -> new Alert(a.getLevel(), a.getIcon(), a.getTitle(), a.getMessage(), a.getTime()))
+                        .collect(Collectors.toList()),
+                snapshot.getLiveSensorData().stream()
+                        .map(l -> new LiveSensorData(l.getTitle(), l.getFree(), l.getUsed(), l.getInvalid()))
+                        .collect(Collectors.toList()),
+                historical == null ? null : new HistoricalData(
+                        historical.getGlobalOccupancy(),
+                        historical.getTotalSensors(),
+                        historical.getActiveSensors(),
+                        historical.getDataPoints() == null ? null : historical.getDataPoints().stream()
+                                .map(d -> new DataPoint(d.getDate(), d.getOccupancyRate(), d.getSensorCount(), d.getAvgValue()))
+                                .collect(Collectors.toList())),
+                snapshot.getGeneration(),
+                snapshot.getGeneratedAt());
+    }
+
+    public int size() {
+        return holders.size();
+    }
+
+    private static final class Holder {
+
+        private final Builder builder;
+        private final SingleFlight<DashboardData> first;
+        private volatile DashboardData current;
+        private volatile Set<String> sensorIds = Set.of();
+        private volatile boolean dirty;
+        private volatile boolean served;
+        private volatile long builtAtMillis;
+        private volatile long lastAccessMillis;
+
+        private Holder(Builder builder, SingleFlight<DashboardData> first) {
+            this.builder = builder;
+            this.first = first;
+        }
+    }
+}
@@ -13,6 +13,7 @@ import java.util.Optional;
 public class DeviceTypeService {
 
     private final DeviceTypeDao deviceTypeDao;
+    private final TopologyRegistry topologyRegistry;
 
     public List<DeviceType> findAll() {
         return deviceTypeDao.findAll();
@@ -28,15 +29,19 @@ public class DeviceTypeService {
 
     public void deleteById(Integer id) {
         deviceTypeDao.deleteById(id);
+        topologyRegistry.reloadDeviceTypes();
     }
 
     public DeviceType updateLabel(Integer id, String label) {
         int updated = deviceTypeDao.update(id, label.trim().toUpperCase());
         if (updated == 0) throw new IllegalArgumentException("Device type not found: " + id);
+        topologyRegistry.reloadDeviceTypes();
         return deviceTypeDao.findById(id).orElseThrow();
     }
 
     public DeviceType createByLabel(String label) {
-        return deviceTypeDao.insert(label);
+        DeviceType created = deviceTypeDao.insert(label);
+        topologyRegistry.reloadDeviceTypes();
+        return created;
     }
 }
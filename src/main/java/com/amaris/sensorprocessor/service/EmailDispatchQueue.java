@@ -0,0 +1,275 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.model.dashboard.Alert;
+import com.amaris.sensorprocessor.repository.EmailOutboxDao;
+import com.amaris.sensorprocessor.repository.EmailOutboxDao.OutboxEntry;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * File d'envoi asynchrone des emails d'alerte groupés.
+ *
+ * Le planificateur d'alertes ne fait qu'enfiler : l'appel à ACS (jusqu'à 2 minutes par email) se fait
+ * sur un thread dédié, avec un débit maximum et des nouvelles tentatives espacées exponentiellement.
+ * Les envois en attente pour un même destinataire et un même paramètre sont fusionnés en un seul
+ * email. Chaque envoi est persisté (email_outbox) jusqu'à sa remise et rechargé au démarrage.
+ */
+@Slf4j
+@Service
+public class EmailDispatchQueue {
+
+    private static final TypeReference<List<Alert>> ALERT_LIST = new TypeReference<>() {};
+
+    private final EmailService emailService;
+    private final EmailOutboxDao emailOutboxDao;
+    private final ObjectMapper objectMapper;
+    private final ThreadFactory backgroundThreadFactory;
+
+    private final int capacity;
+    private final int maxAttempts;
+    private final long minSendIntervalMs;
+    private final long retryBaseMs;
+    private final long retryMaxMs;
+
+    // Envois en attente par destinataire|paramètre, dans l'ordre d'arrivée (accès sous verrou)
+    private final Map<String, PendingEmail> pending = new LinkedHashMap<>();
+
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+
+    private ScheduledExecutorService dispatcher;
+    private long nextSendAllowedAt;
+
+    public EmailDispatchQueue(EmailService emailService,
+                              EmailOutboxDao emailOutboxDao,
+                              ObjectMapper objectMapper,
+                              ThreadFactory backgroundThreadFactory,
+                              @Value("${app.notifications.email.queue-capacity:500}") int capacity,
+                              @Value("${app.notifications.email.max-per-minute:30}") int maxPerMinute,
+                              @Value("${app.notifications.email.max-attempts:5}") int maxAttempts,
+                              @Value("${app.notifications.email.retry-base-seconds:30}") long retryBaseSeconds) {
+        this.emailService = emailService;
+        this.emailOutboxDao = emailOutboxDao;
+        this.objectMapper = objectMapper;
+        this.backgroundThreadFactory = backgroundThreadFactory;
+        this.capacity = capacity;
+        this.maxAttempts = maxAttempts;
+        this.minSendIntervalMs = 60_000L / Math.max(1, maxPerMinute);
+        this.retryBaseMs = retryBaseSeconds * 1000L;
+        this.retryMaxMs = TimeUnit.HOURS.toMillis(1);
+    }
+
+    @PostConstruct
+    public void start() {
+        emailOutboxDao.createTableIfNotExists();
+        reloadPending();
+
+        dispatcher = Executors.newSingleThreadScheduledExecutor(backgroundThreadFactory);
+        dispatcher.scheduleWithFixedDelay(this::drain, 1, 1, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (dispatcher != null) {
+            dispatcher.shutdownNow();
+        }
+    }
+
+    /**
+     * Enfile un email d'alertes groupées. Ne bloque jamais sur ACS ; renvoie false si la file est pleine.
+     */
+    public synchronized boolean enqueue(String recipient, String parameterType, List<Alert> alerts) {
+        if (alerts == null || alerts.isEmpty()) {
+            return true;
+        }
+        String key = key(recipient, parameterType);
+
+        PendingEmail existing = pending.get(key);
+        if (existing != null) {
+            existing.alerts = merge(existing.alerts, alerts);
+            emailOutboxDao.updateAlerts(existing.id, toJson(existing.alerts));
+            log.debug("Merged {} alerts into pending email for {} ({})", alerts.size(), recipient, parameterType);
+            return true;
+        }
+
+        if (pending.size() >= capacity) {
+            droppedCount.incrementAndGet();
+            log.warn("Email dispatch queue full ({}), dropping {} alert notification for {}", capacity, parameterType, recipient);
+            return false;
+        }
+
+        PendingEmail email = new PendingEmail(UUID.randomUUID().toString(), recipient, parameterType,
+                new ArrayList<>(alerts), 0, System.currentTimeMillis());
+        emailOutboxDao.insert(email.toEntry(toJson(email.alerts)));
+        pending.put(key, email);
+        return true;
+    }
+
+    public synchronized Map<String, Object> describe() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", pending.size());
+        stats.put("capacity", capacity);
+        stats.put("sent", sentCount.get());
+        stats.put("failed", failedCount.get());
+        stats.put("dropped", droppedCount.get());
+        return stats;
+    }
+
+    /**
+     * Boucle du thread d'envoi : traite les emails dus dans la limite du débit autorisé.
+     */
+    void drain() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                long now = System.currentTimeMillis();
+                if (now < nextSendAllowedAt) {
+                    return;
+                }
+                PendingEmail email = takeDue(now);
+                if (email == null) {
+                    return;
+                }
+                send(email);
+                nextSendAllowedAt = System.currentTimeMillis() + minSendIntervalMs;
+            }
+        } catch (Exception e) {
+            log.error("Email dispatch loop error: {}", e.getMessage(), e);
+        }
+    }
+
+    private void send(PendingEmail email) {
+        try {
+            emailService.sendGroupedAlertEmail(email.recipient, email.alerts, email.parameterType);
+            emailOutboxDao.delete(email.id);
+            sentCount.incrementAndGet();
+            log.info("Grouped email alert sent to {} ({} alerts, {})", email.recipient, email.alerts.size(), email.parameterType);
+        } catch (Exception e) {
+            email.attempts++;
+            if (email.attempts >= maxAttempts) {
+                emailOutboxDao.markFailed(email.id, email.attempts);
+                failedCount.incrementAndGet();
+                log.error("Giving up grouped email alert to {} after {} attempts: {}", email.recipient, email.attempts, e.getMessage());
+                return;
+            }
+            long backoff = Math.min(retryMaxMs, retryBaseMs << Math.min(email.attempts - 1, 20));
+            email.nextAttemptAt = System.currentTimeMillis() + backoff;
+            emailOutboxDao.reschedule(email.id, email.attempts, email.nextAttemptAt);
+            log.warn("Grouped email alert to {} failed (attempt {}/{}), retrying in {} s: {}",
+                    email.recipient, email.attempts, maxAttempts, backoff / 1000, e.getMessage());
+            requeue(email);
+        }
+    }
+
+    private synchronized PendingEmail takeDue(long now) {
+        Iterator<PendingEmail> it = pending.values().iterator();
+        while (it.hasNext()) {
+            PendingEmail email = it.next();
+            if (email.nextAttemptAt <= now) {
+                it.remove();
+                return email;
+            }
+        }
+        return null;
+    }
+
+    // Un nouvel envoi pour la même clé a pu être enfilé pendant la tentative : on le complète
+    private synchronized void requeue(PendingEmail email) {
+        String key = key(email.recipient, email.parameterType);
+        PendingEmail newer = pending.get(key);
+        if (newer == null) {
+            pending.put(key, email);
+            return;
+        }
+        newer.alerts = merge(email.alerts, newer.alerts);
+        emailOutboxDao.updateAlerts(newer.id, toJson(newer.alerts));
+        emailOutboxDao.delete(email.id);
+    }
+
+    private synchronized void reloadPending() {
+        for (OutboxEntry entry : emailOutboxDao.findPending()) {
+            try {
+                List<Alert> alerts = objectMapper.readValue(entry.alertsJson(), ALERT_LIST);
+                PendingEmail email = new PendingEmail(entry.id(), entry.recipient(), entry.parameterType(),
+                        alerts, entry.attempts(), entry.nextAttemptAtMillis());
+                PendingEmail previous = pending.putIfAbsent(key(entry.recipient(), entry.parameterType()), email);
+                if (previous != null) {
+                    previous.alerts = merge(previous.alerts, alerts);
+                    emailOutboxDao.updateAlerts(previous.id, toJson(previous.alerts));
+                    emailOutboxDao.delete(entry.id());
+                }
+            } catch (Exception e) {
+                log.warn("Discarding unreadable outbox entry {}: {}", entry.id(), e.getMessage());
+                emailOutboxDao.markFailed(entry.id(), entry.attempts());
+            }
+        }
+        if (!pending.isEmpty()) {
+            log.info("Reloaded {} pending alert emails from outbox", pending.size());
+        }
+    }
+
+    // Les alertes les plus récentes remplacent celles de même niveau, titre et message
+    private static List<Alert> merge(List<Alert> older, List<Alert> newer) {
+        Map<String, Alert> merged = new LinkedHashMap<>();
+        for (Alert alert : older) {
+            merged.put(alert.getLevel() + "|" + alert.getTitle() + "|" + alert.getMessage(), alert);
+        }
+        for (Alert alert : newer) {
+            merged.put(alert.getLevel() + "|" + alert.getTitle() + "|" + alert.getMessage(), alert);
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    private String toJson(List<Alert> alerts) {
+        try {
+            return objectMapper.writeValueAsString(alerts);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unable to serialize alerts for outbox", e);
+        }
+    }
+
+    private static String key(String recipient, String parameterType) {
+        return recipient.trim().toLowerCase(Locale.ROOT) + "|" + parameterType;
+    }
+
+    private static final class PendingEmail {
+        private final String id;
+        private final String recipient;
+        private final String parameterType;
+        private List<Alert> alerts;
+        private int attempts;
+        private long nextAttemptAt;
+
+        private PendingEmail(String id, String recipient, String parameterType, List<Alert> alerts,
+                             int attempts, long nextAttemptAt) {
+            this.id = id;
+            this.recipient = recipient;
+            this.parameterType = parameterType;
+            this.alerts = alerts;
+            this.attempts = attempts;
+            this.nextAttemptAt = nextAttemptAt;
+        }
+
+        private OutboxEntry toEntry(String alertsJson) {
+            return new OutboxEntry(id, recipient, parameterType, alertsJson, attempts, nextAttemptAt);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.BuildingEnergyTariff;
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import com.amaris.sensorprocessor.entity.Sensor;
+import com.amaris.sensorprocessor.model.dashboard.EnergyCostReport;
+import com.amaris.sensorprocessor.model.dashboard.EnergyCostReport.CostBreakdown;
+import com.amaris.sensorprocessor.model.dashboard.EnergyCostReport.CostPoint;
+import com.amaris.sensorprocessor.model.dashboard.EnergyCostReport.PeriodTotals;
+import com.amaris.sensorprocessor.repository.BuildingEnergyConfigDao;
+import com.amaris.sensorprocessor.repository.BuildingEnergyTariffDao;
+import com.amaris.sensorprocessor.repository.EnergyCostMonthlyDao;
+import com.amaris.sensorprocessor.repository.EnergyCostMonthlyDao.MonthlyCost;
+import com.amaris.sensorprocessor.repository.EnergyDeltaHourlyDao;
+import com.amaris.sensorprocessor.repository.SensorDao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Coût de la consommation d'énergie par bâtiment, étage, canal et plage tarifaire, calculé depuis
+ * energy_delta_hourly : chaque heure est valorisée au tarif de la plage qui la couvre (heure de Paris).
+ *
+ * En granularité mensuelle, les mois clos entièrement couverts par la période sont lus dans
+ * energy_cost_monthly, et calculés puis enregistrés au premier accès. Le mois en cours et les mois
+ * partiels sont toujours recalculés depuis les heures.
+ */
+@Slf4j
+@Service
+public class EnergyCostService {
+
+    public enum Granularity { DAY, MONTH }
+
+    private static final ZoneId PARIS_ZONE = ZoneId.of("Europe/Paris");
+
+    private final SensorDao sensorDao;
+    private final BuildingEnergyConfigDao buildingEnergyConfigDao;
+    private final BuildingEnergyTariffDao buildingEnergyTariffDao;
+    private final EnergyDeltaHourlyDao energyDeltaHourlyDao;
+    private final EnergyCostMonthlyDao energyCostMonthlyDao;
+
+    public EnergyCostService(SensorDao sensorDao,
+                             BuildingEnergyConfigDao buildingEnergyConfigDao,
+                             BuildingEnergyTariffDao buildingEnergyTariffDao,
+                             EnergyDeltaHourlyDao energyDeltaHourlyDao,
+                             EnergyCostMonthlyDao energyCostMonthlyDao) {
+        this.sensorDao = sensorDao;
+        this.buildingEnergyConfigDao = buildingEnergyConfigDao;
+        this.buildingEnergyTariffDao = buildingEnergyTariffDao;
+        this.energyDeltaHourlyDao = energyDeltaHourlyDao;
+        this.energyCostMonthlyDao = energyCostMonthlyDao;
+    }
+
+    /**
+     * @param buildingId null pour tous les bâtiments
+     * @param from       premier jour (heure de Paris), inclus
+     * @param to         dernier jour, inclus
+     */
+    public EnergyCostReport getCostReport(Integer buildingId, LocalDate from, LocalDate to, Granularity granularity) {
+        if (from == null || to == null || from.isAfter(to)) {
+            throw new IllegalArgumentException("'from' must be on or before 'to'");
+        }
+
+        List<Sensor> sensors = buildingId != null
+                ? sensorDao.findAllByDeviceTypeAndBuilding("CONSO", buildingId)
+                : sensorDao.findAllByDeviceType("CONSO");
+        Map<String, Sensor> sensorsById = new LinkedHashMap<>();
+        sensors.forEach(sensor -> sensorsById.putIfAbsent(sensor.getIdSensor(), sensor));
+
+        Map<Integer, EnergyTariffSchedule> schedules = new HashMap<>();
+        EnergyTariffSchedule reportSchedule = scheduleFor(buildingId, schedules);
+
+        CostAccumulator current = aggregate(sensorsById, from, to, granularity, schedules);
+
+        LocalDate[] previousRange = previousPeriod(from, to);
+        CostAccumulator previous = aggregate(sensorsById, previousRange[0], previousRange[1], granularity, schedules);
+
+        return EnergyCostReport.builder()
+                .building(buildingId)
+                .currency(reportSchedule.currency())
+                .costPerKwh(reportSchedule.baseCostPerKwh())
+                .co2Factor(reportSchedule.co2Factor())
+                .tariffs(buildingId != null ? buildingEnergyTariffDao.findByBuildingId(buildingId) : List.of())
+                .granularity(granularity.name())
+                .from(from)
+                .to(to)
+                .totalEnergy(current.totalKwh)
+                .totalCost(current.totalCost)
+                .totalCo2(current.totalCo2)
+                .dailyData(current.points())
+                .byBuilding(CostAccumulator.breakdown(current.byBuilding))
+                .byFloor(CostAccumulator.breakdown(current.byFloor))
+                .byChannel(CostAccumulator.breakdown(current.byChannel))
+                .byBand(CostAccumulator.breakdown(current.byBand))
+                .previousPeriod(new PeriodTotals(previousRange[0], previousRange[1],
+                        previous.totalKwh, previous.totalCost, previous.totalCo2))
+                .energyChangePercent(changePercent(current.totalKwh, previous.totalKwh))
+                .costChangePercent(changePercent(current.totalCost, previous.totalCost))
+                .build();
+    }
+
+    public List<BuildingEnergyTariff> getTariffs(Integer buildingId) {
+        return buildingEnergyTariffDao.findByBuildingId(buildingId);
+    }
+
+    public void saveTariff(BuildingEnergyTariff tariff) {
+        if (tariff.getBuildingId() == null) {
+            throw new IllegalArgumentException("Building ID is required");
+        }
+        if (tariff.getName() == null || tariff.getName().isBlank()
+                || EnergyTariffSchedule.BASE_BAND.equalsIgnoreCase(tariff.getName().trim())) {
+            throw new IllegalArgumentException("Tariff name is required and cannot be " + EnergyTariffSchedule.BASE_BAND);
+        }
+        if (tariff.getStartHour() == null || tariff.getStartHour() < 0 || tariff.getStartHour() > 23
+                || tariff.getEndHour() == null || tariff.getEndHour() < 1 || tariff.getEndHour() > 24) {
+            throw new IllegalArgumentException("Start hour must be 0-23 and end hour 1-24");
+        }
+        if (tariff.getCostPerKwh() == null || tariff.getCostPerKwh() < 0) {
+            throw new IllegalArgumentException("Energy cost must be a positive number");
+        }
+        tariff.setName(tariff.getName().trim());
+        buildingEnergyTariffDao.save(tariff);
+        invalidateBuilding(tariff.getBuildingId());
+    }
+
+    public void deleteTariff(Integer buildingId, Long id) {
+        buildingEnergyTariffDao.delete(buildingId, id);
+        invalidateBuilding(buildingId);
+    }
+
+    /**
+     * À appeler quand le tarif de base, le facteur CO2 ou les plages d'un bâtiment changent.
+     */
+    public void invalidateBuilding(Integer buildingId) {
+        if (buildingId != null) {
+            energyCostMonthlyDao.deleteByBuilding(buildingId);
+        }
+    }
+
+    private CostAccumulator aggregate(Map<String, Sensor> sensorsById, LocalDate from, LocalDate to,
+                                      Granularity granularity, Map<Integer, EnergyTariffSchedule> schedules) {
+        CostAccumulator accumulator = new CostAccumulator(granularity, from, to);
+        if (sensorsById.isEmpty()) {
+            return accumulator;
+        }
+
+        LocalDate currentMonth = LocalDate.now(PARIS_ZONE).withDayOfMonth(1);
+        List<LocalDate> cachedMonths = new ArrayList<>();
+        LocalDate hourlyFrom = null;
+        LocalDate cursor = from;
+        while (!cursor.isAfter(to)) {
+            LocalDate monthStart = cursor.withDayOfMonth(1);
+            LocalDate monthEnd = monthStart.plusMonths(1).minusDays(1);
+            boolean cacheable = granularity == Granularity.MONTH
+                    && cursor.equals(monthStart)
+                    && !monthEnd.isAfter(to)
+                    && monthStart.isBefore(currentMonth);
+            if (cacheable) {
+                if (hourlyFrom != null) {
+                    addHourly(sensorsById, hourlyFrom, cursor.minusDays(1), schedules, accumulator);
+                    hourlyFrom = null;
+                }
+                cachedMonths.add(monthStart);
+            } else if (hourlyFrom == null) {
+                hourlyFrom = cursor;
+            }
+            cursor = monthEnd.plusDays(1);
+        }
+        if (hourlyFrom != null) {
+            addHourly(sensorsById, hourlyFrom, to, schedules, accumulator);
+        }
+        if (!cachedMonths.isEmpty()) {
+            addClosedMonths(sensorsById, cachedMonths, schedules, accumulator);
+        }
+        return accumulator;
+    }
+
+    private void addHourly(Map<String, Sensor> sensorsById, LocalDate from, LocalDate to,
+                           Map<Integer, EnergyTariffSchedule> schedules, CostAccumulator accumulator) {
+        energyDeltaHourlyDao.forEachHourly(new ArrayList<>(sensorsById.keySet()), EnergyDeltaRollupService.ENERGY_CHANNELS,
+                utcStartOf(from), utcStartOf(to.plusDays(1)), hour -> {
+                    Sensor sensor = sensorsById.get(hour.sensorId());
+                    EnergyTariffSchedule schedule = scheduleFor(sensor.getBuildingId(), schedules);
+                    EnergyTariffSchedule.Band band = schedule.bandAt(hour.hourUtc());
+                    double kwh = hour.wh() / 1000d;
+                    accumulator.add(sensor, hour.valueType(), band.name(), parisDateOf(hour.hourUtc()),
+                            kwh, kwh * band.costPerKwh(), schedule.co2Factor());
+                });
+    }
+
+    private void addClosedMonths(Map<String, Sensor> sensorsById, List<LocalDate> months,
+                                 Map<Integer, EnergyTariffSchedule> schedules, CostAccumulator accumulator) {
+        List<MonthlyCost> rows = new ArrayList<>(energyCostMonthlyDao.findByMonthsAndSensorIds(months, sensorsById.keySet()));
+        Map<LocalDate, Set<String>> computed = new HashMap<>();
+        rows.forEach(row -> computed.computeIfAbsent(row.monthStart(), ignored -> new HashSet<>()).add(row.sensorId()));
+
+        for (LocalDate month : months) {
+            Set<String> done = computed.getOrDefault(month, Set.of());
+            List<String> missing = sensorsById.keySet().stream().filter(id -> !done.contains(id)).toList();
+            if (!missing.isEmpty()) {
+                rows.addAll(computeMonth(sensorsById, month, missing, schedules));
+            }
+        }
+
+        for (MonthlyCost row : rows) {
+            Sensor sensor = sensorsById.get(row.sensorId());
+            if (sensor == null) {
+                continue;
+            }
+            accumulator.add(sensor, row.valueType(), row.band(), row.monthStart(), row.kwh(), row.cost(),
+                    scheduleFor(sensor.getBuildingId(), schedules).co2Factor());
+        }
+    }
+
+    /**
+     * Valorise un mois clos pour les capteurs donnés et l'enregistre dans energy_cost_monthly.
+     */
+    private List<MonthlyCost> computeMonth(Map<String, Sensor> sensorsById, LocalDate month, List<String> sensorIds,
+                                           Map<Integer, EnergyTariffSchedule> schedules) {
+        // clé : capteur, canal, plage -> [kWh, coût]
+        Map<String, Map<PayloadValueType, Map<String, double[]>>> totals = new LinkedHashMap<>();
+        energyDeltaHourlyDao.forEachHourly(sensorIds, EnergyDeltaRollupService.ENERGY_CHANNELS,
+                utcStartOf(month), utcStartOf(month.plusMonths(1)), hour -> {
+                    Sensor sensor = sensorsById.get(hour.sensorId());
+                    EnergyTariffSchedule.Band band = scheduleFor(sensor.getBuildingId(), schedules).bandAt(hour.hourUtc());
+                    double kwh = hour.wh() / 1000d;
+                    double[] sums = totals.computeIfAbsent(hour.sensorId(), ignored -> new TreeMap<>())
+                            .computeIfAbsent(hour.valueType(), ignored -> new TreeMap<>())
+                            .computeIfAbsent(band.name(), ignored -> new double[2]);
+                    sums[0] += kwh;
+                    sums[1] += kwh * band.costPerKwh();
+                });
+
+        List<MonthlyCost> rows = new ArrayList<>();
+        Map<String, Integer> buildingBySensor = new HashMap<>();
+        for (String sensorId : sensorIds) {
+            buildingBySensor.put(sensorId, sensorsById.get(sensorId).getBuildingId());
+            Map<PayloadValueType, Map<String, double[]>> byType = totals.get(sensorId);
+            if (byType == null) {
+                // Mois calculé sans consommation
+                rows.add(new MonthlyCost(month, sensorId, PayloadValueType.ENERGY_TOTAL, EnergyTariffSchedule.BASE_BAND, 0, 0));
+                continue;
+            }
+            byType.forEach((type, byBand) -> byBand.forEach((band, sums) ->
+                    rows.add(new MonthlyCost(month, sensorId, type, band, sums[0], sums[1]))));
+        }
+        energyCostMonthlyDao.saveAll(rows, buildingBySensor);
+        log.debug("[energy-cost] month {} computed for {} sensor(s)", month, sensorIds.size());
+        return rows;
+    }
+
+    private EnergyTariffSchedule scheduleFor(Integer buildingId, Map<Integer, EnergyTariffSchedule> schedules) {
+        return schedules.computeIfAbsent(buildingId, id -> EnergyTariffSchedule.of(
+                buildingEnergyConfigDao.findByBuildingId(id),
+                id != null ? buildingEnergyTariffDao.findByBuildingId(id) : List.of()));
+    }
+
+    /**
+     * Période précédente de même longueur : les mêmes nombres de mois si la période couvre des mois
+     * entiers, sinon le même nombre de jours.
+     */
+    static LocalDate[] previousPeriod(LocalDate from, LocalDate to) {
+        LocalDate previousTo = from.minusDays(1);
+        if (from.getDayOfMonth() == 1 && to.plusDays(1).getDayOfMonth() == 1) {
+            long months = ChronoUnit.MONTHS.between(from, to.plusDays(1));
+            return new LocalDate[]{from.minusMonths(months), previousTo};
+        }
+        long days = ChronoUnit.DAYS.between(from, to) + 1;
+        return new LocalDate[]{from.minusDays(days), previousTo};
+    }
+
+    private static Double changePercent(double current, double previous) {
+        if (previous <= 0) {
+            return null;
+        }
+        return (current - previous) / previous * 100d;
+    }
+
+    private static LocalDateTime utcStartOf(LocalDate parisDay) {
+        return parisDay.atStartOfDay(PARIS_ZONE).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+    }
+
+    private static LocalDate parisDateOf(LocalDateTime hourUtc) {
+        return hourUtc.atZone(ZoneOffset.UTC).withZoneSameInstant(PARIS_ZONE).toLocalDate();
+    }
+
+    /**
+     * Totaux d'une période, par point de la série et par axe de ventilation.
+     */
+    private static final class CostAccumulator {
+
+        private final Granularity granularity;
+        private final Map<LocalDate, double[]> series = new TreeMap<>();
+        private final Map<String, double[]> byBuilding = new TreeMap<>();
+        private final Map<String, double[]> byFloor = new TreeMap<>();
+        private final Map<String, double[]> byChannel = new TreeMap<>();
+        private final Map<String, double[]> byBand = new TreeMap<>();
+        private double totalKwh;
+        private double totalCost;
+        private double totalCo2;
+
+        CostAccumulator(Granularity granularity, LocalDate from, LocalDate to) {
+            this.granularity = granularity;
+            // Un point par jour ou par mois, y compris sans consommation
+            for (LocalDate day = bucketOf(from); !day.isAfter(to);
+                 day = granularity == Granularity.MONTH ? day.plusMonths(1) : day.plusDays(1)) {
+                series.put(day, new double[3]);
+            }
+        }
+
+        void add(Sensor sensor, PayloadValueType channel, String band, LocalDate day,
+                 double kwh, double cost, double co2Factor) {
+            if (kwh == 0 && cost == 0) {
+                return;
+            }
+            double co2 = kwh * co2Factor;
+            double[] point = series.computeIfAbsent(bucketOf(day), ignored -> new double[3]);
+            point[0] += kwh;
+            point[1] += cost;
+            point[2] += co2;
+            String building = String.valueOf(sensor.getBuildingId());
+            add(byBuilding, building, kwh, cost);
+            add(byFloor, building + "/" + sensor.getFloor(), kwh, cost);
+            add(byChannel, channel.name(), kwh, cost);
+            add(byBand, band, kwh, cost);
+            totalKwh += kwh;
+            totalCost += cost;
+            totalCo2 += co2;
+        }
+
+        List<CostPoint> points() {
+            List<CostPoint> points = new ArrayList<>(series.size());
+            series.forEach((period, sums) -> points.add(new CostPoint(period, sums[0], sums[1], sums[2])));
+            return points;
+        }
+
+        static List<CostBreakdown> breakdown(Map<String, double[]> totals) {
+            List<CostBreakdown> result = new ArrayList<>(totals.size());
+            totals.forEach((key, sums) -> result.add(new CostBreakdown(key, sums[0], sums[1])));
+            return result;
+        }
+
+        private LocalDate bucketOf(LocalDate day) {
+            return granularity == Granularity.MONTH ? day.withDayOfMonth(1) : day;
+        }
+
+        private static void add(Map<String, double[]> totals, String key, double kwh, double cost) {
+            double[] sums = totals.computeIfAbsent(key, ignored -> new double[2]);
+            sums[0] += kwh;
+            sums[1] += cost;
+        }
+    }
+}
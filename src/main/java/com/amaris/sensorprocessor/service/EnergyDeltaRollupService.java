@@ -0,0 +1,320 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import com.amaris.sensorprocessor.repository.EnergyCostMonthlyDao;
+import com.amaris.sensorprocessor.repository.EnergyDeltaHourlyDao;
+import com.amaris.sensorprocessor.repository.EnergyDeltaHourlyDao.HourlyDelta;
+import com.amaris.sensorprocessor.repository.SensorDao;
+import com.amaris.sensorprocessor.repository.SensorDataDao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Alimente energy_delta_hourly à l'ingestion : chaque nouvelle trame d'un compteur ENERGY_CHANNEL_*
+ * ajoute l'écart avec la trame précédente du même canal aux heures qu'il couvre.
+ *
+ * Les règles sont appliquées ici une seule fois pour tous les écrans :
+ * - un écart négatif est une remise à zéro du compteur : il compte 0 Wh et incrémente resets, la
+ *   consommation reprend à partir de la nouvelle valeur ;
+ * - un écart couvrant plusieurs heures (trames manquantes) est réparti au prorata du temps passé dans
+ *   chaque heure, jusqu'à energy.rollup.max-spread-gap-hours ; au-delà, il est compté sur l'heure de
+ *   la trame qui le révèle.
+ *
+ * La dernière trame connue par canal est gardée en mémoire. Un capteur pas encore rattrapé depuis le
+ * démarrage est mis en file pour le job de rattrapage (energy-rollup-catchup), jamais recalculé sur le
+ * thread d'ingestion : ses heures sont recalculées depuis sensor_data à partir de la dernière heure
+ * agrégée, ce qui couvre aussi les trames reçues pendant un arrêt et celles arrivées entre-temps.
+ * ENERGY_TOTAL n'est pas stocké : c'est la somme des canaux.
+ *
+ * Toute écriture dans un mois clos supprime les coûts mis en cache pour ce capteur à partir de ce
+ * mois (energy_cost_monthly), qui seront recalculés au prochain accès.
+ */
+@Slf4j
+@Service
+public class EnergyDeltaRollupService {
+
+    public static final String JOB_NAME = "energy-rollup-catchup";
+
+    public static final List<PayloadValueType> ENERGY_CHANNELS = Arrays.stream(PayloadValueType.values())
+            .filter(type -> type.name().startsWith("ENERGY_CHANNEL_"))
+            .toList();
+    private static final Set<PayloadValueType> ENERGY_CHANNEL_SET = EnumSet.copyOf(ENERGY_CHANNELS);
+    private static final ZoneId PARIS_ZONE = ZoneId.of("Europe/Paris");
+    private static final LocalDate ALL_MONTHS = LocalDate.of(1970, 1, 1);
+
+    private final EnergyDeltaHourlyDao energyDeltaHourlyDao;
+    private final EnergyCostMonthlyDao energyCostMonthlyDao;
+    private final SensorDataDao sensorDataDao;
+    private final SensorDao sensorDao;
+    private final ScheduledJobRunner scheduledJobRunner;
+    private final Duration maxSpreadGap;
+
+    // Capteurs rattrapés : dernière trame par canal
+    private final Map<String, Map<PayloadValueType, Reading>> lastReadings = new ConcurrentHashMap<>();
+    // ReentrantLock plutôt que synchronized : les écritures JDBC n'épinglent pas les threads virtuels
+    private final Map<String, ReentrantLock> sensorLocks = new ConcurrentHashMap<>();
+    // Capteurs à rattraper par le job, et job déjà soumis ou en cours
+    private final Set<String> pendingCatchUp = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean catchUpScheduled = new AtomicBoolean();
+    private final AtomicBoolean catchUpAllPending = new AtomicBoolean();
+
+    public EnergyDeltaRollupService(EnergyDeltaHourlyDao energyDeltaHourlyDao,
+                                    EnergyCostMonthlyDao energyCostMonthlyDao,
+                                    SensorDataDao sensorDataDao,
+                                    SensorDao sensorDao,
+                                    ScheduledJobRunner scheduledJobRunner,
+                                    @Value("${energy.rollup.max-spread-gap-hours:24}") long maxSpreadGapHours) {
+        this.energyDeltaHourlyDao = energyDeltaHourlyDao;
+        this.energyCostMonthlyDao = energyCostMonthlyDao;
+        this.sensorDataDao = sensorDataDao;
+        this.sensorDao = sensorDao;
+        this.scheduledJobRunner = scheduledJobRunner;
+        this.maxSpreadGap = Duration.ofHours(Math.max(1, maxSpreadGapHours));
+    }
+
+    /**
+     * Trame ingérée (received_at tel que stocké, en UTC). Ne lève pas d'exception : en cas d'échec,
+     * le capteur sera recalculé depuis sensor_data par le job de rattrapage à sa prochaine trame.
+     */
+    public void record(String sensorId, LocalDateTime receivedAtUtc, PayloadValueType type, String value) {
+        if (sensorId == null || receivedAtUtc == null || !ENERGY_CHANNEL_SET.contains(type)) {
+            return;
+        }
+        double parsed;
+        try {
+            parsed = Double.parseDouble(value);
+        } catch (NumberFormatException | NullPointerException e) {
+            return;
+        }
+
+        if (!lastReadings.containsKey(sensorId)) {
+            // Pas encore rattrapé : le job relira aussi cette trame depuis sensor_data
+            requestCatchUp(sensorId);
+            return;
+        }
+
+        ReentrantLock lock = lockFor(sensorId);
+        lock.lock();
+        try {
+            try {
+                Map<PayloadValueType, Reading> readings = lastReadings.get(sensorId);
+                if (readings == null) {
+                    requestCatchUp(sensorId);
+                    return;
+                }
+
+                Reading current = new Reading(receivedAtUtc, parsed);
+                Reading previous = readings.get(type);
+                if (previous != null && !receivedAtUtc.isAfter(previous.receivedAtUtc())) {
+                    // Trame rejouée en retard : l'écart suivant la couvre déjà (somme télescopique)
+                    log.debug("[energy-rollup] out-of-order {} {} at {} ignored", sensorId, type, receivedAtUtc);
+                    return;
+                }
+                readings.put(type, current);
+                if (previous == null) {
+                    return;
+                }
+
+                Map<LocalDateTime, Double> whByHour = new TreeMap<>();
+                boolean reset = distribute(previous, current, maxSpreadGap, whByHour);
+                if (reset) {
+                    log.info("[energy-rollup] counter reset {} {} at {}: {} -> {} Wh",
+                            sensorId, type, receivedAtUtc, previous.value(), parsed);
+                }
+                energyDeltaHourlyDao.addDeltas(sensorId, type, whByHour, reset ? 1 : 0);
+                if (!whByHour.isEmpty()) {
+                    invalidateClosedMonths(sensorId, whByHour.keySet().iterator().next());
+                }
+            } catch (Exception e) {
+                lastReadings.remove(sensorId);
+                log.error("[energy-rollup] unable to record {} {} at {}: {}", sensorId, type, receivedAtUtc, e.getMessage(), e);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Au démarrage, rattrape en arrière-plan tous les capteurs de consommation pour que les écrans
+     * n'attendent pas leur prochaine trame.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void catchUpOnStartup() {
+        catchUpAllPending.set(true);
+        scheduleCatchUp();
+    }
+
+    private void requestCatchUp(String sensorId) {
+        pendingCatchUp.add(sensorId);
+        scheduleCatchUp();
+    }
+
+    /**
+     * Soumet le job s'il n'est pas déjà prévu ; sinon l'exécution en cours reprendra la file avant
+     * de se terminer.
+     */
+    private void scheduleCatchUp() {
+        if (catchUpScheduled.compareAndSet(false, true) && !scheduledJobRunner.submit(JOB_NAME, this::runCatchUp)) {
+            catchUpScheduled.set(false);
+        }
+    }
+
+    private void runCatchUp() {
+        do {
+            try {
+                catchUpPending();
+            } finally {
+                catchUpScheduled.set(false);
+            }
+            // Capteurs mis en file pendant le rattrapage : reprise sans nouvelle soumission
+        } while (!pendingCatchUp.isEmpty() && !Thread.currentThread().isInterrupted()
+                && catchUpScheduled.compareAndSet(false, true));
+    }
+
+    private void catchUpPending() {
+        if (catchUpAllPending.getAndSet(false)) {
+            sensorDao.findAllByDeviceType("CONSO").forEach(sensor -> pendingCatchUp.add(sensor.getIdSensor()));
+        }
+        int caughtUp = 0;
+        int total = 0;
+        for (String sensorId : pendingCatchUp) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            pendingCatchUp.remove(sensorId);
+            total++;
+            ReentrantLock lock = lockFor(sensorId);
+            lock.lock();
+            try {
+                if (!lastReadings.containsKey(sensorId)) {
+                    catchUpLocked(sensorId);
+                    caughtUp++;
+                }
+            } catch (Exception e) {
+                // Remis en file à sa prochaine trame
+                log.error("[energy-rollup] catch-up failed for {}: {}", sensorId, e.getMessage(), e);
+            } finally {
+                lock.unlock();
+            }
+        }
+        log.info("[energy-rollup] catch-up done for {}/{} sensor(s)", caughtUp, total);
+    }
+
+    /**
+     * Recalcule les heures du capteur depuis sa dernière heure agrégée (incluse, elle peut être
+     * incomplète), ou tout son historique s'il n'a jamais été agrégé, puis l'arme pour l'ingestion.
+     */
+    private void catchUpLocked(String sensorId) {
+        LocalDateTime fromHour = energyDeltaHourlyDao.findLatestHour(sensorId).orElse(null);
+        // Les trames précédant fromHour ne servent que de référence pour le premier écart
+        LocalDateTime readFrom = fromHour != null ? fromHour.minus(maxSpreadGap) : null;
+
+        Map<PayloadValueType, Reading> readings = new EnumMap<>(PayloadValueType.class);
+        Map<PayloadValueType, Map<LocalDateTime, double[]>> hoursByType = new EnumMap<>(PayloadValueType.class);
+        Map<LocalDateTime, Double> whByHour = new TreeMap<>();
+
+        sensorDataDao.forEachNumericReading(sensorId, ENERGY_CHANNELS, readFrom, null, (type, receivedAtUtc, value) -> {
+            Reading current = new Reading(receivedAtUtc, value);
+            Reading previous = readings.put(type, current);
+            if (previous == null) {
+                return;
+            }
+            whByHour.clear();
+            boolean reset = distribute(previous, current, maxSpreadGap, whByHour);
+            Map<LocalDateTime, double[]> hours = hoursByType.computeIfAbsent(type, ignored -> new TreeMap<>());
+            whByHour.forEach((hour, wh) -> {
+                if (fromHour == null || !hour.isBefore(fromHour)) {
+                    double[] totals = hours.computeIfAbsent(hour, ignored -> new double[2]);
+                    totals[0] += wh;
+                    if (reset && hour.equals(receivedAtUtc.truncatedTo(ChronoUnit.HOURS))) {
+                        totals[1]++;
+                    }
+                }
+            });
+        });
+
+        List<HourlyDelta> rows = new ArrayList<>();
+        hoursByType.forEach((type, hours) -> hours.forEach((hour, totals) ->
+                rows.add(new HourlyDelta(sensorId, type, hour, totals[0], (int) totals[1]))));
+        energyDeltaHourlyDao.replaceFrom(sensorId, fromHour, rows);
+        energyCostMonthlyDao.deleteFromMonth(sensorId, fromHour != null ? parisMonthOf(fromHour) : ALL_MONTHS);
+        lastReadings.put(sensorId, new ConcurrentHashMap<>(readings));
+    }
+
+    private void invalidateClosedMonths(String sensorId, LocalDateTime firstHourUtc) {
+        LocalDate month = parisMonthOf(firstHourUtc);
+        if (month.isBefore(LocalDate.now(PARIS_ZONE).withDayOfMonth(1))) {
+            energyCostMonthlyDao.deleteFromMonth(sensorId, month);
+        }
+    }
+
+    private static LocalDate parisMonthOf(LocalDateTime hourUtc) {
+        return hourUtc.atZone(ZoneOffset.UTC).withZoneSameInstant(PARIS_ZONE).toLocalDate().withDayOfMonth(1);
+    }
+
+    private ReentrantLock lockFor(String sensorId) {
+        return sensorLocks.computeIfAbsent(sensorId, ignored -> new ReentrantLock());
+    }
+
+    /**
+     * Répartit l'écart entre deux trames consécutives d'un canal sur les heures UTC qu'il couvre.
+     *
+     * @return true si l'écart est une remise à zéro du compteur (0 Wh, compté sur l'heure de la trame)
+     */
+    static boolean distribute(Reading previous, Reading current, Duration maxSpreadGap,
+                              Map<LocalDateTime, Double> whByHour) {
+        LocalDateTime arrivalHour = current.receivedAtUtc().truncatedTo(ChronoUnit.HOURS);
+        double delta = current.value() - previous.value();
+        if (delta < 0) {
+            whByHour.merge(arrivalHour, 0d, Double::sum);
+            return true;
+        }
+        if (delta == 0) {
+            return false;
+        }
+
+        LocalDateTime from = previous.receivedAtUtc();
+        LocalDateTime to = current.receivedAtUtc();
+        Duration gap = Duration.between(from, to);
+        if (!from.truncatedTo(ChronoUnit.HOURS).isBefore(arrivalHour) || gap.compareTo(maxSpreadGap) > 0) {
+            whByHour.merge(arrivalHour, delta, Double::sum);
+            return false;
+        }
+
+        // Au prorata du temps passé dans chaque heure entre les deux trames
+        double gapNanos = gap.toNanos();
+        for (LocalDateTime hour = from.truncatedTo(ChronoUnit.HOURS); hour.isBefore(to); hour = hour.plusHours(1)) {
+            LocalDateTime start = from.isAfter(hour) ? from : hour;
+            LocalDateTime end = to.isBefore(hour.plusHours(1)) ? to : hour.plusHours(1);
+            double share = delta * Duration.between(start, end).toNanos() / gapNanos;
+            if (share > 0) {
+                whByHour.merge(hour, share, Double::sum);
+            }
+        }
+        return false;
+    }
+
+    record Reading(LocalDateTime receivedAtUtc, double value) {
+    }
+}
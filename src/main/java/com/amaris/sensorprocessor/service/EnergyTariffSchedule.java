@@ -0,0 +1,93 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.BuildingEnergyConfig;
+import com.amaris.sensorprocessor.entity.BuildingEnergyTariff;
+
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Grille tarifaire d'un bâtiment : plages horaires (heure de Paris) avec leur prix au kWh, et tarif
+ * de base pour les heures couvertes par aucune plage. En cas de chevauchement, la première plage
+ * l'emporte.
+ */
+public final class EnergyTariffSchedule {
+
+    public static final String BASE_BAND = "BASE";
+
+    private static final ZoneId PARIS_ZONE = ZoneId.of("Europe/Paris");
+
+    private final double baseCostPerKwh;
+    private final double co2Factor;
+    private final String currency;
+    private final List<Window> windows;
+
+    public EnergyTariffSchedule(double baseCostPerKwh, double co2Factor, String currency, List<Window> windows) {
+        this.baseCostPerKwh = baseCostPerKwh;
+        this.co2Factor = co2Factor;
+        this.currency = currency;
+        this.windows = List.copyOf(windows);
+    }
+
+    public static EnergyTariffSchedule of(Optional<BuildingEnergyConfig> config, List<BuildingEnergyTariff> tariffs) {
+        List<Window> windows = tariffs.stream()
+                .filter(t -> t.getName() != null && t.getStartHour() != null && t.getEndHour() != null && t.getCostPerKwh() != null)
+                .map(t -> new Window(t.getName(), t.getStartHour(), t.getEndHour(),
+                        Boolean.TRUE.equals(t.getWeekdaysOnly()), t.getCostPerKwh()))
+                .toList();
+        return new EnergyTariffSchedule(
+                config.map(BuildingEnergyConfig::getEnergyCostPerKwh).orElse(0.0),
+                config.map(BuildingEnergyConfig::getCo2EmissionFactor).orElse(0.0),
+                config.map(BuildingEnergyConfig::getCurrency).orElse("EUR"),
+                windows);
+    }
+
+    /**
+     * Plage applicable à l'heure commençant à hourUtc (UTC, comme energy_delta_hourly.hour_start).
+     */
+    public Band bandAt(LocalDateTime hourUtc) {
+        ZonedDateTime local = hourUtc.atZone(ZoneOffset.UTC).withZoneSameInstant(PARIS_ZONE);
+        for (Window window : windows) {
+            if (window.covers(local.getDayOfWeek(), local.getHour())) {
+                return new Band(window.name(), window.costPerKwh());
+            }
+        }
+        return new Band(BASE_BAND, baseCostPerKwh);
+    }
+
+    public double baseCostPerKwh() {
+        return baseCostPerKwh;
+    }
+
+    public double co2Factor() {
+        return co2Factor;
+    }
+
+    public String currency() {
+        return currency;
+    }
+
+    /**
+     * @param startHour 0-23, inclus
+     * @param endHour   1-24, exclu ; endHour <= startHour désigne une plage qui passe minuit
+     */
+    public record Window(String name, int startHour, int endHour, boolean weekdaysOnly, double costPerKwh) {
+
+        boolean covers(DayOfWeek day, int hour) {
+            if (weekdaysOnly && (day == DayOfWeek.SATURDAY || day == DayOfWeek.SUNDAY)) {
+                return false;
+            }
+            return startHour < endHour
+                    ? hour >= startHour && hour < endHour
+                    : hour >= startHour || hour < endHour;
+        }
+    }
+
+    public record Band(String name, double costPerKwh) {
+    }
+}
@@ -0,0 +1,114 @@
+package com.amaris.sensorprocessor.service;
+
+import java.util.Arrays;
+
+/**
+ * Rééchantillonnage de plusieurs canaux sur un axe de temps régulier, en tableaux primitifs.
+ *
+ * L'axe est un long[] de débuts de pas (epoch ms) et les valeurs une matrice double[canal][pas] où
+ * NaN signifie « pas de valeur ». Chaque case reçoit la dernière valeur connue à la fin du pas :
+ * dernière trame du pas si elle existe, sinon valeur du pas précédent (forward-fill), en partant de la
+ * valeur de départ du canal (dernière valeur avant le début de l'axe). Aucune allocation par pas, là
+ * où l'ancienne version copiait une Map des dernières valeurs à chaque heure.
+ *
+ * Utilisation : seed() pour chaque canal, accept() pour chaque trame dans l'ordre chronologique du
+ * canal, puis fill() une seule fois.
+ */
+public final class ForwardFillResampler {
+
+    /** Garde-fou contre un pas trop fin sur une longue période. */
+    public static final int MAX_BUCKETS = 200_000;
+
+    private final long startMillis;
+    private final long stepMillis;
+    private final long[] axis;
+    private final double[] seeds;
+    private final double[][] values;
+    private boolean filled;
+
+    /**
+     * @param startMillis début du premier pas (inclus)
+     * @param endMillis   fin de la période (exclue) ; le dernier pas peut la dépasser
+     * @param stepMillis  durée d'un pas
+     * @param channels    nombre de canaux
+     */
+    public ForwardFillResampler(long startMillis, long endMillis, long stepMillis, int channels) {
+        if (stepMillis <= 0 || endMillis <= startMillis || channels <= 0) {
+            throw new IllegalArgumentException("Invalid resampling window: start=" + startMillis
+                    + ", end=" + endMillis + ", step=" + stepMillis + ", channels=" + channels);
+        }
+        long buckets = (endMillis - startMillis + stepMillis - 1) / stepMillis;
+        if (buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("Too many buckets (" + buckets + " > " + MAX_BUCKETS + "), use a larger step");
+        }
+
+        this.startMillis = startMillis;
+        this.stepMillis = stepMillis;
+        this.axis = new long[(int) buckets];
+        for (int i = 0; i < axis.length; i++) {
+            axis[i] = startMillis + i * stepMillis;
+        }
+        this.seeds = new double[channels];
+        Arrays.fill(seeds, Double.NaN);
+        this.values = new double[channels][axis.length];
+        for (double[] row : values) {
+            Arrays.fill(row, Double.NaN);
+        }
+    }
+
+    /**
+     * Valeur connue avant le début de l'axe (typiquement la dernière trame avant la période).
+     */
+    public void seed(int channel, double value) {
+        seeds[channel] = value;
+    }
+
+    /**
+     * Trame d'un canal. Les trames hors de l'axe et les NaN sont ignorés ; dans un même pas, la dernière
+     * trame reçue l'emporte.
+     */
+    public void accept(int channel, long timestampMillis, double value) {
+        if (Double.isNaN(value) || timestampMillis < startMillis) {
+            return;
+        }
+        long bucket = (timestampMillis - startMillis) / stepMillis;
+        if (bucket < axis.length) {
+            values[channel][(int) bucket] = value;
+        }
+    }
+
+    /**
+     * Propage les valeurs dans les pas sans trame.
+     *
+     * @return la matrice [canal][pas], NaN tant qu'aucune valeur n'est connue pour le canal
+     */
+    public double[][] fill() {
+        if (!filled) {
+            for (int channel = 0; channel < values.length; channel++) {
+                double[] row = values[channel];
+                double carry = seeds[channel];
+                for (int i = 0; i < row.length; i++) {
+                    if (Double.isNaN(row[i])) {
+                        row[i] = carry;
+                    } else {
+                        carry = row[i];
+                    }
+                }
+            }
+            filled = true;
+        }
+        return values;
+    }
+
+    public long[] axis() {
+        return axis;
+    }
+
+    public int channels() {
+        return values.length;
+    }
+
+    public int buckets() {
+        return axis.length;
+    }
+}
@@ -0,0 +1,122 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.MonitoringGatewayData;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Une seule session de monitoring amont par gateway, partagée par tous les spectateurs.
+ *
+ * Le premier spectateur démarre la collecte sur la gateway (/api/monitoring/gateway/{id}),
+ * les suivants reçoivent immédiatement la dernière trame puis le flux commun. Les trames ne sont
+ * persistées qu'une fois, et stopMonitoring n'est appelé qu'après le départ du dernier
+ * spectateur, passé un délai de grâce (rechargement de page, changement d'onglet).
+ */
+@Slf4j
+@Service
+public class GatewayMonitoringSessionManager {
+
+    private static final Duration SNAPSHOT_TIMEOUT = Duration.ofSeconds(20);
+
+    private final GatewayService gatewayService;
+    private final Duration linger;
+    private final Map<String, GatewaySession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong sessionSequence = new AtomicLong();
+
+    public GatewayMonitoringSessionManager(GatewayService gatewayService,
+                                           @Value("${app.gateway.monitoring.linger-seconds:30}") long lingerSeconds) {
+        this.gatewayService = gatewayService;
+        this.linger = Duration.ofSeconds(lingerSeconds);
+    }
+
+    /**
+     * Flux de monitoring partagé de la gateway ; la dernière trame reçue est rejouée à l'abonnement.
+     */
+    public Flux<MonitoringGatewayData> join(String gatewayId, String ipAddress) {
+        // Une session terminée (erreur amont ou délai de grâce écoulé) est remplacée par une neuve
+        GatewaySession session = sessions.compute(gatewayId, (id, existing) ->
+                existing != null && !existing.terminated
+                        ? existing
+                        : new GatewaySession(id, ipAddress));
+        return session.frames
+                .doOnSubscribe(s -> session.viewers.incrementAndGet())
+                .doFinally(signal -> session.viewers.decrementAndGet());
+    }
+
+    public boolean hasActiveSession(String gatewayId) {
+        GatewaySession session = sessions.get(gatewayId);
+        return session != null && session.isConnected();
+    }
+
+    public int viewerCount(String gatewayId) {
+        GatewaySession session = sessions.get(gatewayId);
+        return session != null ? session.viewers.get() : 0;
+    }
+
+    /**
+     * Snapshot périodique (GatewaySyncService) : ignoré quand une session partagée collecte déjà,
+     * sinon collecte ponctuelle hors session, arrêtée dès la première trame (pas de délai de grâce).
+     */
+    public void syncMonitoringDataSnapshot(String gatewayId) {
+        gatewayService.findById(gatewayId).ifPresentOrElse(gateway -> {
+            String ipAddress = gateway.getIpAddress();
+            if (ipAddress == null || ipAddress.isBlank()) {
+                log.warn("Skipping gateway monitoring snapshot for {}: missing IP address", gatewayId);
+                return;
+            }
+            if (hasActiveSession(gatewayId)) {
+                log.debug("Gateway {} monitoring already streamed by a live session, snapshot skipped", gatewayId);
+                return;
+            }
+
+            String threadId = "snapshot-" + gatewayId + "-" + sessionSequence.incrementAndGet();
+            gatewayService.getMonitoringData(gatewayId, ipAddress, threadId)
+                    .take(1)
+                    .timeout(SNAPSHOT_TIMEOUT)
+                    .doFinally(signal -> gatewayService.stopMonitoring(gatewayId, threadId))
+                    .subscribe(
+                            data -> log.info("Stored gateway monitoring snapshot for {}", gatewayId),
+                            error -> log.warn("Unable to store gateway monitoring snapshot for {}: {}", gatewayId, error.getMessage())
+                    );
+        }, () -> log.warn("Skipping gateway monitoring snapshot: gateway {} not found", gatewayId));
+    }
+
+    private final class GatewaySession {
+
+        private final AtomicInteger viewers = new AtomicInteger();
+        private volatile String upstreamThreadId;
+        private volatile boolean terminated;
+        private final Flux<MonitoringGatewayData> frames;
+
+        private GatewaySession(String gatewayId, String ipAddress) {
+            // threadId propre à la session : une nouvelle session ne peut pas entrer en collision
+            // avec l'arrêt, encore en cours côté API, de la précédente.
+            this.frames = Flux.defer(() -> {
+                        String threadId = "shared-" + gatewayId + "-" + sessionSequence.incrementAndGet();
+                        upstreamThreadId = threadId;
+                        log.info("Starting shared monitoring session {} for gateway {}", threadId, gatewayId);
+                        return gatewayService.getMonitoringData(gatewayId, ipAddress, threadId)
+                                .doFinally(signal -> {
+                                    log.info("Stopping shared monitoring session {} for gateway {} ({})", threadId, gatewayId, signal);
+                                    upstreamThreadId = null;
+                                    terminated = true;
+                                    gatewayService.stopMonitoring(gatewayId, threadId);
+                                });
+                    })
+                    .replay(1)
+                    .refCount(1, linger);
+        }
+
+        private boolean isConnected() {
+            return upstreamThreadId != null;
+        }
+    }
+}
@@ -7,6 +7,7 @@ import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.LinkedHashMap;
@@ -17,6 +18,7 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -28,12 +30,20 @@ public class GatewayRebootSchedulerService {
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
     private final GatewayRebootScheduleDao scheduleDao;
     private final GatewayService gatewayService;
-    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final ScheduledExecutorService executor;
     private final Map<String, ScheduledFuture<?>> scheduledReboots = new ConcurrentHashMap<>();
 
     public GatewayRebootSchedulerService(GatewayRebootScheduleDao scheduleDao, GatewayService gatewayService) {
+        this(scheduleDao, gatewayService, Executors.defaultThreadFactory());
+    }
+
+    @Autowired
+    public GatewayRebootSchedulerService(GatewayRebootScheduleDao scheduleDao,
+                                         GatewayService gatewayService,
+                                         ThreadFactory backgroundThreadFactory) {
         this.scheduleDao = scheduleDao;
         this.gatewayService = gatewayService;
+        this.executor = Executors.newSingleThreadScheduledExecutor(backgroundThreadFactory);
     }
 
     @PostConstruct
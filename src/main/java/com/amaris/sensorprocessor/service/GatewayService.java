@@ -36,15 +36,18 @@ public class GatewayService {
     private final GatewayDao gatewayDao;
     private final GatewayDataService gatewayDataService;
     private final WebClient webClient;
+    private final TopologyRegistry topologyRegistry;
     private final Map<String, Instant> gatewayRestartingUntil = new ConcurrentHashMap<>();
 
     private static final Duration GATEWAY_RESTART_EXPECTED_DURATION = Duration.ofMinutes(3);
 
     @Autowired
-    public GatewayService(GatewayDao gatewayDao, GatewayDataService gatewayDataService, WebClient webClient) {
+    public GatewayService(GatewayDao gatewayDao, GatewayDataService gatewayDataService, WebClient webClient,
+                          TopologyRegistry topologyRegistry) {
         this.gatewayDao = gatewayDao;
         this.gatewayDataService = gatewayDataService;
         this.webClient = webClient;
+        this.topologyRegistry = topologyRegistry;
     }
 
     public List<Gateway> getAllGateways() {
@@ -75,6 +78,7 @@ public class GatewayService {
                 LoggerUtil.logWithBindingObject(bindingResult, Constants.GATEWAY_ID_EXISTS, gateway.getGatewayId(), Constants.BINDING_GATEWAY_ID);
             }
             gatewayDao.insertGatewayInDatabase(gateway);
+            topologyRegistry.reloadGateways();
         } catch (Exception e) {
             LoggerUtil.logWithBindingObjectError(bindingResult, e, Constants.DATABASE_PROBLEM, null, Constants.BINDING_DATABASE_PROBLEM);
         }
@@ -83,6 +87,7 @@ public class GatewayService {
     public void deleteGatewayInDatabase(String gatewayId, BindingResult bindingResult) {
         try {
             int deleteLigne = gatewayDao.deleteGatewayById(gatewayId);
+            topologyRegistry.reloadGateways();
             if (deleteLigne == 0) {
                 LoggerUtil.logWithBindingObject(bindingResult, Constants.GATEWAY_NOT_FOUND, gatewayId, Constants.BINDING_GATEWAY_ID);
             }
@@ -103,6 +108,7 @@ public class GatewayService {
     public void updateGatewayInDatabase(Gateway gateway, BindingResult bindingResult) {
         try {
             int rowsUpdated = gatewayDao.updateGatewayInDatabase(gateway);
+            topologyRegistry.reloadGateways();
             if (rowsUpdated == 0) {
                 LoggerUtil.logWithBindingObject(bindingResult, Constants.GATEWAY_NOT_FOUND, gateway.getGatewayId(), Constants.BINDING_GATEWAY_ID);
             }
@@ -201,26 +207,6 @@ public class GatewayService {
         gatewayRestartingUntil.remove(gatewayId);
     }
 
-    public void syncMonitoringDataSnapshot(String gatewayId) {
-        findById(gatewayId).ifPresentOrElse(gateway -> {
-            String ipAddress = gateway.getIpAddress();
-            if (ipAddress == null || ipAddress.isBlank()) {
-                logger.warn("Skipping gateway monitoring snapshot for {}: missing IP address", gatewayId);
-                return;
-            }
-
-            String threadId = "scheduler-" + gatewayId + "-" + System.currentTimeMillis();
-            getMonitoringData(gatewayId, ipAddress, threadId)
-                    .take(1)
-                    .timeout(Duration.ofSeconds(20))
-                    .doFinally(signal -> stopMonitoring(gatewayId, threadId))
-                    .subscribe(
-                            data -> logger.info("Stored gateway monitoring snapshot for {}", gatewayId),
-                            error -> logger.warn("Unable to store gateway monitoring snapshot for {}: {}", gatewayId, error.getMessage())
-                    );
-        }, () -> logger.warn("Skipping gateway monitoring snapshot: gateway {} not found", gatewayId));
-    }
-
     public Map<GatewayValueType, GatewayData> findLatestDataByGateway(String gatewayId) {
         return gatewayDataService.findLatestDataByGateway(gatewayId);
     }
@@ -14,6 +14,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.Optional;
@@ -21,6 +22,7 @@ import java.util.EnumMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.springframework.context.event.EventListener;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -57,9 +59,17 @@ public class GatewaySyncService {
     private final SensorDao sensorDao;
     private final ObjectMapper objectMapper;
     private final GatewayService gatewayService;
-    private final DeviceTypeService deviceTypeService; // ✅ AJOUT
-
-    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+    private final GatewayMonitoringSessionManager gatewayMonitoringSessionManager;
+    private final TopologyRegistry topologyRegistry;
+    private final ThreadFactory backgroundThreadFactory;
+    private final ScheduledJobRunner scheduledJobRunner;
+    private final IntradayOccupancyTracker intradayOccupancyTracker;
+    private final EnergyDeltaRollupService energyDeltaRollupService;
+    private final DashboardResponseCache dashboardResponseCache;
+    private final DashboardSnapshotStore dashboardSnapshotStore;
+
+    // Créé au démarrage avec la fabrique de threads du mode d'exécution (virtuel ou plateforme)
+    private ScheduledExecutorService scheduler;
     private final Map<String, ScheduledFuture<?>> scheduledSyncTasks = new ConcurrentHashMap<>();
     private final Map<String, AtomicBoolean> initialSyncCompleted = new ConcurrentHashMap<>();
 
@@ -120,7 +130,7 @@ public class GatewaySyncService {
         List<TtnDeviceInfo.EndDevice> ttnDevices = fetchDevicesFromTTN(gatewayId);
 
         // ✅ Charger tous les device types en une seule requête
-        Map<String, Integer> deviceTypeCodeToId = deviceTypeService.findAll().stream()
+        Map<String, Integer> deviceTypeCodeToId = topologyRegistry.deviceTypes().stream()
                 .collect(Collectors.toMap(
                         dt -> {
                             String typeName = dt.getTypeName();
@@ -136,7 +146,7 @@ public class GatewaySyncService {
             if (device.getIds() == null || device.getIds().getDeviceId() == null) continue;
 
             String deviceId = device.getIds().getDeviceId();
-            Optional<Sensor> existing = sensorDao.findByIdOfSensor(deviceId);
+            Optional<Sensor> existing = topologyRegistry.sensor(deviceId);
 
             if (existing.isEmpty()) {
                 Sensor newSensor = new Sensor();
@@ -176,6 +186,8 @@ public class GatewaySyncService {
                 } catch (Exception e) {
                     log.error("[SensorSync] Failed to create sensor {} from TTN: {}", deviceId, e.getMessage());
                 }
+                // Aussi en cas d'échec : le capteur a pu être créé en base hors de la topologie
+                topologyRegistry.refreshSensor(deviceId);
                 existing = Optional.of(newSensor);
             }
         }
@@ -187,7 +199,7 @@ public class GatewaySyncService {
     public int syncGateway(String gatewayId) {
         int syncCount = syncSensorsFromTTN(gatewayId);
         syncSensorsData(gatewayId, null);
-        gatewayService.syncMonitoringDataSnapshot(gatewayId);
+        gatewayMonitoringSessionManager.syncMonitoringDataSnapshot(gatewayId);
         return syncCount;
     }
 
@@ -235,13 +247,13 @@ public class GatewaySyncService {
                 if (isInitialSync) {
                     log.info("[SensorSync] Performing initial full data sync for gateway: {}", gatewayId);
                     syncSensorsData(gatewayId, null);
-                    gatewayService.syncMonitoringDataSnapshot(gatewayId);
+                    gatewayMonitoringSessionManager.syncMonitoringDataSnapshot(gatewayId);
                 } else {
                     Instant after = Instant.now().minus(
                             SENSOR_DATA_SYNC_ROLLBACK_TIME_MINUTE, TimeUnit.MINUTES.toChronoUnit());
                     log.info("[SensorSync] Performing periodic data sync for gateway: {} with after={}", gatewayId, after);
                     syncSensorsData(gatewayId, after);
-                    gatewayService.syncMonitoringDataSnapshot(gatewayId);
+                    gatewayMonitoringSessionManager.syncMonitoringDataSnapshot(gatewayId);
                 }
                 log.info("[SensorSync] Completed periodic data sync for gateway: {}", gatewayId);
             } catch (Exception e) {
@@ -249,23 +261,43 @@ public class GatewaySyncService {
             }
         };
 
-        ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(syncTask, 0, SENSOR_DATA_SYNC_PERIOD_MINUTE, TimeUnit.MINUTES);
+        // Le planificateur ne fait que déclencher : la synchro tourne sur l'exécuteur du job, sans chevauchement
+        ScheduledFuture<?> future = scheduler.scheduleAtFixedRate(
+                () -> scheduledJobRunner.submit(syncJobName(gatewayId), syncTask),
+                0, SENSOR_DATA_SYNC_PERIOD_MINUTE, TimeUnit.MINUTES);
         scheduledSyncTasks.put(gatewayId, future);
         log.info("[SensorSync] Scheduled periodic data sync for gateway {} every {} minutes.", gatewayId, SENSOR_DATA_SYNC_PERIOD_MINUTE);
     }
 
+    /**
+     * Arrête la synchro d'une gateway (suppression) : déclencheur annulé puis exécuteur du job libéré.
+     */
     public void stopPeriodicSync(String gatewayId) {
         ScheduledFuture<?> future = scheduledSyncTasks.remove(gatewayId);
         if (future != null) {
             initialSyncCompleted.remove(gatewayId);
             future.cancel(true);
+            scheduledJobRunner.remove(syncJobName(gatewayId));
             log.info("[SensorSync] Stopped periodic data sync for gateway: {}", gatewayId);
         } else {
             log.warn("[SensorSync] No periodic sync task found for gateway: {}", gatewayId);
         }
     }
 
+    private static String syncJobName(String gatewayId) {
+        return "gateway-sync:" + gatewayId;
+    }
+
     @PostConstruct
+    public void initScheduler() {
+        scheduler = Executors.newScheduledThreadPool(1, backgroundThreadFactory);
+    }
+
+    /**
+     * Les premières synchros (rejeu complet des gateways) attendent la fin du préchauffage
+     * pour ne pas lui disputer la base au démarrage.
+     */
+    @EventListener(StartupWarmup.Completed.class)
     public void initPeriodicSyncs() {
         log.info("[SensorSync] Initializing periodic syncs for all active gateways...");
         List<Gateway> allGateways = gatewayService.getAllGateways();
@@ -311,7 +343,7 @@ public class GatewaySyncService {
 
     public SyncReport compareWithTTN(String gatewayId) {
         List<TtnDeviceInfo.EndDevice> ttnDevices = fetchDevicesFromTTN(gatewayId);
-        List<Sensor> dbSensors = sensorDao.findAllSensors().stream()
+        List<Sensor> dbSensors = topologyRegistry.sensors().stream()
                 .filter(s -> gatewayId.equals(s.getIdGateway()))
                 .collect(Collectors.toList());
 
@@ -386,6 +418,8 @@ public class GatewaySyncService {
                 if (value != null) {
                     SensorData sd = new SensorData(deviceId, receivedAt, value.toString(), key.toString());
                     sensorDataDao.insertSensorData(sd);
+                    intradayOccupancyTracker.record(deviceId, receivedAt, key, value.toString());
+                    energyDeltaRollupService.record(deviceId, receivedAt, key, value.toString());
                     inserted++;
                 }
             }
@@ -406,6 +440,8 @@ public class GatewaySyncService {
                     appId, deviceId, receivedAtString, json.substring(0, Math.min(300, json.length())));
         } else {
             log.info("[SensorSync] Inserted {} metrics for deviceId={} at {}", inserted, deviceId, receivedAt);
+            dashboardResponseCache.onUplink(deviceId, receivedAt);
+            dashboardSnapshotStore.onUplink(deviceId);
         }
     }
 
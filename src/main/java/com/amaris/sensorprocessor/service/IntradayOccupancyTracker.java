@@ -0,0 +1,248 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import com.amaris.sensorprocessor.repository.DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate;
+import com.amaris.sensorprocessor.repository.OccupancyIntradayCheckpointDao;
+import com.amaris.sensorprocessor.repository.OccupancyIntradayCheckpointDao.Checkpoint;
+import com.amaris.sensorprocessor.repository.OccupancySlotBucketDao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.amaris.sensorprocessor.constant.Constants.SENSOR_DATA_SYNC_ROLLBACK_TIME_MINUTE;
+
+/**
+ * Occupation du jour en cours tenue à jour à l'ingestion, sans relire sensor_data.
+ *
+ * Pour chaque capteur, deux masques de 48 bits (un bit par créneau de 30 minutes, heure de Paris) :
+ * créneaux ayant reçu des données et créneaux occupés, avec les mêmes règles que le calcul à partir
+ * des trames brutes. Le taux du jour d'une section coûte alors quelques opérations sur des long par
+ * capteur. Les masques sont sauvegardés périodiquement (occupancy_intraday_checkpoint) et reversés
+ * dans l'agrégat journalier à la clôture du jour.
+ *
+ * Au démarrage, le jour en cours est reconstruit depuis la dernière sauvegarde puis complété par les
+ * créneaux agrégés en SQL depuis cette sauvegarde ; tant que ce n'est pas fait, les appelants
+ * retombent sur le calcul à partir des trames.
+ */
+@Slf4j
+@Service
+public class IntradayOccupancyTracker {
+
+    private static final ZoneId PARIS_ZONE = ZoneId.of("Europe/Paris");
+    private static final Set<PayloadValueType> OCCUPANCY_TYPES =
+            Set.of(PayloadValueType.OCCUPANCY, PayloadValueType.PERIOD_IN, PayloadValueType.PERIOD_OUT);
+
+    private static final int HAS_DATA = 0;
+    private static final int OCCUPIED = 1;
+
+    private final OccupancyIntradayCheckpointDao checkpointDao;
+    private final OccupancySlotBucketDao occupancySlotBucketDao;
+
+    // Jour en cours et, jusqu'à sa clôture, la veille
+    private final Map<LocalDate, DayMasks> days = new ConcurrentHashMap<>();
+
+    // Premier jour suivi depuis son début (null tant que le démarrage n'a pas rattrapé le jour en cours)
+    private volatile LocalDate trackedSince;
+    private volatile LocalDate lastClosedDay;
+    private final AtomicBoolean restoreStarted = new AtomicBoolean();
+
+    public IntradayOccupancyTracker(OccupancyIntradayCheckpointDao checkpointDao,
+                                    OccupancySlotBucketDao occupancySlotBucketDao) {
+        this.checkpointDao = checkpointDao;
+        this.occupancySlotBucketDao = occupancySlotBucketDao;
+    }
+
+    /**
+     * Trame ingérée (received_at tel que stocké, en UTC).
+     */
+    public void record(String sensorId, LocalDateTime receivedAtUtc, PayloadValueType type, String value) {
+        if (sensorId == null || receivedAtUtc == null || !OCCUPANCY_TYPES.contains(type)) {
+            return;
+        }
+        ZonedDateTime local = receivedAtUtc.atZone(ZoneOffset.UTC).withZoneSameInstant(PARIS_ZONE);
+        LocalDate day = local.toLocalDate();
+        LocalDate closed = lastClosedDay;
+        if ((closed != null && !day.isAfter(closed)) || day.isBefore(LocalDate.now(PARIS_ZONE).minusDays(1))) {
+            return; // jour déjà reversé ou trop ancien : le recalcul nocturne s'en charge
+        }
+        int slot = (local.getHour() * 60 + local.getMinute()) / OccupancySlotSweep.SLOT_MINUTES;
+        days.computeIfAbsent(day, ignored -> new DayMasks()).set(sensorId, slot, OccupancySlotSweep.isOccupiedValue(value));
+    }
+
+    /**
+     * Agrégats du jour pour les capteurs demandés (0/0 pour ceux sans données), si le jour est suivi
+     * depuis son début.
+     */
+    public Optional<Map<String, DailyOccupancyAggregate>> aggregatesFor(LocalDate day, Collection<String> sensorIds) {
+        return masksFor(day, sensorIds).map(masksBySensor -> {
+            Map<String, DailyOccupancyAggregate> result = new LinkedHashMap<>();
+            masksBySensor.forEach((sensorId, masks) -> result.put(sensorId, toAggregate(masks)));
+            return result;
+        });
+    }
+
+    /**
+     * Masques {avec données, occupés} du jour pour les capteurs demandés ({0, 0} pour ceux sans
+     * données), si le jour est suivi depuis son début.
+     */
+    public Optional<Map<String, long[]>> masksFor(LocalDate day, Collection<String> sensorIds) {
+        if (!isComplete(day)) {
+            return Optional.empty();
+        }
+        DayMasks masks = days.get(day);
+        Map<String, long[]> result = new LinkedHashMap<>();
+        for (String sensorId : sensorIds) {
+            long[] sensorMasks = masks != null ? masks.get(sensorId) : null;
+            result.put(sensorId, sensorMasks != null ? sensorMasks : new long[2]);
+        }
+        return Optional.of(result);
+    }
+
+    /**
+     * Clôture du jour : retire ses masques et les renvoie s'il a été suivi depuis son début.
+     */
+    public Optional<Map<String, long[]>> closeDay(LocalDate day, Collection<String> sensorIds) {
+        Optional<Map<String, long[]>> masks = masksFor(day, sensorIds);
+        lastClosedDay = lastClosedDay == null || day.isAfter(lastClosedDay) ? day : lastClosedDay;
+        days.remove(day);
+        return masks;
+    }
+
+    public boolean isComplete(LocalDate day) {
+        LocalDate since = trackedSince;
+        LocalDate closed = lastClosedDay;
+        return since != null && !day.isBefore(since) && (closed == null || day.isAfter(closed))
+                && !day.isAfter(LocalDate.now(PARIS_ZONE));
+    }
+
+    /**
+     * Reconstruit le jour en cours : dernière sauvegarde, puis créneaux agrégés depuis celle-ci.
+     * Appelé par StartupWarmup au démarrage ; relancé à la fin du préchauffage s'il a été désactivé
+     * ou a épuisé son budget avant cette étape. Une seule reconstruction par démarrage.
+     */
+    @EventListener(StartupWarmup.Completed.class)
+    public void restoreToday() {
+        if (!restoreStarted.compareAndSet(false, true)) {
+            return;
+        }
+        LocalDate today = LocalDate.now(PARIS_ZONE);
+        LocalDateTime dayStartUtc = today.atStartOfDay(PARIS_ZONE).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+        try {
+            DayMasks masks = days.computeIfAbsent(today, ignored -> new DayMasks());
+            Checkpoint checkpoint = checkpointDao.findByDate(today);
+            checkpoint.masksBySensor().forEach(masks::merge);
+
+            // Les synchronisations rejouent jusqu'à SENSOR_DATA_SYNC_ROLLBACK_TIME_MINUTE de retard
+            LocalDateTime catchUpFrom = dayStartUtc;
+            if (checkpoint.coveredUntilUtc() != null) {
+                LocalDateTime fromCheckpoint = checkpoint.coveredUntilUtc().minusMinutes(SENSOR_DATA_SYNC_ROLLBACK_TIME_MINUTE);
+                catchUpFrom = fromCheckpoint.isAfter(dayStartUtc) ? fromCheckpoint : dayStartUtc;
+            }
+            LocalDateTime catchUpTo = today.plusDays(1).atStartOfDay(PARIS_ZONE).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+
+            Map<String, OccupancySlotSweep> sweeps = new HashMap<>();
+            occupancySlotBucketDao.forEachSlot(null, catchUpFrom, catchUpTo, true, bucket -> sweeps
+                    .computeIfAbsent(bucket.sensorId(), id -> new OccupancySlotSweep(today, today.plusDays(1)))
+                    .accept(bucket.slotStartEpochSecond(), bucket.anyOccupied()));
+            sweeps.forEach((sensorId, sweep) -> masks.merge(sensorId, sweep.dayMasks(today)));
+
+            trackedSince = today;
+            log.info("[occupancy-intraday] {} restored: {} sensors from checkpoint, {} caught up since {}",
+                    today, checkpoint.masksBySensor().size(), sweeps.size(), catchUpFrom);
+        } catch (Exception e) {
+            log.error("[occupancy-intraday] unable to restore {}: {}", today, e.getMessage());
+            // Suivi à partir de demain ; aujourd'hui reste calculé depuis les trames
+            trackedSince = today.plusDays(1);
+        }
+    }
+
+    /**
+     * Sauvegarde des capteurs modifiés depuis le passage précédent.
+     */
+    @Scheduled(fixedDelayString = "${occupancy.intraday.checkpoint-ms:300000}",
+            initialDelayString = "${occupancy.intraday.checkpoint-ms:300000}")
+    public void checkpoint() {
+        LocalDateTime coveredUntil = LocalDateTime.now(ZoneOffset.UTC);
+        LocalDate yesterday = LocalDate.now(PARIS_ZONE).minusDays(1);
+        try {
+            days.forEach((day, masks) -> {
+                if (day.isBefore(yesterday)) {
+                    days.remove(day);
+                    return;
+                }
+                Map<String, long[]> dirty = masks.drainDirty();
+                if (!dirty.isEmpty()) {
+                    checkpointDao.upsert(day, dirty, coveredUntil);
+                }
+            });
+            checkpointDao.deleteBefore(yesterday);
+        } catch (Exception e) {
+            log.warn("[occupancy-intraday] checkpoint failed: {}", e.getMessage());
+        }
+    }
+
+    private static DailyOccupancyAggregate toAggregate(long[] masks) {
+        int[] counts = OccupancySlotSweep.countMasks(masks, OccupancySlotSweep.BUSINESS_SLOT_MASK);
+        return new DailyOccupancyAggregate(counts[0], counts[1]);
+    }
+
+    private static final class DayMasks {
+        private final Map<String, long[]> bySensor = new ConcurrentHashMap<>();
+        private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+
+        private void set(String sensorId, int slot, boolean occupied) {
+            long bit = 1L << slot;
+            long[] masks = bySensor.computeIfAbsent(sensorId, id -> new long[2]);
+            synchronized (masks) {
+                masks[HAS_DATA] |= bit;
+                if (occupied) {
+                    masks[OCCUPIED] |= bit;
+                }
+            }
+            dirty.add(sensorId);
+        }
+
+        private void merge(String sensorId, long[] other) {
+            long[] masks = bySensor.computeIfAbsent(sensorId, id -> new long[2]);
+            synchronized (masks) {
+                masks[HAS_DATA] |= other[HAS_DATA];
+                masks[OCCUPIED] |= other[OCCUPIED];
+            }
+            dirty.add(sensorId);
+        }
+
+        private long[] get(String sensorId) {
+            long[] masks = bySensor.get(sensorId);
+            if (masks == null) {
+                return null;
+            }
+            synchronized (masks) {
+                return masks.clone();
+            }
+        }
+
+        private Map<String, long[]> drainDirty() {
+            Map<String, long[]> snapshot = new HashMap<>();
+            for (String sensorId : dirty) {
+                dirty.remove(sensorId);
+                snapshot.put(sensorId, get(sensorId));
+            }
+            return snapshot;
+        }
+    }
+}
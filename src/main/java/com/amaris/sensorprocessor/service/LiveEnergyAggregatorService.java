@@ -0,0 +1,377 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import com.amaris.sensorprocessor.model.dashboard.ConsoLiveAggregate;
+import com.amaris.sensorprocessor.repository.EnergyDeltaHourlyDao;
+import com.amaris.sensorprocessor.repository.SensorDataDao;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Agrégat live de consommation par bâtiment, partagé par tous les abonnés SSE.
+ *
+ * Chaque bâtiment a un seul agrégateur, abonné une fois au flux d'uplinks partagé (LiveUplinkHub),
+ * puissance et compteurs d'énergie stockés dans des tableaux primitifs [device * 12 + canal],
+ * un agrégat recalculé une fois par événement (ou par tick) puis diffusé à tous les abonnés.
+ * L'énergie du jour est amorcée une fois depuis la base puis suivie à partir des compteurs reçus.
+ * Un agrégateur sans abonné depuis LINGER est retiré.
+ */
+@Slf4j
+@Service
+public class LiveEnergyAggregatorService {
+
+    static final int CHANNELS = 12;
+
+    private static final ZoneId PARIS_ZONE = ZoneId.of("Europe/Paris");
+    private static final Duration TICK_PERIOD = Duration.ofSeconds(15);
+    private static final Duration LINGER = Duration.ofSeconds(30);
+    private static final long DEVICE_STALE_MILLIS = Duration.ofHours(24).toMillis();
+    private static final Set<PayloadValueType> ENERGY_TYPES = EnumSet.of(
+            PayloadValueType.ENERGY_CHANNEL_0, PayloadValueType.ENERGY_CHANNEL_1, PayloadValueType.ENERGY_CHANNEL_2,
+            PayloadValueType.ENERGY_CHANNEL_3, PayloadValueType.ENERGY_CHANNEL_4, PayloadValueType.ENERGY_CHANNEL_5,
+            PayloadValueType.ENERGY_CHANNEL_6, PayloadValueType.ENERGY_CHANNEL_7, PayloadValueType.ENERGY_CHANNEL_8,
+            PayloadValueType.ENERGY_CHANNEL_9, PayloadValueType.ENERGY_CHANNEL_10, PayloadValueType.ENERGY_CHANNEL_11
+    );
+
+    private final LiveUplinkHub liveUplinkHub;
+    private final SensorDataDao sensorDataDao;
+    private final EnergyDeltaHourlyDao energyDeltaHourlyDao;
+    private final Scheduler blockingScheduler;
+    private final ObjectMapper om = new ObjectMapper();
+
+    private final Map<String, BuildingEnergyAggregator> aggregators = new ConcurrentHashMap<>();
+
+    public LiveEnergyAggregatorService(LiveUplinkHub liveUplinkHub,
+                                       SensorDataDao sensorDataDao,
+                                       EnergyDeltaHourlyDao energyDeltaHourlyDao,
+                                       Scheduler blockingScheduler) {
+        this.liveUplinkHub = liveUplinkHub;
+        this.sensorDataDao = sensorDataDao;
+        this.energyDeltaHourlyDao = energyDeltaHourlyDao;
+        this.blockingScheduler = blockingScheduler;
+    }
+
+    /**
+     * Flux partagé des agrégats du bâtiment. Le dernier agrégat est rejoué à chaque nouvel abonné ;
+     * l'abonnement amont est coupé LINGER après le départ du dernier abonné.
+     */
+    public Flux<ConsoLiveAggregate> stream(String building, String appId, List<String> deviceIds) {
+        BuildingEnergyAggregator aggregator = aggregators.compute(building, (key, existing) ->
+                existing != null && existing.handles(appId, deviceIds)
+                        ? existing
+                        : new BuildingEnergyAggregator(building, appId, deviceIds));
+        return aggregator.updates;
+    }
+
+    /**
+     * Dernier agrégat calculé pour le bâtiment, sans requête ni recalcul.
+     */
+    public ConsoLiveAggregate current(String building) {
+        BuildingEnergyAggregator aggregator = aggregators.get(building);
+        return aggregator != null ? aggregator.latest : emptyAggregate(building);
+    }
+
+    static ConsoLiveAggregate emptyAggregate(String building) {
+        return new ConsoLiveAggregate(building, 0d, 0d, 0d, 0d, 0, System.currentTimeMillis());
+    }
+
+    /**
+     * Même répartition que l'ancien calcul : rouge (0-2), blanc |(6-8) - (3-5)|, ventilation (6-8), autres (9-11).
+     */
+    static double combineChannels(double[] c) {
+        double red = c[0] + c[1] + c[2];
+        double white = Math.abs((c[6] + c[7] + c[8]) - (c[3] + c[4] + c[5]));
+        double vent = c[6] + c[7] + c[8];
+        double other = c[9] + c[10] + c[11];
+        return Math.abs(red + white + vent + other);
+    }
+
+    final class BuildingEnergyAggregator {
+
+        private final String building;
+        private final String appId;
+        private final List<String> deviceIds;
+        private final Map<String, Integer> slots = new HashMap<>();
+
+        // [device * CHANNELS + canal] ; NaN = pas encore de valeur
+        private final double[] powerW;
+        private final double[] energyDayStart;
+        private final double[] energyLast;
+        // énergie des segments clos par une remise à zéro du compteur
+        private final double[] energyCarried;
+        private final long[] lastSeenMillis;
+
+        private LocalDate day = LocalDate.now(PARIS_ZONE);
+
+        private volatile ConsoLiveAggregate latest;
+        private final Flux<ConsoLiveAggregate> updates;
+
+        BuildingEnergyAggregator(String building, String appId, List<String> deviceIds) {
+            this.building = building;
+            this.appId = appId;
+            this.deviceIds = List.copyOf(deviceIds);
+            for (int i = 0; i < this.deviceIds.size(); i++) {
+                slots.put(this.deviceIds.get(i), i);
+            }
+            int size = this.deviceIds.size() * CHANNELS;
+            this.powerW = filledWithNaN(size);
+            this.energyDayStart = filledWithNaN(size);
+            this.energyLast = filledWithNaN(size);
+            this.energyCarried = new double[size];
+            this.lastSeenMillis = new long[this.deviceIds.size()];
+            this.latest = emptyAggregate(building);
+
+            // Toutes les mutations passent par le map() aval du merge, donc un seul écrivain à la fois
+            Flux<Runnable> seed = Mono.fromCallable(this::loadTodaySeed)
+                    .subscribeOn(blockingScheduler)
+                    .map(seedValues -> (Runnable) () -> applySeed(seedValues))
+                    .onErrorResume(e -> {
+                        log.warn("[Conso] Unable to seed today's energy for building={}: {}", building, e.getMessage());
+                        return Mono.empty();
+                    })
+                    .flux();
+
+            Flux<Runnable> uplinks = liveUplinkHub.stream(appId)
+                    .filter(uplink -> slots.containsKey(uplink.deviceId()))
+                    .mapNotNull(uplink -> parseUplink(uplink.data()))
+                    .map(uplink -> (Runnable) () -> applyUplink(uplink));
+
+            Flux<Runnable> ticks = Flux.interval(TICK_PERIOD)
+                    .map(tick -> (Runnable) this::housekeeping);
+
+            this.updates = Flux.merge(seed, uplinks, ticks)
+                    .map(update -> {
+                        update.run();
+                        latest = computeAggregate();
+                        return latest;
+                    })
+                    // Plus d'abonné après le LINGER : l'agrégateur est retiré, le prochain flux repart d'un amorçage
+                    .doFinally(signal -> aggregators.remove(building, this))
+                    .replay(1)
+                    .refCount(1, LINGER);
+        }
+
+        boolean handles(String otherAppId, List<String> otherDeviceIds) {
+            return Objects.equals(appId, otherAppId) && deviceIds.equals(otherDeviceIds);
+        }
+
+        private EnergySeed loadTodaySeed() {
+            LocalDate today = LocalDate.now(PARIS_ZONE);
+            Date dayStart = Date.from(today.atStartOfDay(PARIS_ZONE).toInstant());
+            Date dayEnd = Date.from(today.plusDays(1).atStartOfDay(PARIS_ZONE).toInstant());
+
+            // Énergie du jour déjà consolidée (remises à zéro comprises) en une requête pour tout le bâtiment
+            double[] todayWh = new double[energyDayStart.length];
+            Map<String, Map<PayloadValueType, Double>> rolledUp = energyDeltaHourlyDao.sumBySensorAndType(
+                    deviceIds, List.copyOf(ENERGY_TYPES),
+                    LocalDateTime.ofInstant(dayStart.toInstant(), ZoneOffset.UTC),
+                    LocalDateTime.ofInstant(dayEnd.toInstant(), ZoneOffset.UTC));
+
+            double[] lasts = filledWithNaN(energyLast.length);
+            for (int dev = 0; dev < deviceIds.size(); dev++) {
+                String deviceId = deviceIds.get(dev);
+                copyChannels(rolledUp.getOrDefault(deviceId, Map.of()), todayWh, dev);
+                copyChannels(sensorDataDao.findLastValuesOfDayByTypes(deviceId, ENERGY_TYPES, dayStart, dayEnd), lasts, dev);
+            }
+            return new EnergySeed(today, todayWh, lasts);
+        }
+
+        private void applySeed(EnergySeed seed) {
+            if (!seed.day().equals(day)) {
+                // Agrégateur réveillé un autre jour (après le LINGER) : dernier compteur connu comme base
+                System.arraycopy(energyLast, 0, energyDayStart, 0, energyLast.length);
+                Arrays.fill(energyLast, Double.NaN);
+                Arrays.fill(energyCarried, 0d);
+                day = seed.day();
+            }
+            for (int i = 0; i < energyDayStart.length; i++) {
+                if (Double.isNaN(seed.lasts()[i])) {
+                    continue;
+                }
+                // Jusqu'à la dernière trame en base : energy_delta_hourly ; au-delà : les trames live.
+                // Tout l'état du canal est remplacé, y compris le dernier compteur : un réamorçage
+                // (reconnexion) ne peut pas recompter une énergie déjà incluse dans energy_delta_hourly.
+                energyCarried[i] = seed.todayWh()[i];
+                energyDayStart[i] = seed.lasts()[i];
+                energyLast[i] = seed.lasts()[i];
+            }
+        }
+
+        private void applyUplink(ParsedUplink uplink) {
+            Integer slot = slots.get(uplink.deviceId());
+            if (slot == null) {
+                return;
+            }
+            lastSeenMillis[slot] = System.currentTimeMillis();
+            int base = slot * CHANNELS;
+
+            Iterator<Map.Entry<String, JsonNode>> fields = uplink.decodedPayload().fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                JsonNode obj = field.getValue();
+                if (obj == null || !obj.isObject() || !obj.path("value").isNumber()) continue;
+                double value = obj.path("value").asDouble();
+                if (!Double.isFinite(value)) continue;
+
+                if ("power".equalsIgnoreCase(obj.path("type").asText(null))) {
+                    int channel = obj.path("hardwareData").path("channel").isInt()
+                            ? obj.path("hardwareData").path("channel").asInt()
+                            : -1;
+                    if (channel >= 0 && channel < CHANNELS) {
+                        powerW[base + channel] = value;
+                    }
+                    continue;
+                }
+
+                // Compteurs d'énergie : clés "0".."11" du decoded_payload (cf. ENERGY_CHANNEL_*)
+                int channel = energyChannelOf(field.getKey());
+                if (channel >= 0) {
+                    applyEnergyCounter(base + channel, value);
+                }
+            }
+        }
+
+        private void applyEnergyCounter(int index, double value) {
+            double last = energyLast[index];
+            if (Double.isNaN(energyDayStart[index])) {
+                energyDayStart[index] = Double.isNaN(last) ? value : last;
+            } else if (!Double.isNaN(last) && value < last) {
+                // Remise à zéro du compteur : on clôt le segment en cours et on repart de la nouvelle valeur
+                energyCarried[index] += Math.max(0d, last - energyDayStart[index]);
+                energyDayStart[index] = value;
+            }
+            energyLast[index] = value;
+        }
+
+        private void housekeeping() {
+            LocalDate today = LocalDate.now(PARIS_ZONE);
+            if (!today.equals(day)) {
+                // Nouveau jour : le compteur à minuit devient la base du jour
+                for (int i = 0; i < energyDayStart.length; i++) {
+                    energyDayStart[i] = energyLast[i];
+                    energyCarried[i] = 0d;
+                }
+                day = today;
+            }
+
+            long cutoff = System.currentTimeMillis() - DEVICE_STALE_MILLIS;
+            for (int dev = 0; dev < lastSeenMillis.length; dev++) {
+                if (lastSeenMillis[dev] != 0 && lastSeenMillis[dev] < cutoff) {
+                    Arrays.fill(powerW, dev * CHANNELS, (dev + 1) * CHANNELS, Double.NaN);
+                    lastSeenMillis[dev] = 0;
+                }
+            }
+        }
+
+        private ConsoLiveAggregate computeAggregate() {
+            double[] power = new double[CHANNELS];
+            double[] energy = new double[CHANNELS];
+            int deviceCount = 0;
+
+            for (int dev = 0; dev < lastSeenMillis.length; dev++) {
+                if (lastSeenMillis[dev] != 0) {
+                    deviceCount++;
+                }
+                int base = dev * CHANNELS;
+                for (int ch = 0; ch < CHANNELS; ch++) {
+                    int i = base + ch;
+                    if (!Double.isNaN(powerW[i])) {
+                        power[ch] += powerW[i];
+                    }
+                    double delta = energyCarried[i];
+                    if (!Double.isNaN(energyDayStart[i]) && !Double.isNaN(energyLast[i])) {
+                        delta += Math.max(0d, energyLast[i] - energyDayStart[i]);
+                    }
+                    energy[ch] += delta;
+                }
+            }
+            for (int ch = 0; ch < CHANNELS; ch++) {
+                power[ch] = Math.abs(power[ch]);
+            }
+
+            double powerTotalW = combineChannels(power);
+            double todayEnergyWh = combineChannels(energy);
+            return new ConsoLiveAggregate(
+                    building,
+                    powerTotalW,
+                    powerTotalW / 1000d,
+                    todayEnergyWh,
+                    todayEnergyWh / 1000d,
+                    deviceCount,
+                    System.currentTimeMillis()
+            );
+        }
+    }
+
+    private record ParsedUplink(String deviceId, JsonNode decodedPayload) {
+    }
+
+    private record EnergySeed(LocalDate day, double[] todayWh, double[] lasts) {
+    }
+
+    private ParsedUplink parseUplink(String json) {
+        try {
+            JsonNode root = om.readTree(json);
+            JsonNode r = root.has("result") ? root.get("result") : root;
+
+            JsonNode deviceId = r.at("/end_device_ids/device_id");
+            JsonNode decoded = r.at("/uplink_message/decoded_payload");
+            if (deviceId.isMissingNode() || deviceId.isNull() || decoded.isMissingNode() || decoded.isNull()) {
+                return null;
+            }
+            return new ParsedUplink(deviceId.asText(), decoded);
+        } catch (Exception e) {
+            log.debug("[Conso] parseUplink failed: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static int energyChannelOf(String key) {
+        if (key == null || key.isEmpty() || key.length() > 2) {
+            return -1;
+        }
+        try {
+            int channel = Integer.parseInt(key);
+            return channel >= 0 && channel < CHANNELS ? channel : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void copyChannels(Map<PayloadValueType, Double> values, double[] target, int dev) {
+        for (Map.Entry<PayloadValueType, Double> entry : values.entrySet()) {
+            if (entry.getValue() == null) continue;
+            int channel = energyChannelOf(entry.getKey().name().substring("ENERGY_CHANNEL_".length()));
+            if (channel >= 0) {
+                target[dev * CHANNELS + channel] = entry.getValue();
+            }
+        }
+    }
+
+    private static double[] filledWithNaN(int size) {
+        double[] values = new double[size];
+        Arrays.fill(values, Double.NaN);
+        return values;
+    }
+}
@@ -31,6 +31,15 @@ public class LiveSensorCache {
         log.trace("CACHE PUT key={} type={}", sensorId, type);
     }
 
+    /**
+     * Préchargement depuis la base : ne remplace pas une valeur plus récente reçue en direct entre-temps.
+     */
+    public void putIfNewer(String sensorId, PayloadValueType type, SensorData data) {
+        cache.computeIfAbsent(sensorId, k -> new ConcurrentHashMap<>())
+                .merge(type, data, (current, loaded) -> current.getReceivedAt() != null && loaded.getReceivedAt() != null
+                        && loaded.getReceivedAt().isAfter(current.getReceivedAt()) ? loaded : current);
+    }
+
     public Optional<SensorData> getLatest(String sensorId, PayloadValueType type) {
         Map<PayloadValueType, SensorData> map = cache.get(sensorId);
         if (map == null) {
@@ -0,0 +1,108 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.Building;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Flux d'uplinks live partagé par application TTN.
+ *
+ * Un seul abonnement amont (/api/monitoring/app/{appId}/stream) par appId, quel que soit le nombre
+ * de consommateurs (SSE dashboard, agrégateur conso, RSocket). Le device_id est extrait une fois
+ * par uplink ; le filtrage par device se fait en mémoire côté consommateur.
+ */
+@Slf4j
+@Service
+public class LiveUplinkHub {
+
+    public static final String DEFAULT_APP_ID = "rpi-mantu-appli";
+
+    private static final Duration LINGER = Duration.ofSeconds(30);
+    private static final Duration RECONNECT_DELAY = Duration.ofSeconds(5);
+
+    private final SensorService sensorService;
+    private final TopologyRegistry topologyRegistry;
+    private final ObjectMapper om = new ObjectMapper();
+
+    private final Map<String, Flux<LiveUplink>> streams = new ConcurrentHashMap<>();
+
+    public LiveUplinkHub(SensorService sensorService, TopologyRegistry topologyRegistry) {
+        this.sensorService = sensorService;
+        this.topologyRegistry = topologyRegistry;
+    }
+
+    public record LiveUplink(String deviceId, String event, String data) {
+    }
+
+    /**
+     * @throws IllegalArgumentException sans appId : aucun flux amont n'est ouvert
+     */
+    public Flux<LiveUplink> stream(String appId) {
+        if (appId == null || appId.isBlank()) {
+            throw new IllegalArgumentException("No TTN application id");
+        }
+        return streams.computeIfAbsent(appId, this::openUpstream);
+    }
+
+    private Flux<LiveUplink> openUpstream(String appId) {
+        return sensorService.getMonitoringMany(appId, List.of())
+                .filter(sse -> sse.data() != null && !sse.data().isBlank())
+                .map(sse -> new LiveUplink(
+                        extractDeviceId(sse.data()),
+                        sse.event() != null ? sse.event() : "uplink",
+                        sse.data()))
+                // L'API de monitoring peut redémarrer : on se reconnecte tant qu'il reste des abonnés
+                .repeatWhen(completed -> completed.delayElements(RECONNECT_DELAY))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, RECONNECT_DELAY).maxBackoff(Duration.ofMinutes(1)))
+                .doOnSubscribe(s -> log.info("[LiveHub] Upstream opened for appId={}", appId))
+                .doOnCancel(() -> log.info("[LiveHub] Upstream closed for appId={} (no more subscribers)", appId))
+                .publish()
+                .refCount(1, LINGER);
+    }
+
+    private String extractDeviceId(String json) {
+        try {
+            JsonNode root = om.readTree(json);
+            JsonNode r = root.has("result") ? root.get("result") : root;
+            JsonNode deviceId = r.at("/end_device_ids/device_id");
+            return deviceId.isMissingNode() || deviceId.isNull() ? null : deviceId.asText();
+        } catch (Exception e) {
+            log.debug("[LiveHub] Unable to read device id: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Application TTN d'un bâtiment (ID numérique ou nom) : celle de sa première gateway.
+     *
+     * @return vide si le bâtiment est inconnu ou n'a pas de gateway
+     */
+    public Optional<String> appIdForBuilding(String building) {
+        if (building == null || building.isBlank() || "all".equalsIgnoreCase(building)) {
+            return Optional.of(DEFAULT_APP_ID);
+        }
+        Optional<Integer> buildingId = isInteger(building)
+                ? Optional.of(Integer.parseInt(building))
+                : topologyRegistry.buildingByName(building).map(Building::getId);
+        return buildingId.flatMap(topologyRegistry::appIdForBuilding);
+    }
+
+    private boolean isInteger(String s) {
+        try {
+            Integer.parseInt(s);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -12,9 +12,11 @@ import java.util.Optional;
 public class LocationService {
 
     private final LocationDao locationDao;
+    private final TopologyRegistry topologyRegistry;
 
-    public LocationService(LocationDao locationDao) {
+    public LocationService(LocationDao locationDao, TopologyRegistry topologyRegistry) {
         this.locationDao = locationDao;
+        this.topologyRegistry = topologyRegistry;
     }
 
     public List<Location> findAll() {
@@ -53,6 +55,7 @@ public class LocationService {
         if (location.getName() == null || location.getName().isBlank())
             throw new IllegalArgumentException("Location name is required");
         locationDao.insert(location);
+        topologyRegistry.reloadLocations();
         return location;
     }
 
@@ -60,11 +63,13 @@ public class LocationService {
         locationDao.findById(id).orElseThrow(() -> new IllegalArgumentException("Location not found: " + id));
         location.setId(id);
         locationDao.update(location);
+        topologyRegistry.reloadLocations();
         return location;
     }
 
     public void delete(Integer id) {
         int rows = locationDao.deleteById(id);
         if (rows == 0) throw new IllegalArgumentException("Location not found: " + id);
+        topologyRegistry.reloadLocations();
     }
 }
@@ -22,16 +22,19 @@ public class NotificationService {
     private final UserService userService;
     private final EmailService emailService;
     private final SensorDao sensorDao;
+    private final EmailDispatchQueue emailDispatchQueue;
 
     @Autowired
     public NotificationService(NotificationPreferenceDao notificationPreferenceDao, 
                               UserService userService,
                               EmailService emailService,
-                              SensorDao sensorDao) {
+                              SensorDao sensorDao,
+                              EmailDispatchQueue emailDispatchQueue) {
         this.notificationPreferenceDao = notificationPreferenceDao;
         this.userService = userService;
         this.emailService = emailService;
         this.sensorDao = sensorDao;
+        this.emailDispatchQueue = emailDispatchQueue;
     }
 
     @PostConstruct
@@ -173,6 +176,14 @@ public class NotificationService {
             return;
         }
 
+        dispatchGroupedAlert(alerts, user, pref, parameterType);
+    }
+
+    /**
+     * Send grouped alert notifications when the user and preference are already known.
+     * Emails are handed to the dispatch queue, so this never waits on the email provider.
+     */
+    public void dispatchGroupedAlert(List<Alert> alerts, User user, NotificationPreference pref, String parameterType) {
         if (pref.isEmailEnabled()) {
             sendGroupedEmailAlert(alerts, user, pref, parameterType);
         }
@@ -192,16 +203,14 @@ public class NotificationService {
 
         try {
             Alert firstAlert = alerts.get(0);
-            log.info("Sending grouped email alert ({} alerts) to {}: {} - {}", 
+            log.debug("Queueing grouped email alert ({} alerts) to {}: {} - {}", 
                     alerts.size(), email, firstAlert.getLevel(), parameterType);
             
-            // Call the email service with grouped alerts
-            emailService.sendGroupedAlertEmail(email, alerts, parameterType);
-            
-            log.info("Grouped email alert sent successfully to {}", email);
+            // Sent asynchronously by the dispatch queue (rate limit, retries, outbox)
+            emailDispatchQueue.enqueue(email, parameterType, alerts);
             
         } catch (Exception e) {
-            log.error("Failed to send grouped email alert to {}: {}", email, e.getMessage());
+            log.error("Failed to queue grouped email alert to {}: {}", email, e.getMessage());
         }
     }
 
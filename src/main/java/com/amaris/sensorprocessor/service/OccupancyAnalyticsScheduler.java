@@ -16,11 +16,14 @@ public class OccupancyAnalyticsScheduler {
     private static final ZoneId PARIS_ZONE = ZoneId.of("Europe/Paris");
 
     private final OccupancyAnalyticsService occupancyAnalyticsService;
+    private final ScheduledJobRunner scheduledJobRunner;
 
     @Scheduled(cron = "0 0 0 * * *", zone = "Europe/Paris")
     public void cachePreviousWorkingDayOccupancyAtMidnight() {
         LocalDate targetDay = LocalDate.now(PARIS_ZONE).minusDays(1);
-        log.info("Running midnight occupancy cache refresh for {}", targetDay);
-        occupancyAnalyticsService.refreshCachedDailyOccupancyForDate(targetDay);
+        scheduledJobRunner.submit("occupancy-midnight-refresh", () -> {
+            log.info("Running midnight occupancy cache refresh for {}", targetDay);
+            occupancyAnalyticsService.refreshCachedDailyOccupancyForDate(targetDay);
+        });
     }
 }
@@ -4,9 +4,13 @@ import com.amaris.sensorprocessor.entity.PayloadValueType;
 import com.amaris.sensorprocessor.entity.SensorData;
 import com.amaris.sensorprocessor.model.analytics.*;
 import com.amaris.sensorprocessor.repository.DashboardOccupancyDailyAggregateDao;
+import com.amaris.sensorprocessor.repository.OccupancySlotBucketDao;
+import com.amaris.sensorprocessor.repository.OccupancySlotsDao;
 import com.amaris.sensorprocessor.repository.SensorDataDao;
+import com.fasterxml.jackson.core.type.TypeReference;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
@@ -25,19 +29,15 @@ public class OccupancyAnalyticsService {
     private final SensorDataDao sensorDataDao;
     private final JdbcTemplate jdbcTemplate;
     private final DashboardOccupancyDailyAggregateDao dashboardOccupancyDailyAggregateDao;
+    private final OccupancySlotBucketDao occupancySlotBucketDao;
+    private final OccupancySlotsDao occupancySlotsDao;
+    private final IntradayOccupancyTracker intradayOccupancyTracker;
+    private final DashboardResponseCache responseCache;
 
-    // Business hours: 9h-12h30 and 14h-18h30
-    private static final int MORNING_START = 9;
-    private static final int MORNING_END_HOUR = 12;
-    private static final int MORNING_END_MINUTE = 30;
-    private static final int AFTERNOON_START = 14;
-    private static final int AFTERNOON_END_HOUR = 18;
-    private static final int AFTERNOON_END_MINUTE = 30;
-    
-    // 30-minute interval
-    private static final int INTERVAL_MINUTES = 30;
-    private static final int OCCUPANCY_CACHE_BACKFILL_CHUNK_SIZE = 20;
+    @Value("${occupancy.analytics.sql-bucketing:true}")
+    private boolean sqlBucketing;
 
+    // Business hours (9h-12h30 and 14h-18h30) and 30-minute intervals: see OccupancySlotSweep
     private static final ZoneId PARIS_ZONE = ZoneId.of("Europe/Paris");
     private static final ZoneId UTC_ZONE = ZoneId.of("UTC");
 
@@ -45,6 +45,24 @@ public class OccupancyAnalyticsService {
      * Get occupancy analytics for a specific section
      */
     public SectionOccupancyResponse getSectionOccupancy(String sectionType, String startDateStr, String endDateStr) {
+        LocalDate start = parseDateQuietly(startDateStr);
+        LocalDate end = parseDateQuietly(endDateStr);
+        // Sans période valide la réponse est vide : pas de mise en cache (start ou end null)
+        return responseCache.get("section-occupancy", null, start, end, List.of(sectionType.toLowerCase()),
+                new TypeReference<SectionOccupancyResponse>() {},
+                () -> computeSectionOccupancy(sectionType, startDateStr, endDateStr));
+    }
+
+    private static LocalDate parseDateQuietly(String dateTime) {
+        if (dateTime == null) return null;
+        try {
+            return LocalDateTime.parse(dateTime).toLocalDate();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private SectionOccupancyResponse computeSectionOccupancy(String sectionType, String startDateStr, String endDateStr) {
         List<String> sensorIds = getSensorIdsBySection(sectionType);
         String sectionName = getSectionName(sectionType);
         
@@ -110,24 +128,26 @@ public class OccupancyAnalyticsService {
         }
         
         long daysBetween = ChronoUnit.DAYS.between(customStart, customEnd);
+        LocalDate weekEnd = daysBetween >= 7 ? periodEnd(customStart, customEnd, 7) : null;
+        LocalDate monthEnd = daysBetween >= 30 ? periodEnd(customStart, customEnd, 30) : null;
+        
+        // All rows of the sensor for the longest period, loaded once
+        OccupancySlotSweep sweep = loadIntervalSweeps(List.of(sensorId), customStart,
+                monthEnd != null ? monthEnd : weekEnd != null ? weekEnd : customStart.plusDays(1)).get(sensorId);
         
         // Daily: Start date only (1 day)
-        Map<String, Integer> dailyStats = calculateOccupancyForPeriod(sensorId, customStart, customStart.plusDays(1));
+        Map<String, Integer> dailyStats = calculateOccupancyForPeriod(sweep, customStart, customStart.plusDays(1));
         
         // Weekly: Start date + 7 days (only if range >= 7 days)
         Map<String, Integer> weeklyStats = null;
-        if (daysBetween >= 7) {
-            LocalDate weekEnd = customStart.plusDays(7);
-            if (weekEnd.isAfter(customEnd)) weekEnd = customEnd;
-            weeklyStats = calculateOccupancyForPeriod(sensorId, customStart, weekEnd.plusDays(1));
+        if (weekEnd != null) {
+            weeklyStats = calculateOccupancyForPeriod(sweep, customStart, weekEnd);
         }
         
         // Monthly: Start date + 30 days (only if range >= 30 days)
         Map<String, Integer> monthlyStats = null;
-        if (daysBetween >= 30) {
-            LocalDate monthEnd = customStart.plusDays(30);
-            if (monthEnd.isAfter(customEnd)) monthEnd = customEnd;
-            monthlyStats = calculateOccupancyForPeriod(sensorId, customStart, monthEnd.plusDays(1));
+        if (monthEnd != null) {
+            monthlyStats = calculateOccupancyForPeriod(sweep, customStart, monthEnd);
         }
 
         return OccupancyStats.builder()
@@ -180,53 +200,28 @@ public class OccupancyAnalyticsService {
         
         log.info("📡 Fetching bulk data from {} to {} (range: {} days)", startDateTime, endDateTime, daysBetween);
         
-        String inClause = sensorIds.stream()
-                .map(id -> "?")
-                .collect(Collectors.joining(","));
-        
-        String query = String.format("""
-            SELECT id_sensor, received_at, value, value_type 
-            FROM sensor_data 
-            WHERE id_sensor IN (%s)
-            AND value_type IN ('OCCUPANCY', 'PERIOD_IN', 'PERIOD_OUT')
-            AND received_at >= ? 
-            AND received_at < ?
-            ORDER BY id_sensor, received_at
-            """, inClause);
-        
-        // Build parameter array
-        Object[] params = new Object[sensorIds.size() + 2];
-        for (int i = 0; i < sensorIds.size(); i++) {
-            params[i] = sensorIds.get(i);
-        }
-        params[sensorIds.size()] = startDateTime;
-        params[sensorIds.size() + 1] = endDateTime;
-        
-        // Fetch all data in ONE query
-        List<Map<String, Object>> allData = jdbcTemplate.queryForList(query, params);
-        log.info("✅ Fetched {} rows for {} sensors", allData.size(), sensorIds.size());
         
-        // Group data by sensor
-        Map<String, List<Map<String, Object>>> dataPerSensor = allData.stream()
-                .collect(Collectors.groupingBy(row -> (String) row.get("id_sensor")));
+        // Fetch all data in ONE query, reduced to 30-min slots per sensor
+        LocalDate sweepEnd = monthlyEnd != null ? monthlyEnd : weeklyEnd != null ? weeklyEnd : dailyEnd;
+        Map<String, OccupancySlotSweep> sweepPerSensor = loadSlotSweeps(
+                sensorIds, customStart, sweepEnd, startDateTime, endDateTime, false);
         
         // Process each sensor in memory
         Map<String, OccupancyStats> results = new HashMap<>();
         
         for (String sensorId : sensorIds) {
-            List<Map<String, Object>> sensorData = dataPerSensor.getOrDefault(sensorId, new ArrayList<>());
-            
-            // Calculate stats from in-memory data with new date logic
-            Map<String, Integer> dailyStats = calculateStatsFromData(sensorData, customStart, dailyEnd);
+            // Daily/weekly/monthly are counted on the same slots
+            OccupancySlotSweep sweep = sweepPerSensor.get(sensorId);
+            Map<String, Integer> dailyStats = toStatsMap(sweep.count(customStart, dailyEnd, true));
             
             Map<String, Integer> weeklyStats = null;
             if (weeklyEnd != null) {
-                weeklyStats = calculateStatsFromData(sensorData, customStart, weeklyEnd);
+                weeklyStats = toStatsMap(sweep.count(customStart, weeklyEnd, true));
             }
             
             Map<String, Integer> monthlyStats = null;
             if (monthlyEnd != null) {
-                monthlyStats = calculateStatsFromData(sensorData, customStart, monthlyEnd);
+                monthlyStats = toStatsMap(sweep.count(customStart, monthlyEnd, true));
             }
             
             OccupancyStats stats = OccupancyStats.builder()
@@ -251,76 +246,75 @@ public class OccupancyAnalyticsService {
     }
     
     /**
-     * Calculate occupancy stats from in-memory data
-     * NEW LOGIC: Only count intervals where sensor sent data
+     * Load every sensor's 30-min slots (Paris local time) over [startDate, endDate) with one query on
+     * the received_at range [startUtc, endUtc). A slot has data if any OCCUPANCY/PERIOD_* row falls in
+     * it, and is occupied if one of them is > 0, "occupied" or "used".
+     *
+     * By default the rows are grouped per (sensor, slot) in SQL; occupancy.analytics.sql-bucketing=false
+     * falls back to fetching the raw rows. Without wholeDay, only the slots around business hours are
+     * guaranteed to be filled.
      */
-    private Map<String, Integer> calculateStatsFromData(List<Map<String, Object>> data, LocalDate startDate, LocalDate endDate) {
-        // Generate all 30-min intervals
-        List<LocalDateTime> intervals = generateIntervals(startDate, endDate);
-        
-        int occupiedCount = 0;
-        int totalIntervalsWithData = 0;
-        
-        for (LocalDateTime intervalStart : intervals) {
-            LocalDateTime intervalEnd = intervalStart.plusMinutes(INTERVAL_MINUTES);
-            
-            // Check if sensor sent data in this interval and if occupied
-            Boolean hasDataAndOccupied = null;
-            boolean hasAnyData = false;
-            
-            for (Map<String, Object> row : data) {
-                try {
-                    Object receivedAtObj = row.get("received_at");
-                    if (receivedAtObj == null) continue;
-                    
-                    LocalDateTime timestamp;
-                    if (receivedAtObj instanceof java.sql.Timestamp) {
-                        timestamp = ((java.sql.Timestamp) receivedAtObj).toInstant().atZone(PARIS_ZONE).toLocalDateTime();
-                    } else if (receivedAtObj instanceof LocalDateTime) {
-                        timestamp = ZonedDateTime.of((LocalDateTime) receivedAtObj, UTC_ZONE).withZoneSameInstant(PARIS_ZONE).toLocalDateTime();
-                    } else {
-                        continue;
-                    }
-                    
-                    // Check if timestamp is within interval [start, end)
-                    if (timestamp.isBefore(intervalStart) || !timestamp.isBefore(intervalEnd)) {
-                        continue;
-                    }
-                    
-                    // This interval has data
-                    hasAnyData = true;
-                    
-                    String value = (String) row.get("value");
-                    if (value != null) {
-                        try {
-                            if (Integer.parseInt(value) > 0) {
-                                hasDataAndOccupied = true;
-                                break; // Found occupied data, no need to check more
-                            }
-                        } catch (NumberFormatException e) {
-                            if ("occupied".equalsIgnoreCase(value) || "used".equalsIgnoreCase(value)) {
-                                hasDataAndOccupied = true;
-                                break;
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    // Ignore parsing errors
-                }
-            }
-            
-            // Only count intervals with data
-            if (hasAnyData) {
-                totalIntervalsWithData++;
-                if (hasDataAndOccupied != null && hasDataAndOccupied) {
-                    occupiedCount++;
+    private Map<String, OccupancySlotSweep> loadSlotSweeps(List<String> sensorIds, LocalDate startDate, LocalDate endDate,
+                                                           LocalDateTime startUtc, LocalDateTime endUtc, boolean wholeDay) {
+        Map<String, OccupancySlotSweep> sweeps = new HashMap<>();
+        for (String sensorId : sensorIds) {
+            sweeps.put(sensorId, new OccupancySlotSweep(startDate, endDate));
+        }
+        if (sensorIds.isEmpty()) {
+            return sweeps;
+        }
+
+        if (sqlBucketing) {
+            int[] buckets = {0};
+            occupancySlotBucketDao.forEachSlot(sensorIds, startUtc, endUtc, wholeDay, bucket -> {
+                OccupancySlotSweep sweep = sweeps.get(bucket.sensorId());
+                if (sweep != null) {
+                    sweep.accept(bucket.slotStartEpochSecond(), bucket.anyOccupied());
+                    buckets[0]++;
                 }
-            }
+            });
+            log.info("✅ Fetched {} slot buckets for {} sensors", buckets[0], sensorIds.size());
+            return sweeps;
         }
-        
+
+        String inClause = sensorIds.stream()
+                .map(id -> "?")
+                .collect(Collectors.joining(","));
+
+        String query = String.format("""
+            SELECT id_sensor, received_at, value, value_type
+            FROM sensor_data
+            WHERE id_sensor IN (%s)
+              AND value_type IN ('OCCUPANCY', 'PERIOD_IN', 'PERIOD_OUT')
+              AND received_at >= ?
+              AND received_at < ?
+            ORDER BY id_sensor, received_at
+            """, inClause);
+
+        Object[] params = new Object[sensorIds.size() + 2];
+        for (int i = 0; i < sensorIds.size(); i++) {
+            params[i] = sensorIds.get(i);
+        }
+        params[sensorIds.size()] = startUtc;
+        params[sensorIds.size() + 1] = endUtc;
+
+        // Streamed row by row: only the slot arrays stay in memory
+        int[] rows = {0};
+        jdbcTemplate.query(query, rs -> {
+            OccupancySlotSweep sweep = sweeps.get(rs.getString("id_sensor"));
+            if (sweep != null) {
+                sweep.acceptRaw(rs.getObject("received_at"), rs.getObject("value"));
+            }
+            rows[0]++;
+        }, params);
+        log.info("✅ Fetched {} rows for {} sensors", rows[0], sensorIds.size());
+        return sweeps;
+    }
+
+    private Map<String, Integer> toStatsMap(int[] counts) {
         Map<String, Integer> result = new HashMap<>();
-        result.put("occupied", occupiedCount);
-        result.put("total", totalIntervalsWithData);  // CHANGED: Only intervals with data
+        result.put("occupied", counts[0]);
+        result.put("total", counts[1]);  // Only intervals with data
         return result;
     }
     
@@ -366,25 +360,27 @@ public class OccupancyAnalyticsService {
         }
         
         long daysBetween = ChronoUnit.DAYS.between(customStart, customEnd);
+        LocalDate weekEnd = daysBetween >= 7 ? periodEnd(customStart, customEnd, 7) : null;
+        LocalDate monthEnd = daysBetween >= 30 ? periodEnd(customStart, customEnd, 30) : null;
+        
+        // All rows of the section for the longest period, loaded once
+        Collection<OccupancySlotSweep> sweeps = loadIntervalSweeps(sensorIds, customStart,
+                monthEnd != null ? monthEnd : weekEnd != null ? weekEnd : customStart.plusDays(1)).values();
         
         // Daily: Start date only (1 day)
         Map<String, Integer> dailyStats = calculateGlobalOccupancyForPeriod(
-                sensorIds, customStart, customStart.plusDays(1));
+                sweeps, customStart, customStart.plusDays(1));
         
         // Weekly: Start date + 7 days (only if range >= 7 days)
         Map<String, Integer> weeklyStats = null;
-        if (daysBetween >= 7) {
-            LocalDate weekEnd = customStart.plusDays(7);
-            if (weekEnd.isAfter(customEnd)) weekEnd = customEnd;
-            weeklyStats = calculateGlobalOccupancyForPeriod(sensorIds, customStart, weekEnd.plusDays(1));
+        if (weekEnd != null) {
+            weeklyStats = calculateGlobalOccupancyForPeriod(sweeps, customStart, weekEnd);
         }
         
         // Monthly: Start date + 30 days (only if range >= 30 days)
         Map<String, Integer> monthlyStats = null;
-        if (daysBetween >= 30) {
-            LocalDate monthEnd = customStart.plusDays(30);
-            if (monthEnd.isAfter(customEnd)) monthEnd = customEnd;
-            monthlyStats = calculateGlobalOccupancyForPeriod(sensorIds, customStart, monthEnd.plusDays(1));
+        if (monthEnd != null) {
+            monthlyStats = calculateGlobalOccupancyForPeriod(sweeps, customStart, monthEnd);
         }
 
         return OccupancyStats.builder()
@@ -402,66 +398,37 @@ public class OccupancyAnalyticsService {
                 .build();
     }
 
+    /**
+     * Exclusive end of the weekly/monthly period: start + N days, capped at the requested end day
+     */
+    private LocalDate periodEnd(LocalDate customStart, LocalDate customEnd, int days) {
+        LocalDate end = customStart.plusDays(days);
+        if (end.isAfter(customEnd)) end = customEnd;
+        return end.plusDays(1);
+    }
+
     /**
      * Calculate occupancy for a single sensor over a period
      * NEW LOGIC: Total = number of intervals with data (not theoretical 16 intervals/day)
      */
     private Map<String, Integer> calculateOccupancyForPeriod(
-            String sensorId, LocalDate startDate, LocalDate endDate) {
-        
-        int totalIntervalsWithData = 0;
-        int occupiedIntervals = 0;
-
-        // Iterate through each day in the period
-        LocalDate currentDate = startDate;
-        while (!currentDate.isAfter(endDate.minusDays(1))) {
-            // Skip weekends
-            if (currentDate.getDayOfWeek() == DayOfWeek.SATURDAY || 
-                currentDate.getDayOfWeek() == DayOfWeek.SUNDAY) {
-                currentDate = currentDate.plusDays(1);
-                continue;
-            }
-
-            // Generate 30-min intervals for business hours
-            List<LocalDateTime> intervals = generateBusinessHoursIntervals(currentDate);
-            
-            for (LocalDateTime intervalStart : intervals) {
-                LocalDateTime intervalEnd = intervalStart.plusMinutes(INTERVAL_MINUTES);
-                
-                // Check if there's data in this interval
-                Integer occupancyStatus = getIntervalOccupancyStatus(sensorId, intervalStart, intervalEnd);
-                
-                // Only count intervals where sensor sent data
-                if (occupancyStatus != null) {
-                    totalIntervalsWithData++;
-                    if (occupancyStatus > 0) {
-                        occupiedIntervals++;
-                    }
-                }
-            }
-
-            currentDate = currentDate.plusDays(1);
-        }
-
-        Map<String, Integer> result = new HashMap<>();
-        result.put("occupied", occupiedIntervals);
-        result.put("total", totalIntervalsWithData);  // CHANGED: Real data intervals, not 16
-        return result;
+            OccupancySlotSweep sweep, LocalDate startDate, LocalDate endDate) {
+        return toStatsMap(sweep.count(startDate, endDate, true));
     }
 
     /**
      * Calculate global occupancy for multiple sensors
      */
     private Map<String, Integer> calculateGlobalOccupancyForPeriod(
-            List<String> sensorIds, LocalDate startDate, LocalDate endDate) {
+            Collection<OccupancySlotSweep> sweeps, LocalDate startDate, LocalDate endDate) {
         
         int totalIntervals = 0;
         int occupiedIntervals = 0;
 
-        for (String sensorId : sensorIds) {
-            Map<String, Integer> sensorStats = calculateOccupancyForPeriod(sensorId, startDate, endDate);
-            totalIntervals += sensorStats.get("total");
-            occupiedIntervals += sensorStats.get("occupied");
+        for (OccupancySlotSweep sweep : sweeps) {
+            int[] sensorStats = sweep.count(startDate, endDate, true);
+            occupiedIntervals += sensorStats[0];
+            totalIntervals += sensorStats[1];
         }
 
         Map<String, Integer> result = new HashMap<>();
@@ -471,149 +438,101 @@ public class OccupancyAnalyticsService {
     }
 
     /**
-     * Get occupancy status for a 30-min interval
-     * Returns: null if no data, 0 if free, >0 if occupied
-     * 
-     * For COUNT sensors: calculates (period_in - period_out). If = 0, room is empty; otherwise occupied
+     * Load the 30-min slot status of every sensor over [startDate, endDate) with one streamed query.
+     *
+     * Same rules as the former per-interval queries: OCCUPANCY rows mark the slot as having data and
+     * occupied when a value is > 0 / "occupied" / "used". For COUNT sensors, a slot with PERIOD_IN /
+     * PERIOD_OUT rows is occupied when (period_in - period_out) != 0. With SQL bucketing enabled the
+     * query returns one row per (sensor, slot) instead of the raw rows.
      */
-    private Integer getIntervalOccupancyStatus(String sensorId, LocalDateTime start, LocalDateTime end) {
-        try {
-            // Convert Paris local interval bounds to UTC for querying the UTC stored received_at.
-            LocalDateTime startUtc = ZonedDateTime.of(start, PARIS_ZONE).withZoneSameInstant(UTC_ZONE).toLocalDateTime();
-            LocalDateTime endUtc = ZonedDateTime.of(end, PARIS_ZONE).withZoneSameInstant(UTC_ZONE).toLocalDateTime();
-
-            // First, try COUNT sensor logic (period_in / period_out)
-            if (sensorId.toLowerCase().startsWith("count")) {
-                String countQuery = """
-                    SELECT value_type, value FROM sensor_data 
-                    WHERE id_sensor = ? 
-                    AND value_type IN ('PERIOD_IN', 'PERIOD_OUT')
-                    AND received_at >= ? 
-                    AND received_at < ?
-                    ORDER BY received_at
-                    """;
-                
-                List<Map<String, Object>> countResults = jdbcTemplate.queryForList(
-                        countQuery, sensorId, startUtc, endUtc);
-                
-                if (!countResults.isEmpty()) {
-                    int periodIn = 0;
-                    int periodOut = 0;
-                    
-                    for (Map<String, Object> row : countResults) {
-                        String valueType = (String) row.get("value_type");
-                        String value = (String) row.get("value");
-                        
-                        if (value != null) {
-                            try {
-                                int numValue = (int) Double.parseDouble(value);
-                                if ("PERIOD_IN".equals(valueType)) {
-                                    periodIn += numValue;
-                                } else if ("PERIOD_OUT".equals(valueType)) {
-                                    periodOut += numValue;
-                                }
-                            } catch (NumberFormatException e) {
-                                // Ignore invalid values
-                            }
-                        }
+    private Map<String, OccupancySlotSweep> loadIntervalSweeps(List<String> sensorIds, LocalDate startDate, LocalDate endDate) {
+        Map<String, OccupancySlotSweep> sweeps = new LinkedHashMap<>();
+        for (String sensorId : sensorIds) {
+            sweeps.put(sensorId, new OccupancySlotSweep(startDate, endDate));
+        }
+        if (sensorIds.isEmpty()) {
+            return sweeps;
+        }
+
+        // Paris local day bounds converted to UTC for querying the UTC stored received_at.
+        LocalDateTime startUtc = ZonedDateTime.of(startDate.atStartOfDay(), PARIS_ZONE).withZoneSameInstant(UTC_ZONE).toLocalDateTime();
+        LocalDateTime endUtc = ZonedDateTime.of(endDate.atStartOfDay(), PARIS_ZONE).withZoneSameInstant(UTC_ZONE).toLocalDateTime();
+
+        if (sqlBucketing) {
+            try {
+                occupancySlotBucketDao.forEachSlot(sensorIds, startUtc, endUtc, bucket -> {
+                    OccupancySlotSweep sweep = sweeps.get(bucket.sensorId());
+                    if (sweep == null) {
+                        return;
                     }
-                    
-                    // Calculate occupancy: if (in - out) = 0, room is empty; otherwise occupied
-                    int netOccupancy = periodIn - periodOut;
-                    return (netOccupancy == 0) ? 0 : 1;
-                }
-            }
-            
-            // Standard OCCUPANCY sensor logic
-            String query = """
-                SELECT value FROM sensor_data 
-                WHERE id_sensor = ? 
-                AND value_type = 'OCCUPANCY'
-                AND received_at >= ? 
-                AND received_at < ?
-                ORDER BY received_at
-                """;
-            
-            List<Map<String, Object>> results = jdbcTemplate.queryForList(
-                    query, sensorId, startUtc, endUtc);
-            
-            // No data in this interval
-            if (results.isEmpty()) {
-                return null;
-            }
-            
-            // Check if any value shows occupied (>0)
-            for (Map<String, Object> row : results) {
-                String value = (String) row.get("value");
-                if (value != null) {
-                    try {
-                        int occupancyValue = Integer.parseInt(value);
-                        if (occupancyValue > 0) {
-                            return 1; // Occupied
-                        }
-                    } catch (NumberFormatException e) {
-                        // Check string values
-                        if ("occupied".equalsIgnoreCase(value) || "used".equalsIgnoreCase(value)) {
-                            return 1; // Occupied
-                        }
+                    if (bucket.occupancyRows() > 0) {
+                        sweep.accept(bucket.slotStartEpochSecond(), bucket.occupancyOccupied());
                     }
-                }
+                    if (bucket.periodRows() > 0 && bucket.sensorId().toLowerCase().startsWith("count")) {
+                        sweep.acceptFlow(bucket.slotStartEpochSecond(), (int) (bucket.sumIn() - bucket.sumOut()));
+                    }
+                });
+            } catch (Exception e) {
+                log.error("Error loading interval occupancy for {} sensors: {}", sensorIds.size(), e.getMessage());
             }
-            
-            // Has data but all values are 0 (free)
-            return 0;
-        } catch (Exception e) {
-            log.error("Error checking interval occupancy for sensor {}: {}", sensorId, e.getMessage());
-            return null;
+            return sweeps;
         }
-    }
 
-    /**
-     * Generate 30-minute intervals for business hours over multiple days
-     */
-    private List<LocalDateTime> generateIntervals(LocalDate startDate, LocalDate endDate) {
-        List<LocalDateTime> allIntervals = new ArrayList<>();
-        
-        LocalDate currentDate = startDate;
-        while (!currentDate.isAfter(endDate.minusDays(1))) {
-            // Skip weekends
-            if (currentDate.getDayOfWeek() != DayOfWeek.SATURDAY && 
-                currentDate.getDayOfWeek() != DayOfWeek.SUNDAY) {
-                allIntervals.addAll(generateBusinessHoursIntervals(currentDate));
-            }
-            currentDate = currentDate.plusDays(1);
-        }
-        
-        return allIntervals;
-    }
+        String inClause = sensorIds.stream()
+                .map(id -> "?")
+                .collect(Collectors.joining(","));
 
-    /**
-     * Generate 30-minute intervals for business hours of a day
-     */
-    private List<LocalDateTime> generateBusinessHoursIntervals(LocalDate date) {
-        List<LocalDateTime> intervals = new ArrayList<>();
+        String query = String.format("""
+            SELECT id_sensor, received_at, value_type, value
+            FROM sensor_data
+            WHERE id_sensor IN (%s)
+              AND value_type IN ('OCCUPANCY', 'PERIOD_IN', 'PERIOD_OUT')
+              AND received_at >= ?
+              AND received_at < ?
+            ORDER BY id_sensor, received_at
+            """, inClause);
 
-        // Morning: 9h00 - 12h30
-        LocalDateTime morningStart = date.atTime(MORNING_START, 0);
-        LocalDateTime morningEnd = date.atTime(MORNING_END_HOUR, MORNING_END_MINUTE);
-        
-        LocalDateTime current = morningStart;
-        while (current.isBefore(morningEnd)) {
-            intervals.add(current);
-            current = current.plusMinutes(INTERVAL_MINUTES);
+        Object[] params = new Object[sensorIds.size() + 2];
+        for (int i = 0; i < sensorIds.size(); i++) {
+            params[i] = sensorIds.get(i);
         }
+        params[sensorIds.size()] = startUtc;
+        params[sensorIds.size() + 1] = endUtc;
 
-        // Afternoon: 14h00 - 18h30
-        LocalDateTime afternoonStart = date.atTime(AFTERNOON_START, 0);
-        LocalDateTime afternoonEnd = date.atTime(AFTERNOON_END_HOUR, AFTERNOON_END_MINUTE);
-        
-        current = afternoonStart;
-        while (current.isBefore(afternoonEnd)) {
-            intervals.add(current);
-            current = current.plusMinutes(INTERVAL_MINUTES);
+        try {
+            jdbcTemplate.query(query, rs -> {
+                String sensorId = rs.getString("id_sensor");
+                OccupancySlotSweep sweep = sweeps.get(sensorId);
+                Timestamp receivedAt = rs.getTimestamp("received_at");
+                if (sweep == null || receivedAt == null) {
+                    return;
+                }
+                long epochSecond = receivedAt.toLocalDateTime().toEpochSecond(ZoneOffset.UTC);
+                String valueType = rs.getString("value_type");
+                String value = rs.getString("value");
+
+                if ("OCCUPANCY".equals(valueType)) {
+                    sweep.accept(epochSecond, OccupancySlotSweep.isOccupiedValue(value));
+                } else if (sensorId.toLowerCase().startsWith("count")) {
+                    int flow = parseFlow(value);
+                    sweep.acceptFlow(epochSecond, "PERIOD_IN".equals(valueType) ? flow : -flow);
+                }
+            }, params);
+        } catch (Exception e) {
+            log.error("Error loading interval occupancy for {} sensors: {}", sensorIds.size(), e.getMessage());
         }
+        return sweeps;
+    }
 
-        return intervals;
+    private int parseFlow(String value) {
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return (int) Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return 0; // Ignore invalid values
+        }
     }
 
     /**
@@ -703,6 +622,12 @@ public class OccupancyAnalyticsService {
      * Returns data day-by-day (excluding weekends) for each sensor
      */
     public SectionDailyOccupancyResponse getSectionDailyOccupancy(String sectionType, String startDateStr, String endDateStr) {
+        return responseCache.get("section-daily-occupancy", null, LocalDate.parse(startDateStr), LocalDate.parse(endDateStr),
+                List.of(sectionType.toLowerCase()), new TypeReference<SectionDailyOccupancyResponse>() {},
+                () -> computeSectionDailyOccupancy(sectionType, startDateStr, endDateStr));
+    }
+
+    private SectionDailyOccupancyResponse computeSectionDailyOccupancy(String sectionType, String startDateStr, String endDateStr) {
         List<String> sensorIds = getSensorIdsBySection(sectionType);
         String sectionName = getSectionName(sectionType);
 
@@ -794,33 +719,8 @@ public class OccupancyAnalyticsService {
         LocalDateTime startDateTime = startDate.atStartOfDay();
         LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
         
-        String inClause = sensorIds.stream()
-                .map(id -> "?")
-                .collect(Collectors.joining(","));
-        
-        String query = String.format("""
-            SELECT id_sensor, received_at, value, value_type 
-            FROM sensor_data 
-            WHERE id_sensor IN (%s)
-            AND value_type IN ('OCCUPANCY', 'PERIOD_IN', 'PERIOD_OUT')
-            AND received_at >= ? 
-            AND received_at < ?
-            ORDER BY id_sensor, received_at
-            """, inClause);
-        
-        Object[] params = new Object[sensorIds.size() + 2];
-        for (int i = 0; i < sensorIds.size(); i++) {
-            params[i] = sensorIds.get(i);
-        }
-        params[sensorIds.size()] = startDateTime;
-        params[sensorIds.size() + 1] = endDateTime;
-        
-        List<Map<String, Object>> allData = jdbcTemplate.queryForList(query, params);
-        log.info("✅ Fetched {} rows for {} sensors", allData.size(), sensorIds.size());
-        
-        // Group data by sensor
-        Map<String, List<Map<String, Object>>> dataPerSensor = allData.stream()
-                .collect(Collectors.groupingBy(row -> (String) row.get("id_sensor")));
+        Map<String, OccupancySlotSweep> sweepPerSensor = loadSlotSweeps(
+                sensorIds, startDate, endDate.plusDays(1), startDateTime, endDateTime, false);
         
         // Process each sensor
         List<SensorDailyStats> allSensorStats = new ArrayList<>();
@@ -828,7 +728,7 @@ public class OccupancyAnalyticsService {
         int totalOccupiedGlobal = 0;
         
         for (String sensorId : sensorIds) {
-            List<Map<String, Object>> sensorData = dataPerSensor.getOrDefault(sensorId, new ArrayList<>());
+            OccupancySlotSweep sweep = sweepPerSensor.get(sensorId);
             
             // Calculate daily stats for each working day
             List<DailyOccupancyData> dailyDataList = new ArrayList<>();
@@ -836,7 +736,7 @@ public class OccupancyAnalyticsService {
             int sensorOccupiedIntervals = 0;
             
             for (LocalDate day : workingDays) {
-                Map<String, Integer> dayStats = calculateStatsFromDataForSingleDay(sensorData, day);
+                Map<String, Integer> dayStats = toStatsMap(sweep.count(day, day.plusDays(1), false));
                 
                 double dayRate = dayStats.get("total") > 0 
                         ? (dayStats.get("occupied") * 100.0 / dayStats.get("total")) 
@@ -888,6 +788,85 @@ public class OccupancyAnalyticsService {
                 .build();
     }
 
+    /**
+     * Time-of-day and day-of-week breakdown of a section (morning / afternoon, each business slot, each
+     * weekday), computed by popcount over the persisted slot masks.
+     */
+    public SectionOccupancyProfileResponse getSectionOccupancyProfile(String sectionType, String startDateStr, String endDateStr) {
+        List<String> sensorIds = getSensorIdsBySection(sectionType);
+        LocalDate startDate = LocalDate.parse(startDateStr);
+        LocalDate endDate = LocalDate.parse(endDateStr);
+        List<LocalDate> workingDays = generateWorkingDays(startDate, endDate);
+
+        log.info("Calculating occupancy profile for section: {} with {} sensors (dates: {} to {})",
+                sectionType, sensorIds.size(), startDate, endDate);
+
+        int[] business = new int[2];
+        int[] morning = new int[2];
+        int[] afternoon = new int[2];
+        int[][] bySlot = new int[OccupancySlotSweep.SLOTS_PER_DAY][2];
+        Map<DayOfWeek, int[]> byWeekday = new EnumMap<>(DayOfWeek.class);
+
+        loadDailySlots(sensorIds, workingDays).forEach((day, masksBySensor) -> {
+            int[] weekday = byWeekday.computeIfAbsent(day.getDayOfWeek(), ignored -> new int[2]);
+            for (long[] masks : masksBySensor.values()) {
+                add(business, OccupancySlotSweep.countMasks(masks, OccupancySlotSweep.BUSINESS_SLOT_MASK));
+                add(morning, OccupancySlotSweep.countMasks(masks, OccupancySlotSweep.MORNING_SLOT_MASK));
+                add(afternoon, OccupancySlotSweep.countMasks(masks, OccupancySlotSweep.AFTERNOON_SLOT_MASK));
+                add(weekday, OccupancySlotSweep.countMasks(masks, OccupancySlotSweep.BUSINESS_SLOT_MASK));
+                for (int slot = 0; slot < OccupancySlotSweep.SLOTS_PER_DAY; slot++) {
+                    if ((OccupancySlotSweep.BUSINESS_SLOT_MASK & (1L << slot)) != 0) {
+                        add(bySlot[slot], OccupancySlotSweep.countMasks(masks, 1L << slot));
+                    }
+                }
+            }
+        });
+
+        List<SlotOccupancyData> slots = new ArrayList<>();
+        SlotOccupancyData peak = null;
+        for (int slot = 0; slot < OccupancySlotSweep.SLOTS_PER_DAY; slot++) {
+            if ((OccupancySlotSweep.BUSINESS_SLOT_MASK & (1L << slot)) == 0) {
+                continue;
+            }
+            SlotOccupancyData slotData = SlotOccupancyData.builder()
+                    .startTime(LocalTime.MIN.plusMinutes((long) slot * OccupancySlotSweep.SLOT_MINUTES).toString())
+                    .occupiedIntervals(bySlot[slot][0])
+                    .totalIntervals(bySlot[slot][1])
+                    .occupancyRate(rate(bySlot[slot]))
+                    .build();
+            slots.add(slotData);
+            if (slotData.getTotalIntervals() > 0 && (peak == null || slotData.getOccupancyRate() > peak.getOccupancyRate())) {
+                peak = slotData;
+            }
+        }
+
+        Map<String, Double> weekdayRates = new LinkedHashMap<>();
+        byWeekday.forEach((dayOfWeek, counts) -> weekdayRates.put(dayOfWeek.name(), rate(counts)));
+
+        return SectionOccupancyProfileResponse.builder()
+                .sectionName(getSectionName(sectionType))
+                .totalSensors(sensorIds.size())
+                .startDate(startDate)
+                .endDate(endDate)
+                .globalOccupancyRate(rate(business))
+                .morningOccupancyRate(rate(morning))
+                .afternoonOccupancyRate(rate(afternoon))
+                .weekdayOccupancyRates(weekdayRates)
+                .slots(slots)
+                .peakSlot(peak != null ? peak.getStartTime() : null)
+                .peakOccupancyRate(peak != null ? peak.getOccupancyRate() : 0.0)
+                .build();
+    }
+
+    private static void add(int[] target, int[] counts) {
+        target[0] += counts[0];
+        target[1] += counts[1];
+    }
+
+    private static double rate(int[] counts) {
+        return counts[1] > 0 ? counts[0] * 100.0 / counts[1] : 0.0;
+    }
+
     public void refreshCachedDailyOccupancyForDate(LocalDate day) {
         if (day == null) {
             return;
@@ -905,96 +884,50 @@ public class OccupancyAnalyticsService {
         }
 
         List<String> allSensorIds = getAllOccupancySensorIds();
-        Map<LocalDate, Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate>> rawStats =
-                loadRawDailyOccupancyForDays(allSensorIds, List.of(day));
-
-        dashboardOccupancyDailyAggregateDao.upsertDailyAggregates(
-                day,
-                rawStats.getOrDefault(day, Collections.emptyMap())
-        );
-    }
 
-    public int refreshCachedDailyOccupancyForRange(LocalDate startDate, LocalDate endDate) {
-        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
-            return 0;
+        // Day tracked at ingest since its start: flush its slot masks, no raw data reload
+        Optional<Map<String, long[]>> tracked = intradayOccupancyTracker.closeDay(day, allSensorIds);
+        if (tracked.isPresent()) {
+            log.info("Flushing intraday occupancy masks for {}", day);
+            persistDailySlots(Map.of(day, tracked.get()));
+            return;
         }
 
-        LocalDate today = LocalDate.now(PARIS_ZONE);
-        LocalDate lastClosedDay = endDate.isBefore(today) ? endDate : today.minusDays(1);
-        if (lastClosedDay.isBefore(startDate)) {
-            return 0;
-        }
+        Map<LocalDate, Map<String, long[]>> rawSlots = loadRawDailySlotsForDays(allSensorIds, List.of(day));
+        persistDailySlots(Map.of(day, rawSlots.getOrDefault(day, Collections.emptyMap())));
+    }
 
-        List<LocalDate> targetDays = generateWorkingDays(startDate, lastClosedDay);
-        if (targetDays.isEmpty()) {
-            log.info("[occupancy-cache] no closed working day to refresh for range {} -> {}", startDate, endDate);
+    /**
+     * Rebuilds occupancy_slots and the daily aggregates of the given closed days from sensor_data
+     * (one query for the whole list), used by the chunked history backfill.
+     *
+     * @return number of working days refreshed
+     */
+    public int refreshCachedDailyOccupancyForDays(List<LocalDate> days) {
+        LocalDate today = LocalDate.now(PARIS_ZONE);
+        List<LocalDate> closedWorkingDays = days.stream()
+                .filter(day -> day.isBefore(today))
+                .filter(this::isWorkingDay)
+                .toList();
+        if (closedWorkingDays.isEmpty()) {
             return 0;
         }
-
-        List<String> allSensorIds = getAllOccupancySensorIds();
-        int totalChunks = (targetDays.size() + OCCUPANCY_CACHE_BACKFILL_CHUNK_SIZE - 1) / OCCUPANCY_CACHE_BACKFILL_CHUNK_SIZE;
-        int refreshedDays = 0;
-
-        log.info("[occupancy-cache] start refresh range={}..{} workingDays={} sensors={} chunkSize={} totalChunks={}",
-                startDate,
-                lastClosedDay,
-                targetDays.size(),
-                allSensorIds.size(),
-                OCCUPANCY_CACHE_BACKFILL_CHUNK_SIZE,
-                totalChunks);
-
-        for (int i = 0; i < targetDays.size(); i += OCCUPANCY_CACHE_BACKFILL_CHUNK_SIZE) {
-            List<LocalDate> chunkDays = targetDays.subList(
-                    i,
-                    Math.min(i + OCCUPANCY_CACHE_BACKFILL_CHUNK_SIZE, targetDays.size())
-            );
-            int chunkNumber = (i / OCCUPANCY_CACHE_BACKFILL_CHUNK_SIZE) + 1;
-
-            log.info("[occupancy-cache] chunk {}/{} loading raw data for {} -> {} (workingDaysInChunk={})",
-                    chunkNumber,
-                    totalChunks,
-                    chunkDays.get(0),
-                    chunkDays.get(chunkDays.size() - 1),
-                    chunkDays.size());
-
-            Map<LocalDate, Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate>> rawStats =
-                    loadRawDailyOccupancyForDays(allSensorIds, chunkDays);
-            persistDailyAggregates(rawStats);
-
-            refreshedDays += chunkDays.size();
-            log.info("[occupancy-cache] chunk {}/{} done processedDays={}/{} ({} -> {})",
-                    chunkNumber,
-                    totalChunks,
-                    refreshedDays,
-                    targetDays.size(),
-                    chunkDays.get(0),
-                    chunkDays.get(chunkDays.size() - 1));
-        }
-
-        log.info("[occupancy-cache] refresh completed range={}..{} workingDaysRefreshed={}",
-                startDate,
-                lastClosedDay,
-                refreshedDays);
-        return refreshedDays;
+        persistDailySlots(loadRawDailySlotsForDays(getAllOccupancySensorIds(), closedWorkingDays));
+        return closedWorkingDays.size();
     }
 
-    public OccupancyCacheBackfillSummary refreshCachedDailyOccupancyForEntireHistory() {
-        List<String> allSensorIds = getAllOccupancySensorIds();
-        LocalDate oldestAvailableDate = findOldestOccupancyDataDate(allSensorIds);
-        LocalDate lastClosedDay = LocalDate.now(PARIS_ZONE).minusDays(1);
-
-        if (oldestAvailableDate == null || lastClosedDay.isBefore(oldestAvailableDate)) {
-            log.info("[occupancy-cache] no closed occupancy history found to backfill");
-            return new OccupancyCacheBackfillSummary(null, lastClosedDay, 0);
-        }
-
-        log.info("[occupancy-cache] full history backfill requested from {} to {}", oldestAvailableDate, lastClosedDay);
-        int refreshedDays = refreshCachedDailyOccupancyForRange(oldestAvailableDate, lastClosedDay);
-        return new OccupancyCacheBackfillSummary(oldestAvailableDate, lastClosedDay, refreshedDays);
+    /**
+     * Date of the oldest occupancy frame of the known occupancy sensors, null without history.
+     */
+    public LocalDate findOldestOccupancyDataDate() {
+        return findOldestOccupancyDataDate(getAllOccupancySensorIds());
     }
 
+    /**
+     * Coverage of occupancy_slots, the table daily stats and profiles are read from.
+     */
     public DashboardOccupancyDailyAggregateDao.OccupancyCacheStatus getOccupancyCacheStatus() {
-        return dashboardOccupancyDailyAggregateDao.getCacheStatus();
+        return occupancySlotsDao.getCacheStatus();
     }
 
     private Map<LocalDate, Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate>> loadDailyOccupancyStats(
@@ -1002,6 +935,23 @@ public class OccupancyAnalyticsService {
             List<LocalDate> workingDays) {
 
         Map<LocalDate, Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate>> result = new LinkedHashMap<>();
+        loadDailySlots(sensorIds, workingDays).forEach((day, masksBySensor) -> {
+            Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate> aggregates = new LinkedHashMap<>();
+            masksBySensor.forEach((sensorId, masks) -> {
+                int[] counts = OccupancySlotSweep.countMasks(masks, OccupancySlotSweep.BUSINESS_SLOT_MASK);
+                aggregates.put(sensorId, new DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate(counts[0], counts[1]));
+            });
+            result.put(day, aggregates);
+        });
+        return result;
+    }
+
+    /**
+     * Slot masks {hasData, occupied} per day and sensor: closed days from occupancy_slots (missing ones are
+     * rebuilt from sensor_data and saved), today from the intraday tracker when it covers the whole day.
+     */
+    private Map<LocalDate, Map<String, long[]>> loadDailySlots(List<String> sensorIds, List<LocalDate> workingDays) {
+        Map<LocalDate, Map<String, long[]>> result = new LinkedHashMap<>();
         if (sensorIds == null || sensorIds.isEmpty() || workingDays == null || workingDays.isEmpty()) {
             return result;
         }
@@ -1016,9 +966,9 @@ public class OccupancyAnalyticsService {
             LocalDate closedStart = closedDays.get(0);
             LocalDate closedEnd = closedDays.get(closedDays.size() - 1);
 
-            mergeDailyAggregates(
+            mergeDailySlots(
                     result,
-                    dashboardOccupancyDailyAggregateDao.findBySensorIdsAndDateRange(sensorIds, closedStart, closedEnd)
+                    occupancySlotsDao.findBySensorIdsAndDateRange(sensorIds, closedStart, closedEnd)
             );
 
             List<LocalDate> missingClosedDays = closedDays.stream()
@@ -1026,47 +976,56 @@ public class OccupancyAnalyticsService {
                     .toList();
 
             if (!missingClosedDays.isEmpty()) {
-                log.info("Backfilling {} missing occupancy cache day(s) for section request", missingClosedDays.size());
-                Map<LocalDate, Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate>> rawMissing =
-                        loadRawDailyOccupancyForDays(sensorIds, missingClosedDays);
-                mergeDailyAggregates(result, rawMissing);
-                persistDailyAggregates(rawMissing);
+                log.info("Backfilling {} missing occupancy slot day(s) for section request", missingClosedDays.size());
+                Map<LocalDate, Map<String, long[]>> rawMissing = loadRawDailySlotsForDays(sensorIds, missingClosedDays);
+                mergeDailySlots(result, rawMissing);
+                persistDailySlots(rawMissing);
             }
         }
 
+        // Today comes from the masks maintained at ingest when they cover the whole day
+        Optional<Map<String, long[]>> trackedToday = workingDays.contains(today)
+                ? intradayOccupancyTracker.masksFor(today, sensorIds)
+                : Optional.empty();
+        trackedToday.ifPresent(masks -> result.computeIfAbsent(today, ignored -> new LinkedHashMap<>()).putAll(masks));
+
         List<LocalDate> openDays = workingDays.stream()
                 .filter(day -> !day.isBefore(today))
+                .filter(day -> !(day.equals(today) && trackedToday.isPresent()))
                 .toList();
 
         if (!openDays.isEmpty()) {
-            mergeDailyAggregates(result, loadRawDailyOccupancyForDays(sensorIds, openDays));
+            mergeDailySlots(result, loadRawDailySlotsForDays(sensorIds, openDays));
         }
 
         return result;
     }
 
-    private void persistDailyAggregates(
-            Map<LocalDate, Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate>> aggregatesByDay) {
-
-        for (Map.Entry<LocalDate, Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate>> entry : aggregatesByDay.entrySet()) {
-            dashboardOccupancyDailyAggregateDao.upsertDailyAggregates(entry.getKey(), entry.getValue());
+    /**
+     * Saves closed days in occupancy_slots and, for readers of the former table, their business-hours
+     * counters in dashboard_occupancy_daily_aggregate.
+     */
+    private void persistDailySlots(Map<LocalDate, Map<String, long[]>> slotsByDay) {
+        for (Map.Entry<LocalDate, Map<String, long[]>> entry : slotsByDay.entrySet()) {
+            occupancySlotsDao.upsertDay(entry.getKey(), entry.getValue());
+
+            Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate> aggregates = new LinkedHashMap<>();
+            entry.getValue().forEach((sensorId, masks) -> {
+                int[] counts = OccupancySlotSweep.countMasks(masks, OccupancySlotSweep.BUSINESS_SLOT_MASK);
+                aggregates.put(sensorId, new DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate(counts[0], counts[1]));
+            });
+            dashboardOccupancyDailyAggregateDao.upsertDailyAggregates(entry.getKey(), aggregates);
         }
     }
 
-    private void mergeDailyAggregates(
-            Map<LocalDate, Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate>> target,
-            Map<LocalDate, Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate>> source) {
-
-        for (Map.Entry<LocalDate, Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate>> entry : source.entrySet()) {
+    private void mergeDailySlots(Map<LocalDate, Map<String, long[]>> target, Map<LocalDate, Map<String, long[]>> source) {
+        for (Map.Entry<LocalDate, Map<String, long[]>> entry : source.entrySet()) {
             target.computeIfAbsent(entry.getKey(), ignored -> new LinkedHashMap<>()).putAll(entry.getValue());
         }
     }
 
-    private Map<LocalDate, Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate>> loadRawDailyOccupancyForDays(
-            List<String> sensorIds,
-            List<LocalDate> targetDays) {
-
-        Map<LocalDate, Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate>> result = new LinkedHashMap<>();
+    private Map<LocalDate, Map<String, long[]>> loadRawDailySlotsForDays(List<String> sensorIds, List<LocalDate> targetDays) {
+        Map<LocalDate, Map<String, long[]>> result = new LinkedHashMap<>();
         if (sensorIds == null || sensorIds.isEmpty() || targetDays == null || targetDays.isEmpty()) {
             return result;
         }
@@ -1081,49 +1040,21 @@ public class OccupancyAnalyticsService {
             return result;
         }
 
+        // Whole Paris days, so that every slot of the masks is filled
         LocalDate startDate = sortedDays.get(0);
         LocalDate endDate = sortedDays.get(sortedDays.size() - 1);
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
+        LocalDateTime startDateTime = startDate.atStartOfDay(PARIS_ZONE).withZoneSameInstant(UTC_ZONE).toLocalDateTime();
+        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay(PARIS_ZONE).withZoneSameInstant(UTC_ZONE).toLocalDateTime();
 
-        String inClause = sensorIds.stream()
-                .map(id -> "?")
-                .collect(Collectors.joining(","));
-
-        String query = String.format("""
-            SELECT id_sensor, received_at, value, value_type
-            FROM sensor_data
-            WHERE id_sensor IN (%s)
-              AND value_type IN ('OCCUPANCY', 'PERIOD_IN', 'PERIOD_OUT')
-              AND received_at >= ?
-              AND received_at < ?
-            ORDER BY id_sensor, received_at
-            """, inClause);
-
-        Object[] params = new Object[sensorIds.size() + 2];
-        for (int i = 0; i < sensorIds.size(); i++) {
-            params[i] = sensorIds.get(i);
-        }
-        params[sensorIds.size()] = startDateTime;
-        params[sensorIds.size() + 1] = endDateTime;
-
-        List<Map<String, Object>> allData = jdbcTemplate.queryForList(query, params);
-        Map<String, List<Map<String, Object>>> dataPerSensor = allData.stream()
-                .collect(Collectors.groupingBy(row -> (String) row.get("id_sensor")));
+        Map<String, OccupancySlotSweep> sweepPerSensor = loadSlotSweeps(
+                sensorIds, startDate, endDate.plusDays(1), startDateTime, endDateTime, true);
 
         for (LocalDate day : sortedDays) {
-            Map<String, DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate> aggregatesForDay = new LinkedHashMap<>();
+            Map<String, long[]> slotsForDay = new LinkedHashMap<>();
             for (String sensorId : sensorIds) {
-                Map<String, Integer> dayStats = calculateStatsFromDataForSingleDay(
-                        dataPerSensor.getOrDefault(sensorId, Collections.emptyList()),
-                        day
-                );
-                aggregatesForDay.put(sensorId, new DashboardOccupancyDailyAggregateDao.DailyOccupancyAggregate(
-                        dayStats.get("occupied"),
-                        dayStats.get("total")
-                ));
+                slotsForDay.put(sensorId, sweepPerSensor.get(sensorId).dayMasks(day));
             }
-            result.put(day, aggregatesForDay);
+            result.put(day, slotsForDay);
         }
 
         return result;
@@ -1165,9 +1096,6 @@ public class OccupancyAnalyticsService {
                 : oldestTimestamp.toLocalDateTime().toLocalDate();
     }
 
-    public record OccupancyCacheBackfillSummary(LocalDate from, LocalDate to, int workingDaysRefreshed) {
-    }
-
     /**
      * Generate list of working days (Monday-Friday) between start and end date
      */
@@ -1184,73 +1112,4 @@ public class OccupancyAnalyticsService {
         
         return workingDays;
     }
-
-    /**
-     * Calculate occupancy stats for a single day from in-memory data
-     */
-    private Map<String, Integer> calculateStatsFromDataForSingleDay(List<Map<String, Object>> data, LocalDate day) {
-        List<LocalDateTime> intervals = generateBusinessHoursIntervals(day);
-        
-        int occupiedCount = 0;
-        int totalIntervalsWithData = 0;
-        
-        for (LocalDateTime intervalStart : intervals) {
-            LocalDateTime intervalEnd = intervalStart.plusMinutes(INTERVAL_MINUTES);
-            
-            boolean hasAnyData = false;
-            boolean isOccupied = false;
-            
-            for (Map<String, Object> row : data) {
-                try {
-                    Object receivedAtObj = row.get("received_at");
-                    if (receivedAtObj == null) continue;
-                    
-                    LocalDateTime timestamp;
-                    if (receivedAtObj instanceof java.sql.Timestamp) {
-                        timestamp = ((java.sql.Timestamp) receivedAtObj).toInstant().atZone(PARIS_ZONE).toLocalDateTime();
-                    } else if (receivedAtObj instanceof LocalDateTime) {
-                        timestamp = ZonedDateTime.of((LocalDateTime) receivedAtObj, UTC_ZONE).withZoneSameInstant(PARIS_ZONE).toLocalDateTime();
-                    } else {
-                        continue;
-                    }
-                    
-                    // Check if timestamp is within interval [start, end)
-                    if (timestamp.isBefore(intervalStart) || !timestamp.isBefore(intervalEnd)) {
-                        continue;
-                    }
-                    
-                    hasAnyData = true;
-                    
-                    String value = (String) row.get("value");
-                    if (value != null) {
-                        try {
-                            if (Integer.parseInt(value) > 0) {
-                                isOccupied = true;
-                                break;
-                            }
-                        } catch (NumberFormatException e) {
-                            if ("occupied".equalsIgnoreCase(value) || "used".equalsIgnoreCase(value)) {
-                                isOccupied = true;
-                                break;
-                            }
-                        }
-                    }
-                } catch (Exception e) {
-                    // Ignore parsing errors
-                }
-            }
-            
-            if (hasAnyData) {
-                totalIntervalsWithData++;
-                if (isOccupied) {
-                    occupiedCount++;
-                }
-            }
-        }
-        
-        Map<String, Integer> result = new HashMap<>();
-        result.put("occupied", occupiedCount);
-        result.put("total", totalIntervalsWithData);
-        return result;
-    }
 }
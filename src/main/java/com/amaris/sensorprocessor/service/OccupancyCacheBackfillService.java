@@ -0,0 +1,218 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.repository.OccupancyBackfillChunkDao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recalcul de tout l'historique du cache d'occupation (occupancy_slots et agrégats journaliers) en
+ * tâche de fond.
+ *
+ * L'historique est découpé en mois calendaires, traités du plus récent au plus ancien par
+ * occupancy.backfill.db-concurrency requêtes en parallèle. Chaque mois terminé est enregistré dans
+ * occupancy_backfill_chunk : un redémarrage (ou un dépassement de durée du job) reprend aux mois
+ * restants. L'avancement et l'estimation de fin sont exposés par getProgress().
+ */
+@Slf4j
+@Service
+public class OccupancyCacheBackfillService {
+
+    public static final String JOB_NAME = "occupancy-backfill";
+
+    public enum State { IDLE, RUNNING, COMPLETED, FAILED }
+
+    public record BackfillProgress(State state, LocalDate from, LocalDate to, int totalChunks, int resumedChunks,
+                                   int completedChunks, int failedChunks, int totalWorkingDays,
+                                   int processedWorkingDays, Instant startedAt, Instant finishedAt,
+                                   Long etaSeconds, String error) {
+    }
+
+    private record Chunk(LocalDate key, LocalDate start, LocalDate end) {
+    }
+
+    private static final ZoneId PARIS_ZONE = ZoneId.of("Europe/Paris");
+
+    private final OccupancyAnalyticsService occupancyAnalyticsService;
+    private final OccupancyBackfillChunkDao chunkDao;
+    private final ScheduledJobRunner scheduledJobRunner;
+    private final ThreadFactory backgroundThreadFactory;
+    private final int dbConcurrency;
+
+    private volatile Run current;
+
+    public OccupancyCacheBackfillService(OccupancyAnalyticsService occupancyAnalyticsService,
+                                         OccupancyBackfillChunkDao chunkDao,
+                                         ScheduledJobRunner scheduledJobRunner,
+                                         ThreadFactory backgroundThreadFactory,
+                                         @Value("${occupancy.backfill.db-concurrency:3}") int dbConcurrency) {
+        this.occupancyAnalyticsService = occupancyAnalyticsService;
+        this.chunkDao = chunkDao;
+        this.scheduledJobRunner = scheduledJobRunner;
+        this.backgroundThreadFactory = backgroundThreadFactory;
+        this.dbConcurrency = Math.max(1, dbConcurrency);
+    }
+
+    /**
+     * Lance le backfill en arrière-plan.
+     *
+     * @param restart oublie les mois déjà traités et recalcule tout l'historique
+     * @return false si un backfill est déjà en cours
+     */
+    public boolean start(boolean restart) {
+        return scheduledJobRunner.submit(JOB_NAME, () -> run(restart));
+    }
+
+    public BackfillProgress getProgress() {
+        Run run = current;
+        if (run == null) {
+            return new BackfillProgress(State.IDLE, null, null, 0, 0, 0, 0, 0, 0, null, null, null, null);
+        }
+        return run.snapshot();
+    }
+
+    private void run(boolean restart) {
+        LocalDate oldest = occupancyAnalyticsService.findOldestOccupancyDataDate();
+        LocalDate lastClosedDay = LocalDate.now(PARIS_ZONE).minusDays(1);
+        if (oldest == null || lastClosedDay.isBefore(oldest)) {
+            log.info("[occupancy-backfill] no closed occupancy history found to backfill");
+            current = Run.finishedEmpty(lastClosedDay);
+            return;
+        }
+
+        if (restart) {
+            int cleared = chunkDao.deleteAll();
+            log.info("[occupancy-backfill] restart requested, {} completed chunk(s) forgotten", cleared);
+        }
+
+        // Mois les plus récents d'abord : ce sont les plus consultés
+        List<Chunk> chunks = new ArrayList<>();
+        for (LocalDate month = lastClosedDay.withDayOfMonth(1); !month.isBefore(oldest.withDayOfMonth(1)); month = month.minusMonths(1)) {
+            LocalDate start = month.isBefore(oldest) ? oldest : month;
+            LocalDate monthEnd = month.plusMonths(1).minusDays(1);
+            chunks.add(new Chunk(month, start, monthEnd.isAfter(lastClosedDay) ? lastClosedDay : monthEnd));
+        }
+
+        Map<LocalDate, LocalDate> completed = chunkDao.findCompletedChunks(oldest.withDayOfMonth(1), lastClosedDay);
+        List<Chunk> pending = chunks.stream()
+                .filter(chunk -> completed.get(chunk.key()) == null || completed.get(chunk.key()).isBefore(chunk.end()))
+                .toList();
+
+        Run run = new Run(oldest, lastClosedDay, chunks.size(), chunks.size() - pending.size(),
+                pending.stream().mapToInt(chunk -> workingDays(chunk).size()).sum());
+        current = run;
+        log.info("[occupancy-backfill] start {}..{} chunks={} resumed={} pending={} workingDays={} concurrency={}",
+                oldest, lastClosedDay, chunks.size(), run.resumedChunks, pending.size(), run.totalWorkingDays, dbConcurrency);
+
+        ExecutorService pool = Executors.newFixedThreadPool(dbConcurrency, backgroundThreadFactory);
+        try {
+            for (Chunk chunk : pending) {
+                pool.execute(() -> processChunk(run, chunk));
+            }
+            pool.shutdown();
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("[occupancy-backfill] progress {}/{} working days, eta {}s",
+                        run.processedWorkingDays.get(), run.totalWorkingDays, run.snapshot().etaSeconds());
+            }
+            run.finish(run.failedChunks.get() == 0 ? null : run.failedChunks.get() + " chunk(s) failed, rerun to retry");
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            run.finish("interrupted, completed chunks are kept");
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        BackfillProgress progress = run.snapshot();
+        log.info("[occupancy-backfill] {} completed={} failed={} workingDays={}/{}",
+                progress.state(), progress.completedChunks(), progress.failedChunks(),
+                progress.processedWorkingDays(), progress.totalWorkingDays());
+    }
+
+    private void processChunk(Run run, Chunk chunk) {
+        if (Thread.currentThread().isInterrupted()) {
+            return;
+        }
+        long startedAt = System.currentTimeMillis();
+        try {
+            List<LocalDate> days = workingDays(chunk);
+            int refreshed = occupancyAnalyticsService.refreshCachedDailyOccupancyForDays(days);
+            long durationMs = System.currentTimeMillis() - startedAt;
+            chunkDao.markCompleted(chunk.key(), chunk.end(), refreshed, durationMs);
+            run.completedChunks.incrementAndGet();
+            run.processedWorkingDays.addAndGet(days.size());
+            log.info("[occupancy-backfill] chunk {} -> {} done ({} working days, {} ms)",
+                    chunk.start(), chunk.end(), refreshed, durationMs);
+        } catch (Exception e) {
+            run.failedChunks.incrementAndGet();
+            log.error("[occupancy-backfill] chunk {} -> {} failed: {}", chunk.start(), chunk.end(), e.getMessage(), e);
+        }
+    }
+
+    private static List<LocalDate> workingDays(Chunk chunk) {
+        return chunk.start().datesUntil(chunk.end().plusDays(1))
+                .filter(day -> day.getDayOfWeek().getValue() <= 5)
+                .toList();
+    }
+
+    private static final class Run {
+        private final LocalDate from;
+        private final LocalDate to;
+        private final int totalChunks;
+        private final int resumedChunks;
+        private final int totalWorkingDays;
+        private final Instant startedAt = Instant.now();
+        private final AtomicInteger completedChunks = new AtomicInteger();
+        private final AtomicInteger failedChunks = new AtomicInteger();
+        private final AtomicInteger processedWorkingDays = new AtomicInteger();
+        private volatile Instant finishedAt;
+        private volatile String error;
+
+        private Run(LocalDate from, LocalDate to, int totalChunks, int resumedChunks, int totalWorkingDays) {
+            this.from = from;
+            this.to = to;
+            this.totalChunks = totalChunks;
+            this.resumedChunks = resumedChunks;
+            this.totalWorkingDays = totalWorkingDays;
+        }
+
+        private static Run finishedEmpty(LocalDate to) {
+            Run run = new Run(null, to, 0, 0, 0);
+            run.finish(null);
+            return run;
+        }
+
+        private void finish(String error) {
+            this.error = error;
+            this.finishedAt = Instant.now();
+        }
+
+        private BackfillProgress snapshot() {
+            Instant finished = finishedAt;
+            int processed = processedWorkingDays.get();
+            State state = finished == null ? State.RUNNING : error == null ? State.COMPLETED : State.FAILED;
+
+            // Débit observé depuis le début de cette exécution (les mois repris ne comptent pas)
+            Long etaSeconds = null;
+            if (finished == null && processed > 0) {
+                long elapsedMs = Duration.between(startedAt, Instant.now()).toMillis();
+                etaSeconds = elapsedMs * (totalWorkingDays - processed) / processed / 1000;
+            }
+            return new BackfillProgress(state, from, to, totalChunks, resumedChunks, completedChunks.get(),
+                    failedChunks.get(), totalWorkingDays, processed, startedAt, finished, etaSeconds, error);
+        }
+    }
+}
@@ -0,0 +1,251 @@
+package com.amaris.sensorprocessor.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Map;
+
+/**
+ * Créneaux de 30 minutes d'un capteur sur une plage de jours, remplis en un seul passage sur les trames.
+ *
+ * Chaque trame est convertie une seule fois en minute locale Europe/Paris (entier), puis rangée par
+ * division entière dans un tableau de créneaux (48 par jour). Le comptage applique ensuite le masque
+ * des heures ouvrées (9h00-12h30 et 14h00-18h30) : O(trames + créneaux) au lieu de
+ * O(créneaux × trames) pour le parcours intervalle par intervalle.
+ *
+ * Sémantique identique au calcul historique : un créneau "a des données" dès qu'une trame y tombe,
+ * il est "occupé" si l'une d'elles vaut un entier > 0, "occupied" ou "used". Pour les capteurs de
+ * comptage, un créneau ayant reçu des PERIOD_IN / PERIOD_OUT est occupé si le flux net (in - out)
+ * y est non nul, quelles que soient ses trames OCCUPANCY.
+ */
+public final class OccupancySlotSweep {
+
+    public static final int SLOT_MINUTES = 30;
+    public static final int SLOTS_PER_DAY = 24 * 60 / SLOT_MINUTES;
+
+    // 9h00-12h30 (créneaux 18 à 24) et 14h00-18h30 (créneaux 28 à 36)
+    public static final long MORNING_SLOT_MASK = slotMask(9 * 60, 12 * 60 + 30);
+    public static final long AFTERNOON_SLOT_MASK = slotMask(14 * 60, 18 * 60 + 30);
+    public static final long BUSINESS_SLOT_MASK = MORNING_SLOT_MASK | AFTERNOON_SLOT_MASK;
+
+    private static final byte HAS_DATA = 1;
+    private static final byte OCCUPIED = 2;
+    private static final byte HAS_FLOW = 4;
+
+    private static final ZoneRules PARIS_RULES = ZoneId.of("Europe/Paris").getRules();
+
+    private final long firstEpochDay;
+    private final int days;
+    private final byte[] slots;
+    private int[] netFlow;
+
+    // Décalage Paris valable sur [offsetValidFrom, offsetValidUntil) : les trames arrivent triées,
+    // la règle de fuseau n'est donc consultée qu'au changement d'heure.
+    private long offsetValidFrom = Long.MAX_VALUE;
+    private long offsetValidUntil = Long.MIN_VALUE;
+    private int offsetSeconds;
+
+    /**
+     * @param startDate        premier jour couvert
+     * @param endDateExclusive lendemain du dernier jour couvert
+     */
+    public OccupancySlotSweep(LocalDate startDate, LocalDate endDateExclusive) {
+        this.firstEpochDay = startDate.toEpochDay();
+        this.days = (int) Math.max(0, endDateExclusive.toEpochDay() - firstEpochDay);
+        this.slots = new byte[days * SLOTS_PER_DAY];
+    }
+
+    /**
+     * Trame brute issue de jdbcTemplate.queryForList (received_at, value).
+     * received_at est stocké en UTC ; un Timestamp JDBC est lu dans le fuseau de la JVM, comme avant.
+     */
+    public void acceptRow(Map<String, Object> row) {
+        acceptRaw(row.get("received_at"), row.get("value"));
+    }
+
+    /**
+     * Trame brute lue colonne par colonne (ResultSet.getObject), même règle que acceptRow.
+     */
+    public void acceptRaw(Object receivedAt, Object value) {
+        long epochSecond;
+        if (receivedAt instanceof Timestamp ts) {
+            epochSecond = Math.floorDiv(ts.getTime(), 1000L);
+        } else if (receivedAt instanceof LocalDateTime ldt) {
+            epochSecond = ldt.toEpochSecond(ZoneOffset.UTC);
+        } else {
+            return;
+        }
+        accept(epochSecond, value instanceof String s && isOccupiedValue(s));
+    }
+
+    /**
+     * Trame à l'instant epochSecond (UTC).
+     */
+    public void accept(long epochSecond, boolean occupied) {
+        int index = slotIndex(epochSecond);
+        if (index >= 0) {
+            slots[index] |= occupied ? HAS_DATA | OCCUPIED : HAS_DATA;
+        }
+    }
+
+    /**
+     * Trame PERIOD_IN (delta positif) ou PERIOD_OUT (delta négatif) d'un capteur de comptage.
+     */
+    public void acceptFlow(long epochSecond, int delta) {
+        int index = slotIndex(epochSecond);
+        if (index < 0) {
+            return;
+        }
+        if (netFlow == null) {
+            netFlow = new int[slots.length];
+        }
+        slots[index] |= HAS_FLOW;
+        netFlow[index] += delta;
+    }
+
+    /**
+     * Créneau déjà agrégé (jour local Paris, index du créneau dans la journée).
+     */
+    public void mark(long localEpochDay, int slotOfDay, boolean hasData, boolean occupied) {
+        long dayIndex = localEpochDay - firstEpochDay;
+        if (dayIndex < 0 || dayIndex >= days || slotOfDay < 0 || slotOfDay >= SLOTS_PER_DAY) {
+            return;
+        }
+        int index = (int) dayIndex * SLOTS_PER_DAY + slotOfDay;
+        if (hasData) {
+            slots[index] |= HAS_DATA;
+        }
+        if (occupied) {
+            slots[index] |= OCCUPIED;
+        }
+    }
+
+    /**
+     * Créneaux ouvrés avec données et créneaux occupés sur [from, toExclusive).
+     *
+     * @param workingDaysOnly ignore samedi et dimanche
+     * @return {occupés, avec données}
+     */
+    public int[] count(LocalDate from, LocalDate toExclusive, boolean workingDaysOnly) {
+        long startDay = Math.max(from.toEpochDay(), firstEpochDay);
+        long endDay = Math.min(toExclusive.toEpochDay(), firstEpochDay + days);
+
+        int occupied = 0;
+        int total = 0;
+        for (long day = startDay; day < endDay; day++) {
+            if (workingDaysOnly && isWeekend(day)) {
+                continue;
+            }
+            int base = (int) (day - firstEpochDay) * SLOTS_PER_DAY;
+            for (int slot = 0; slot < SLOTS_PER_DAY; slot++) {
+                if ((BUSINESS_SLOT_MASK & (1L << slot)) == 0) {
+                    continue;
+                }
+                byte flags = slots[base + slot];
+                if ((flags & HAS_FLOW) != 0) {
+                    total++;
+                    if (netFlow[base + slot] != 0) {
+                        occupied++;
+                    }
+                } else if ((flags & HAS_DATA) != 0) {
+                    total++;
+                    if ((flags & OCCUPIED) != 0) {
+                        occupied++;
+                    }
+                }
+            }
+        }
+        return new int[]{occupied, total};
+    }
+
+    /**
+     * Masques du jour (bit i = créneau i de la journée) : {avec données, occupés}.
+     */
+    public long[] dayMasks(LocalDate day) {
+        long dayIndex = day.toEpochDay() - firstEpochDay;
+        long hasData = 0L;
+        long occupied = 0L;
+        if (dayIndex >= 0 && dayIndex < days) {
+            int base = (int) dayIndex * SLOTS_PER_DAY;
+            for (int slot = 0; slot < SLOTS_PER_DAY; slot++) {
+                byte flags = slots[base + slot];
+                if ((flags & HAS_FLOW) != 0) {
+                    hasData |= 1L << slot;
+                    if (netFlow[base + slot] != 0) {
+                        occupied |= 1L << slot;
+                    }
+                } else if ((flags & HAS_DATA) != 0) {
+                    hasData |= 1L << slot;
+                    if ((flags & OCCUPIED) != 0) {
+                        occupied |= 1L << slot;
+                    }
+                }
+            }
+        }
+        return new long[]{hasData, occupied};
+    }
+
+    /**
+     * Créneaux de slotMask avec données et occupés d'après les masques d'un jour ({avec données, occupés}).
+     *
+     * @return {occupés, avec données}
+     */
+    public static int[] countMasks(long[] dayMasks, long slotMask) {
+        long hasData = dayMasks[0] & slotMask;
+        return new int[]{Long.bitCount(dayMasks[1] & hasData), Long.bitCount(hasData)};
+    }
+
+    public static boolean isOccupiedValue(String value) {
+        if (value == null) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(value) > 0;
+        } catch (NumberFormatException e) {
+            return "occupied".equalsIgnoreCase(value) || "used".equalsIgnoreCase(value);
+        }
+    }
+
+    // Index du créneau (heure locale Paris) contenant epochSecond, -1 hors plage
+    private int slotIndex(long epochSecond) {
+        long localMinute = Math.floorDiv(epochSecond + parisOffsetSeconds(epochSecond), 60L);
+        long dayIndex = Math.floorDiv(localMinute, 24L * 60L) - firstEpochDay;
+        if (dayIndex < 0 || dayIndex >= days) {
+            return -1;
+        }
+        return (int) dayIndex * SLOTS_PER_DAY + (int) (Math.floorMod(localMinute, 24L * 60L) / SLOT_MINUTES);
+    }
+
+    // 1970-01-01 était un jeudi : (epochDay + 3) mod 7 donne 0 pour lundi
+    private static boolean isWeekend(long epochDay) {
+        return Math.floorMod(epochDay + 3, 7) >= 5;
+    }
+
+    private int parisOffsetSeconds(long epochSecond) {
+        if (epochSecond < offsetValidFrom || epochSecond >= offsetValidUntil) {
+            Instant instant = Instant.ofEpochSecond(epochSecond);
+            offsetSeconds = PARIS_RULES.getOffset(instant).getTotalSeconds();
+            ZoneOffsetTransition previous = PARIS_RULES.previousTransition(instant.plusSeconds(1));
+            ZoneOffsetTransition next = PARIS_RULES.nextTransition(instant);
+            offsetValidFrom = previous != null ? previous.toEpochSecond() : Long.MIN_VALUE;
+            offsetValidUntil = next != null ? next.toEpochSecond() : Long.MAX_VALUE;
+        }
+        return offsetSeconds;
+    }
+
+    /**
+     * Créneaux commençant dans [fromMinute, toMinute) de la journée (minutes locales).
+     */
+    public static long slotMask(int fromMinute, int toMinute) {
+        long mask = 0L;
+        for (int slot = fromMinute / SLOT_MINUTES; slot * SLOT_MINUTES < toMinute; slot++) {
+            mask |= 1L << slot;
+        }
+        return mask;
+    }
+}
@@ -0,0 +1,224 @@
+package com.amaris.sensorprocessor.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exécution des tâches planifiées hors du thread du TaskScheduler Spring.
+ *
+ * Les méthodes @Scheduled (et les planificateurs internes comme celui de GatewaySyncService) ne font
+ * que soumettre leur travail ici. Chaque job a son propre exécuteur (thread virtuel si activé) : un
+ * rafraîchissement lent ou un appel réseau bloqué ne retarde plus les autres jobs. Un job encore en
+ * cours n'est pas relancé, un chien de garde interrompt les exécutions trop longues, et l'historique
+ * des dernières exécutions est exposé par /actuator/jobs. Les déclenchements ignorés n'y figurent pas :
+ * ils sont seulement comptés, pour ne pas chasser les vraies exécutions de l'historique.
+ */
+@Slf4j
+@Service
+public class ScheduledJobRunner {
+
+    public enum Outcome { SUCCESS, FAILED, TIMED_OUT }
+
+    public record JobRun(Instant startedAt, long durationMs, Outcome outcome, String error) {
+    }
+
+    private static final int HISTORY_SIZE = 20;
+
+    private final ThreadFactory backgroundThreadFactory;
+    private final Environment environment;
+    private final long defaultMaxRuntimeMs;
+    private final Map<String, JobState> jobs = new ConcurrentHashMap<>();
+
+    public ScheduledJobRunner(ThreadFactory backgroundThreadFactory,
+                              Environment environment,
+                              @Value("${app.jobs.max-runtime-minutes:30}") long defaultMaxRuntimeMinutes) {
+        this.backgroundThreadFactory = backgroundThreadFactory;
+        this.environment = environment;
+        this.defaultMaxRuntimeMs = TimeUnit.MINUTES.toMillis(defaultMaxRuntimeMinutes);
+    }
+
+    /**
+     * Lance le job sur son exécuteur, sauf si l'exécution précédente n'est pas terminée.
+     *
+     * @return false si l'exécution a été ignorée
+     */
+    public boolean submit(String jobName, Runnable task) {
+        JobState job = jobs.computeIfAbsent(jobName, this::newJob);
+        if (!job.running.compareAndSet(false, true)) {
+            job.skipped.incrementAndGet();
+            job.lastSkippedAt = System.currentTimeMillis();
+            // Fréquent pour les jobs rapprochés : visible dans /actuator/jobs, pas dans les logs
+            log.debug("[Jobs] {} skipped: previous run started {} ms ago is still running",
+                    jobName, job.lastSkippedAt - job.startedAt);
+            return false;
+        }
+        job.startedAt = System.currentTimeMillis();
+        job.timedOut = false;
+        try {
+            job.current = job.executor.submit(() -> run(job, task));
+            return true;
+        } catch (RuntimeException e) {
+            job.running.set(false);
+            job.record(new JobRun(Instant.now(), 0, Outcome.FAILED, "rejected: " + e.getMessage()));
+            log.error("[Jobs] {} could not be started: {}", jobName, e.getMessage());
+            return false;
+        }
+    }
+
+    private void run(JobState job, Runnable task) {
+        long start = job.startedAt;
+        Outcome outcome = Outcome.SUCCESS;
+        String error = null;
+        try {
+            task.run();
+        } catch (Throwable e) {
+            outcome = Outcome.FAILED;
+            error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            log.error("[Jobs] {} failed: {}", job.name, e.getMessage(), e);
+        } finally {
+            long duration = System.currentTimeMillis() - start;
+            if (job.timedOut) {
+                outcome = Outcome.TIMED_OUT;
+                error = "exceeded max runtime of " + job.maxRuntimeMs + " ms";
+            }
+            job.record(new JobRun(Instant.ofEpochMilli(start), duration, outcome, error));
+            job.current = null;
+            job.running.set(false);
+            log.debug("[Jobs] {} finished in {} ms ({})", job.name, duration, outcome);
+        }
+    }
+
+    /**
+     * Chien de garde : interrompt les jobs qui dépassent leur durée maximale.
+     */
+    @Scheduled(fixedDelay = 30_000)
+    public void enforceMaxRuntime() {
+        long now = System.currentTimeMillis();
+        jobs.values().forEach(job -> {
+            Future<?> current = job.current;
+            if (job.running.get() && current != null && !job.timedOut && now - job.startedAt > job.maxRuntimeMs) {
+                job.timedOut = true;
+                log.error("[Jobs] {} exceeded max runtime ({} ms), interrupting", job.name, job.maxRuntimeMs);
+                current.cancel(true);
+            }
+        });
+    }
+
+    public Map<String, Object> describeJobs() {
+        Map<String, Object> result = new TreeMap<>();
+        long now = System.currentTimeMillis();
+        jobs.values().forEach(job -> {
+            Map<String, Object> info = new LinkedHashMap<>();
+            boolean running = job.running.get();
+            info.put("running", running);
+            if (running) {
+                info.put("runningForMs", now - job.startedAt);
+            }
+            info.put("maxRuntimeMs", job.maxRuntimeMs);
+            info.put("runs", job.runs.get());
+            info.put("failures", job.failures.get());
+            info.put("skipped", job.skipped.get());
+            long lastSkippedAt = job.lastSkippedAt;
+            info.put("lastSkippedAt", lastSkippedAt == 0 ? null : Instant.ofEpochMilli(lastSkippedAt));
+            info.put("timeouts", job.timeouts.get());
+            List<JobRun> history = job.history();
+            info.put("lastRun", history.isEmpty() ? null : history.get(history.size() - 1));
+            info.put("history", history);
+            result.put(job.name, info);
+        });
+        return result;
+    }
+
+    /**
+     * Oublie un job dont le déclencheur a été arrêté (gateway supprimée) : son exécuteur est arrêté,
+     * l'exécution en cours éventuelle interrompue.
+     */
+    public void remove(String jobName) {
+        JobState job = jobs.remove(jobName);
+        if (job != null) {
+            job.executor.shutdownNow();
+            log.info("[Jobs] {} removed", jobName);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobs.values().forEach(job -> job.executor.shutdownNow());
+    }
+
+    private JobState newJob(String jobName) {
+        // Durée max propre au job (app.jobs.<job>.max-runtime-minutes), sinon valeur commune
+        String jobKey = jobName.contains(":") ? jobName.substring(0, jobName.indexOf(':')) : jobName;
+        Long minutes = environment.getProperty("app.jobs." + jobKey + ".max-runtime-minutes", Long.class);
+        long maxRuntimeMs = minutes != null ? TimeUnit.MINUTES.toMillis(minutes) : defaultMaxRuntimeMs;
+
+        // Un thread par job, libéré après une minute d'inactivité
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), backgroundThreadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        return new JobState(jobName, executor, maxRuntimeMs);
+    }
+
+    private static final class JobState {
+        private final String name;
+        private final ThreadPoolExecutor executor;
+        private final long maxRuntimeMs;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private final AtomicLong runs = new AtomicLong();
+        private final AtomicLong failures = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+        private final AtomicLong timeouts = new AtomicLong();
+        private final Deque<JobRun> history = new ArrayDeque<>(HISTORY_SIZE);
+        private volatile long startedAt;
+        private volatile long lastSkippedAt;
+        private volatile boolean timedOut;
+        private volatile Future<?> current;
+
+        private JobState(String name, ThreadPoolExecutor executor, long maxRuntimeMs) {
+            this.name = name;
+            this.executor = executor;
+            this.maxRuntimeMs = maxRuntimeMs;
+        }
+
+        private void record(JobRun run) {
+            switch (run.outcome()) {
+                case FAILED -> { runs.incrementAndGet(); failures.incrementAndGet(); }
+                case TIMED_OUT -> { runs.incrementAndGet(); timeouts.incrementAndGet(); }
+                default -> runs.incrementAndGet();
+            }
+            synchronized (history) {
+                if (history.size() == HISTORY_SIZE) {
+                    history.removeFirst();
+                }
+                history.addLast(run);
+            }
+        }
+
+        private List<JobRun> history() {
+            synchronized (history) {
+                return new ArrayList<>(history);
+            }
+        }
+    }
+}
@@ -5,6 +5,8 @@ import com.amaris.sensorprocessor.entity.LorawanSensorData;
 import com.amaris.sensorprocessor.entity.PayloadValueType;
 import com.amaris.sensorprocessor.entity.Sensor;
 import com.amaris.sensorprocessor.entity.SensorData;
+import com.amaris.sensorprocessor.repository.EnergyDeltaHourlyDao;
+import com.amaris.sensorprocessor.repository.EnergyDeltaHourlyDao.HourlyDelta;
 import com.amaris.sensorprocessor.repository.SensorDao;
 import com.amaris.sensorprocessor.repository.SensorDataDao;
 
@@ -23,13 +25,16 @@ import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.reactive.function.client.WebClientResponseException;
 import reactor.core.publisher.Flux;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -37,6 +42,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -46,11 +52,13 @@ public class SensorService {
 
     private final SensorDao sensorDao;
     private final SensorDataDao sensorDataDao;
+    private final EnergyDeltaHourlyDao energyDeltaHourlyDao;
     private final SensorLorawanService lorawanService;
     private final WebClient webClient;
     private final WebClient webClientSse;
     private final DeviceTypeService deviceTypeService;
     private final BrandService brandService;
+    private final TopologyRegistry topologyRegistry;
 
     @Value("${api.base.url}")
     private String baseUrl;
@@ -141,13 +149,7 @@ public class SensorService {
      * @return List of sensor IDs
      */
     public List<String> getSensorIdsByTypeAndBuilding(String deviceType, Integer building) {
-        List<Sensor> sensors;
-        if (building == null) {
-            sensors = sensorDao.findAllByDeviceType(deviceType);
-        } else {
-            sensors = sensorDao.findAllByDeviceTypeAndBuilding(deviceType, building);
-        }
-        return sensors.stream()
+        return topologyRegistry.sensorsByDeviceType(deviceType, building).stream()
                 .map(Sensor::getIdSensor)
                 .collect(java.util.stream.Collectors.toList());
     }
@@ -201,83 +203,86 @@ public class SensorService {
         return groupedData;
     }
 
+    /**
+     * Consommation horaire (Wh) des canaux demandés, lue dans energy_delta_hourly : les heures de
+     * [startDate, endDate] sans consommation sont omises.
+     */
     public Map<Date, Double> getConsumptionByChannels(String idSensor, Date startDate, Date endDate,
                                                       List<String> channels) {
-        ZoneId parisZone = ZoneId.of("Europe/Paris");
-
-        Set<PayloadValueType> energyChannels = channels.stream()
+        List<PayloadValueType> energyChannels = channels.stream()
                 .map(ch -> PayloadValueType.valueOf("ENERGY_CHANNEL_" + ch))
-                .collect(Collectors.toSet());
+                .distinct()
+                .toList();
 
-        // Recule d'1h pour avoir la valeur de référence du premier point
-        Instant adjustedStartInstant = startDate.toInstant().minus(1, ChronoUnit.HOURS);
-        Date adjustedStartDate = Date.from(adjustedStartInstant);
-        List<SensorData> allSensorData = sensorDataDao.findSensorDataByPeriodAndTypes2(idSensor, adjustedStartDate, endDate, energyChannels);
+        // Heures UTC alignées sur celles de Paris : l'heure entamée en fin de période est incluse
+        LocalDateTime startHour = LocalDateTime.ofInstant(startDate.toInstant(), ZoneOffset.UTC).truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime endHour = LocalDateTime.ofInstant(endDate.toInstant(), ZoneOffset.UTC).truncatedTo(ChronoUnit.HOURS).plusHours(1);
 
-        // Heure de début tronquée (Paris timezone pour cohérence avec le dashboard)
-        Instant startInstant = adjustedStartInstant.atZone(parisZone).truncatedTo(ChronoUnit.HOURS).toInstant();
-        Instant endInstant = endDate.toInstant();
+        Map<LocalDateTime, Double> consumptionByHour = new TreeMap<>();
+        for (HourlyDelta hour : energyDeltaHourlyDao.findHourly(List.of(idSensor), energyChannels, startHour, endHour)) {
+            consumptionByHour.merge(hour.hourUtc(), hour.wh(), Double::sum);
+        }
 
-        // Forward-fill : à chaque heure, snapshot de la dernière valeur connue par channel
-        Map<Instant, Map<PayloadValueType, Double>> hourlyChannelValues = new LinkedHashMap<>();
-        Map<PayloadValueType, Double> lastKnownValues = new HashMap<>();
+        Map<Date, Double> finalHourlyConsumption = new LinkedHashMap<>();
+        consumptionByHour.forEach((hour, wh) -> {
+            if (wh > 0) {
+                finalHourlyConsumption.put(Date.from(hour.toInstant(ZoneOffset.UTC)), wh);
+            }
+        });
+        return finalHourlyConsumption;
+    }
 
-        // Initialise avec la dernière valeur avant la période (compteur cumulatif)
-        for (PayloadValueType channel : energyChannels) {
-            Optional<SensorData> lastData = sensorDataDao.findLastValueBefore(idSensor, channel, startInstant);
-            lastKnownValues.put(channel, lastData.map(SensorData::getValueAsDouble).orElse(null));
+    /**
+     * Séries des types demandés rééchantillonnées au pas donné sur [startDate, endDate) : chaque pas
+     * (début du pas, UTC comme received_at) porte la dernière valeur connue à sa fin. Une requête pour
+     * les valeurs de départ de tous les types, puis un seul parcours des trames ; les pas sans valeur
+     * connue sont omis.
+     */
+    public Map<PayloadValueType, LinkedHashMap<LocalDateTime, String>> resampleSensorData(
+            String idSensor, Date startDate, Date endDate, Duration step, Collection<PayloadValueType> types) {
+        List<PayloadValueType> channels = types.stream().distinct().toList();
+        Map<PayloadValueType, LinkedHashMap<LocalDateTime, String>> result = new LinkedHashMap<>();
+        if (channels.isEmpty()) {
+            return result;
         }
+        ForwardFillResampler resampler = new ForwardFillResampler(
+                startDate.getTime(), endDate.getTime(), step.toMillis(), channels.size());
 
-        Instant currentHour = startInstant;
-        int dataIndex = 0;
-
-        while (!currentHour.isAfter(endInstant)) {
-            Instant nextHour = currentHour.plus(1, ChronoUnit.HOURS);
-            // Process all data points that fall before nextHour (i.e., within this hour slot or earlier)
-            while (dataIndex < allSensorData.size()) {
-                SensorData dataPoint = allSensorData.get(dataIndex);
-                Instant dataTimestamp = dataPoint.getReceivedAt().atZone(java.time.ZoneOffset.UTC).toInstant();
-                if (!dataTimestamp.isBefore(nextHour)) break; // belongs to next slot or later
-                Double value = dataPoint.getValueAsDouble();
-                if (value != null) lastKnownValues.put(dataPoint.getValueType(), value);
-                dataIndex++;
-            }
-            hourlyChannelValues.put(currentHour, new HashMap<>(lastKnownValues));
-            currentHour = nextHour;
+        Map<PayloadValueType, Integer> channelIndex = new EnumMap<>(PayloadValueType.class);
+        for (int i = 0; i < channels.size(); i++) {
+            channelIndex.put(channels.get(i), i);
         }
 
-        // Consommation horaire = différence entre snapshots consécutifs
-        Map<Date, Double> finalHourlyConsumption = new LinkedHashMap<>();
-        List<Instant> hours = new ArrayList<>(hourlyChannelValues.keySet());
-        hours.sort(Instant::compareTo);
-
-        for (int i = 1; i < hours.size(); i++) {
-            Instant currentHourKey = hours.get(i);
-            Instant previousHourKey = hours.get(i - 1);
-
-            Map<PayloadValueType, Double> currentValues = hourlyChannelValues.get(currentHourKey);
-            Map<PayloadValueType, Double> previousValues = hourlyChannelValues.get(previousHourKey);
-
-            double totalConsumption = 0.0;
-            for (PayloadValueType channel : energyChannels) {
-                Double currentValue = currentValues.get(channel);
-                Double previousValue = previousValues.get(channel);
-                if (currentValue == null || previousValue == null) continue;
-                double consumption = currentValue - previousValue;
-                if (consumption < 0) {
-                    // Reset du compteur détecté → on ignore cette heure
-                    log.warn("⚠️ Reset compteur {} à {}: {} → {} Wh", channel.name(), currentHourKey, previousValue, currentValue);
-                    consumption = 0.0;
+        LocalDateTime startUtc = LocalDateTime.ofInstant(startDate.toInstant(), ZoneOffset.UTC);
+        LocalDateTime endUtc = LocalDateTime.ofInstant(endDate.toInstant(), ZoneOffset.UTC);
+        sensorDataDao.findLastValuesBefore(idSensor, channels, startUtc)
+                .forEach((type, value) -> resampler.seed(channelIndex.get(type), value));
+        sensorDataDao.forEachNumericReading(idSensor, channels, startUtc, endUtc, (type, receivedAtUtc, value) ->
+                resampler.accept(channelIndex.get(type), receivedAtUtc.toInstant(ZoneOffset.UTC).toEpochMilli(), value));
+
+        double[][] values = resampler.fill();
+        long[] axis = resampler.axis();
+        for (int i = 0; i < channels.size(); i++) {
+            LinkedHashMap<LocalDateTime, String> series = new LinkedHashMap<>();
+            for (int b = 0; b < axis.length; b++) {
+                if (!Double.isNaN(values[i][b])) {
+                    series.put(LocalDateTime.ofInstant(Instant.ofEpochMilli(axis[b]), ZoneOffset.UTC),
+                            String.valueOf(values[i][b]));
                 }
-                totalConsumption += consumption;
             }
-
-            if (totalConsumption > 0) {
-                finalHourlyConsumption.put(Date.from(currentHourKey), totalConsumption);
+            if (!series.isEmpty()) {
+                result.put(channels.get(i), series);
             }
         }
+        return result;
+    }
 
-        return finalHourlyConsumption;
+    /**
+     * Historique de tous les types remontés par le capteur, rééchantillonné (voir resampleSensorData).
+     */
+    public Map<PayloadValueType, LinkedHashMap<LocalDateTime, String>> resampleSensorData(
+            String idSensor, Date startDate, Date endDate, Duration step) {
+        return resampleSensorData(idSensor, startDate, endDate, step, getSensorData(idSensor).keySet());
     }
 
     public Double getCurrentConsumption(String idSensor, List<String> channels, int minutes) {
@@ -332,6 +337,7 @@ public class SensorService {
         int rows = sensorDao.insertSensor(toCreate);
         if (rows != 1) throw new IllegalStateException("DB insert failed for sensor " + toCreate.getIdSensor());
         log.info("[Sensor] DB created idSensor={}", toCreate.getIdSensor());
+        topologyRegistry.refreshSensor(toCreate.getIdSensor());
 
         try {
             if (toCreate.getIdGateway() == null || toCreate.getIdGateway().isBlank()) {
@@ -415,6 +421,7 @@ public class SensorService {
         int rows = sensorDao.updateSensor(existing);
         if (rows != 1) throw new IllegalStateException("DB update failed for sensor " + idSensor);
         log.info("[Sensor] DB updated idSensor={}", idSensor);
+        topologyRegistry.refreshSensor(idSensor);
 
         if (ttnUpdateNeeded) {
             try {
@@ -460,6 +467,7 @@ public class SensorService {
         if (rows == 0) throw new IllegalArgumentException("Sensor not found: " + idSensor);
 
         log.info("[Sensor] DB deleted idSensor={}", idSensor);
+        topologyRegistry.removeSensor(idSensor);
     }
 
     /* ===================== SET STATUS ===================== */
@@ -471,6 +479,7 @@ public class SensorService {
 
         int rows = sensorDao.updateSensor(existing);
         if (rows != 1) throw new IllegalStateException("DB update status failed for " + idSensor);
+        topologyRegistry.refreshSensor(idSensor);
 
         return existing;
     }
@@ -15,10 +15,12 @@ import java.util.Optional;
 public class SensorThresholdService {
 
     private final SensorThresholdDao sensorThresholdDao;
+    private final AlertRuleIndex alertRuleIndex;
 
     @Autowired
-    public SensorThresholdService(SensorThresholdDao sensorThresholdDao) {
+    public SensorThresholdService(SensorThresholdDao sensorThresholdDao, AlertRuleIndex alertRuleIndex) {
         this.sensorThresholdDao = sensorThresholdDao;
+        this.alertRuleIndex = alertRuleIndex;
     }
 
     @PostConstruct
@@ -30,6 +32,7 @@ public class SensorThresholdService {
         sensorThresholdDao.save(threshold);
         log.info("Saved threshold for sensor {} and parameter {}", 
                 threshold.getSensorId(), threshold.getParameterType());
+        alertRuleIndex.rebuild();
     }
 
     public List<SensorThreshold> getThresholdsForSensor(String sensorId) {
@@ -46,6 +49,7 @@ public class SensorThresholdService {
 
     public void deleteThreshold(String id) {
         sensorThresholdDao.delete(id);
+        alertRuleIndex.rebuild();
     }
     
     public Optional<SensorThreshold> getThresholdById(String id) {
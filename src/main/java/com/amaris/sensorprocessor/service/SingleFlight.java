@@ -0,0 +1,89 @@
+package com.amaris.sensorprocessor.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Calcul partagé par les appels simultanés d'une même clé (DashboardResponseCache,
+ * DashboardSnapshotStore) : le premier appelant le lance avec run(), les suivants attendent son
+ * résultat avec join().
+ *
+ * - tout échec du calcul, Error compris, libère les appelants en attente et retire le calcul de sa
+ *   table avant de leur être transmis : l'appel suivant relance le calcul ;
+ * - un calcul qui dure plus que timeoutMillis est considéré comme bloqué (isStuck) : les appelants
+ *   en attente abandonnent et la table peut le remplacer par un nouveau calcul.
+ */
+final class SingleFlight<T> {
+
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    private final long startedAtMillis;
+    private final long timeoutMillis;
+
+    SingleFlight(long startedAtMillis, long timeoutMillis) {
+        this.startedAtMillis = startedAtMillis;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Exécute le calcul (appelant propriétaire).
+     *
+     * @param onFailure retire ce calcul de sa table ; appelé avant que l'échec ne soit transmis
+     */
+    T run(Supplier<T> loader, Runnable onFailure) {
+        T value;
+        try {
+            value = loader.get();
+        } catch (Throwable e) {
+            onFailure.run();
+            result.completeExceptionally(e);
+            throw e;
+        }
+        result.complete(value);
+        return value;
+    }
+
+    /**
+     * Termine le calcul de l'extérieur (nouvel essai réussi) ; sans effet s'il est déjà terminé.
+     */
+    void complete(T value) {
+        result.complete(value);
+    }
+
+    /**
+     * Attend le résultat du propriétaire, au plus jusqu'à la fin du délai du calcul.
+     */
+    T join(long nowMillis) {
+        long remaining = Math.max(0, startedAtMillis + timeoutMillis - nowMillis);
+        try {
+            return result.get(remaining, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new CompletionException(e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Shared computation still running after " + timeoutMillis + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a shared computation", e);
+        }
+    }
+
+    boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * Calcul toujours en cours après son délai : à remplacer par un nouveau calcul.
+     */
+    boolean isStuck(long nowMillis) {
+        return !result.isDone() && nowMillis - startedAtMillis >= timeoutMillis;
+    }
+}
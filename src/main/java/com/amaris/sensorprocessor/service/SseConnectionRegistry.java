@@ -0,0 +1,243 @@
+package com.amaris.sensorprocessor.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.security.Principal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+/**
+ * Registre central des flux SSE exposés par les contrôleurs.
+ *
+ * - un seul ticker de heartbeat partagé par toutes les connexions ;
+ * - un tampon borné par connexion (LATEST : seul le dernier événement compte,
+ *   DROP_OLDEST : on garde les N derniers) pour qu'un client lent ne fasse pas grossir le heap ;
+ *   les heartbeats n'y entrent pas : ils sont ajoutés après, et perdus si le client ne suit pas ;
+ * - un plafond de flux simultanés par utilisateur ;
+ * - l'éviction des connexions qui ne consomment plus rien (heartbeats compris).
+ */
+@Slf4j
+@Service
+public class SseConnectionRegistry {
+
+    public enum OverflowPolicy {
+        /** Flux d'états (agrégats, alertes) : seul le dernier état est utile. */
+        LATEST,
+        /** Flux d'événements (uplinks) : on garde les plus récents dans la limite du tampon. */
+        DROP_OLDEST
+    }
+
+    private final Map<Long, StreamHandle> streams = new ConcurrentHashMap<>();
+    private final AtomicLong streamSequence = new AtomicLong();
+    private final Sinks.Many<Long> heartbeatSink = Sinks.many().multicast().directBestEffort();
+
+    private final int maxStreamsPerUser;
+    private final int bufferSize;
+    private final Duration heartbeatPeriod;
+    private final Duration idleTimeout;
+
+    private Disposable heartbeatTicker;
+
+    public SseConnectionRegistry(
+            @Value("${app.sse.max-streams-per-user:8}") int maxStreamsPerUser,
+            @Value("${app.sse.buffer-size:32}") int bufferSize,
+            @Value("${app.sse.heartbeat-seconds:15}") long heartbeatSeconds,
+            @Value("${app.sse.idle-timeout-minutes:5}") long idleTimeoutMinutes) {
+        this.maxStreamsPerUser = maxStreamsPerUser;
+        this.bufferSize = bufferSize;
+        this.heartbeatPeriod = Duration.ofSeconds(heartbeatSeconds);
+        this.idleTimeout = Duration.ofMinutes(idleTimeoutMinutes);
+    }
+
+    @PostConstruct
+    public void startHeartbeat() {
+        heartbeatTicker = Flux.interval(heartbeatPeriod)
+                .subscribe(this::heartbeat);
+    }
+
+    void heartbeat(long tick) {
+        heartbeatSink.tryEmitNext(tick);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (heartbeatTicker != null) {
+            heartbeatTicker.dispose();
+        }
+        streams.values().forEach(handle -> handle.evict.tryEmitValue(true));
+        streams.clear();
+    }
+
+    /**
+     * Identifiant du propriétaire d'un flux : l'utilisateur connecté, sinon l'adresse du client.
+     */
+    public String ownerOf(Principal principal, HttpServletRequest request) {
+        if (principal != null && principal.getName() != null) {
+            return principal.getName();
+        }
+        return "anonymous@" + (request != null ? request.getRemoteAddr() : "unknown");
+    }
+
+    /**
+     * Enregistre un flux SSE : ajoute le heartbeat partagé, borne le tampon et applique le plafond
+     * par utilisateur. Lève une 429 si l'utilisateur a déjà atteint son nombre maximal de flux.
+     */
+    public <T> Flux<ServerSentEvent<T>> register(String streamType,
+                                                 String owner,
+                                                 Flux<ServerSentEvent<T>> events,
+                                                 LongFunction<ServerSentEvent<T>> keepAlive,
+                                                 OverflowPolicy policy) {
+        StreamHandle handle = reserve(streamType, owner, policy);
+        int capacity = policy == OverflowPolicy.LATEST ? 1 : bufferSize;
+
+        // Le tampon ne contient que des données : un heartbeat ne peut pas évincer le dernier état
+        Flux<ServerSentEvent<T>> data = events
+                .doOnNext(event -> handle.produced.incrementAndGet())
+                .onBackpressureBuffer(capacity, dropped -> handle.dropped.incrementAndGet(), BufferOverflowStrategy.DROP_OLDEST)
+                .doOnNext(event -> handle.delivered.incrementAndGet());
+        Flux<ServerSentEvent<T>> heartbeats = heartbeatSink.asFlux()
+                .map(keepAlive::apply)
+                .onBackpressureDrop();
+
+        return Flux.merge(1, data, heartbeats)
+                .doOnNext(event -> handle.markActive())
+                .takeUntilOther(handle.evict.asMono())
+                .doFinally(signal -> release(handle));
+    }
+
+    private synchronized StreamHandle reserve(String streamType, String owner, OverflowPolicy policy) {
+        long open = streams.values().stream().filter(h -> h.owner.equals(owner)).count();
+        if (open >= maxStreamsPerUser) {
+            log.warn("[SSE] Stream limit reached for {} ({} open, max {})", owner, open, maxStreamsPerUser);
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, "Too many open streams");
+        }
+        StreamHandle handle = new StreamHandle(streamSequence.incrementAndGet(), streamType, owner, policy);
+        streams.put(handle.id, handle);
+        return handle;
+    }
+
+    private void release(StreamHandle handle) {
+        if (streams.remove(handle.id) != null) {
+            log.debug("[SSE] Stream {} ({}) closed for {}", handle.id, handle.streamType, handle.owner);
+        }
+    }
+
+    /**
+     * Ferme les flux qui n'ont rien livré au client depuis idleTimeout, heartbeats compris : un client
+     * bloqué (Wi-Fi instable, onglet suspendu) cesse de consommer et finit évincé.
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictIdleStreams() {
+        Instant cutoff = Instant.now().minus(idleTimeout);
+        streams.values().stream()
+                .filter(handle -> handle.lastDeliveredAt().isBefore(cutoff))
+                .toList()
+                .forEach(handle -> {
+                    log.info("[SSE] Evicting idle stream {} ({}) for {}", handle.id, handle.streamType, handle.owner);
+                    streams.remove(handle.id);
+                    handle.evict.tryEmitValue(true);
+                });
+    }
+
+    public int openStreamCount() {
+        return streams.size();
+    }
+
+    /**
+     * Vue des flux ouverts pour l'endpoint actuator.
+     */
+    public List<Map<String, Object>> describeStreams() {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        streams.values().stream()
+                .sorted(Comparator.comparingLong(handle -> handle.id))
+                .forEach(handle -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("id", handle.id);
+                    row.put("type", handle.streamType);
+                    row.put("owner", maskOwner(handle.owner));
+                    row.put("policy", handle.policy);
+                    row.put("openedAt", handle.openedAt);
+                    row.put("lastDeliveredAt", handle.lastDeliveredAt());
+                    row.put("queueDepth", handle.queueDepth());
+                    row.put("delivered", handle.delivered.get());
+                    row.put("dropped", handle.dropped.get());
+                    rows.add(row);
+                });
+        return rows;
+    }
+
+    /**
+     * Propriétaire affiché par /actuator/ssestreams : ni nom d'utilisateur complet ni adresse IP.
+     */
+    static String maskOwner(String owner) {
+        if (owner == null || owner.startsWith("anonymous@")) {
+            return "anonymous";
+        }
+        return owner.length() <= 2 ? "***" : owner.substring(0, 2) + "***";
+    }
+
+    public Map<String, Object> describeSettings() {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("maxStreamsPerUser", maxStreamsPerUser);
+        settings.put("bufferSize", bufferSize);
+        settings.put("heartbeatSeconds", heartbeatPeriod.toSeconds());
+        settings.put("idleTimeoutMinutes", idleTimeout.toMinutes());
+        return settings;
+    }
+
+    private static final class StreamHandle {
+        private final long id;
+        private final String streamType;
+        private final String owner;
+        private final OverflowPolicy policy;
+        private final Instant openedAt = Instant.now();
+        private final AtomicLong produced = new AtomicLong();
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong lastDeliveredMillis = new AtomicLong(System.currentTimeMillis());
+        private final Sinks.One<Boolean> evict = Sinks.one();
+
+        private StreamHandle(long id, String streamType, String owner, OverflowPolicy policy) {
+            this.id = id;
+            this.streamType = streamType;
+            this.owner = owner;
+            this.policy = policy;
+        }
+
+        private void markActive() {
+            lastDeliveredMillis.set(System.currentTimeMillis());
+        }
+
+        private Instant lastDeliveredAt() {
+            return Instant.ofEpochMilli(lastDeliveredMillis.get());
+        }
+
+        /**
+         * Événements de données en attente (heartbeats exclus).
+         */
+        private long queueDepth() {
+            return Math.max(0, produced.get() - delivered.get() - dropped.get());
+        }
+    }
+}
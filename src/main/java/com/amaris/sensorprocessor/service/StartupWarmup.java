@@ -0,0 +1,307 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.Building;
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import com.amaris.sensorprocessor.entity.Sensor;
+import com.amaris.sensorprocessor.repository.SensorDataDao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Préchauffage au démarrage, avant d'accepter du trafic :
+ *
+ * 1. topologie (capteurs, bâtiments, types) ;
+ * 2. état d'occupation du jour (IntradayOccupancyTracker) ;
+ * 3. dernière valeur de chaque capteur dans LiveSensorCache, par lots, en parallèle ;
+ * 4. alertes courantes, tous bâtiments et par bâtiment, en parallèle ;
+ * 5. vue d'ouverture du dashboard de chaque bâtiment (DashboardSnapshotStore), en parallèle.
+ *
+ * Les étapes s'enchaînent dans cet ordre, toutes sur un pool de app.warmup.parallelism threads.
+ * Le groupe de santé readiness reste OUT_OF_SERVICE (indicateur "warmup") jusqu'à la fin, ou jusqu'à
+ * épuisement de app.warmup.budget-seconds : les étapes non commencées sont alors abandonnées, celle
+ * en cours se termine en arrière-plan. La fin du préchauffage est publiée ({@link Completed}) sur le
+ * job COMPLETED_JOB_NAME pour démarrer ce qui ne doit pas lui faire concurrence, comme les
+ * synchronisations des gateways, sans bloquer le thread du préchauffage.
+ */
+@Slf4j
+@Service
+public class StartupWarmup {
+
+    public static final String JOB_NAME = "startup-warmup";
+    public static final String COMPLETED_JOB_NAME = "startup-warmup-completed";
+
+    public enum Phase { PENDING, RUNNING, DONE, BUDGET_EXCEEDED, DISABLED }
+
+    public enum StepState { PENDING, RUNNING, DONE, FAILED, SKIPPED, TIMED_OUT }
+
+    public record StepStatus(StepState state, long durationMs, String detail) {
+    }
+
+    /**
+     * Publié une seule fois, quand le trafic est accepté.
+     *
+     * @param complete false si le budget a été dépassé ou une étape a échoué
+     */
+    public record Completed(boolean complete, Duration duration) {
+    }
+
+    private static final int LATEST_VALUES_BATCH = 200;
+
+    private final TopologyRegistry topologyRegistry;
+    private final IntradayOccupancyTracker intradayOccupancyTracker;
+    private final SensorDataDao sensorDataDao;
+    private final LiveSensorCache liveSensorCache;
+    private final AlertService alertService;
+    private final DashboardService dashboardService;
+    private final ScheduledJobRunner scheduledJobRunner;
+    private final ThreadFactory backgroundThreadFactory;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final long budgetMs;
+    private final int parallelism;
+
+    private final Map<String, StepStatus> steps = new LinkedHashMap<>();
+    private volatile Phase phase = Phase.PENDING;
+    private volatile long startedAtMillis;
+    private volatile long finishedAtMillis;
+
+    public StartupWarmup(TopologyRegistry topologyRegistry,
+                         IntradayOccupancyTracker intradayOccupancyTracker,
+                         SensorDataDao sensorDataDao,
+                         LiveSensorCache liveSensorCache,
+                         AlertService alertService,
+                         DashboardService dashboardService,
+                         ScheduledJobRunner scheduledJobRunner,
+                         ThreadFactory backgroundThreadFactory,
+                         ApplicationEventPublisher eventPublisher,
+                         @Value("${app.warmup.enabled:true}") boolean enabled,
+                         @Value("${app.warmup.budget-seconds:120}") long budgetSeconds,
+                         @Value("${app.warmup.parallelism:4}") int parallelism) {
+        this.topologyRegistry = topologyRegistry;
+        this.intradayOccupancyTracker = intradayOccupancyTracker;
+        this.sensorDataDao = sensorDataDao;
+        this.liveSensorCache = liveSensorCache;
+        this.alertService = alertService;
+        this.dashboardService = dashboardService;
+        this.scheduledJobRunner = scheduledJobRunner;
+        this.backgroundThreadFactory = backgroundThreadFactory;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.budgetMs = TimeUnit.SECONDS.toMillis(budgetSeconds);
+        this.parallelism = Math.max(1, parallelism);
+        for (String step : List.of("topology", "occupancy-today", "latest-values", "alerts", "dashboards")) {
+            steps.put(step, new StepStatus(StepState.PENDING, 0, null));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        startedAtMillis = System.currentTimeMillis();
+        if (!enabled) {
+            skipPending("warm-up disabled");
+            finish(Phase.DISABLED);
+            return;
+        }
+        phase = Phase.RUNNING;
+        if (!scheduledJobRunner.submit(JOB_NAME, this::run)) {
+            finish(Phase.BUDGET_EXCEEDED);
+        }
+    }
+
+    void run() {
+        long deadline = startedAtMillis + budgetMs;
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, backgroundThreadFactory);
+        try {
+            boolean inBudget = runStep("topology", deadline, () -> within(pool, deadline, () -> {
+                topologyRegistry.reload();
+                return topologyRegistry.sensors().size() + " sensors";
+            }));
+            inBudget = inBudget && runStep("occupancy-today", deadline, () -> within(pool, deadline, () -> {
+                intradayOccupancyTracker.restoreToday();
+                return null;
+            }));
+            inBudget = inBudget && runStep("latest-values", deadline, () -> preloadLatestValues(pool, deadline));
+            inBudget = inBudget && runStep("alerts", deadline, () -> preloadAlerts(pool, deadline));
+            inBudget = inBudget && runStep("dashboards", deadline, () -> preloadDashboards(pool, deadline));
+            finish(inBudget ? Phase.DONE : Phase.BUDGET_EXCEEDED);
+        } finally {
+            // Les tâches déjà lancées se terminent, sans bloquer l'ouverture du trafic
+            pool.shutdown();
+            if (phase == Phase.RUNNING) {
+                finish(Phase.BUDGET_EXCEEDED);
+            }
+        }
+    }
+
+    private interface StepBody {
+        String run() throws Exception;
+    }
+
+    /**
+     * @return false si le budget est épuisé (l'étape et les suivantes sont abandonnées)
+     */
+    private boolean runStep(String name, long deadline, StepBody body) {
+        long start = System.currentTimeMillis();
+        if (start >= deadline || Thread.currentThread().isInterrupted()) {
+            skipPending("time budget exhausted");
+            return false;
+        }
+        setStep(name, new StepStatus(StepState.RUNNING, 0, null));
+        try {
+            String detail = body.run();
+            setStep(name, new StepStatus(StepState.DONE, System.currentTimeMillis() - start, detail));
+            log.info("[warmup] {} done in {} ms{}", name, System.currentTimeMillis() - start,
+                    detail != null ? " (" + detail + ")" : "");
+            return true;
+        } catch (TimeoutException | InterruptedException e) {
+            setStep(name, new StepStatus(StepState.TIMED_OUT, System.currentTimeMillis() - start, "time budget exhausted"));
+            skipPending("time budget exhausted");
+            log.warn("[warmup] {} interrupted by the time budget after {} ms", name, System.currentTimeMillis() - start);
+            return false;
+        } catch (Exception e) {
+            // Une étape en échec n'empêche pas les suivantes : le cache concerné se remplira à l'usage
+            setStep(name, new StepStatus(StepState.FAILED, System.currentTimeMillis() - start, e.getMessage()));
+            log.error("[warmup] {} failed: {}", name, e.getMessage(), e);
+            return true;
+        }
+    }
+
+    private String preloadLatestValues(ExecutorService pool, long deadline) throws Exception {
+        List<String> sensorIds = topologyRegistry.sensors().stream().map(Sensor::getIdSensor).toList();
+        AtomicInteger values = new AtomicInteger();
+        List<Future<?>> batches = new ArrayList<>();
+        for (int from = 0; from < sensorIds.size(); from += LATEST_VALUES_BATCH) {
+            List<String> batch = sensorIds.subList(from, Math.min(sensorIds.size(), from + LATEST_VALUES_BATCH));
+            batches.add(pool.submit(() -> sensorDataDao
+                    .findLatestBySensorIdsAndTypes(batch, PayloadValueType.BUSINESS_TYPES)
+                    .forEach((sensorId, byType) -> byType.forEach((type, data) -> {
+                        liveSensorCache.putIfNewer(sensorId, type, data);
+                        values.incrementAndGet();
+                    }))));
+        }
+        awaitAll(batches, deadline);
+        return values.get() + " values for " + sensorIds.size() + " sensors";
+    }
+
+    private String preloadAlerts(ExecutorService pool, long deadline) throws Exception {
+        List<Integer> buildingIds = new ArrayList<>();
+        buildingIds.add(null);
+        topologyRegistry.buildings().stream().map(Building::getId).forEach(buildingIds::add);
+        List<Future<?>> evaluations = new ArrayList<>();
+        for (Integer buildingId : buildingIds) {
+            evaluations.add(pool.submit(() -> alertService.getCurrentAlerts(buildingId)));
+        }
+        awaitAll(evaluations, deadline);
+        return buildingIds.size() - 1 + " buildings";
+    }
+
+    private String preloadDashboards(ExecutorService pool, long deadline) throws Exception {
+        List<Future<?>> views = new ArrayList<>();
+        for (Building building : topologyRegistry.buildings()) {
+            views.add(pool.submit(() -> dashboardService.preloadDashboard(String.valueOf(building.getId()))));
+        }
+        awaitAll(views, deadline);
+        return views.size() + " buildings";
+    }
+
+    /**
+     * Exécute une étape sur le pool pour lui appliquer le budget.
+     */
+    private static String within(ExecutorService pool, long deadline, Callable<String> task) throws Exception {
+        Future<String> future = pool.submit(task);
+        try {
+            return future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private static void awaitAll(List<Future<?>> futures, long deadline) throws Exception {
+        for (Future<?> future : futures) {
+            future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void setStep(String name, StepStatus status) {
+        steps.put(name, status);
+    }
+
+    private synchronized void skipPending(String reason) {
+        steps.replaceAll((step, status) -> status.state() == StepState.PENDING
+                ? new StepStatus(StepState.SKIPPED, 0, reason) : status);
+    }
+
+    private void finish(Phase outcome) {
+        Completed completed;
+        synchronized (this) {
+            if (isReady()) {
+                return;
+            }
+            phase = outcome;
+            finishedAtMillis = System.currentTimeMillis();
+            boolean complete = outcome == Phase.DONE
+                    && steps.values().stream().allMatch(s -> s.state() == StepState.DONE);
+            completed = new Completed(complete, Duration.ofMillis(finishedAtMillis - startedAtMillis));
+        }
+        log.info("[warmup] {} after {} ms, accepting traffic", outcome, completed.duration().toMillis());
+        // Les écouteurs (rejeu initial des gateways...) tournent sur leur propre job, hors du verrou
+        Runnable publish = () -> eventPublisher.publishEvent(completed);
+        if (!scheduledJobRunner.submit(COMPLETED_JOB_NAME, publish)) {
+            log.warn("[warmup] {} rejected, publishing on a dedicated thread", COMPLETED_JOB_NAME);
+            backgroundThreadFactory.newThread(publish).start();
+        }
+    }
+
+    /**
+     * Trafic accepté : préchauffage terminé, désactivé ou budget épuisé.
+     */
+    public boolean isReady() {
+        Phase current = phase;
+        return current == Phase.DONE || current == Phase.BUDGET_EXCEEDED || current == Phase.DISABLED;
+    }
+
+    public synchronized Map<String, Object> describe() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("phase", phase);
+        if (startedAtMillis > 0) {
+            result.put("startedAt", Instant.ofEpochMilli(startedAtMillis));
+            long end = finishedAtMillis > 0 ? finishedAtMillis : System.currentTimeMillis();
+            result.put("elapsedMs", end - startedAtMillis);
+        }
+        result.put("budgetMs", budgetMs);
+        Map<String, Object> stepDetails = new LinkedHashMap<>();
+        steps.forEach((name, status) -> {
+            Map<String, Object> info = new LinkedHashMap<>();
+            info.put("state", status.state());
+            if (status.durationMs() > 0) {
+                info.put("durationMs", status.durationMs());
+            }
+            if (status.detail() != null) {
+                info.put("detail", status.detail());
+            }
+            stepDetails.put(name, info);
+        });
+        result.put("steps", stepDetails);
+        return result;
+    }
+}
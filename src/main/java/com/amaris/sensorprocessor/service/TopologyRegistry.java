@@ -0,0 +1,437 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.Building;
+import com.amaris.sensorprocessor.entity.DeviceType;
+import com.amaris.sensorprocessor.entity.Gateway;
+import com.amaris.sensorprocessor.entity.Location;
+import com.amaris.sensorprocessor.entity.Sensor;
+import com.amaris.sensorprocessor.repository.BuildingDao;
+import com.amaris.sensorprocessor.repository.DeviceTypeDao;
+import com.amaris.sensorprocessor.repository.GatewayDao;
+import com.amaris.sensorprocessor.repository.LocationDao;
+import com.amaris.sensorprocessor.repository.SensorDao;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Topologie en mémoire : capteurs (par id, devEui, bâtiment, étage, type), bâtiments et leur
+ * application TTN, emplacements et types de capteur.
+ *
+ * Chargée au démarrage (StartupWarmup, sinon au premier accès) puis tenue à jour par les créations / modifications / suppressions de
+ * SensorService, BuildingService, LocationService, DeviceTypeService, GatewayService et de la
+ * synchronisation TTN. Chaque changement publie une nouvelle version immuable : les lectures ne
+ * touchent jamais la base et voient toujours une topologie cohérente. Un rechargement complet
+ * périodique (topology.reload-minutes) rattrape les modifications faites directement en base.
+ *
+ * Les capteurs renvoyés sont des copies que l'appelant peut modifier sans toucher au registre ; les
+ * autres objets (bâtiments, emplacements, types) sont partagés et ne doivent pas être modifiés.
+ */
+@Slf4j
+@Service
+public class TopologyRegistry {
+
+    public static final String JOB_NAME = "topology-reload";
+
+    private final SensorDao sensorDao;
+    private final BuildingDao buildingDao;
+    private final GatewayDao gatewayDao;
+    private final LocationDao locationDao;
+    private final DeviceTypeDao deviceTypeDao;
+    private final ScheduledJobRunner scheduledJobRunner;
+
+    private volatile Topology topology;
+
+    public TopologyRegistry(SensorDao sensorDao, BuildingDao buildingDao, GatewayDao gatewayDao,
+                            LocationDao locationDao, DeviceTypeDao deviceTypeDao,
+                            ScheduledJobRunner scheduledJobRunner) {
+        this.sensorDao = sensorDao;
+        this.buildingDao = buildingDao;
+        this.gatewayDao = gatewayDao;
+        this.locationDao = locationDao;
+        this.deviceTypeDao = deviceTypeDao;
+        this.scheduledJobRunner = scheduledJobRunner;
+    }
+
+    /* ===================== LECTURE ===================== */
+
+    /**
+     * Version courante ; les index d'une version ne changent plus.
+     */
+    public Topology current() {
+        Topology current = topology;
+        if (current == null) {
+            synchronized (this) {
+                if (topology == null) {
+                    reload();
+                }
+                current = topology;
+            }
+        }
+        return current;
+    }
+
+    public long version() {
+        return current().version();
+    }
+
+    public List<Sensor> sensors() {
+        return copies(current().sensors());
+    }
+
+    public Optional<Sensor> sensor(String idSensor) {
+        return Optional.ofNullable(idSensor == null ? null : current().sensorsById().get(idSensor))
+                .map(TopologyRegistry::copy);
+    }
+
+    public Optional<Sensor> sensorByDevEui(String devEui) {
+        return Optional.ofNullable(devEui == null ? null : current().sensorsByDevEui().get(devEui.toUpperCase(Locale.ROOT)))
+                .map(TopologyRegistry::copy);
+    }
+
+    public List<Sensor> sensorsOfBuilding(Integer buildingId) {
+        return copies(current().sensorsByBuilding().getOrDefault(buildingId, List.of()));
+    }
+
+    public List<Sensor> sensorsOfBuildingAndFloor(Integer buildingId, Integer floor) {
+        return copies(current().sensorsByBuilding().getOrDefault(buildingId, List.of()).stream()
+                .filter(s -> Objects.equals(floor, s.getFloor()))
+                .toList());
+    }
+
+    /**
+     * Même résultat que SensorDao.findAllByDeviceTypes / findAllByDeviceTypeAndBuilding.
+     *
+     * @param buildingId null pour tous les bâtiments
+     */
+    public List<Sensor> sensorsByDeviceTypes(Collection<String> deviceTypes, Integer buildingId) {
+        List<String> typeNames = SensorDao.expandDeviceTypes(deviceTypes);
+        if (typeNames.isEmpty()) {
+            return List.of();
+        }
+        Topology current = current();
+        List<Sensor> candidates;
+        if (typeNames.size() == 1) {
+            candidates = current.sensorsByTypeName().getOrDefault(typeNames.get(0), List.of());
+        } else {
+            // Plusieurs types : parcours dans l'ordre de chargement, comme la requête SQL
+            Set<String> wanted = Set.copyOf(typeNames);
+            candidates = current.sensors().stream()
+                    .filter(s -> {
+                        DeviceType deviceType = current.deviceTypesById().get(s.getIdDeviceType());
+                        return deviceType != null && wanted.contains(deviceType.getTypeName());
+                    })
+                    .toList();
+        }
+        if (buildingId == null) {
+            return copies(candidates);
+        }
+        return copies(candidates.stream().filter(s -> buildingId.equals(s.getBuildingId())).toList());
+    }
+
+    public List<Sensor> sensorsByDeviceType(String deviceType, Integer buildingId) {
+        return sensorsByDeviceTypes(deviceType == null ? List.of() : List.of(deviceType), buildingId);
+    }
+
+    public List<Building> buildings() {
+        return current().buildings();
+    }
+
+    public Optional<Building> building(Integer id) {
+        return Optional.ofNullable(id == null ? null : current().buildingsById().get(id));
+    }
+
+    /**
+     * Bâtiment par nom exact, sans tenir compte de la casse.
+     */
+    public Optional<Building> buildingByName(String name) {
+        return Optional.ofNullable(name == null ? null : current().buildingsByName().get(name.trim().toLowerCase(Locale.ROOT)));
+    }
+
+    /**
+     * Application TTN du bâtiment : celle de sa première gateway.
+     */
+    public Optional<String> appIdForBuilding(Integer buildingId) {
+        return Optional.ofNullable(buildingId == null ? null : current().appIdByBuilding().get(buildingId));
+    }
+
+    public List<Location> locations() {
+        return current().locations();
+    }
+
+    public Map<Integer, String> locationNames() {
+        return current().locationNames();
+    }
+
+    public List<DeviceType> deviceTypes() {
+        return current().deviceTypes();
+    }
+
+    public Map<Integer, DeviceType> deviceTypesById() {
+        return current().deviceTypesById();
+    }
+
+    /**
+     * Nom technique de chaque type (type_name, à défaut le libellé).
+     */
+    public Map<Integer, String> deviceTypeNames() {
+        return current().deviceTypeNames();
+    }
+
+    /* ===================== MISE À JOUR ===================== */
+
+    /**
+     * Recharge toute la topologie depuis la base.
+     */
+    public synchronized void reload() {
+        long version = topology == null ? 1 : topology.version() + 1;
+        topology = Topology.of(version, sensorDao.findAllSensors(), buildingDao.findAllBuildings(),
+                gatewayDao.findAllGateways(), locationDao.findAll(), deviceTypeDao.findAll());
+        log.info("[Topology] v{} loaded: {} sensors, {} buildings, {} locations, {} device types", version,
+                topology.sensors().size(), topology.buildings().size(), topology.locations().size(),
+                topology.deviceTypes().size());
+    }
+
+    /**
+     * Relit un capteur après sa création ou sa modification (le retire s'il n'existe plus).
+     */
+    public synchronized void refreshSensor(String idSensor) {
+        if (topology == null || idSensor == null) {
+            return;
+        }
+        Optional<Sensor> fresh = sensorDao.findByIdOfSensor(idSensor);
+        List<Sensor> sensors = new ArrayList<>(topology.sensors().size() + 1);
+        boolean replaced = false;
+        for (Sensor sensor : topology.sensors()) {
+            if (idSensor.equals(sensor.getIdSensor())) {
+                if (fresh.isPresent() && !replaced) {
+                    sensors.add(fresh.get());
+                }
+                replaced = true;
+            } else {
+                sensors.add(sensor);
+            }
+        }
+        if (!replaced) {
+            fresh.ifPresent(sensors::add);
+        }
+        publish(topology.withSensors(sensors), "sensor " + idSensor);
+    }
+
+    public synchronized void removeSensor(String idSensor) {
+        if (topology == null || idSensor == null) {
+            return;
+        }
+        List<Sensor> sensors = topology.sensors().stream()
+                .filter(s -> !idSensor.equals(s.getIdSensor()))
+                .toList();
+        publish(topology.withSensors(sensors), "sensor " + idSensor + " removed");
+    }
+
+    // Tables de référence courtes : relues en entier à chaque modification
+
+    public synchronized void reloadBuildings() {
+        if (topology != null) {
+            publish(topology.withBuildings(buildingDao.findAllBuildings()), "buildings");
+        }
+    }
+
+    public synchronized void reloadGateways() {
+        if (topology != null) {
+            publish(topology.withGateways(gatewayDao.findAllGateways()), "gateways");
+        }
+    }
+
+    public synchronized void reloadLocations() {
+        if (topology != null) {
+            publish(topology.withLocations(locationDao.findAll()), "locations");
+        }
+    }
+
+    public synchronized void reloadDeviceTypes() {
+        if (topology != null) {
+            publish(topology.withDeviceTypes(deviceTypeDao.findAll()), "device types");
+        }
+    }
+
+    private void publish(Topology next, String change) {
+        topology = next;
+        log.debug("[Topology] v{} published ({})", next.version(), change);
+    }
+
+    @Scheduled(fixedDelayString = "${topology.reload-minutes:15}", initialDelayString = "${topology.reload-minutes:15}",
+            timeUnit = TimeUnit.MINUTES)
+    public void scheduleReload() {
+        scheduledJobRunner.submit(JOB_NAME, this::reload);
+    }
+
+    /**
+     * Copie détachée d'un capteur de la topologie.
+     */
+    static Sensor copy(Sensor sensor) {
+        Sensor copy = new Sensor(sensor.getIdSensor(), sensor.getIdDeviceType(), sensor.getCommissioningDate(),
+                sensor.getStatus(), sensor.getBuildingId(), sensor.getFloor(), sensor.getIdGateway(),
+                sensor.getDevEui(), sensor.getJoinEui(), sensor.getAppKey(), sensor.getFrequencyPlan(),
+                sensor.getBrandId(), sensor.getProtocolId());
+        copy.setLocationId(sensor.getLocationId());
+        return copy;
+    }
+
+    private static List<Sensor> copies(List<Sensor> sensors) {
+        return sensors.stream().map(TopologyRegistry::copy).toList();
+    }
+
+    /**
+     * Application TTN d'une gateway.
+     */
+    public static String appIdOf(Gateway gateway) {
+        if ("leva-rpi-mantu".equalsIgnoreCase(gateway.getGatewayId())) {
+            return "lorawan-network-mantu";
+        }
+        return gateway.getGatewayId() + "-appli";
+    }
+
+    /**
+     * Une version de la topologie ; les listes sources sont gardées pour construire la suivante.
+     */
+    public record Topology(long version,
+                           List<Sensor> sensors,
+                           List<Building> buildings,
+                           List<Gateway> gateways,
+                           List<Location> locations,
+                           List<DeviceType> deviceTypes,
+                           Map<String, Sensor> sensorsById,
+                           Map<String, Sensor> sensorsByDevEui,
+                           Map<Integer, List<Sensor>> sensorsByBuilding,
+                           Map<String, List<Sensor>> sensorsByTypeName,
+                           Map<Integer, Building> buildingsById,
+                           Map<String, Building> buildingsByName,
+                           Map<Integer, String> appIdByBuilding,
+                           Map<Integer, String> locationNames,
+                           Map<Integer, DeviceType> deviceTypesById,
+                           Map<Integer, String> deviceTypeNames) {
+
+        static Topology of(long version, List<Sensor> sensors, List<Building> buildings, List<Gateway> gateways,
+                           List<Location> locations, List<DeviceType> deviceTypes) {
+            Map<Integer, DeviceType> deviceTypesById = index(deviceTypes, DeviceType::getIdDeviceType);
+            Map<Integer, String> deviceTypeNames = new HashMap<>();
+            deviceTypes.forEach(dt -> {
+                String name = dt.getTypeName() != null && !dt.getTypeName().isBlank() ? dt.getTypeName() : dt.getLabel();
+                if (dt.getIdDeviceType() != null && name != null) {
+                    deviceTypeNames.putIfAbsent(dt.getIdDeviceType(), name);
+                }
+            });
+
+            Map<String, Sensor> sensorsById = new LinkedHashMap<>();
+            Map<String, Sensor> sensorsByDevEui = new HashMap<>();
+            Map<Integer, List<Sensor>> sensorsByBuilding = new HashMap<>();
+            Map<String, List<Sensor>> sensorsByTypeName = new HashMap<>();
+            for (Sensor source : sensors) {
+                if (source.getIdSensor() == null || sensorsById.containsKey(source.getIdSensor())) {
+                    continue;
+                }
+                // Copie privée : les objets lus en base restent aux appelants du DAO
+                Sensor sensor = copy(source);
+                sensorsById.put(sensor.getIdSensor(), sensor);
+                if (sensor.getDevEui() != null && !sensor.getDevEui().isBlank()) {
+                    sensorsByDevEui.putIfAbsent(sensor.getDevEui().toUpperCase(Locale.ROOT), sensor);
+                }
+                if (sensor.getBuildingId() != null) {
+                    sensorsByBuilding.computeIfAbsent(sensor.getBuildingId(), k -> new ArrayList<>()).add(sensor);
+                }
+                // Comme la jointure SQL : sur type_name uniquement
+                DeviceType deviceType = deviceTypesById.get(sensor.getIdDeviceType());
+                if (deviceType != null && deviceType.getTypeName() != null) {
+                    sensorsByTypeName.computeIfAbsent(deviceType.getTypeName(), k -> new ArrayList<>()).add(sensor);
+                }
+            }
+
+            List<Building> sortedBuildings = buildings.stream()
+                    .sorted(Comparator.comparing(b -> b.getName() == null ? "" : b.getName().toLowerCase(Locale.ROOT)))
+                    .toList();
+
+            Map<Integer, String> appIdByBuilding = new HashMap<>();
+            for (Gateway gateway : gateways) {
+                if (gateway.getBuildingId() != null && gateway.getGatewayId() != null) {
+                    appIdByBuilding.putIfAbsent(gateway.getBuildingId(), appIdOf(gateway));
+                }
+            }
+
+            Map<Integer, String> locationNames = new HashMap<>();
+            locations.forEach(l -> {
+                if (l.getId() != null && l.getName() != null) {
+                    locationNames.putIfAbsent(l.getId(), l.getName());
+                }
+            });
+
+            return new Topology(version,
+                    List.copyOf(sensorsById.values()),
+                    sortedBuildings,
+                    List.copyOf(gateways),
+                    List.copyOf(locations),
+                    List.copyOf(deviceTypes),
+                    Collections.unmodifiableMap(sensorsById),
+                    Collections.unmodifiableMap(sensorsByDevEui),
+                    freeze(sensorsByBuilding),
+                    freeze(sensorsByTypeName),
+                    index(sortedBuildings, Building::getId),
+                    index(sortedBuildings, b -> b.getName() == null ? null : b.getName().trim().toLowerCase(Locale.ROOT)),
+                    Collections.unmodifiableMap(appIdByBuilding),
+                    Collections.unmodifiableMap(locationNames),
+                    deviceTypesById,
+                    Collections.unmodifiableMap(deviceTypeNames));
+        }
+
+        Topology withSensors(List<Sensor> sensors) {
+            return of(version + 1, sensors, buildings, gateways, locations, deviceTypes);
+        }
+
+        Topology withBuildings(List<Building> buildings) {
+            return of(version + 1, sensors, buildings, gateways, locations, deviceTypes);
+        }
+
+        Topology withGateways(List<Gateway> gateways) {
+            return of(version + 1, sensors, buildings, gateways, locations, deviceTypes);
+        }
+
+        Topology withLocations(List<Location> locations) {
+            return of(version + 1, sensors, buildings, gateways, locations, deviceTypes);
+        }
+
+        Topology withDeviceTypes(List<DeviceType> deviceTypes) {
+            return of(version + 1, sensors, buildings, gateways, locations, deviceTypes);
+        }
+
+        private static <K, V> Map<K, V> index(List<V> values, Function<V, K> key) {
+            Map<K, V> result = new HashMap<>();
+            values.forEach(v -> {
+                K k = key.apply(v);
+                if (k != null) {
+                    result.putIfAbsent(k, v);
+                }
+            });
+            return Collections.unmodifiableMap(result);
+        }
+
+        private static <K> Map<K, List<Sensor>> freeze(Map<K, List<Sensor>> grouped) {
+            Map<K, List<Sensor>> result = new HashMap<>();
+            grouped.forEach((k, v) -> result.put(k, List.copyOf(v)));
+            return Collections.unmodifiableMap(result);
+        }
+    }
+}
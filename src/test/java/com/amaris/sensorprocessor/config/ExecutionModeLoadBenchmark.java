@@ -0,0 +1,378 @@
+package com.amaris.sensorprocessor.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.embedded.EmbeddedWebServerFactoryCustomizerAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Charge supportée par chaque mode d'exécution (ExecutionConfig, threads plateforme / virtuels).
+ *
+ * Pour chaque mode, un serveur Tomcat minimal (ExecutionConfig + un contrôleur de test) est démarré ;
+ * N abonnés SSE restent connectés (battement toutes les secondes), puis C appels JDBC lents sont
+ * lancés en même temps, servis directement par Tomcat (/load/jdbc) et via le blockingScheduler
+ * (/load/jdbc-reactive, comme DashboardController). La base est un stub dont chaque requête dure
+ * load.jdbc-delay-ms, sans pool de connexions : seules les limites de threads de chaque mode jouent.
+ *
+ * Lancement : exécuter main() depuis l'IDE ou avec le classpath de test (cf. README), paramètres en
+ * propriétés système, listes séparées par des virgules :
+ * -Dload.sse=100,500,2000 -Dload.jdbc=100,400,1000 -Dload.jdbc-delay-ms=200 -Dload.modes=platform,virtual
+ * Le mode virtuel demande un runtime Java 21 ; -Djdk.tracePinnedThreads=short y est activé d'office.
+ */
+public class ExecutionModeLoadBenchmark {
+
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(30);
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(120);
+
+    public static void main(String[] args) throws Exception {
+        // Lu à l'initialisation de la classe VirtualThread : à positionner avant le premier thread virtuel
+        if (System.getProperty("jdk.tracePinnedThreads") == null) {
+            System.setProperty("jdk.tracePinnedThreads", "short");
+        }
+        int[] sseCounts = ints(System.getProperty("load.sse", "100,500,2000"));
+        int[] jdbcCounts = ints(System.getProperty("load.jdbc", "100,400,1000"));
+        long jdbcDelayMs = Long.parseLong(System.getProperty("load.jdbc-delay-ms", "200"));
+        List<String> modes = List.of(System.getProperty("load.modes", "platform,virtual").split(","));
+
+        System.out.printf("%-8s %6s %6s %-14s %8s %8s %8s %8s %7s %10s%n",
+                "mode", "sse", "jdbc", "endpoint", "wall ms", "p50 ms", "p95 ms", "max ms", "errors", "sse alive");
+        for (String mode : modes) {
+            boolean virtual = "virtual".equals(mode.trim());
+            if (virtual && Runtime.version().feature() < 21) {
+                System.out.println("virtual  skipped: Java 21 runtime required (running " + Runtime.version() + ")");
+                continue;
+            }
+            try (ConfigurableApplicationContext context = start(virtual, jdbcDelayMs)) {
+                int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+                for (int sse : sseCounts) {
+                    for (int jdbc : jdbcCounts) {
+                        for (String endpoint : List.of("/load/jdbc", "/load/jdbc-reactive")) {
+                            Result result = runScenario(port, sse, jdbc, endpoint);
+                            System.out.printf("%-8s %6d %6d %-14s %8d %8d %8d %8d %7d %5d/%-4d%n",
+                                    mode.trim(), sse, jdbc, endpoint.substring("/load/".length()), result.wallMs,
+                                    result.percentile(50), result.percentile(95), result.percentile(100),
+                                    result.errors, result.sseAlive, sse);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(boolean virtual, long jdbcDelayMs) {
+        return new SpringApplicationBuilder(LoadApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .logStartupInfo(false)
+                // Pas d'application.properties : seul ce qui est passé ici compte
+                .run("--spring.config.name=execution-mode-load",
+                        "--spring.main.banner-mode=off",
+                        "--logging.level.root=WARN",
+                        "--server.port=0",
+                        "--spring.threads.virtual.enabled=" + virtual,
+                        "--load.jdbc-delay-ms=" + jdbcDelayMs);
+    }
+
+    /**
+     * Ouvre les abonnés SSE, attend leur premier battement, lance la rafale JDBC puis vérifie que les
+     * abonnés reçoivent toujours leurs battements.
+     */
+    private static Result runScenario(int port, int sseCount, int jdbcCount, String endpoint) throws Exception {
+        ExecutorService clientExecutor = Executors.newCachedThreadPool();
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(CONNECT_TIMEOUT)
+                .executor(clientExecutor)
+                .build();
+        List<SseSubscriber> subscribers = new ArrayList<>();
+        try {
+            HttpRequest sseRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/load/sse")).build();
+            for (int i = 0; i < sseCount; i++) {
+                SseSubscriber subscriber = new SseSubscriber();
+                subscribers.add(subscriber);
+                client.sendAsync(sseRequest, HttpResponse.BodyHandlers.fromLineSubscriber(subscriber));
+            }
+            awaitHeartbeat(subscribers, 1, Duration.ofSeconds(30));
+
+            HttpRequest jdbcRequest = HttpRequest.newBuilder(URI.create("http://localhost:" + port + endpoint))
+                    .timeout(REQUEST_TIMEOUT).build();
+            long[] latencies = new long[jdbcCount];
+            AtomicInteger errors = new AtomicInteger();
+            List<CompletableFuture<?>> calls = new ArrayList<>(jdbcCount);
+            long start = System.nanoTime();
+            for (int i = 0; i < jdbcCount; i++) {
+                int index = i;
+                long sent = System.nanoTime();
+                calls.add(client.sendAsync(jdbcRequest, HttpResponse.BodyHandlers.discarding())
+                        .handle((response, error) -> {
+                            latencies[index] = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - sent);
+                            if (error != null || response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                            return null;
+                        }));
+            }
+            CompletableFuture.allOf(calls.toArray(CompletableFuture[]::new)).join();
+            long wallMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+            // Un abonné vivant reçoit encore un battement après la rafale
+            long beatsBefore = subscribers.stream().mapToLong(s -> s.heartbeats.get()).min().orElse(0);
+            awaitHeartbeat(subscribers, beatsBefore + 1, Duration.ofSeconds(5));
+            int alive = (int) subscribers.stream().filter(s -> s.heartbeats.get() > beatsBefore && !s.failed).count();
+            return new Result(wallMs, latencies, errors.get(), alive);
+        } finally {
+            subscribers.forEach(SseSubscriber::cancel);
+            clientExecutor.shutdownNow();
+        }
+    }
+
+    private static void awaitHeartbeat(List<SseSubscriber> subscribers, long beats, Duration timeout)
+            throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline
+                && subscribers.stream().anyMatch(s -> !s.failed && s.heartbeats.get() < beats)) {
+            Thread.sleep(50);
+        }
+    }
+
+    private static int[] ints(String csv) {
+        return Arrays.stream(csv.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+    }
+
+    private record Result(long wallMs, long[] latencies, int errors, int sseAlive) {
+
+        long percentile(int p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            long[] sorted = latencies.clone();
+            Arrays.sort(sorted);
+            return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p / 100.0 * sorted.length) - 1)];
+        }
+    }
+
+    private static final class SseSubscriber implements Flow.Subscriber<String> {
+
+        final AtomicLong heartbeats = new AtomicLong();
+        volatile boolean failed;
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.startsWith("data:")) {
+                heartbeats.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            failed = true;
+        }
+
+        @Override
+        public void onComplete() {
+            failed = true;
+        }
+
+        void cancel() {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+
+    /**
+     * Serveur de test : ExecutionConfig avec le même mode que l'application, sans base ni sécurité.
+     */
+    @SpringBootConfiguration
+    @ImportAutoConfiguration({
+            ServletWebServerFactoryAutoConfiguration.class,
+            EmbeddedWebServerFactoryCustomizerAutoConfiguration.class,
+            DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class,
+            HttpMessageConvertersAutoConfiguration.class,
+            JacksonAutoConfiguration.class,
+            TaskExecutionAutoConfiguration.class})
+    @Import({ExecutionConfig.class, LoadController.class})
+    static class LoadApplication {
+
+        @Bean
+        JdbcTemplate slowJdbcTemplate(@Value("${load.jdbc-delay-ms}") long delayMs) {
+            return new JdbcTemplate(new SlowDataSource(delayMs));
+        }
+
+        @Bean(destroyMethod = "shutdownNow")
+        ScheduledExecutorService heartbeatExecutor() {
+            return Executors.newSingleThreadScheduledExecutor();
+        }
+    }
+
+    @RestController
+    static class LoadController {
+
+        private final JdbcTemplate jdbcTemplate;
+        private final Scheduler blockingScheduler;
+        private final Set<SseEmitter> emitters = ConcurrentHashMap.newKeySet();
+
+        LoadController(JdbcTemplate jdbcTemplate, Scheduler blockingScheduler, ScheduledExecutorService heartbeatExecutor) {
+            this.jdbcTemplate = jdbcTemplate;
+            this.blockingScheduler = blockingScheduler;
+            heartbeatExecutor.scheduleAtFixedRate(this::heartbeat, 1, 1, TimeUnit.SECONDS);
+        }
+
+        @GetMapping(value = "/load/sse", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+        SseEmitter sse() {
+            SseEmitter emitter = new SseEmitter(0L);
+            emitters.add(emitter);
+            emitter.onCompletion(() -> emitters.remove(emitter));
+            emitter.onError(e -> emitters.remove(emitter));
+            return emitter;
+        }
+
+        @GetMapping("/load/jdbc")
+        Integer jdbc() {
+            return slowQuery();
+        }
+
+        @GetMapping("/load/jdbc-reactive")
+        Mono<Integer> jdbcReactive() {
+            return Mono.fromCallable(this::slowQuery).subscribeOn(blockingScheduler);
+        }
+
+        private Integer slowQuery() {
+            return jdbcTemplate.query("SELECT 1", rs -> rs.next() ? rs.getInt(1) : null);
+        }
+
+        private void heartbeat() {
+            for (SseEmitter emitter : emitters) {
+                try {
+                    emitter.send(SseEmitter.event().name("keepalive").data("ping"));
+                } catch (IOException | IllegalStateException e) {
+                    emitters.remove(emitter);
+                }
+            }
+        }
+    }
+
+    /**
+     * Base factice : chaque requête bloque le thread appelant delayMs puis renvoie une ligne (1).
+     */
+    static final class SlowDataSource extends AbstractDataSource {
+
+        private final long delayMs;
+
+        SlowDataSource(long delayMs) {
+            this.delayMs = delayMs;
+        }
+
+        @Override
+        public Connection getConnection() {
+            return proxy(Connection.class, (method, args) -> switch (method) {
+                case "createStatement", "prepareStatement" -> statement();
+                default -> null;
+            });
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) {
+            return getConnection();
+        }
+
+        private Statement statement() {
+            return proxy(Statement.class, (method, args) -> {
+                if (method.startsWith("execute")) {
+                    Thread.sleep(delayMs);
+                    return method.equals("executeQuery") ? resultSet() : null;
+                }
+                return null;
+            });
+        }
+
+        private static ResultSet resultSet() {
+            AtomicInteger rows = new AtomicInteger(1);
+            return proxy(ResultSet.class, (method, args) -> switch (method) {
+                case "next" -> rows.getAndDecrement() > 0;
+                case "getInt" -> 1;
+                default -> null;
+            });
+        }
+
+        private interface Handler {
+            Object handle(String method, Object[] args) throws Exception;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> T proxy(Class<T> type, Handler handler) {
+            return (T) Proxy.newProxyInstance(ExecutionModeLoadBenchmark.class.getClassLoader(), new Class<?>[]{type},
+                    (proxy, method, args) -> {
+                        Object result = handler.handle(method.getName(), args);
+                        if (result == null && method.getReturnType().isPrimitive()) {
+                            return defaultValue(method.getReturnType());
+                        }
+                        return result;
+                    });
+        }
+
+        private static Object defaultValue(Class<?> type) {
+            if (type == boolean.class) {
+                return false;
+            }
+            if (type == void.class) {
+                return null;
+            }
+            if (type == long.class) {
+                return 0L;
+            }
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.amaris.sensorprocessor.config;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.rsocket.ConnectionSetupPayload;
+import io.rsocket.RSocket;
+import io.rsocket.SocketAcceptor;
+import io.rsocket.core.DefaultConnectionSetupPayload;
+import io.rsocket.exceptions.RejectedSetupException;
+import io.rsocket.frame.SetupFrameCodec;
+import io.rsocket.metadata.AuthMetadataCodec;
+import io.rsocket.metadata.CompositeMetadataCodec;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.util.DefaultPayload;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RSocketSetupAuthenticatorTest {
+
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final SocketAcceptor routes = (setup, sendingSocket) -> {
+        accepted.incrementAndGet();
+        return Mono.just(new RSocket() {
+        });
+    };
+
+    // Compte de test : "alice" / "secret", rôle USER
+    private final AuthenticationManager authenticationManager = authentication -> {
+        if (!"alice".equals(authentication.getName()) || !"secret".equals(authentication.getCredentials())) {
+            throw new BadCredentialsException("Bad credentials");
+        }
+        return new UsernamePasswordAuthenticationToken("alice", null, List.of(new SimpleGrantedAuthority("ROLE_USER")));
+    };
+
+    private final SocketAcceptor acceptor =
+            new RSocketSetupAuthenticator(authenticationManager, Schedulers.immediate()).apply(routes);
+
+    @Test
+    void validCredentialsInCompositeMetadataReachTheRoutes() {
+        acceptor.accept(setup(credentials("alice", "secret")), new RSocket() {
+        }).block();
+
+        assertEquals(1, accepted.get());
+    }
+
+    @Test
+    void missingOrWrongCredentialsAreRejectedBeforeTheRoutes() {
+        assertThrows(RejectedSetupException.class, () -> acceptor.accept(setup(null), new RSocket() {
+        }).block());
+        assertThrows(RejectedSetupException.class, () -> acceptor.accept(setup(credentials("alice", "guess")), new RSocket() {
+        }).block());
+
+        assertEquals(0, accepted.get());
+    }
+
+    private static ByteBuf credentials(String username, String password) {
+        return AuthMetadataCodec.encodeSimpleMetadata(ByteBufAllocator.DEFAULT, username.toCharArray(), password.toCharArray());
+    }
+
+    private static ConnectionSetupPayload setup(ByteBuf authentication) {
+        CompositeByteBuf metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
+        if (authentication != null) {
+            CompositeMetadataCodec.encodeAndAddMetadata(metadata, ByteBufAllocator.DEFAULT,
+                    WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION, authentication);
+        }
+        ByteBuf frame = SetupFrameCodec.encode(ByteBufAllocator.DEFAULT, false, 20_000, 90_000,
+                WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString(), "application/json",
+                DefaultPayload.create(Unpooled.EMPTY_BUFFER, metadata));
+        return new DefaultConnectionSetupPayload(frame);
+    }
+}
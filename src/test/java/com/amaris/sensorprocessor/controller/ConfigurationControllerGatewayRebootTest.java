@@ -36,6 +36,7 @@ class ConfigurationControllerGatewayRebootTest {
             mock(DeviceTypeService.class),
             mock(SensorService.class),
             mock(BuildingEnergyConfigDao.class),
+            mock(EnergyCostService.class),
             mock(BuildingService.class),
             mock(LocationService.class),
             gatewayRebootSchedulerService,
@@ -0,0 +1,46 @@
+package com.amaris.sensorprocessor.controller;
+
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import com.amaris.sensorprocessor.repository.EnergyDeltaHourlyDao.HourlyDelta;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EnergyChannelControllerTest {
+
+    @Test
+    void groupsUtcHoursIntoParisDaysPerChannel() {
+        // 1er juillet (UTC+2) : 10h et 11h UTC, puis 22h UTC = minuit à Paris, donc le 2 juillet
+        Map<LocalDate, Map<Integer, Double>> result = EnergyChannelController.dailyConsumptionWh(List.of(
+                hour(PayloadValueType.ENERGY_CHANNEL_0, LocalDateTime.of(2025, 7, 1, 10, 0), 70),
+                hour(PayloadValueType.ENERGY_CHANNEL_0, LocalDateTime.of(2025, 7, 1, 11, 0), 15),
+                hour(PayloadValueType.ENERGY_CHANNEL_0, LocalDateTime.of(2025, 7, 1, 22, 0), 20),
+                hour(PayloadValueType.ENERGY_CHANNEL_1, LocalDateTime.of(2025, 7, 1, 11, 0), 0)
+        ));
+
+        assertEquals(85.0, result.get(LocalDate.of(2025, 7, 1)).get(0), 1e-9);
+        assertEquals(0.0, result.get(LocalDate.of(2025, 7, 1)).get(1), 1e-9);
+        assertEquals(20.0, result.get(LocalDate.of(2025, 7, 2)).get(0), 1e-9);
+    }
+
+    @Test
+    void winterHourBeforeMidnightUtcBelongsToNextParisDay() {
+        // 15 janvier (UTC+1) : 23h UTC = minuit à Paris
+        Map<LocalDate, Map<Integer, Double>> result = EnergyChannelController.dailyConsumptionWh(List.of(
+                hour(PayloadValueType.ENERGY_CHANNEL_3, LocalDateTime.of(2025, 1, 15, 22, 0), 200),
+                hour(PayloadValueType.ENERGY_CHANNEL_3, LocalDateTime.of(2025, 1, 15, 23, 0), 50)
+        ));
+
+        assertEquals(200.0, result.get(LocalDate.of(2025, 1, 15)).get(3), 1e-9);
+        assertEquals(50.0, result.get(LocalDate.of(2025, 1, 16)).get(3), 1e-9);
+    }
+
+    private static HourlyDelta hour(PayloadValueType type, LocalDateTime hourUtc, double wh) {
+        return new HourlyDelta("conso-1", type, hourUtc, wh, 0);
+    }
+}
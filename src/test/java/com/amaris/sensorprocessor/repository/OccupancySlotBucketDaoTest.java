@@ -0,0 +1,47 @@
+package com.amaris.sensorprocessor.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class OccupancySlotBucketDaoTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 7, 10, 0, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private OccupancySlotBucketDao dao;
+
+    @BeforeEach
+    void setUp() {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource("jdbc:sqlite::memory:", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE sensor_data (id_sensor TEXT, received_at DATETIME, value TEXT, value_type TEXT)");
+        dao = new OccupancySlotBucketDao(jdbcTemplate, "jdbc:sqlite::memory:");
+    }
+
+    @Test
+    void rangeIncludesRowsStoredAsEpochMillis() {
+        insert("desk-01", "2025-07-10T10:05:00", "1");
+        // sqlite-jdbc écrit les Timestamp en millisecondes epoch, à côté des lignes texte
+        insert("desk-01", java.sql.Timestamp.valueOf(LocalDateTime.of(2025, 7, 10, 13, 40)), "1");
+        insert("desk-01", java.sql.Timestamp.valueOf(LocalDateTime.of(2025, 7, 11, 0, 5)), "1");
+        insert("desk-01", "2025-07-09T23:55:00", "1");
+
+        List<OccupancySlotBucketDao.SlotBucket> buckets = new ArrayList<>();
+        dao.forEachSlot(List.of("desk-01"), START, START.plusDays(1), true, buckets::add);
+
+        assertEquals(2, buckets.stream().mapToInt(OccupancySlotBucketDao.SlotBucket::rowCount).sum());
+    }
+
+    private void insert(String sensorId, Object receivedAt, String value) {
+        jdbcTemplate.update("INSERT INTO sensor_data (id_sensor, received_at, value, value_type) VALUES (?, ?, ?, ?)",
+                sensorId, receivedAt, value, "OCCUPANCY");
+    }
+}
@@ -0,0 +1,109 @@
+package com.amaris.sensorprocessor.repository;
+
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SensorDataDaoAggregationTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2025, 7, 10, 0, 0);
+
+    private JdbcTemplate jdbcTemplate;
+    private SensorDataDao dao;
+
+    @BeforeEach
+    void setUp() {
+        SingleConnectionDataSource dataSource = new SingleConnectionDataSource("jdbc:sqlite::memory:", true);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE sensor_data (id_sensor TEXT, received_at DATETIME, value TEXT, value_type TEXT)");
+        dao = new SensorDataDao(jdbcTemplate, "jdbc:sqlite::memory:");
+
+        insert("co2-01", "2025-07-10T10:05:00", "20", PayloadValueType.TEMPERATURE);
+        insert("co2-01", "2025-07-10T10:35:00", "22", PayloadValueType.TEMPERATURE);
+        insert("tempex-01", "2025-07-10T10:20:00", "24", PayloadValueType.TEMPERATURE);
+        insert("tempex-01", "2025-07-10T10:20:00", "80", PayloadValueType.HUMIDITY);
+        insert("co2-01", "2025-07-10T10:05:00", "40", PayloadValueType.HUMIDITY);
+        insert("co2-01", "2025-07-10T10:05:00", "600", PayloadValueType.CO2);
+        insert("co2-01", "2025-07-10T11:05:00", "900", PayloadValueType.CO2);
+        insert("co2-01", "2025-07-11T00:05:00", "1200", PayloadValueType.CO2);
+    }
+
+    @Test
+    void eachTypeUsesItsOwnSensorsAndAggregate() {
+        Map<PayloadValueType, SensorDataDao.MetricAggregation> metrics = new EnumMap<>(PayloadValueType.class);
+        metrics.put(PayloadValueType.TEMPERATURE, new SensorDataDao.MetricAggregation(List.of("co2-01", "tempex-01"), "AVG"));
+        metrics.put(PayloadValueType.HUMIDITY, new SensorDataDao.MetricAggregation(List.of("co2-01"), "AVG"));
+        metrics.put(PayloadValueType.CO2, new SensorDataDao.MetricAggregation(List.of("co2-01"), "MAX"));
+        metrics.put(PayloadValueType.LAEQ, new SensorDataDao.MetricAggregation(List.of(), "AVG"));
+
+        Map<PayloadValueType, List<SensorDataDao.AggregatedDataPoint>> series =
+                dao.findAggregatedDataByPeriodAndTypes(metrics, START, START.plusDays(1));
+
+        SensorDataDao.AggregatedDataPoint temperature = series.get(PayloadValueType.TEMPERATURE).get(0);
+        assertEquals(22.0, temperature.getAggregatedValue(), 1e-9);
+        assertEquals(2, temperature.getSensorCount());
+        assertEquals(3, temperature.getDataPointCount());
+
+        // L'humidité du TEMPEX n'est pas demandée
+        assertEquals(1, series.get(PayloadValueType.HUMIDITY).size());
+        assertEquals(40.0, series.get(PayloadValueType.HUMIDITY).get(0).getAggregatedValue(), 1e-9);
+
+        // Deux heures dans la période, la trame du lendemain est exclue
+        List<SensorDataDao.AggregatedDataPoint> co2 = series.get(PayloadValueType.CO2);
+        assertEquals(2, co2.size());
+        assertEquals("2025-07-10T10", co2.get(0).getTimeBucket());
+        assertEquals(900.0, co2.get(1).getAggregatedValue(), 1e-9);
+
+        assertTrue(series.get(PayloadValueType.LAEQ).isEmpty());
+    }
+
+    @Test
+    void matchesThePerTypeQuery() {
+        List<String> sensors = List.of("co2-01", "tempex-01");
+        Map<PayloadValueType, SensorDataDao.MetricAggregation> metrics = new EnumMap<>(PayloadValueType.class);
+        metrics.put(PayloadValueType.TEMPERATURE, new SensorDataDao.MetricAggregation(sensors, "AVG"));
+
+        List<SensorDataDao.AggregatedDataPoint> combined =
+                dao.findAggregatedDataByPeriodAndTypes(metrics, START, START.plusDays(1)).get(PayloadValueType.TEMPERATURE);
+        List<SensorDataDao.AggregatedDataPoint> single =
+                dao.findAggregatedDataByPeriodAndType(sensors, START, START.plusDays(1), PayloadValueType.TEMPERATURE, "AVG");
+
+        assertEquals(single.size(), combined.size());
+        for (int i = 0; i < single.size(); i++) {
+            assertEquals(single.get(i).getTimeBucket(), combined.get(i).getTimeBucket());
+            assertEquals(single.get(i).getAggregatedValue(), combined.get(i).getAggregatedValue(), 1e-9);
+        }
+    }
+
+    @Test
+    void bucketsStatisticsOfRowsStoredAsEpochMillis() {
+        // sqlite-jdbc écrit les Timestamp en millisecondes epoch, à côté des lignes texte
+        jdbcTemplate.update("INSERT INTO sensor_data (id_sensor, received_at, value, value_type) VALUES (?, ?, ?, ?)",
+                "co2-01", java.sql.Timestamp.valueOf(LocalDateTime.of(2025, 7, 10, 10, 50)), "800",
+                PayloadValueType.CO2.toString());
+
+        List<SensorDataDao.BucketStatistics> hourly = dao.getStatisticsByBucket(List.of("co2-01"),
+                List.of(PayloadValueType.CO2), START, START.plusDays(1), true);
+
+        Map<String, SensorDataDao.HourlyStatistics> byHour = new java.util.TreeMap<>();
+        hourly.forEach(stats -> byHour.put(stats.timeBucket(), stats.statistics()));
+        assertEquals(List.of("2025-07-10 10:00", "2025-07-10 11:00"), List.copyOf(byHour.keySet()));
+        assertEquals(2, byHour.get("2025-07-10 10:00").getDataPointCount());
+        assertEquals(800.0, byHour.get("2025-07-10 10:00").getMax(), 1e-9);
+    }
+
+    private void insert(String sensorId, String receivedAt, String value, PayloadValueType valueType) {
+        jdbcTemplate.update("INSERT INTO sensor_data (id_sensor, received_at, value, value_type) VALUES (?, ?, ?, ?)",
+                sensorId, receivedAt, value, valueType.toString());
+    }
+}
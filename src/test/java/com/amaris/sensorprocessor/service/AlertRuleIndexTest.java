@@ -0,0 +1,123 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.config.AlertThresholdConfig;
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import com.amaris.sensorprocessor.entity.Sensor;
+import com.amaris.sensorprocessor.entity.SensorThreshold;
+import com.amaris.sensorprocessor.repository.SensorDao;
+import com.amaris.sensorprocessor.repository.SensorThresholdDao;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AlertRuleIndexTest {
+
+    private final AlertThresholdConfig config = new AlertThresholdConfig();
+    private final SensorThresholdDao sensorThresholdDao = mock(SensorThresholdDao.class);
+    private final SensorDao sensorDao = mock(SensorDao.class);
+    private final AlertRuleIndex index = new AlertRuleIndex(config, sensorThresholdDao, sensorDao);
+
+    private void indexSensors(List<SensorThreshold> thresholds, String... sensorIds) {
+        List<Sensor> sensors = java.util.Arrays.stream(sensorIds).map(id -> {
+            Sensor sensor = new Sensor();
+            sensor.setIdSensor(id);
+            return sensor;
+        }).toList();
+        when(sensorDao.findAllSensors()).thenReturn(sensors);
+        when(sensorThresholdDao.findAll()).thenReturn(thresholds);
+        index.rebuild();
+    }
+
+    @Test
+    void customThresholdOverridesGlobalDefault() {
+        SensorThreshold custom = new SensorThreshold(1L, "co2-strict", "CO2", 600.0, 700.0, null, null, true);
+        indexSensors(List.of(custom), "co2-default", "co2-strict");
+
+        int strict = index.slotOf("co2-strict");
+        int standard = index.slotOf("co2-default");
+
+        assertEquals(AlertRuleIndex.LEVEL_CRITICAL, index.evaluate(PayloadValueType.CO2, strict, 750, 0));
+        assertEquals(AlertRuleIndex.LEVEL_NONE, index.evaluate(PayloadValueType.CO2, standard, 750, 0));
+        assertEquals(700.0, index.criticalHigh(PayloadValueType.CO2, strict));
+        assertEquals(config.getCo2().getCritical(), index.criticalHigh(PayloadValueType.CO2, standard));
+    }
+
+    @Test
+    void hysteresisKeepsLevelUntilValueClearsMargin() {
+        config.getHysteresis().setCo2(50);
+        indexSensors(List.of(), "co2");
+        int slot = index.slotOf("co2");
+
+        assertEquals(AlertRuleIndex.LEVEL_WARNING, index.evaluate(PayloadValueType.CO2, slot, 820, 0));
+        assertEquals(AlertRuleIndex.LEVEL_WARNING, index.evaluate(PayloadValueType.CO2, slot, 780, 1_000));
+        assertEquals(AlertRuleIndex.LEVEL_NONE, index.evaluate(PayloadValueType.CO2, slot, 740, 2_000));
+    }
+
+    @Test
+    void escalationWaitsForMinimumDuration() {
+        config.setMinDurationSeconds(600);
+        indexSensors(List.of(), "temp");
+        int slot = index.slotOf("temp");
+
+        assertEquals(AlertRuleIndex.LEVEL_NONE, index.evaluate(PayloadValueType.TEMPERATURE, slot, 35, 0));
+        assertEquals(AlertRuleIndex.LEVEL_NONE, index.evaluate(PayloadValueType.TEMPERATURE, slot, 35, 300_000));
+        assertEquals(AlertRuleIndex.LEVEL_CRITICAL, index.evaluate(PayloadValueType.TEMPERATURE, slot, 35, 600_000));
+    }
+
+    @Test
+    void concurrentEvaluationsShareOneEscalationTimer() throws Exception {
+        config.setMinDurationSeconds(600);
+        indexSensors(List.of(), "temp");
+        int slot = index.slotOf("temp");
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> evaluations = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                evaluations.add(pool.submit(() -> {
+                    for (int k = 0; k < 10_000; k++) {
+                        index.evaluate(PayloadValueType.TEMPERATURE, slot, 35, 1_000);
+                    }
+                }));
+            }
+            for (Future<?> evaluation : evaluations) {
+                evaluation.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(AlertRuleIndex.LEVEL_NONE, index.evaluate(PayloadValueType.TEMPERATURE, slot, 35, 600_999));
+        assertEquals(AlertRuleIndex.LEVEL_CRITICAL, index.evaluate(PayloadValueType.TEMPERATURE, slot, 35, 601_000));
+    }
+
+    @Test
+    void unknownSensorUsesGlobalThresholdsWithoutState() {
+        config.setMinDurationSeconds(600);
+        indexSensors(List.of(), "known");
+
+        int slot = index.slotOf("not-indexed");
+
+        assertEquals(AlertRuleIndex.DEFAULT_SLOT, slot);
+        assertEquals(AlertRuleIndex.LEVEL_WARNING, index.evaluate(PayloadValueType.LAEQ, slot, 75, 0));
+    }
+
+    @Test
+    void rowsWithoutSensorIdAreSkipped() {
+        SensorThreshold orphan = new SensorThreshold(1L, null, "CO2", 600.0, 700.0, null, null, true);
+        SensorThreshold custom = new SensorThreshold(2L, "co2-strict", "CO2", 600.0, 700.0, null, null, true);
+        long before = index.generation();
+        indexSensors(new ArrayList<>(java.util.Arrays.asList(orphan, null, custom)), "co2-strict", null);
+
+        assertEquals(before + 1, index.generation());
+        assertEquals(700.0, index.criticalHigh(PayloadValueType.CO2, index.slotOf("co2-strict")));
+    }
+}
@@ -0,0 +1,85 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import com.amaris.sensorprocessor.entity.Sensor;
+import com.amaris.sensorprocessor.model.dashboard.HistogramRequest;
+import com.amaris.sensorprocessor.model.dashboard.HistogramResponse;
+import com.amaris.sensorprocessor.repository.SensorDao;
+import com.amaris.sensorprocessor.repository.SensorDataDao;
+import com.amaris.sensorprocessor.repository.SensorDataDao.BucketStatistics;
+import com.amaris.sensorprocessor.repository.SensorDataDao.HourlyStatistics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+class DashboardHistogramTest {
+
+    private final SensorDao sensorDao = mock(SensorDao.class);
+    private final SensorDataDao sensorDataDao = mock(SensorDataDao.class);
+    private final TopologyRegistry topologyRegistry = mock(TopologyRegistry.class);
+    private final DashboardServiceImpl service = new DashboardServiceImpl(sensorDao, sensorDataDao,
+            mock(AlertService.class), topologyRegistry,
+            new DashboardResponseCache(topologyRegistry, new ObjectMapper().findAndRegisterModules(), 360, 60, 500, 120), mock(DashboardSnapshotStore.class));
+
+    @Test
+    void hourlyTotalHistogramRunsOneStatisticsQuery() {
+        Sensor sensor = new Sensor();
+        sensor.setIdSensor("conso-1");
+        when(topologyRegistry.sensor("conso-1")).thenReturn(Optional.of(sensor));
+        when(topologyRegistry.deviceTypeNames()).thenReturn(Map.of());
+        when(sensorDataDao.getStatisticsByBucket(anyList(), anyList(), any(), any(), eq(true))).thenReturn(List.of(
+                row("2025-07-01 10:00", PayloadValueType.POWER_CHANNEL_0, "conso-1", 100, 4),
+                row("2025-07-01 10:00", PayloadValueType.POWER_CHANNEL_1, "conso-1", -50, 6),
+                row("2025-07-01 11:00", PayloadValueType.POWER_CHANNEL_0, "conso-1", 80, 3)
+        ));
+
+        HistogramResponse response = service.getHistogramData(HistogramRequest.builder()
+                .sensorId("conso-1")
+                .metricType(PayloadValueType.POWER_TOTAL)
+                .timeRange(HistogramRequest.TimeRangePreset.LAST_30_DAYS)
+                .granularity(HistogramRequest.Granularity.HOURLY)
+                .build());
+
+        // Une requête pour 30 jours x 24 h x 12 canaux (au lieu d'une par heure et par canal)
+        verify(sensorDataDao, times(1)).getStatisticsByBucket(anyList(), anyList(), any(), any(), eq(true));
+        verifyNoMoreInteractions(sensorDataDao);
+
+        assertEquals(2, response.getDataPoints().size());
+        assertEquals("2025-07-01 10:00", response.getDataPoints().get(0).getTimestamp());
+        assertEquals(150.0, response.getDataPoints().get(0).getValue().doubleValue(), 1e-9);
+        assertEquals(6, response.getDataPoints().get(0).getDataPointCount().intValue());
+    }
+
+    @Test
+    void dailyBucketsKeepOnlyTimeSlotHoursWithWeightedAverage() {
+        Map<String, List<HourlyStatistics>> buckets = DashboardServiceImpl.toHistogramBuckets(List.of(
+                row("2025-07-01 09:00", PayloadValueType.TEMPERATURE, "eye-1", 20, 1),
+                row("2025-07-01 10:00", PayloadValueType.TEMPERATURE, "eye-1", 23, 2),
+                row("2025-07-01 15:00", PayloadValueType.TEMPERATURE, "eye-1", 30, 5)   // après-midi, exclu
+        ), false, false, HistogramRequest.TimeSlot.MORNING);
+
+        assertEquals(1, buckets.size());
+        HourlyStatistics day = buckets.get("2025-07-01").get(0);
+        assertEquals(22.0, day.getAverage(), 1e-9);
+        assertEquals(3, day.getDataPointCount());
+        assertTrue(day.getMin() <= day.getAverage() && day.getAverage() <= day.getMax());
+    }
+
+    private static BucketStatistics row(String bucket, PayloadValueType type, String sensorId, double value, int count) {
+        return new BucketStatistics(bucket, type, sensorId, new HourlyStatistics(value, value, value, count));
+    }
+}
@@ -0,0 +1,213 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.Sensor;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class DashboardResponseCacheTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 7, 10);
+    private static final TypeReference<Integer> INT = new TypeReference<>() {};
+
+    private final TopologyRegistry topologyRegistry = mock(TopologyRegistry.class);
+    private final MutableClock clock = new MutableClock(TODAY.atTime(12, 0).toInstant(ZoneOffset.UTC));
+    private final DashboardResponseCache cache =
+            new DashboardResponseCache(topologyRegistry, new ObjectMapper(), Duration.ofHours(6), Duration.ofSeconds(60),
+                    100, Duration.ofSeconds(30), clock);
+
+    @Test
+    void closedPeriodOutlivesOpenPeriodTtl() {
+        AtomicInteger loads = new AtomicInteger();
+        LocalDate lastWeek = TODAY.minusDays(7);
+
+        cache.get("histogram", 1, lastWeek, TODAY.minusDays(1), List.of(), INT, loads::incrementAndGet);
+        cache.get("histogram", 1, lastWeek, TODAY, List.of(), INT, loads::incrementAndGet);
+        clock.advance(Duration.ofMinutes(5));
+        cache.get("histogram", 1, lastWeek, TODAY.minusDays(1), List.of(), INT, loads::incrementAndGet);
+        cache.get("histogram", 1, lastWeek, TODAY, List.of(), INT, loads::incrementAndGet);
+
+        // La période close est servie par le cache, celle qui touche aujourd'hui est recalculée
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void concurrentIdenticalMissesShareOneComputation() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.get("histogram", null, TODAY.minusDays(30), TODAY.minusDays(1),
+                        List.of("DESK"), INT, () -> {
+                            loads.incrementAndGet();
+                            awaitQuietly(release);
+                            return 42;
+                        })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<Integer> result : results) {
+                assertEquals(42, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void lateUplinkDropsOnlyResponsesOfItsBuildingCoveringThatDay() {
+        Sensor sensor = new Sensor();
+        sensor.setIdSensor("desk-03-01");
+        sensor.setBuildingId(1);
+        when(topologyRegistry.sensor("desk-03-01")).thenReturn(Optional.of(sensor));
+        AtomicInteger loads = new AtomicInteger();
+        LocalDate from = TODAY.minusDays(10);
+        LocalDate to = TODAY.minusDays(5);
+
+        cache.get("histogram", 1, from, to, List.of(), INT, loads::incrementAndGet);
+        cache.get("histogram", 2, from, to, List.of(), INT, loads::incrementAndGet);
+        cache.get("histogram", null, from, to, List.of(), INT, loads::incrementAndGet);
+        cache.get("histogram", 1, TODAY.minusDays(3), TODAY.minusDays(1), List.of(), INT, loads::incrementAndGet);
+
+        cache.onUplink("desk-03-01", TODAY.minusDays(7).atTime(10, 0));
+
+        // Bâtiment 1 et tous bâtiments sur la période du jour concerné ; bâtiment 2 et autre période conservés
+        assertEquals(2, cache.size());
+        cache.get("histogram", 2, from, to, List.of(), INT, loads::incrementAndGet);
+        cache.get("histogram", 1, TODAY.minusDays(3), TODAY.minusDays(1), List.of(), INT, loads::incrementAndGet);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    void failedLoadIsForgottenEvenOnError() {
+        LocalDate from = TODAY.minusDays(7);
+
+        assertThrows(AssertionError.class, () -> cache.get("histogram", 1, from, TODAY.minusDays(1), List.of(), INT,
+                () -> {
+                    throw new AssertionError("loader bug");
+                }));
+
+        assertEquals(0, cache.size());
+        assertEquals(7, cache.get("histogram", 1, from, TODAY.minusDays(1), List.of(), INT, () -> 7));
+    }
+
+    @Test
+    void stuckLoadIsReplacedAfterLoadTimeout() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LocalDate from = TODAY.minusDays(7);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> stuck = executor.submit(() -> cache.get("histogram", 1, from, TODAY.minusDays(1), List.of(), INT,
+                    () -> {
+                        started.countDown();
+                        awaitQuietly(release);
+                        return 1;
+                    }));
+            started.await(5, TimeUnit.SECONDS);
+
+            clock.advance(Duration.ofSeconds(31));
+            // Le calcul bloqué n'est plus attendu : l'appel suivant le relance
+            assertEquals(2, cache.get("histogram", 1, from, TODAY.minusDays(1), List.of(), INT, () -> 2));
+
+            release.countDown();
+            assertEquals(1, stuck.get(5, TimeUnit.SECONDS));
+            assertEquals(2, cache.get("histogram", 1, from, TODAY.minusDays(1), List.of(), INT, () -> 3));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void callersGetTheirOwnCopyOfTheResponse() {
+        TypeReference<Map<String, Integer>> type = new TypeReference<>() {};
+        LocalDate from = TODAY.minusDays(7);
+
+        Map<String, Integer> first = cache.get("environment-history", 1, from, TODAY.minusDays(1), List.of(), type,
+                () -> new HashMap<>(Map.of("co2", 600)));
+        first.put("co2", 9999);
+
+        Map<String, Integer> second = cache.get("environment-history", 1, from, TODAY.minusDays(1), List.of(), type,
+                HashMap::new);
+        assertEquals(Map.of("co2", 600), second);
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static final class MutableClock extends Clock {
+
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            MutableClock parent = this;
+            return new Clock() {
+                @Override
+                public ZoneId getZone() {
+                    return zone;
+                }
+
+                @Override
+                public Clock withZone(ZoneId other) {
+                    return parent.withZone(other);
+                }
+
+                @Override
+                public Instant instant() {
+                    return parent.instant();
+                }
+            };
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.model.dashboard.DashboardData;
+import com.amaris.sensorprocessor.model.dashboard.HistoricalData;
+import com.amaris.sensorprocessor.model.dashboard.LiveSensorData;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class DashboardSnapshotStoreTest {
+
+    private static final DashboardSnapshotStore.Key KEY = new DashboardSnapshotStore.Key("1", "all", "DESK");
+
+    private final ScheduledJobRunner jobRunner = mock(ScheduledJobRunner.class);
+    private final DashboardSnapshotStore store = new DashboardSnapshotStore(jobRunner, 3600, 10, 60, 2000);
+    private final AtomicInteger builds = new AtomicInteger();
+    private final DashboardSnapshotStore.Builder builder = initial -> {
+        int n = builds.incrementAndGet();
+        return new DashboardSnapshotStore.Built(new DashboardData(List.of(),
+                List.of(new LiveSensorData("Total Live Data", n, 0, 0)),
+                new HistoricalData(0.0, 1, 1, List.of())), Set.of("desk-03-01"));
+    };
+
+    DashboardSnapshotStoreTest() {
+        // Le job s'exécute immédiatement sur le thread du test
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        }).when(jobRunner).submit(eq(DashboardSnapshotStore.JOB_NAME), any());
+    }
+
+    @Test
+    void requestsReadTheSnapshotWithoutRebuilding() {
+        DashboardData first = store.get(KEY, builder);
+        DashboardData second = store.get(KEY, builder);
+        store.scheduleRefresh();
+
+        assertEquals(first.getGeneration(), second.getGeneration());
+        assertEquals(1, builds.get());
+        assertTrue(first.getGeneration() > 0);
+    }
+
+    @Test
+    void uplinkOfCoveredSensorTriggersRebuildWithNewGeneration() {
+        DashboardData first = store.get(KEY, builder);
+
+        store.onUplink("desk-99-99");
+        store.scheduleRefresh();
+        assertEquals(1, builds.get());
+
+        store.onUplink("desk-03-01");
+        store.get(KEY, builder);
+        store.scheduleRefresh();
+        DashboardData second = store.get(KEY, builder);
+
+        assertEquals(2, builds.get());
+        assertTrue(second.getGeneration() > first.getGeneration());
+        assertEquals(2.0, second.getLiveSensorData().get(0).getFree());
+    }
+
+    @Test
+    void snapshotNobodyReadsIsNotRebuiltInBackground() {
+        store.get(KEY, builder);
+
+        store.onUplink("desk-03-01");
+        store.scheduleRefresh();
+
+        // Seul le premier affichage l'a lu : pas de reconstruction (ni d'évaluation des alertes)
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    void unreadSnapshotIsRebuiltOnTheRequestOnceStale() throws InterruptedException {
+        DashboardSnapshotStore eager = new DashboardSnapshotStore(jobRunner, 3600, 10, 60, 0);
+        DashboardData first = eager.get(KEY, builder);
+
+        eager.onUplink("desk-03-01");
+        eager.scheduleRefresh();
+        assertEquals(1, builds.get());
+        Thread.sleep(5);
+
+        // Laissé de côté par l'arrière-plan, il n'est pas servi périmé pour autant
+        DashboardData second = eager.get(KEY, builder);
+        assertEquals(2, builds.get());
+        assertTrue(second.getGeneration() > first.getGeneration());
+    }
+
+    @Test
+    void eachCallerGetsItsOwnCopy() {
+        DashboardData first = store.get(KEY, builder);
+        first.getLiveSensorData().get(0).setFree(42);
+        first.getHistoricalData().setGlobalOccupancy(99);
+
+        DashboardData second = store.get(KEY, builder);
+
+        assertNotSame(first, second);
+        assertEquals(1.0, second.getLiveSensorData().get(0).getFree());
+        assertEquals(0.0, second.getHistoricalData().getGlobalOccupancy());
+    }
+
+    @Test
+    void failedFirstBuildIsRetriedEvenOnError() {
+        assertThrows(AssertionError.class, () -> store.get(KEY, initial -> {
+            throw new AssertionError("builder bug");
+        }));
+
+        assertEquals(0, store.size());
+        store.get(KEY, builder);
+        assertEquals(1, builds.get());
+    }
+}
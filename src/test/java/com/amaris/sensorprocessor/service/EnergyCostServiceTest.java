@@ -0,0 +1,136 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.BuildingEnergyConfig;
+import com.amaris.sensorprocessor.entity.BuildingEnergyTariff;
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import com.amaris.sensorprocessor.entity.Sensor;
+import com.amaris.sensorprocessor.model.dashboard.EnergyCostReport;
+import com.amaris.sensorprocessor.repository.BuildingEnergyConfigDao;
+import com.amaris.sensorprocessor.repository.BuildingEnergyTariffDao;
+import com.amaris.sensorprocessor.repository.EnergyCostMonthlyDao;
+import com.amaris.sensorprocessor.repository.EnergyCostMonthlyDao.MonthlyCost;
+import com.amaris.sensorprocessor.repository.EnergyDeltaHourlyDao;
+import com.amaris.sensorprocessor.repository.EnergyDeltaHourlyDao.HourlyDelta;
+import com.amaris.sensorprocessor.repository.SensorDao;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EnergyCostServiceTest {
+
+    private final SensorDao sensorDao = mock(SensorDao.class);
+    private final BuildingEnergyConfigDao configDao = mock(BuildingEnergyConfigDao.class);
+    private final BuildingEnergyTariffDao tariffDao = mock(BuildingEnergyTariffDao.class);
+    private final EnergyDeltaHourlyDao hourlyDao = mock(EnergyDeltaHourlyDao.class);
+    private final EnergyCostMonthlyDao monthlyDao = mock(EnergyCostMonthlyDao.class);
+    private final EnergyCostService service = new EnergyCostService(sensorDao, configDao, tariffDao, hourlyDao, monthlyDao);
+
+    @Test
+    void tariffWindowsUseParisTimeWrapMidnightAndSkipWeekends() {
+        EnergyTariffSchedule schedule = new EnergyTariffSchedule(0.20, 0.05, "EUR", List.of(
+                new EnergyTariffSchedule.Window("HC", 22, 6, false, 0.10),
+                new EnergyTariffSchedule.Window("HP", 8, 20, true, 0.30)));
+
+        // Heure d'été : UTC+2
+        assertEquals("HC", schedule.bandAt(LocalDateTime.of(2025, 7, 1, 21, 0)).name());  // mardi 23h
+        assertEquals("HC", schedule.bandAt(LocalDateTime.of(2025, 7, 1, 1, 0)).name());   // mardi 3h
+        assertEquals("HP", schedule.bandAt(LocalDateTime.of(2025, 7, 1, 6, 0)).name());   // mardi 8h
+        assertEquals("BASE", schedule.bandAt(LocalDateTime.of(2025, 7, 5, 6, 0)).name()); // samedi 8h
+        assertEquals(0.20, schedule.bandAt(LocalDateTime.of(2025, 7, 1, 4, 0)).costPerKwh()); // mardi 6h
+    }
+
+    @Test
+    void previousPeriodKeepsWholeMonthsOrDayCount() {
+        assertArrayEquals(new LocalDate[]{LocalDate.of(2025, 1, 1), LocalDate.of(2025, 2, 28)},
+                EnergyCostService.previousPeriod(LocalDate.of(2025, 3, 1), LocalDate.of(2025, 4, 30)));
+        assertArrayEquals(new LocalDate[]{LocalDate.of(2025, 3, 3), LocalDate.of(2025, 3, 9)},
+                EnergyCostService.previousPeriod(LocalDate.of(2025, 3, 10), LocalDate.of(2025, 3, 16)));
+    }
+
+    @Test
+    void dailyReportPricesEachHourAtItsBandAndComparesWithPreviousPeriod() {
+        givenBuildingWithOffPeakTariff();
+        LocalDate day = LocalDate.of(2025, 7, 1);
+        givenHours(day, List.of(
+                new HourlyDelta("conso-1", PayloadValueType.ENERGY_CHANNEL_1, LocalDateTime.of(2025, 7, 1, 1, 0), 2000, 0),
+                new HourlyDelta("conso-1", PayloadValueType.ENERGY_CHANNEL_2, LocalDateTime.of(2025, 7, 1, 10, 0), 1000, 0)));
+        givenHours(day.minusDays(1), List.of(
+                new HourlyDelta("conso-1", PayloadValueType.ENERGY_CHANNEL_1, LocalDateTime.of(2025, 6, 30, 10, 0), 1500, 0)));
+
+        EnergyCostReport report = service.getCostReport(1, day, day, EnergyCostService.Granularity.DAY);
+
+        // 2 kWh en heures creuses à 0,10 + 1 kWh au tarif de base à 0,20
+        assertEquals(3.0, report.getTotalEnergy(), 1e-9);
+        assertEquals(0.40, report.getTotalCost(), 1e-9);
+        assertEquals(0.15, report.getTotalCo2(), 1e-9);
+        assertEquals(1, report.getDailyData().size());
+        assertEquals(List.of("BASE", "HC"), report.getByBand().stream().map(EnergyCostReport.CostBreakdown::getKey).toList());
+        assertEquals("1/2", report.getByFloor().get(0).getKey());
+        assertEquals(1.5, report.getPreviousPeriod().getTotalEnergy(), 1e-9);
+        assertEquals(100.0, report.getEnergyChangePercent(), 1e-9);
+    }
+
+    @Test
+    void closedMonthIsReadFromCacheAndOnlyMissingSensorsAreComputed() {
+        givenBuildingWithOffPeakTariff();
+        Sensor other = sensor("conso-2");
+        when(sensorDao.findAllByDeviceTypeAndBuilding("CONSO", 1)).thenReturn(List.of(sensor("conso-1"), other));
+        LocalDate month = LocalDate.of(2025, 3, 1);
+        when(monthlyDao.findByMonthsAndSensorIds(eq(List.of(month)), anyCollection())).thenReturn(List.of(
+                new MonthlyCost(month, "conso-1", PayloadValueType.ENERGY_CHANNEL_1, "HC", 10, 1.0)));
+
+        EnergyCostReport report = service.getCostReport(1, month, LocalDate.of(2025, 3, 31), EnergyCostService.Granularity.MONTH);
+
+        assertEquals(10.0, report.getTotalEnergy(), 1e-9);
+        assertEquals(1.0, report.getTotalCost(), 1e-9);
+        assertNull(report.getEnergyChangePercent());
+        // conso-2 n'a pas de ligne : le mois est calculé depuis les heures puis marqué calculé
+        verify(hourlyDao).forEachHourly(eq(List.of("conso-2")), anyList(),
+                eq(LocalDateTime.of(2025, 2, 28, 23, 0)), eq(LocalDateTime.of(2025, 3, 31, 22, 0)), any());
+        verify(monthlyDao).saveAll(eq(List.of(new MonthlyCost(month, "conso-2", PayloadValueType.ENERGY_TOTAL,
+                EnergyTariffSchedule.BASE_BAND, 0, 0))), anyMap());
+        verify(hourlyDao, never()).forEachHourly(eq(List.of("conso-1", "conso-2")), anyList(),
+                eq(LocalDateTime.of(2025, 2, 28, 23, 0)), any(), any());
+    }
+
+    private void givenBuildingWithOffPeakTariff() {
+        when(sensorDao.findAllByDeviceTypeAndBuilding("CONSO", 1)).thenReturn(List.of(sensor("conso-1")));
+        when(configDao.findByBuildingId(1)).thenReturn(Optional.of(new BuildingEnergyConfig(1, 0.20, "EUR", 0.05)));
+        when(tariffDao.findByBuildingId(1)).thenReturn(List.of(new BuildingEnergyTariff(1L, 1, "HC", 22, 6, false, 0.10)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void givenHours(LocalDate parisDay, List<HourlyDelta> hours) {
+        LocalDateTime startUtc = parisDay.atStartOfDay().minusHours(2);
+        doAnswer(invocation -> {
+            hours.forEach(invocation.<Consumer<HourlyDelta>>getArgument(4));
+            return null;
+        }).when(hourlyDao).forEachHourly(anyList(), anyList(), eq(startUtc), any(), any(Consumer.class));
+    }
+
+    private static Sensor sensor(String id) {
+        Sensor sensor = new Sensor();
+        sensor.setIdSensor(id);
+        sensor.setBuildingId(1);
+        sensor.setFloor(2);
+        return sensor;
+    }
+}
@@ -0,0 +1,114 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import com.amaris.sensorprocessor.repository.EnergyCostMonthlyDao;
+import com.amaris.sensorprocessor.repository.EnergyDeltaHourlyDao;
+import com.amaris.sensorprocessor.repository.SensorDao;
+import com.amaris.sensorprocessor.repository.SensorDataDao;
+import com.amaris.sensorprocessor.service.EnergyDeltaRollupService.Reading;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class EnergyDeltaRollupServiceTest {
+
+    private static final Duration MAX_GAP = Duration.ofHours(24);
+
+    @Test
+    void stepWithinOneHourGoesToThatHour() {
+        Map<LocalDateTime, Double> whByHour = new TreeMap<>();
+        boolean reset = EnergyDeltaRollupService.distribute(
+                reading(10, 10, 100), reading(10, 20, 130), MAX_GAP, whByHour);
+
+        assertFalse(reset);
+        assertEquals(Map.of(LocalDateTime.of(2025, 7, 1, 10, 0), 30.0), whByHour);
+    }
+
+    @Test
+    void gapIsSpreadOverCoveredHoursByTimeShare() {
+        // 10h30 -> 12h30 : 30 min sur 10h, 60 min sur 11h, 30 min sur 12h
+        Map<LocalDateTime, Double> whByHour = new TreeMap<>();
+        EnergyDeltaRollupService.distribute(reading(10, 30, 1000), reading(12, 30, 1120), MAX_GAP, whByHour);
+
+        assertEquals(3, whByHour.size());
+        assertEquals(30.0, whByHour.get(LocalDateTime.of(2025, 7, 1, 10, 0)), 1e-9);
+        assertEquals(60.0, whByHour.get(LocalDateTime.of(2025, 7, 1, 11, 0)), 1e-9);
+        assertEquals(30.0, whByHour.get(LocalDateTime.of(2025, 7, 1, 12, 0)), 1e-9);
+    }
+
+    @Test
+    void gapLongerThanSpreadLimitGoesToArrivalHour() {
+        Map<LocalDateTime, Double> whByHour = new TreeMap<>();
+        EnergyDeltaRollupService.distribute(reading(10, 0, 0), reading(13, 0, 90), Duration.ofHours(2), whByHour);
+
+        assertEquals(Map.of(LocalDateTime.of(2025, 7, 1, 13, 0), 90.0), whByHour);
+    }
+
+    @Test
+    void counterResetCountsNothingOnArrivalHour() {
+        Map<LocalDateTime, Double> whByHour = new TreeMap<>();
+        boolean reset = EnergyDeltaRollupService.distribute(
+                reading(9, 50, 5000), reading(10, 5, 12), MAX_GAP, whByHour);
+
+        assertTrue(reset);
+        assertEquals(Map.of(LocalDateTime.of(2025, 7, 1, 10, 0), 0.0), whByHour);
+    }
+
+    @Test
+    void uncaughtUpSensorIsRebuiltByTheCatchUpJobNotOnIngest() {
+        EnergyDeltaHourlyDao hourlyDao = mock(EnergyDeltaHourlyDao.class);
+        SensorDataDao sensorDataDao = mock(SensorDataDao.class);
+        ScheduledJobRunner jobRunner = mock(ScheduledJobRunner.class);
+        List<Runnable> submittedJobs = new ArrayList<>();
+        when(jobRunner.submit(eq(EnergyDeltaRollupService.JOB_NAME), any()))
+                .thenAnswer(invocation -> submittedJobs.add(invocation.getArgument(1)));
+        when(hourlyDao.findLatestHour("conso-1")).thenReturn(Optional.empty());
+        doAnswer(invocation -> {
+            SensorDataDao.NumericReadingConsumer consumer = invocation.getArgument(4);
+            consumer.accept(PayloadValueType.ENERGY_CHANNEL_0, LocalDateTime.of(2025, 7, 1, 10, 10), 100);
+            consumer.accept(PayloadValueType.ENERGY_CHANNEL_0, LocalDateTime.of(2025, 7, 1, 10, 20), 130);
+            return null;
+        }).when(sensorDataDao).forEachNumericReading(eq("conso-1"), any(), isNull(), isNull(), any());
+        EnergyDeltaRollupService service = new EnergyDeltaRollupService(hourlyDao, mock(EnergyCostMonthlyDao.class),
+                sensorDataDao, mock(SensorDao.class), jobRunner, 24);
+
+        service.record("conso-1", LocalDateTime.of(2025, 7, 1, 10, 10), PayloadValueType.ENERGY_CHANNEL_0, "100");
+        service.record("conso-1", LocalDateTime.of(2025, 7, 1, 10, 20), PayloadValueType.ENERGY_CHANNEL_0, "130");
+
+        // Rien n'est relu sur le thread d'ingestion, un seul job est soumis
+        verifyNoInteractions(sensorDataDao);
+        assertEquals(1, submittedJobs.size());
+
+        submittedJobs.get(0).run();
+        verify(hourlyDao).replaceFrom(eq("conso-1"), isNull(), anyList());
+
+        // Rattrapé : la trame suivante est agrégée directement à partir de la dernière trame relue
+        service.record("conso-1", LocalDateTime.of(2025, 7, 1, 10, 40), PayloadValueType.ENERGY_CHANNEL_0, "150");
+        verify(hourlyDao).addDeltas("conso-1", PayloadValueType.ENERGY_CHANNEL_0,
+                Map.of(LocalDateTime.of(2025, 7, 1, 10, 0), 20.0), 0);
+        assertEquals(1, submittedJobs.size());
+    }
+
+    private static Reading reading(int hour, int minute, double value) {
+        return new Reading(LocalDateTime.of(2025, 7, 1, hour, minute), value);
+    }
+}
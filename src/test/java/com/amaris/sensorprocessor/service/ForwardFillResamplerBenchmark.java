@@ -0,0 +1,97 @@
+package com.amaris.sensorprocessor.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Série horaire de 12 canaux sur 1 an (trame toutes les 10 min par canal) : copie d'une Map des
+ * dernières valeurs à chaque heure (ancienne version) contre matrice primitive.
+ *
+ * Lancement : exécuter main() depuis l'IDE ou avec le classpath de test (mvn test-compile au préalable).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ForwardFillResamplerBenchmark {
+
+    private static final int CHANNELS = 12;
+    private static final long HOUR = 3_600_000L;
+    private static final long START = 1_735_689_600_000L; // 2025-01-01T00:00Z
+    private static final long END = START + 365 * 24 * HOUR;
+
+    // Trames triées par date, tous canaux confondus
+    private long[] timestamps;
+    private int[] channels;
+    private double[] values;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(11);
+        int perChannel = (int) ((END - START) / (10 * 60_000L));
+        timestamps = new long[perChannel * CHANNELS];
+        channels = new int[timestamps.length];
+        values = new double[timestamps.length];
+        double[] counters = new double[CHANNELS];
+        int i = 0;
+        for (int step = 0; step < perChannel; step++) {
+            for (int ch = 0; ch < CHANNELS; ch++) {
+                counters[ch] += random.nextInt(50);
+                timestamps[i] = START + step * 10 * 60_000L + ch * 1_000L;
+                channels[i] = ch;
+                values[i] = counters[ch];
+                i++;
+            }
+        }
+    }
+
+    @Benchmark
+    public Map<Long, Map<Integer, Double>> mapSnapshotPerHour() {
+        Map<Long, Map<Integer, Double>> hourly = new LinkedHashMap<>();
+        Map<Integer, Double> lastKnown = new HashMap<>();
+        int index = 0;
+        for (long hour = START; hour < END; hour += HOUR) {
+            long next = hour + HOUR;
+            while (index < timestamps.length && timestamps[index] < next) {
+                lastKnown.put(channels[index], values[index]);
+                index++;
+            }
+            hourly.put(hour, new HashMap<>(lastKnown));
+        }
+        return hourly;
+    }
+
+    @Benchmark
+    public double[][] primitiveMatrix() {
+        ForwardFillResampler resampler = new ForwardFillResampler(START, END, HOUR, CHANNELS);
+        for (int i = 0; i < timestamps.length; i++) {
+            resampler.accept(channels[i], timestamps[i], values[i]);
+        }
+        return resampler.fill();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ForwardFillResamplerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,44 @@
+package com.amaris.sensorprocessor.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ForwardFillResamplerTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void keepsLastValueOfEachBucketAndCarriesItForward() {
+        ForwardFillResampler resampler = new ForwardFillResampler(0, 4 * HOUR, HOUR, 2);
+        resampler.seed(0, 10);
+        resampler.accept(0, HOUR + 60_000, 11);
+        resampler.accept(0, HOUR + 120_000, 12);     // dernière trame du pas 1
+        resampler.accept(1, 2 * HOUR, 5);
+        resampler.accept(1, 9 * HOUR, 99);           // hors axe
+
+        double[][] values = resampler.fill();
+
+        assertArrayEquals(new long[]{0, HOUR, 2 * HOUR, 3 * HOUR}, resampler.axis());
+        assertArrayEquals(new double[]{10, 12, 12, 12}, values[0]);
+        assertTrue(Double.isNaN(values[1][0]) && Double.isNaN(values[1][1]));
+        assertEquals(5.0, values[1][2]);
+        assertEquals(5.0, values[1][3]);
+    }
+
+    @Test
+    void partialLastBucketIsIncluded() {
+        ForwardFillResampler resampler = new ForwardFillResampler(0, 90 * 60_000L, HOUR, 1);
+
+        assertEquals(2, resampler.buckets());
+    }
+
+    @Test
+    void rejectsTooFineStepOverLongPeriod() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new ForwardFillResampler(0, 365L * 24 * HOUR, 60_000L, 1));
+    }
+}
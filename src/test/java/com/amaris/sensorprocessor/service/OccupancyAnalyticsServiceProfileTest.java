@@ -0,0 +1,89 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.model.analytics.SectionOccupancyProfileResponse;
+import com.amaris.sensorprocessor.model.analytics.SlotOccupancyData;
+import com.amaris.sensorprocessor.repository.DashboardOccupancyDailyAggregateDao;
+import com.amaris.sensorprocessor.repository.OccupancySlotBucketDao;
+import com.amaris.sensorprocessor.repository.OccupancySlotsDao;
+import com.amaris.sensorprocessor.repository.SensorDataDao;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OccupancyAnalyticsServiceProfileTest {
+
+    // Section "interview" : desk-vs41-03-01 et desk-vs41-03-02
+    private static final String DESK_1 = "desk-vs41-03-01";
+    private static final String DESK_2 = "desk-vs41-03-02";
+    private static final LocalDate MONDAY = LocalDate.of(2025, 3, 10);
+    private static final LocalDate TUESDAY = LocalDate.of(2025, 3, 11);
+    private static final long SLOT_14H = 1L << 28;
+
+    private final OccupancySlotsDao occupancySlotsDao = mock(OccupancySlotsDao.class);
+    private final OccupancyAnalyticsService service = new OccupancyAnalyticsService(
+            mock(SensorDataDao.class), mock(JdbcTemplate.class), mock(DashboardOccupancyDailyAggregateDao.class),
+            mock(OccupancySlotBucketDao.class), occupancySlotsDao, mock(IntradayOccupancyTracker.class),
+            mock(DashboardResponseCache.class));
+
+    @Test
+    void splitsBusinessHoursByHalfDaySlotAndWeekday() {
+        // Lundi : bureau 1 occupé tout le matin, bureau 2 présent le matin seulement et libre
+        // Mardi : bureau 1 occupé à 14h seulement, bureau 2 occupé toute la journée
+        when(occupancySlotsDao.findBySensorIdsAndDateRange(List.of(DESK_1, DESK_2), MONDAY, TUESDAY)).thenReturn(Map.of(
+                MONDAY, Map.of(
+                        DESK_1, masks(OccupancySlotSweep.BUSINESS_SLOT_MASK, OccupancySlotSweep.MORNING_SLOT_MASK),
+                        DESK_2, masks(OccupancySlotSweep.MORNING_SLOT_MASK, 0)),
+                TUESDAY, Map.of(
+                        DESK_1, masks(OccupancySlotSweep.BUSINESS_SLOT_MASK, SLOT_14H),
+                        DESK_2, masks(OccupancySlotSweep.BUSINESS_SLOT_MASK, OccupancySlotSweep.BUSINESS_SLOT_MASK))));
+
+        SectionOccupancyProfileResponse profile = service.getSectionOccupancyProfile("interview",
+                MONDAY.toString(), TUESDAY.toString());
+
+        assertEquals(2, profile.getTotalSensors());
+        assertEquals(24 * 100.0 / 55, profile.getGlobalOccupancyRate(), 1e-9);
+        assertEquals(50.0, profile.getMorningOccupancyRate(), 1e-9);
+        assertEquals(10 * 100.0 / 27, profile.getAfternoonOccupancyRate(), 1e-9);
+        assertEquals(7 * 100.0 / 23, profile.getWeekdayOccupancyRates().get("MONDAY"), 1e-9);
+        assertEquals(17 * 100.0 / 32, profile.getWeekdayOccupancyRates().get("TUESDAY"), 1e-9);
+
+        assertEquals(16, profile.getSlots().size());
+        SlotOccupancyData nineAm = profile.getSlots().get(0);
+        assertEquals("09:00", nineAm.getStartTime());
+        assertEquals(2, nineAm.getOccupiedIntervals());
+        assertEquals(4, nineAm.getTotalIntervals());
+        assertEquals("14:00", profile.getPeakSlot());
+        assertEquals(2 * 100.0 / 3, profile.getPeakOccupancyRate(), 1e-9);
+
+        // Jours fermés tous présents dans occupancy_slots : rien n'est recalculé ni réécrit
+        verify(occupancySlotsDao, never()).upsertDay(any(), any());
+    }
+
+    @Test
+    void sectionWithoutSensorsHasNoPeak() {
+        SectionOccupancyProfileResponse profile = service.getSectionOccupancyProfile("unknown",
+                MONDAY.toString(), TUESDAY.toString());
+
+        assertEquals(0, profile.getTotalSensors());
+        assertEquals(0.0, profile.getGlobalOccupancyRate());
+        assertNull(profile.getPeakSlot());
+        verify(occupancySlotsDao, never()).findBySensorIdsAndDateRange(anyList(), eq(MONDAY), eq(TUESDAY));
+    }
+
+    private static long[] masks(long hasData, long occupied) {
+        return new long[]{hasData, occupied};
+    }
+}
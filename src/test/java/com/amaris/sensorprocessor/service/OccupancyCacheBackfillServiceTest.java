@@ -0,0 +1,123 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.repository.OccupancyBackfillChunkDao;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OccupancyCacheBackfillServiceTest {
+
+    private static final LocalDate LAST_CLOSED_DAY = LocalDate.now(ZoneId.of("Europe/Paris")).minusDays(1);
+
+    private final OccupancyAnalyticsService analyticsService = mock(OccupancyAnalyticsService.class);
+    private final OccupancyBackfillChunkDao chunkDao = mock(OccupancyBackfillChunkDao.class);
+    private final ScheduledJobRunner jobRunner = mock(ScheduledJobRunner.class);
+    private final List<List<LocalDate>> refreshedChunks = Collections.synchronizedList(new ArrayList<>());
+
+    OccupancyCacheBackfillServiceTest() {
+        // Le job s'exécute immédiatement sur le thread du test
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        }).when(jobRunner).submit(eq(OccupancyCacheBackfillService.JOB_NAME), any());
+        when(chunkDao.findCompletedChunks(any(), any())).thenReturn(Map.of());
+    }
+
+    private OccupancyCacheBackfillService service(int dbConcurrency) {
+        return new OccupancyCacheBackfillService(analyticsService, chunkDao, jobRunner, Thread::new, dbConcurrency);
+    }
+
+    @Test
+    void splitsHistoryIntoCalendarMonthsNewestFirst() {
+        LocalDate currentMonth = LAST_CLOSED_DAY.withDayOfMonth(1);
+        LocalDate oldest = currentMonth.minusMonths(2).withDayOfMonth(10);
+        when(analyticsService.findOldestOccupancyDataDate()).thenReturn(oldest);
+        when(analyticsService.refreshCachedDailyOccupancyForDays(anyList())).thenAnswer(invocation -> {
+            List<LocalDate> days = invocation.getArgument(0);
+            refreshedChunks.add(days);
+            return days.size();
+        });
+
+        service(1).start(false);
+
+        // Un seul thread : les mois sont traités dans l'ordre de soumission
+        assertEquals(3, refreshedChunks.size());
+        assertEquals(workingDays(currentMonth, LAST_CLOSED_DAY), refreshedChunks.get(0));
+        assertEquals(workingDays(currentMonth.minusMonths(1), currentMonth.minusDays(1)), refreshedChunks.get(1));
+        assertEquals(workingDays(oldest, currentMonth.minusMonths(1).minusDays(1)), refreshedChunks.get(2));
+        verify(chunkDao).markCompleted(eq(currentMonth), eq(LAST_CLOSED_DAY), anyInt(), anyLong());
+        verify(chunkDao).markCompleted(eq(currentMonth.minusMonths(2)), eq(currentMonth.minusMonths(1).minusDays(1)), anyInt(), anyLong());
+    }
+
+    @Test
+    void neverRunsMoreChunksAtOnceThanTheConfiguredConcurrency() {
+        when(analyticsService.findOldestOccupancyDataDate()).thenReturn(LAST_CLOSED_DAY.minusMonths(6));
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(analyticsService.refreshCachedDailyOccupancyForDays(anyList())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            running.decrementAndGet();
+            return invocation.<List<LocalDate>>getArgument(0).size();
+        });
+        OccupancyCacheBackfillService service = service(2);
+
+        service.start(false);
+
+        OccupancyCacheBackfillService.BackfillProgress progress = service.getProgress();
+        assertTrue(maxRunning.get() <= 2, "max concurrent chunks: " + maxRunning.get());
+        assertEquals(OccupancyCacheBackfillService.State.COMPLETED, progress.state());
+        assertEquals(progress.totalChunks(), progress.completedChunks());
+    }
+
+    @Test
+    void failedChunkIsNotMarkedCompletedAndFailsTheRun() {
+        LocalDate currentMonth = LAST_CLOSED_DAY.withDayOfMonth(1);
+        LocalDate oldest = currentMonth.minusMonths(2);
+        when(analyticsService.findOldestOccupancyDataDate()).thenReturn(oldest);
+        when(analyticsService.refreshCachedDailyOccupancyForDays(anyList())).thenAnswer(invocation -> {
+            List<LocalDate> days = invocation.getArgument(0);
+            if (!days.isEmpty() && days.get(0).getMonth() == oldest.getMonth()) {
+                throw new IllegalStateException("database unavailable");
+            }
+            return days.size();
+        });
+        OccupancyCacheBackfillService service = service(2);
+
+        service.start(false);
+
+        OccupancyCacheBackfillService.BackfillProgress progress = service.getProgress();
+        assertEquals(OccupancyCacheBackfillService.State.FAILED, progress.state());
+        assertEquals(1, progress.failedChunks());
+        assertEquals(2, progress.completedChunks());
+        verify(chunkDao, never()).markCompleted(eq(oldest), any(), anyInt(), anyLong());
+        verify(chunkDao, times(2)).markCompleted(any(), any(), anyInt(), anyLong());
+    }
+
+    private static List<LocalDate> workingDays(LocalDate start, LocalDate end) {
+        return start.datesUntil(end.plusDays(1))
+                .filter(day -> day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY)
+                .toList();
+    }
+}
@@ -0,0 +1,71 @@
+package com.amaris.sensorprocessor.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parcours intervalle par intervalle (historique) contre balayage unique, pour un capteur.
+ *
+ * Lancement : exécuter main() depuis l'IDE ou avec le classpath de test (mvn test-compile au préalable).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OccupancySlotSweepBenchmark {
+
+    // Capteur remontant toutes les 10 min sur 1 semaine / 1 mois
+    @Param({"7", "30"})
+    public int days;
+
+    private LocalDate start;
+    private LocalDate end;
+    private List<Map<String, Object>> rows;
+
+    @Setup
+    public void setUp() {
+        start = LocalDate.of(2025, 3, 3);
+        end = start.plusDays(days);
+        rows = OccupancySlotSweepTest.randomRows(new Random(7), start, end, days * 144);
+    }
+
+    @Benchmark
+    public int[] intervalScan() {
+        return OccupancySlotSweepTest.legacyStats(rows, start, end);
+    }
+
+    @Benchmark
+    public int[] singlePassSweep() {
+        OccupancySlotSweep sweep = new OccupancySlotSweep(start, end);
+        for (Map<String, Object> row : rows) {
+            sweep.acceptRow(row);
+        }
+        return sweep.count(start, end, true);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(OccupancySlotSweepBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,207 @@
+package com.amaris.sensorprocessor.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class OccupancySlotSweepTest {
+
+    private static final ZoneId PARIS = ZoneId.of("Europe/Paris");
+    private static final Object[] VALUES = {"0", "1", "3", "-1", "occupied", "USED", "free", "", null, 1};
+
+    @Test
+    void matchesIntervalScanOnRandomData() {
+        Random random = new Random(42);
+        // Inclut les passages à l'heure d'été (30/03) et d'hiver (26/10)
+        LocalDate[] anchors = {LocalDate.of(2025, 3, 24), LocalDate.of(2025, 6, 2), LocalDate.of(2025, 10, 20)};
+
+        for (int round = 0; round < 300; round++) {
+            LocalDate start = anchors[random.nextInt(anchors.length)].plusDays(random.nextInt(5));
+            LocalDate end = start.plusDays(1 + random.nextInt(14));
+            List<Map<String, Object>> rows = randomRows(random, start, end, random.nextInt(400));
+
+            OccupancySlotSweep sweep = new OccupancySlotSweep(start, end);
+            rows.forEach(sweep::acceptRow);
+
+            assertArrayEquals(legacyStats(rows, start, end), sweep.count(start, end, true),
+                    "range " + start + " -> " + end + " (round " + round + ")");
+            for (LocalDate day = start; day.isBefore(end); day = day.plusDays(1)) {
+                assertArrayEquals(legacyStats(rows, List.of(day)), sweep.count(day, day.plusDays(1), false),
+                        "day " + day + " (round " + round + ")");
+            }
+        }
+    }
+
+    @Test
+    void slotBoundariesFollowParisLocalTime() {
+        LocalDate day = LocalDate.of(2025, 7, 1); // UTC+2
+        OccupancySlotSweep sweep = new OccupancySlotSweep(day, day.plusDays(1));
+
+        sweep.acceptRow(row(LocalDateTime.of(2025, 7, 1, 6, 59, 59), "1")); // 8h59 Paris, hors heures ouvrées
+        sweep.acceptRow(row(LocalDateTime.of(2025, 7, 1, 7, 0), "0"));      // 9h00
+        sweep.acceptRow(row(LocalDateTime.of(2025, 7, 1, 10, 29), "used"));  // 12h29
+        sweep.acceptRow(row(LocalDateTime.of(2025, 7, 1, 10, 30), "1"));     // 12h30, pause déjeuner
+
+        assertArrayEquals(new int[]{1, 2}, sweep.count(day, day.plusDays(1), true));
+    }
+
+    @Test
+    void countSensorSlotsUseNetFlowOverOccupancy() {
+        LocalDate day = LocalDate.of(2025, 7, 1);
+        long nineAm = LocalDateTime.of(2025, 7, 1, 7, 0).toEpochSecond(ZoneOffset.UTC);
+        OccupancySlotSweep sweep = new OccupancySlotSweep(day, day.plusDays(1));
+
+        // 9h00 : 2 entrées, 2 sorties -> libre malgré une trame OCCUPANCY à 1
+        sweep.acceptFlow(nineAm + 60, 2);
+        sweep.acceptFlow(nineAm + 120, -2);
+        sweep.accept(nineAm + 180, true);
+        // 9h30 : flux net non nul -> occupé
+        sweep.acceptFlow(nineAm + 1800, 1);
+        // 10h00 : trame PERIOD illisible (delta 0) -> données, libre
+        sweep.acceptFlow(nineAm + 3600, 0);
+        // 10h30 : OCCUPANCY seule
+        sweep.accept(nineAm + 5400, true);
+
+        assertArrayEquals(new int[]{2, 4}, sweep.count(day, day.plusDays(1), true));
+    }
+
+    @Test
+    void dayMasksMatchSlotCounts() {
+        LocalDate day = LocalDate.of(2025, 7, 1);
+        long nineAm = LocalDateTime.of(2025, 7, 1, 7, 0).toEpochSecond(ZoneOffset.UTC);
+        OccupancySlotSweep sweep = new OccupancySlotSweep(day, day.plusDays(1));
+
+        sweep.accept(nineAm, true);            // 9h00, créneau 18
+        sweep.accept(nineAm + 1800, false);    // 9h30, créneau 19
+        sweep.accept(nineAm - 3600, true);     // 8h00, hors heures ouvrées mais conservé dans le masque
+
+        long[] masks = sweep.dayMasks(day);
+        assertArrayEquals(new long[]{(1L << 16) | (1L << 18) | (1L << 19), (1L << 16) | (1L << 18)}, masks);
+        assertArrayEquals(new int[]{
+                Long.bitCount(masks[1] & OccupancySlotSweep.BUSINESS_SLOT_MASK),
+                Long.bitCount(masks[0] & OccupancySlotSweep.BUSINESS_SLOT_MASK)
+        }, sweep.count(day, day.plusDays(1), false));
+    }
+
+    @Test
+    void countMasksSplitsMorningAndAfternoon() {
+        LocalDate day = LocalDate.of(2025, 7, 1);
+        long nineAm = LocalDateTime.of(2025, 7, 1, 7, 0).toEpochSecond(ZoneOffset.UTC);
+        OccupancySlotSweep sweep = new OccupancySlotSweep(day, day.plusDays(1));
+
+        sweep.accept(nineAm, true);                  // 9h00
+        sweep.accept(nineAm + 1800, false);          // 9h30
+        sweep.acceptFlow(nineAm + 5 * 3600, 1);      // 14h00, flux net non nul
+        sweep.acceptFlow(nineAm + 5 * 3600 + 1800, 0); // 14h30, flux nul
+
+        long[] masks = sweep.dayMasks(day);
+        assertArrayEquals(new int[]{1, 2}, OccupancySlotSweep.countMasks(masks, OccupancySlotSweep.MORNING_SLOT_MASK));
+        assertArrayEquals(new int[]{1, 2}, OccupancySlotSweep.countMasks(masks, OccupancySlotSweep.AFTERNOON_SLOT_MASK));
+        assertArrayEquals(sweep.count(day, day.plusDays(1), false),
+                OccupancySlotSweep.countMasks(masks, OccupancySlotSweep.BUSINESS_SLOT_MASK));
+    }
+
+    static List<Map<String, Object>> randomRows(Random random, LocalDate start, LocalDate end, int count) {
+        long from = start.minusDays(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        long to = end.plusDays(1).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long epochSecond = from + (long) (random.nextDouble() * (to - from));
+            LocalDateTime utc = LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+            Object receivedAt = random.nextBoolean() ? utc : Timestamp.from(utc.toInstant(ZoneOffset.UTC));
+            rows.add(row(receivedAt, VALUES[random.nextInt(VALUES.length)]));
+        }
+        return rows;
+    }
+
+    private static Map<String, Object> row(Object receivedAt, Object value) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("received_at", receivedAt);
+        row.put("value", value);
+        return row;
+    }
+
+    static int[] legacyStats(List<Map<String, Object>> rows, LocalDate start, LocalDate end) {
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate day = start; day.isBefore(end); day = day.plusDays(1)) {
+            if (day.getDayOfWeek() != DayOfWeek.SATURDAY && day.getDayOfWeek() != DayOfWeek.SUNDAY) {
+                days.add(day);
+            }
+        }
+        return legacyStats(rows, days);
+    }
+
+    // Parcours historique : chaque créneau ouvré relit toutes les trames
+    private static int[] legacyStats(List<Map<String, Object>> rows, List<LocalDate> days) {
+        List<LocalDateTime> intervals = new ArrayList<>();
+        for (LocalDate day : days) {
+            for (LocalDateTime t = day.atTime(9, 0); t.isBefore(day.atTime(12, 30)); t = t.plusMinutes(30)) {
+                intervals.add(t);
+            }
+            for (LocalDateTime t = day.atTime(14, 0); t.isBefore(day.atTime(18, 30)); t = t.plusMinutes(30)) {
+                intervals.add(t);
+            }
+        }
+
+        int occupied = 0;
+        int total = 0;
+        for (LocalDateTime intervalStart : intervals) {
+            LocalDateTime intervalEnd = intervalStart.plusMinutes(30);
+            boolean hasAnyData = false;
+            boolean isOccupied = false;
+            for (Map<String, Object> row : rows) {
+                try {
+                    Object receivedAt = row.get("received_at");
+                    LocalDateTime timestamp;
+                    if (receivedAt instanceof Timestamp ts) {
+                        timestamp = ts.toInstant().atZone(PARIS).toLocalDateTime();
+                    } else if (receivedAt instanceof LocalDateTime ldt) {
+                        timestamp = ZonedDateTime.of(ldt, ZoneOffset.UTC).withZoneSameInstant(PARIS).toLocalDateTime();
+                    } else {
+                        continue;
+                    }
+                    if (timestamp.isBefore(intervalStart) || !timestamp.isBefore(intervalEnd)) {
+                        continue;
+                    }
+                    hasAnyData = true;
+                    String value = (String) row.get("value");
+                    if (value != null) {
+                        try {
+                            if (Integer.parseInt(value) > 0) {
+                                isOccupied = true;
+                                break;
+                            }
+                        } catch (NumberFormatException e) {
+                            if ("occupied".equalsIgnoreCase(value) || "used".equalsIgnoreCase(value)) {
+                                isOccupied = true;
+                                break;
+                            }
+                        }
+                    }
+                } catch (Exception e) {
+                    // Valeur non textuelle : créneau avec données, non occupé
+                }
+            }
+            if (hasAnyData) {
+                total++;
+                if (isOccupied) {
+                    occupied++;
+                }
+            }
+        }
+        return new int[]{occupied, total};
+    }
+}
@@ -0,0 +1,135 @@
+package com.amaris.sensorprocessor.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScheduledJobRunnerTest {
+
+    private final ScheduledJobRunner runner =
+            new ScheduledJobRunner(Executors.defaultThreadFactory(), new MockEnvironment(), 30);
+
+    @AfterEach
+    void tearDown() {
+        runner.shutdown();
+    }
+
+    @Test
+    void skipsRunWhilePreviousOneIsStillInProgress() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        assertTrue(runner.submit("slow-job", () -> {
+            started.countDown();
+            awaitQuietly(release);
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertFalse(runner.submit("slow-job", () -> { }));
+
+        release.countDown();
+        waitUntilIdle("slow-job");
+        assertTrue(runner.submit("slow-job", () -> { }));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void skippedTriggersAreCountedButKeptOutOfHistory() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        runner.submit("slow-job", () -> {
+            started.countDown();
+            awaitQuietly(release);
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 30; i++) {
+            assertFalse(runner.submit("slow-job", () -> { }));
+        }
+        release.countDown();
+        waitUntilIdle("slow-job");
+
+        Map<String, Object> job = (Map<String, Object>) runner.describeJobs().get("slow-job");
+        assertEquals(30L, job.get("skipped"));
+        assertEquals(1L, job.get("runs"));
+        List<ScheduledJobRunner.JobRun> history = (List<ScheduledJobRunner.JobRun>) job.get("history");
+        assertEquals(1, history.size());
+        assertEquals(ScheduledJobRunner.Outcome.SUCCESS, history.get(0).outcome());
+    }
+
+    @Test
+    void slowJobDoesNotDelayOtherJobs() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch otherRan = new CountDownLatch(1);
+
+        runner.submit("slow-job", () -> awaitQuietly(release));
+        runner.submit("fast-job", otherRan::countDown);
+
+        assertTrue(otherRan.await(5, TimeUnit.SECONDS));
+        release.countDown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void recordsFailuresInHistory() throws Exception {
+        runner.submit("failing-job", () -> {
+            throw new IllegalStateException("boom");
+        });
+        waitUntilIdle("failing-job");
+
+        Map<String, Object> job = (Map<String, Object>) runner.describeJobs().get("failing-job");
+        assertEquals(1L, job.get("failures"));
+        ScheduledJobRunner.JobRun lastRun = (ScheduledJobRunner.JobRun) job.get("lastRun");
+        assertEquals(ScheduledJobRunner.Outcome.FAILED, lastRun.outcome());
+    }
+
+    @Test
+    void removedJobIsInterruptedAndForgotten() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+
+        runner.submit("gateway-sync:gw-1", () -> {
+            started.countDown();
+            try {
+                Thread.sleep(TimeUnit.SECONDS.toMillis(30));
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        runner.remove("gateway-sync:gw-1");
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        assertFalse(runner.describeJobs().containsKey("gateway-sync:gw-1"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void waitUntilIdle(String jobName) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            Map<String, Object> job = (Map<String, Object>) runner.describeJobs().get(jobName);
+            if (job != null && !(Boolean) job.get("running") && job.get("lastRun") != null) {
+                return;
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
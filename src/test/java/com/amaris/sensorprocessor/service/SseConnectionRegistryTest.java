@@ -0,0 +1,77 @@
+package com.amaris.sensorprocessor.service;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SseConnectionRegistryTest {
+
+    private final SseConnectionRegistry registry = new SseConnectionRegistry(8, 32, 15, 5);
+
+    @Test
+    void heartbeatsNeverEvictThePendingStateOfALatestStream() {
+        Sinks.Many<ServerSentEvent<String>> states = Sinks.many().multicast().onBackpressureBuffer();
+        SlowClient client = new SlowClient();
+        registry.register("alerts", "alice", states.asFlux(), tick -> ServerSentEvent.builder("ping").build(),
+                SseConnectionRegistry.OverflowPolicy.LATEST).subscribe(client);
+
+        // Client lent : rien n'est demandé pendant que les états et les heartbeats arrivent
+        for (int i = 1; i <= 5; i++) {
+            states.tryEmitNext(ServerSentEvent.builder("state-" + i).build());
+            registry.heartbeat(i);
+        }
+        client.request(Long.MAX_VALUE);
+
+        List<String> data = client.received.stream().filter(d -> d.startsWith("state-")).toList();
+        assertEquals("state-5", data.get(data.size() - 1));
+        assertTrue(data.size() <= 2, "only the prefetched and the latest state are delivered: " + data);
+    }
+
+    @Test
+    void queueDepthCountsDataEventsOnly() {
+        Sinks.Many<ServerSentEvent<String>> events = Sinks.many().multicast().onBackpressureBuffer();
+        SlowClient client = new SlowClient();
+        registry.register("uplinks", "alice", events.asFlux(), tick -> ServerSentEvent.builder("ping").build(),
+                SseConnectionRegistry.OverflowPolicy.DROP_OLDEST).subscribe(client);
+
+        for (int i = 0; i < 3; i++) {
+            registry.heartbeat(i);
+        }
+        for (int i = 0; i < 4; i++) {
+            events.tryEmitNext(ServerSentEvent.builder("uplink-" + i).build());
+        }
+
+        Map<String, Object> stream = registry.describeStreams().get(0);
+        // Un événement est déjà pris par le merge, les trois autres attendent dans le tampon
+        assertEquals(3L, stream.get("queueDepth"));
+        assertEquals(0L, stream.get("dropped"));
+
+        client.request(Long.MAX_VALUE);
+        assertEquals(0L, registry.describeStreams().get(0).get("queueDepth"));
+        assertEquals(4L, registry.describeStreams().get(0).get("delivered"));
+    }
+
+    private static final class SlowClient extends BaseSubscriber<ServerSentEvent<String>> {
+
+        private final List<String> received = new CopyOnWriteArrayList<>();
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            // Aucune demande tant que le test ne l'autorise pas
+        }
+
+        @Override
+        protected void hookOnNext(ServerSentEvent<String> event) {
+            received.add(event.data());
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.Building;
+import com.amaris.sensorprocessor.entity.PayloadValueType;
+import com.amaris.sensorprocessor.entity.Sensor;
+import com.amaris.sensorprocessor.entity.SensorData;
+import com.amaris.sensorprocessor.repository.SensorDataDao;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StartupWarmupTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 10, 9, 0);
+
+    private final TopologyRegistry topologyRegistry = mock(TopologyRegistry.class);
+    private final IntradayOccupancyTracker intradayOccupancyTracker = mock(IntradayOccupancyTracker.class);
+    private final SensorDataDao sensorDataDao = mock(SensorDataDao.class);
+    private final LiveSensorCache liveSensorCache = new LiveSensorCache(null);
+    private final AlertService alertService = mock(AlertService.class);
+    private final DashboardService dashboardService = mock(DashboardService.class);
+    private final ScheduledJobRunner jobRunner = mock(ScheduledJobRunner.class);
+    private final List<Object> events = new ArrayList<>();
+    private final List<Runnable> completionJobs = new ArrayList<>();
+
+    StartupWarmupTest() {
+        // Le préchauffage s'exécute immédiatement sur le thread du test, la publication de sa fin est gardée
+        doAnswer(invocation -> {
+            invocation.<Runnable>getArgument(1).run();
+            return true;
+        }).when(jobRunner).submit(eq(StartupWarmup.JOB_NAME), any());
+        doAnswer(invocation -> completionJobs.add(invocation.getArgument(1)))
+                .when(jobRunner).submit(eq(StartupWarmup.COMPLETED_JOB_NAME), any());
+
+        Sensor desk = new Sensor();
+        desk.setIdSensor("desk-01");
+        Building building = new Building();
+        building.setId(1);
+        when(topologyRegistry.sensors()).thenReturn(List.of(desk));
+        when(topologyRegistry.buildings()).thenReturn(List.of(building));
+        when(sensorDataDao.findLatestBySensorIdsAndTypes(anyCollection(), any())).thenReturn(Map.of("desk-01", Map.of(
+                PayloadValueType.OCCUPANCY, new SensorData("desk-01", NOW.minusMinutes(10), "1", "OCCUPANCY"),
+                PayloadValueType.TEMPERATURE, new SensorData("desk-01", NOW.minusMinutes(10), "21.5", "TEMPERATURE"))));
+    }
+
+    private StartupWarmup warmup(boolean enabled, long budgetSeconds) {
+        return new StartupWarmup(topologyRegistry, intradayOccupancyTracker, sensorDataDao, liveSensorCache,
+                alertService, dashboardService, jobRunner, Thread::new, events::add, enabled, budgetSeconds, 2);
+    }
+
+    private List<Boolean> publishedCompletions() {
+        return events.stream().map(e -> ((StartupWarmup.Completed) e).complete()).toList();
+    }
+
+    @Test
+    void preloadsInOrderThenOpensReadiness() {
+        // Valeur reçue en direct pendant le préchauffage : plus récente que la base
+        SensorData live = new SensorData("desk-01", NOW, "0", "OCCUPANCY");
+        liveSensorCache.updateSensorValue("desk-01", PayloadValueType.OCCUPANCY, live);
+        StartupWarmup warmup = warmup(true, 60);
+        assertFalse(warmup.isReady());
+
+        warmup.start();
+
+        InOrder order = inOrder(topologyRegistry, intradayOccupancyTracker, sensorDataDao, alertService, dashboardService);
+        order.verify(topologyRegistry).reload();
+        order.verify(intradayOccupancyTracker).restoreToday();
+        order.verify(sensorDataDao).findLatestBySensorIdsAndTypes(anyCollection(), any());
+        order.verify(alertService).getCurrentAlerts(1);
+        order.verify(dashboardService).preloadDashboard("1");
+        verify(alertService).getCurrentAlerts(null);
+
+        assertEquals(live, liveSensorCache.getLatest("desk-01", PayloadValueType.OCCUPANCY).orElseThrow());
+        assertEquals("21.5", liveSensorCache.getLatest("desk-01", PayloadValueType.TEMPERATURE).orElseThrow().getValueAsString());
+        assertTrue(warmup.isReady());
+        // La fin est publiée par son propre job, pas sur le thread du préchauffage
+        assertTrue(events.isEmpty());
+        assertEquals(1, completionJobs.size());
+        completionJobs.get(0).run();
+        assertEquals(List.of(true), publishedCompletions());
+    }
+
+    @Test
+    void exhaustedBudgetSkipsRemainingStepsAndStillOpensReadiness() {
+        StartupWarmup warmup = warmup(true, 0);
+
+        warmup.start();
+
+        verify(topologyRegistry, never()).reload();
+        verify(alertService, never()).getCurrentAlerts(any());
+        assertTrue(warmup.isReady());
+        assertEquals(StartupWarmup.Phase.BUDGET_EXCEEDED, warmup.describe().get("phase"));
+        completionJobs.forEach(Runnable::run);
+        assertEquals(List.of(false), publishedCompletions());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void blockedTopologyReloadIsCutByTheBudget() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(topologyRegistry).reload();
+        StartupWarmup warmup = warmup(true, 1);
+
+        warmup.start();
+        release.countDown();
+
+        assertTrue(warmup.isReady());
+        Map<String, Map<String, Object>> steps = (Map<String, Map<String, Object>>) warmup.describe().get("steps");
+        assertEquals(StartupWarmup.StepState.TIMED_OUT, steps.get("topology").get("state"));
+        assertEquals(StartupWarmup.StepState.SKIPPED, steps.get("occupancy-today").get("state"));
+        verify(intradayOccupancyTracker, never()).restoreToday();
+    }
+
+    @Test
+    void disabledWarmupPublishesItsEndOutsideTheReadyEventThread() {
+        StartupWarmup warmup = warmup(false, 60);
+
+        warmup.start();
+
+        verify(topologyRegistry, never()).reload();
+        assertTrue(warmup.isReady());
+        assertTrue(events.isEmpty());
+        completionJobs.forEach(Runnable::run);
+        assertEquals(List.of(false), publishedCompletions());
+    }
+}
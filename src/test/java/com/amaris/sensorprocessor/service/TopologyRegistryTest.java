@@ -0,0 +1,122 @@
+package com.amaris.sensorprocessor.service;
+
+import com.amaris.sensorprocessor.entity.Building;
+import com.amaris.sensorprocessor.entity.DeviceType;
+import com.amaris.sensorprocessor.entity.Gateway;
+import com.amaris.sensorprocessor.entity.Sensor;
+import com.amaris.sensorprocessor.repository.BuildingDao;
+import com.amaris.sensorprocessor.repository.DeviceTypeDao;
+import com.amaris.sensorprocessor.repository.GatewayDao;
+import com.amaris.sensorprocessor.repository.LocationDao;
+import com.amaris.sensorprocessor.repository.SensorDao;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TopologyRegistryTest {
+
+    private final SensorDao sensorDao = mock(SensorDao.class);
+    private final BuildingDao buildingDao = mock(BuildingDao.class);
+    private final GatewayDao gatewayDao = mock(GatewayDao.class);
+    private final LocationDao locationDao = mock(LocationDao.class);
+    private final DeviceTypeDao deviceTypeDao = mock(DeviceTypeDao.class);
+    private final TopologyRegistry registry = new TopologyRegistry(sensorDao, buildingDao, gatewayDao,
+            locationDao, deviceTypeDao, mock(ScheduledJobRunner.class));
+
+    TopologyRegistryTest() {
+        when(deviceTypeDao.findAll()).thenReturn(List.of(deviceType(1, "DESK"), deviceType(2, "NOISE"), deviceType(3, "SON")));
+        when(sensorDao.findAllSensors()).thenReturn(List.of(
+                sensor("desk-01", 1, 1, "A81758FFFE000001"),
+                sensor("noise-01", 2, 1, null),
+                sensor("son-02", 3, 2, null)));
+        when(buildingDao.findAllBuildings()).thenReturn(List.of(building(1, "Levallois"), building(2, "Châteaudun")));
+        when(gatewayDao.findAllGateways()).thenReturn(List.of(gateway("leva-rpi-mantu", 1), gateway("rpi-cdun", 2)));
+    }
+
+    @Test
+    void lookupsAreServedFromOneLoad() {
+        assertEquals(List.of("noise-01", "son-02"),
+                registry.sensorsByDeviceType("SON", null).stream().map(Sensor::getIdSensor).toList());
+        assertEquals(List.of("noise-01"),
+                registry.sensorsByDeviceType("NOISE", 1).stream().map(Sensor::getIdSensor).toList());
+        assertEquals("desk-01", registry.sensorByDevEui("a81758fffe000001").orElseThrow().getIdSensor());
+        assertEquals(Optional.of("lorawan-network-mantu"), registry.appIdForBuilding(1));
+        assertEquals(Optional.of("rpi-cdun-appli"), registry.appIdForBuilding(2));
+        assertEquals("Châteaudun", registry.buildings().get(0).getName());
+
+        verify(sensorDao, times(1)).findAllSensors();
+    }
+
+    @Test
+    void sensorUpdatePublishesNewVersion() {
+        TopologyRegistry.Topology before = registry.current();
+        Sensor moved = sensor("desk-01", 1, 2, "A81758FFFE000001");
+        when(sensorDao.findByIdOfSensor("desk-01")).thenReturn(Optional.of(moved));
+
+        registry.refreshSensor("desk-01");
+
+        assertTrue(registry.version() > before.version());
+        assertEquals(moved, registry.sensor("desk-01").orElseThrow());
+        assertEquals(List.of("desk-01"), registry.sensorsOfBuilding(2).stream()
+                .map(Sensor::getIdSensor).filter("desk-01"::equals).toList());
+        // La version précédente reste inchangée pour ceux qui la lisent encore
+        assertEquals(1, before.sensorsById().get("desk-01").getBuildingId());
+
+        registry.removeSensor("desk-01");
+        assertTrue(registry.sensor("desk-01").isEmpty());
+        assertTrue(registry.sensorsByDeviceType("DESK", null).isEmpty());
+    }
+
+    @Test
+    void callersCannotChangeTheRegisteredSensors() {
+        Sensor returned = registry.sensor("desk-01").orElseThrow();
+        returned.setBuildingId(99);
+        registry.sensorsOfBuilding(1).forEach(s -> s.setFloor(7));
+
+        Sensor registered = registry.sensor("desk-01").orElseThrow();
+        assertNotSame(returned, registered);
+        assertEquals(1, registered.getBuildingId());
+        assertNull(registered.getFloor());
+        assertTrue(registry.sensorsOfBuilding(99).isEmpty());
+    }
+
+    private static Sensor sensor(String id, int deviceType, int building, String devEui) {
+        Sensor sensor = new Sensor();
+        sensor.setIdSensor(id);
+        sensor.setIdDeviceType(deviceType);
+        sensor.setBuildingId(building);
+        sensor.setDevEui(devEui);
+        return sensor;
+    }
+
+    private static DeviceType deviceType(int id, String typeName) {
+        DeviceType deviceType = new DeviceType();
+        deviceType.setIdDeviceType(id);
+        deviceType.setTypeName(typeName);
+        return deviceType;
+    }
+
+    private static Building building(int id, String name) {
+        Building building = new Building();
+        building.setId(id);
+        building.setName(name);
+        return building;
+    }
+
+    private static Gateway gateway(String id, int building) {
+        Gateway gateway = new Gateway();
+        gateway.setGatewayId(id);
+        gateway.setBuildingId(building);
+        return gateway;
+    }
+}